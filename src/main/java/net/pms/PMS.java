@@ -58,6 +58,7 @@ import net.pms.configuration.RendererConfigurations;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.database.MediaDatabase;
 import net.pms.database.UserDatabase;
+import net.pms.dlna.DidlHelper;
 import net.pms.encoders.EngineFactory;
 import net.pms.encoders.FFmpegWebVideo;
 import net.pms.encoders.YoutubeDl;
@@ -133,6 +134,11 @@ public class PMS {
 
 	private boolean ready = false;
 
+	/**
+	 * Whether the configuration property being set changes its value.
+	 */
+	private volatile boolean configurationValueChanging;
+
 	public static final String AVS_SEPARATOR = "\1";
 
 	// (innot): The logger used for all logging.
@@ -495,7 +501,14 @@ public class PMS {
 		}
 
 		umsConfiguration.addConfigurationListener((ConfigurationEvent event) -> {
-			if (!event.isBeforeUpdate()) {
+			if (event.isBeforeUpdate()) {
+				// Setting a property to its current value doesn't change the DIDL of the items
+				Object value = umsConfiguration.getConfiguration().getProperty(event.getPropertyName());
+				configurationValueChanging = !String.valueOf(value).equals(String.valueOf(event.getPropertyValue()));
+			} else {
+				if (configurationValueChanging) {
+					DidlHelper.clearFragmentCache();
+				}
 				if (UmsConfiguration.NEED_MEDIA_SERVER_RELOAD_FLAGS.contains(event.getPropertyName())) {
 					GuiManager.setReloadable(true);
 				} else if (UmsConfiguration.NEED_RENDERERS_RELOAD_FLAGS.contains(event.getPropertyName())) {
@@ -22,7 +22,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import net.pms.encoders.EngineFactory;
@@ -37,7 +39,16 @@ import org.slf4j.LoggerFactory;
 
 public class FormatConfiguration {
 	private static final Logger LOGGER = LoggerFactory.getLogger(FormatConfiguration.class);
+	private static final int CODECS_MATCHES_CACHE_SIZE = 512;
 	private final ArrayList<SupportSpec> supportSpecs;
+
+	/**
+	 * The support specs whose format and codecs patterns match a given
+	 * container, video codec and audio codec combination, in configuration
+	 * order. Libraries only hold a handful of such combinations, so this
+	 * saves evaluating the patterns of every line for every media.
+	 */
+	private final Map<String, SupportSpec[]> codecsMatches = new ConcurrentHashMap<>();
 	public static final String THREEGPP = "3gp";
 	public static final String THREEGPP2 = "3g2";
 	public static final String THREEGA = "3ga";
@@ -183,6 +194,8 @@ public class FormatConfiguration {
 		private Pattern pAudioCodec;
 		private Pattern pFormat;
 		private Pattern pVideoCodec;
+		private Pattern pSupportedEmbeddedSubtitlesFormats;
+		private Pattern pSupportedExternalSubtitlesFormats;
 		private String audioCodec;
 		private String format;
 		private String maxBitrate;
@@ -249,6 +262,36 @@ public class FormatConfiguration {
 				}
 			}
 
+			if (supportedEmbeddedSubtitlesFormats != null) {
+				try {
+					pSupportedEmbeddedSubtitlesFormats = Pattern.compile(supportedEmbeddedSubtitlesFormats);
+				} catch (PatternSyntaxException pse) {
+					LOGGER.error(
+						"Error parsing supported embedded subtitles formats \"{}\" from line \"{}\": {}",
+						supportedEmbeddedSubtitlesFormats,
+						supportLine,
+						pse.getMessage()
+					);
+					LOGGER.trace("", pse);
+					return false;
+				}
+			}
+
+			if (supportedExternalSubtitlesFormats != null) {
+				try {
+					pSupportedExternalSubtitlesFormats = Pattern.compile(supportedExternalSubtitlesFormats);
+				} catch (PatternSyntaxException pse) {
+					LOGGER.error(
+						"Error parsing supported external subtitles formats \"{}\" from line \"{}\": {}",
+						supportedExternalSubtitlesFormats,
+						supportLine,
+						pse.getMessage()
+					);
+					LOGGER.trace("", pse);
+					return false;
+				}
+			}
+
 			if (StringUtils.isNotBlank(maxNbChannels)) {
 				try {
 					iMaxNbChannels = Integer.parseInt(maxNbChannels);
@@ -342,6 +385,36 @@ public class FormatConfiguration {
 			return true;
 		}
 
+		/**
+		 * Determine whether or not the provided container and codecs match
+		 * the format and codecs patterns of this "Supported" line. A null
+		 * parameter is skipped for making the match.
+		 *
+		 * @param format
+		 * @param videoCodec
+		 * @param audioCodec
+		 * @return False if any of the provided non-null parameters is not a
+		 * 			match, true otherwise.
+		 */
+		boolean matchCodecs(String format, String videoCodec, String audioCodec) {
+			if (format != null && !pFormat.matcher(format).matches()) {
+				LOGGER.trace("Format \"{}\" failed to match supported line {}", format, supportLine);
+				return false;
+			}
+
+			if (videoCodec != null && pVideoCodec != null && !pVideoCodec.matcher(videoCodec).matches()) {
+				LOGGER.trace("Video codec \"{}\" failed to match support line {}", videoCodec, supportLine);
+				return false;
+			}
+
+			if (audioCodec != null && pAudioCodec != null && !pAudioCodec.matcher(audioCodec).matches()) {
+				LOGGER.trace("Audio codec \"{}\" failed to match support line {}", audioCodec, supportLine);
+				return false;
+			}
+
+			return true;
+		}
+
 		/**
 		 * Determine whether or not the provided parameters match the
 		 * "Supported" lines for this configuration, or the related settings.
@@ -380,6 +453,8 @@ public class FormatConfiguration {
 		 * @param subsFormat
 		 * @param isExternalSubs
 		 * @param renderer
+		 * @param codecsMatched whether {@link #matchCodecs(String, String, String)}
+		 *               is already known to be true for these parameters.
 		 * @return False if any of the provided non-null parameters is not a
 		 * 			match, true otherwise.
 		 */
@@ -399,7 +474,8 @@ public class FormatConfiguration {
 			Map<String, String> extras,
 			String subsFormat,
 			boolean isExternalSubs,
-			RendererConfiguration renderer
+			RendererConfiguration renderer,
+			boolean codecsMatched
 		) {
 			// Satisfy a minimum threshold
 			if (format == null && videoCodec == null && audioCodec == null && subsFormat == null) {
@@ -409,18 +485,7 @@ public class FormatConfiguration {
 			}
 
 			// Assume a match, until proven otherwise
-			if (format != null && !pFormat.matcher(format).matches()) {
-				LOGGER.trace("Format \"{}\" failed to match supported line {}", format, supportLine);
-				return false;
-			}
-
-			if (videoCodec != null && pVideoCodec != null && !pVideoCodec.matcher(videoCodec).matches()) {
-				LOGGER.trace("Video codec \"{}\" failed to match support line {}", videoCodec, supportLine);
-				return false;
-			}
-
-			if (audioCodec != null && pAudioCodec != null && !pAudioCodec.matcher(audioCodec).matches()) {
-				LOGGER.trace("Audio codec \"{}\" failed to match support line {}", audioCodec, supportLine);
+			if (!codecsMatched && !matchCodecs(format, videoCodec, audioCodec)) {
 				return false;
 			}
 
@@ -526,7 +591,7 @@ public class FormatConfiguration {
 
 			if (subsFormat != null) {
 				if (isExternalSubs) {
-					if (supportedExternalSubtitlesFormats == null || !subsFormat.matches(supportedExternalSubtitlesFormats)) {
+					if (pSupportedExternalSubtitlesFormats == null || !pSupportedExternalSubtitlesFormats.matcher(subsFormat).matches()) {
 						LOGGER.trace("External subtitles format \"{}\" failed to match support line {}", subsFormat, supportLine);
 						if (renderer == null || !renderer.isExternalSubtitlesFormatSupportedForAllFiletypes(subsFormat)) {
 							LOGGER.trace("And did not match any formats in the SupportedExternalSubtitlesFormats renderer configuration setting");
@@ -536,7 +601,7 @@ public class FormatConfiguration {
 						}
 					}
 				} else {
-					if (supportedEmbeddedSubtitlesFormats == null || !subsFormat.matches(supportedEmbeddedSubtitlesFormats)) {
+					if (pSupportedEmbeddedSubtitlesFormats == null || !pSupportedEmbeddedSubtitlesFormats.matcher(subsFormat).matches()) {
 						LOGGER.trace("Internal subtitles format \"{}\" failed to match support line {}", subsFormat, supportLine);
 						if (renderer == null || !renderer.isEmbeddedSubtitlesFormatSupportedForAllFiletypes(subsFormat)) {
 							LOGGER.trace("And did not match any formats in the SupportedInternalSubtitlesFormats renderer configuration setting");
@@ -796,7 +861,7 @@ public class FormatConfiguration {
 	) {
 		String matchedMimeType = null;
 
-		for (SupportSpec supportSpec : supportSpecs) {
+		for (SupportSpec supportSpec : getCodecsMatches(container, videoCodec, audioCodec)) {
 			if (supportSpec.match(
 				container,
 				videoCodec,
@@ -813,7 +878,8 @@ public class FormatConfiguration {
 				extras,
 				subsFormat,
 				isInternal,
-				renderer
+				renderer,
+				true
 			)) {
 				matchedMimeType = supportSpec.mimeType;
 				break;
@@ -823,6 +889,37 @@ public class FormatConfiguration {
 		return matchedMimeType;
 	}
 
+	/**
+	 * Returns the support specs whose format and codecs patterns match the
+	 * given values, computing them only once per combination.
+	 *
+	 * @param container the container, or {@code null} to match any.
+	 * @param videoCodec the video codec, or {@code null} to match any.
+	 * @param audioCodec the audio codec, or {@code null} to match any.
+	 * @return the matching support specs in configuration order.
+	 */
+	private SupportSpec[] getCodecsMatches(String container, String videoCodec, String audioCodec) {
+		// Codec names contain neither tabs nor NUL characters
+		String key = Objects.toString(container, "\0") + '\t' +
+			Objects.toString(videoCodec, "\0") + '\t' +
+			Objects.toString(audioCodec, "\0");
+		SupportSpec[] matches = codecsMatches.get(key);
+		if (matches == null) {
+			List<SupportSpec> result = new ArrayList<>();
+			for (SupportSpec supportSpec : supportSpecs) {
+				if (supportSpec.matchCodecs(container, videoCodec, audioCodec)) {
+					result.add(supportSpec);
+				}
+			}
+			matches = result.toArray(SupportSpec[]::new);
+			if (codecsMatches.size() >= CODECS_MATCHES_CACHE_SIZE) {
+				codecsMatches.clear();
+			}
+			codecsMatches.put(key, matches);
+		}
+		return matches;
+	}
+
 	private static SupportSpec parseSupportLine(String line) {
 		StringTokenizer st = new StringTokenizer(line, "\t ");
 		SupportSpec supportSpec = new SupportSpec();
@@ -30,6 +30,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.pms.Messages;
 import net.pms.PMS;
+import net.pms.dlna.DidlHelper;
 import net.pms.formats.Format;
 import net.pms.formats.Format.Identifier;
 import net.pms.media.MediaInfo;
@@ -181,7 +182,7 @@ public class RendererConfiguration extends BaseConfiguration {
 	public static final File NOFILE = new File("NOFILE");
 	public static final String UNKNOWN_ICON = "unknown.png";
 
-	protected Matcher sortedHeaderMatcher;
+	protected Pattern sortedHeaderPattern;
 
 	protected UmsConfiguration umsConfiguration = PMS.getConfiguration();
 	protected boolean loaded = false;
@@ -312,9 +313,16 @@ public class RendererConfiguration extends BaseConfiguration {
 			searchMap.put("User-Agent", getUserAgent());
 			searchMap.put(getUserAgentAdditionalHttpHeader(), getUserAgentAdditionalHttpHeaderSearch());
 			String re = searchMap.toRegex();
-			sortedHeaderMatcher = StringUtils.isNotBlank(re) ? Pattern.compile(re, Pattern.CASE_INSENSITIVE).matcher("") : null;
-
+			sortedHeaderPattern = StringUtils.isNotBlank(re) ? Pattern.compile(re, Pattern.CASE_INSENSITIVE) : null;
 			boolean addWatch = file != f;
+			if (!addWatch) {
+				// Reloaded, the header matches and the DIDL of the items may
+				// change. New configurations are enabled by
+				// RendererConfigurations, which clears the header matches then.
+				RendererConfigurations.clearHeadersMatchCache();
+				DidlHelper.clearFragmentCache();
+			}
+
 			file = f;
 			if (addWatch) {
 				FileWatcher.add(new FileWatcher.Watch(getFile().getPath(), RELOADER, this));
@@ -1662,16 +1670,17 @@ public class RendererConfiguration extends BaseConfiguration {
 	}
 
 	/**
-	 * Pattern match our combined header matcher to the given collection of sorted request
-	 * headers as a whole.
+	 * Pattern match our combined header pattern to the given collection of sorted request
+	 * headers as a whole. This is safe to call concurrently.
 	 *
 	 * @param headers The headers.
-	 * @return True if the pattern matches or false if no match, no headers, or no matcher.
+	 * @return True if the pattern matches or false if no match, no headers, or no pattern.
 	 */
 	public boolean match(SortedHeaderMap headers) {
-		if (headers != null && !headers.isEmpty() && sortedHeaderMatcher != null) {
+		Pattern pattern = sortedHeaderPattern;
+		if (headers != null && !headers.isEmpty() && pattern != null) {
 			try {
-				return sortedHeaderMatcher.reset(headers.joined()).find();
+				return pattern.matcher(headers.joined()).find();
 			} catch (Exception e) {
 				return false;
 			}
@@ -29,8 +29,11 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import net.pms.PMS;
 import net.pms.newgui.GeneralTab;
 import net.pms.renderers.ConnectedRenderers;
@@ -89,6 +92,22 @@ public class RendererConfigurations {
 	private static final SortedSet<RendererConfiguration> ENABLED_RENDERERS_CONFS = Collections.synchronizedSortedSet(new TreeSet<>(RENDERER_LOADING_PRIORITY_COMPARATOR));
 	private static final Map<String, PropertiesConfiguration> DEVICES_CONFS = Collections.synchronizedMap(new HashMap<>());
 
+	/**
+	 * An immutable copy of {@link #ENABLED_RENDERERS_CONFS} in loading
+	 * priority order, replaced whenever the set changes, so that lookups can
+	 * iterate it without locking.
+	 */
+	private static volatile RendererConfiguration[] enabledRenderersSnapshot = new RendererConfiguration[0];
+
+	/**
+	 * The results of {@link #getRendererConfigurationByHeaders(SortedHeaderMap)}
+	 * keyed by the joined sorted headers, including misses. It is cleared when
+	 * the enabled configurations or their header patterns change.
+	 */
+	private static final int HEADERS_MATCH_CACHE_SIZE = 1024;
+	private static final Map<String, Optional<RendererConfiguration>> HEADERS_MATCH_CACHE = new ConcurrentHashMap<>();
+	private static final AtomicLong HEADERS_MATCH_GENERATION = new AtomicLong();
+
 	private static RendererConfiguration defaultConf;
 	private static Renderer defaultRenderer;
 
@@ -118,6 +137,23 @@ public class RendererConfigurations {
 
 	private static void addRendererConfiguration(RendererConfiguration r) {
 		ENABLED_RENDERERS_CONFS.add(r);
+		updateEnabledRenderersSnapshot();
+	}
+
+	private static void updateEnabledRenderersSnapshot() {
+		synchronized (ENABLED_RENDERERS_CONFS) {
+			enabledRenderersSnapshot = ENABLED_RENDERERS_CONFS.toArray(RendererConfiguration[]::new);
+		}
+		clearHeadersMatchCache();
+	}
+
+	/**
+	 * Forgets the cached header matches, to be called when a renderer header
+	 * pattern changes.
+	 */
+	static void clearHeadersMatchCache() {
+		HEADERS_MATCH_GENERATION.incrementAndGet();
+		HEADERS_MATCH_CACHE.clear();
 	}
 
 	/**
@@ -131,8 +167,8 @@ public class RendererConfigurations {
 	 *
 	 * @since 1.50.1
 	 */
-	public static synchronized RendererConfiguration getRendererConfigurationByName(String name) {
-		for (RendererConfiguration conf : ENABLED_RENDERERS_CONFS) {
+	public static RendererConfiguration getRendererConfigurationByName(String name) {
+		for (RendererConfiguration conf : enabledRenderersSnapshot) {
 			if (conf.getConfName().toLowerCase().contains(name.toLowerCase())) {
 				return conf;
 			}
@@ -140,24 +176,52 @@ public class RendererConfigurations {
 		return null;
 	}
 
-	public static synchronized RendererConfiguration getRendererConfigurationByHeaders(SortedHeaderMap sortedHeaders) {
+	/**
+	 * Tries to find the first renderer configuration, in loading priority
+	 * order, whose header pattern matches the given headers.
+	 *
+	 * Results are cached by the joined headers, so repeated lookups for the
+	 * same kind of device don't evaluate the patterns again.
+	 *
+	 * @param sortedHeaders the request headers.
+	 * @return The matching renderer configuration or <code>null</code>
+	 */
+	public static RendererConfiguration getRendererConfigurationByHeaders(SortedHeaderMap sortedHeaders) {
 		if (PMS.getConfiguration().isRendererForceDefault()) {
 			// Force default renderer
 			RendererConfiguration r = getDefaultConf();
 			LOGGER.debug("Forcing renderer match to \"" + r.getRendererName() + "\"");
 			return r;
 		}
-		for (RendererConfiguration r : ENABLED_RENDERERS_CONFS) {
+		if (sortedHeaders == null || sortedHeaders.isEmpty()) {
+			return null;
+		}
+		String key = sortedHeaders.joined();
+		Optional<RendererConfiguration> cached = HEADERS_MATCH_CACHE.get(key);
+		if (cached != null) {
+			return cached.orElse(null);
+		}
+		long generation = HEADERS_MATCH_GENERATION.get();
+		RendererConfiguration result = null;
+		for (RendererConfiguration r : enabledRenderersSnapshot) {
 			if (r.match(sortedHeaders)) {
 				LOGGER.debug("Matched media renderer \"" + r.getRendererName() + "\" based on headers " + sortedHeaders);
-				return r;
+				result = r;
+				break;
 			}
 		}
-		return null;
+		// Don't cache a result computed from configurations that changed meanwhile
+		if (generation == HEADERS_MATCH_GENERATION.get()) {
+			if (HEADERS_MATCH_CACHE.size() >= HEADERS_MATCH_CACHE_SIZE) {
+				HEADERS_MATCH_CACHE.clear();
+			}
+			HEADERS_MATCH_CACHE.put(key, Optional.ofNullable(result));
+		}
+		return result;
 	}
 
-	public static synchronized RendererConfiguration getRendererConfigurationByUPNPDetails(String details) {
-		for (RendererConfiguration r : ENABLED_RENDERERS_CONFS) {
+	public static RendererConfiguration getRendererConfigurationByUPNPDetails(String details) {
+		for (RendererConfiguration r : enabledRenderersSnapshot) {
 			if (r.matchUPNPDetails(details)) {
 				LOGGER.debug("Matched media renderer \"" + r.getRendererName() + "\" based on dlna details \"" + details + "\"");
 				return r;
@@ -367,6 +431,7 @@ public class RendererConfigurations {
 	public static synchronized void loadRendererConfigurations() {
 		synchronized (LOAD_RENDERER_CONFIGURATIONS_LOCK) {
 			ENABLED_RENDERERS_CONFS.clear();
+			updateEnabledRenderersSnapshot();
 			try {
 				defaultConf = new RendererConfiguration(null);
 				defaultRenderer = new Renderer(defaultConf);
@@ -378,6 +443,7 @@ public class RendererConfigurations {
 
 			loadConfigurations(getProfileRenderersDir(), true);
 			loadConfigurations(getRenderersDir(), false);
+			updateEnabledRenderersSnapshot();
 		}
 
 		LOGGER.info("Enabled " + ENABLED_RENDERERS_CONFS.size() + " configurations, listed in order of loading priority:");
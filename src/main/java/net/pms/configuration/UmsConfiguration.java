@@ -211,6 +211,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_ALTERNATE_SUBTITLES_FOLDER = "alternate_subtitles_folder";
 	private static final String KEY_ALTERNATE_THUMB_FOLDER = "alternate_thumb_folder";
 	private static final String KEY_APPEND_PROFILE_NAME = "append_profile_name";
+	private static final String KEY_ARCHIVE_EXTRACTION_CACHE_SIZE = "archive_extraction_cache_size";
 	private static final String KEY_ATZ_LIMIT = "atz_limit";
 	private static final String KEY_AUTOMATIC_DISCOVER = "automatic_discover";
 	private static final String KEY_AUTOMATIC_MAXIMUM_BITRATE = "automatic_maximum_bitrate";
@@ -250,6 +251,10 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_DATABASE_MEDIA_CACHE_SIZE_KB = "database_media_cache_size";
 	private static final String KEY_DATABASE_MEDIA_USE_CACHE_SOFT = "database_media_use_cache_soft";
 	private static final String KEY_DATABASE_MEDIA_USE_MEMORY_INDEXES = "database_media_use_memory_indexes";
+	private static final String KEY_DATABASE_POOL_LEAK_DETECTION_THRESHOLD = "database_pool_leak_detection_threshold";
+	private static final String KEY_DATABASE_POOL_SIZE = "database_pool_size";
+	private static final String KEY_DATABASE_QUERY_CACHE_SIZE = "database_query_cache_size";
+	private static final String KEY_DATABASE_QUERY_METRICS = "database_query_metrics";
 	private static final String KEY_DISABLE_EXTERNAL_ENTITIES = "disable_external_entities";
 	private static final String KEY_DISABLE_FAKESIZE = "disable_fakesize";
 	private static final String KEY_DISABLE_SUBTITLES = "disable_subtitles";
@@ -265,6 +270,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_ENGINES_PRIORITY = "engines_priority";
 	/* Start without external network (increase startup speed) */
 	private static final String KEY_EXTERNAL_NETWORK = "external_network";
+	private static final String KEY_EXTERNAL_NETWORK_CACHE_DAYS = "external_network_cache_days";
 	private static final String KEY_FFMPEG_AVAILABLE_GPU_ACCELERATION_METHODS = "ffmpeg_available_gpu_acceleration_methods";
 	private static final String KEY_FFMPEG_AVISYNTH_2D_TO_3D = "ffmpeg_avisynth_2d_to_3d_conversion";
 	private static final String KEY_FFMPEG_AVISYNTH_CONVERSION_ALGORITHM_2D_TO_3D = "ffmpeg_avisynth_conversion_algorithm_index_2d_to_3d";
@@ -305,8 +311,10 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_HIDE_EMPTY_FOLDERS = "hide_empty_folders";
 	private static final String KEY_HIDE_ENGINENAMES = "hide_enginenames";
 	private static final String KEY_HIDE_EXTENSIONS = "hide_extensions";
+	private static final String KEY_HLS_SEGMENT_CACHE_SIZE = "hls_segment_cache_size";
 	private static final String KEY_IGNORE_THE_WORD_A_AND_THE = "ignore_the_word_a_and_the";
 	private static final String KEY_IMAGE_THUMBNAILS_ENABLED = "image_thumbnails";
+	private static final String KEY_INCREMENTAL_MEDIA_SCAN = "incremental_media_scan";
 	private static final String KEY_INFO_DB_RETRY = "infodb_retry";
 	private static final String KEY_JWT_SIGNER_SECRET = "jwt_secret";
 	private static final String KEY_LANGUAGE = "language";
@@ -327,6 +335,11 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_MAX_AUDIO_BUFFER = "maximum_audio_buffer_size";
 	private static final String KEY_MAX_BITRATE = "maximum_bitrate";
 	private static final String KEY_MAX_MEMORY_BUFFER_SIZE = "maximum_video_buffer_size";
+	private static final String KEY_TRANSCODE_BUFFER_TYPE = "transcode_buffer_type";
+	private static final String KEY_MEDIAINFO_POOL_SIZE = "mediainfo_pool_size";
+	private static final String KEY_MEDIA_LIBRARY_PAGING = "media_library_paging";
+	private static final String KEY_MEDIA_PARSER_MAX_THREADS = "media_parser_max_threads";
+	private static final String KEY_MEDIA_SCAN_MAX_THREADS = "media_scan_max_threads";
 	private static final String KEY_MENCODER_ASS = "mencoder_ass";
 	private static final String KEY_MENCODER_AC3_FIXED = "mencoder_ac3_fixed";
 	private static final String KEY_MENCODER_CODEC_SPECIFIC_SCRIPT = "mencoder_codec_specific_script";
@@ -395,6 +408,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_SERVER_NAME = "server_name";
 	private static final String KEY_SERVER_PORT = "port";
 	private static final String KEY_SHARED_CONF_PATH = "shared_conf";
+	private static final String KEY_SHARED_TRANSCODE_SESSIONS = "shared_transcode_sessions";
 	private static final String KEY_SHOW_INFO_ABOUT_AUTOMATIC_VIDEO_SETTING = "show_info";
 	private static final String KEY_SHOW_LIVE_SUBTITLES_FOLDER = "show_live_subtitles_folder";
 	private static final String KEY_SHOW_MEDIA_LIBRARY_FOLDER = "show_media_library_folder";
@@ -417,6 +431,7 @@ public class UmsConfiguration extends BaseConfiguration {
 	private static final String KEY_SUBTITLES_LANGUAGES = "subtitles_languages";
 	private static final String KEY_TEMP_FOLDER_PATH = "temp_directory";
 	private static final String KEY_THUMBNAIL_GENERATION_ENABLED = "generate_thumbnails";
+	private static final String KEY_THUMBNAIL_GENERATION_THREADS = "thumbnail_generation_threads";
 	private static final String KEY_THUMBNAIL_SEEK_POS = "thumbnail_seek_position";
 	private static final String KEY_TMDB_API_KEY = "tmdb_api_key";
 	private static final String KEY_TRANSCODE_BLOCKS_MULTIPLE_CONNECTIONS = "transcode_block_multiple_connections";
@@ -1782,6 +1797,68 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_MAX_MEMORY_BUFFER_SIZE, Math.max(0, Math.min(maxMaxMemoryBufferSize, value)));
 	}
 
+	/**
+	 * Whether renderers playing the same item with the same engine and
+	 * settings should share a single transcoding process.
+	 *
+	 * @return whether transcode sessions are shared.
+	 */
+	public boolean isSharedTranscodeSessions() {
+		return getBoolean(KEY_SHARED_TRANSCODE_SESSIONS, true);
+	}
+
+	/**
+	 * Whether renderers playing the same item with the same engine and
+	 * settings should share a single transcoding process.
+	 *
+	 * @param value whether transcode sessions are shared.
+	 */
+	public void setSharedTranscodeSessions(boolean value) {
+		configuration.setProperty(KEY_SHARED_TRANSCODE_SESSIONS, value);
+	}
+
+	/**
+	 * Returns the maximum size in megabytes of the on-disk cache of HLS
+	 * segments. HLS renditions are transcoded by one process writing
+	 * segments into this cache; 0 disables it and starts a transcode for
+	 * each segment request. Default value is 1024.
+	 *
+	 * @return The HLS segment cache size in megabytes.
+	 */
+	public int getHlsSegmentCacheSize() {
+		return Math.max(0, getInt(KEY_HLS_SEGMENT_CACHE_SIZE, 1024));
+	}
+
+	/**
+	 * Sets the maximum size in megabytes of the on-disk cache of HLS
+	 * segments, 0 to disable it.
+	 *
+	 * @param value The HLS segment cache size in megabytes.
+	 */
+	public void setHlsSegmentCacheSize(int value) {
+		configuration.setProperty(KEY_HLS_SEGMENT_CACHE_SIZE, Math.max(0, value));
+	}
+
+	/**
+	 * Returns the kind of storage used by the transcoding buffers: "heap",
+	 * "direct" for direct memory outside of the Java heap, or "mapped" for a
+	 * memory-mapped temporary file. Default value is "heap".
+	 *
+	 * @return The transcoding buffer type.
+	 */
+	public String getTranscodeBufferType() {
+		return getString(KEY_TRANSCODE_BUFFER_TYPE, "heap");
+	}
+
+	/**
+	 * Sets the kind of storage used by the transcoding buffers.
+	 *
+	 * @param value The transcoding buffer type: "heap", "direct" or "mapped".
+	 */
+	public void setTranscodeBufferType(String value) {
+		configuration.setProperty(KEY_TRANSCODE_BUFFER_TYPE, value);
+	}
+
 	/**
 	 * Returns the font scale used for ASS subtitling. Default value is 1.4.
 	 * @return The ASS font scale.
@@ -2290,6 +2367,26 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_OPEN_ARCHIVES, value);
 	}
 
+	/**
+	 * Returns the maximum size of the files extracted from compressed archive
+	 * entries, which are kept so that they can be seeked and shared.
+	 *
+	 * @return The maximum size in megabytes.
+	 */
+	public int getArchiveExtractionCacheSize() {
+		return Math.max(0, getInt(KEY_ARCHIVE_EXTRACTION_CACHE_SIZE, 2048));
+	}
+
+	/**
+	 * Sets the maximum size of the files extracted from compressed archive
+	 * entries.
+	 *
+	 * @param value The maximum size in megabytes.
+	 */
+	public void setArchiveExtractionCacheSize(int value) {
+		configuration.setProperty(KEY_ARCHIVE_EXTRACTION_CACHE_SIZE, value);
+	}
+
 	/**
 	 * Returns true if MEncoder should use the deinterlace filter, false
 	 * otherwise.
@@ -2517,6 +2614,26 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_THUMBNAIL_GENERATION_ENABLED, value);
 	}
 
+	/**
+	 * Returns the maximum number of thumbnails that can be generated at the
+	 * same time. Defaults to half of {@link #getMediaParserMaxThreads()}.
+	 *
+	 * @return the number of thumbnail generation threads.
+	 */
+	public int getThumbnailGenerationThreads() {
+		return Math.max(1, getInt(KEY_THUMBNAIL_GENERATION_THREADS, getMediaParserMaxThreads() / 2));
+	}
+
+	/**
+	 * Sets the maximum number of thumbnails that can be generated at the same
+	 * time.
+	 *
+	 * @param value the number of thumbnail generation threads.
+	 */
+	public void setThumbnailGenerationThreads(int value) {
+		configuration.setProperty(KEY_THUMBNAIL_GENERATION_THREADS, value);
+	}
+
 	/**
 	 * Returns the number of seconds from the start of a video file (the seek
 	 * position) where the thumbnail image for the movie should be extracted
@@ -4242,6 +4359,28 @@ public class UmsConfiguration extends BaseConfiguration {
 		this.configuration.setProperty(UmsConfiguration.KEY_SHOW_MEDIA_LIBRARY_FOLDER, value);
 	}
 
+	/**
+	 * Whether the file folders of the media library are read from the
+	 * database one page at a time, in the order of their query, instead of
+	 * being fully loaded and sorted by display name.
+	 *
+	 * @return whether the file folders are paged
+	 */
+	public boolean isMediaLibraryPaging() {
+		return getBoolean(UmsConfiguration.KEY_MEDIA_LIBRARY_PAGING, false);
+	}
+
+	/**
+	 * Whether the file folders of the media library are read from the
+	 * database one page at a time, in the order of their query, instead of
+	 * being fully loaded and sorted by display name.
+	 *
+	 * @param value whether the file folders are paged
+	 */
+	public void setMediaLibraryPaging(final boolean value) {
+		this.configuration.setProperty(UmsConfiguration.KEY_MEDIA_LIBRARY_PAGING, value);
+	}
+
 	/**
 	 * Whether to show the "#--TRANSCODE--#" folder on the renderer.
 	 *
@@ -4406,6 +4545,86 @@ public class UmsConfiguration extends BaseConfiguration {
 		this.configuration.setProperty(KEY_SCAN_SHARED_FOLDERS_ON_STARTUP, value);
 	}
 
+	/**
+	 * Whether the media scanner should skip the folders that did not change
+	 * since the previous scan.
+	 *
+	 * @return whether the media scan is incremental
+	 */
+	public boolean isIncrementalMediaScan() {
+		return getBoolean(KEY_INCREMENTAL_MEDIA_SCAN, true);
+	}
+
+	/**
+	 * Whether the media scanner should skip the folders that did not change
+	 * since the previous scan.
+	 *
+	 * @param value whether the media scan is incremental
+	 */
+	public void setIncrementalMediaScan(final boolean value) {
+		this.configuration.setProperty(KEY_INCREMENTAL_MEDIA_SCAN, value);
+	}
+
+	/**
+	 * Returns the maximum number of media files that can be parsed at the
+	 * same time.
+	 *
+	 * @return the maximum number of concurrent media parsing threads.
+	 */
+	public int getMediaParserMaxThreads() {
+		return Math.max(1, getInt(KEY_MEDIA_PARSER_MAX_THREADS, getNumberOfSystemCpuCores()));
+	}
+
+	/**
+	 * Sets the maximum number of media files that can be parsed at the same
+	 * time.
+	 *
+	 * @param value the maximum number of concurrent media parsing threads.
+	 */
+	public void setMediaParserMaxThreads(int value) {
+		configuration.setProperty(KEY_MEDIA_PARSER_MAX_THREADS, value);
+	}
+
+	/**
+	 * Returns the maximum number of MediaInfo handles, which is the number of
+	 * files MediaInfo can parse at the same time. Defaults to
+	 * {@link #getMediaParserMaxThreads()}.
+	 *
+	 * @return the MediaInfo handles pool size.
+	 */
+	public int getMediaInfoPoolSize() {
+		return Math.max(1, getInt(KEY_MEDIAINFO_POOL_SIZE, getMediaParserMaxThreads()));
+	}
+
+	/**
+	 * Sets the maximum number of MediaInfo handles.
+	 *
+	 * @param value the MediaInfo handles pool size.
+	 */
+	public void setMediaInfoPoolSize(int value) {
+		configuration.setProperty(KEY_MEDIAINFO_POOL_SIZE, value);
+	}
+
+	/**
+	 * Returns the maximum number of folders that the media scanner can scan
+	 * at the same time.
+	 *
+	 * @return the maximum number of concurrent media scanner threads.
+	 */
+	public int getMediaScanMaxThreads() {
+		return Math.max(1, getInt(KEY_MEDIA_SCAN_MAX_THREADS, getNumberOfSystemCpuCores()));
+	}
+
+	/**
+	 * Sets the maximum number of folders that the media scanner can scan at
+	 * the same time.
+	 *
+	 * @param value the maximum number of concurrent media scanner threads.
+	 */
+	public void setMediaScanMaxThreads(int value) {
+		configuration.setProperty(KEY_MEDIA_SCAN_MAX_THREADS, value);
+	}
+
 	/**
 	 * Whether to show the "Recently Played" folder on the renderer.
 	 *
@@ -4683,6 +4902,26 @@ public class UmsConfiguration extends BaseConfiguration {
 		configuration.setProperty(KEY_EXTERNAL_NETWORK, b);
 	}
 
+	/**
+	 * Returns the number of days the responses of the external metadata
+	 * servers are cached on disk. 0 disables the cache.
+	 *
+	 * @return the number of days.
+	 */
+	public int getExternalNetworkCacheDays() {
+		return Math.max(0, getInt(KEY_EXTERNAL_NETWORK_CACHE_DAYS, 7));
+	}
+
+	/**
+	 * Sets the number of days the responses of the external metadata servers
+	 * are cached on disk.
+	 *
+	 * @param value the number of days, 0 to disable the cache.
+	 */
+	public void setExternalNetworkCacheDays(int value) {
+		configuration.setProperty(KEY_EXTERNAL_NETWORK_CACHE_DAYS, value);
+	}
+
 	public boolean isUseInfoFromTMDB() {
 		return getBoolean(KEY_USE_TMDB_INFO, true);
 	}
@@ -4960,6 +5199,50 @@ public class UmsConfiguration extends BaseConfiguration {
 		return getBoolean(KEY_DATABASE_MEDIA_USE_CACHE_SOFT, false);
 	}
 
+	/**
+	 * Get the maximum number of connections of the database connection pools.
+	 * @return the pool size, 10 by default
+	 */
+	public int getDatabasePoolSize() {
+		return Math.max(1, getInt(KEY_DATABASE_POOL_SIZE, 10));
+	}
+
+	/**
+	 * Set the maximum number of connections of the database connection pools.
+	 * @param value the pool size
+	 */
+	public void setDatabasePoolSize(int value) {
+		configuration.setProperty(KEY_DATABASE_POOL_SIZE, value);
+	}
+
+	/**
+	 * Get the time after which a database connection not returned to its
+	 * pool is logged as a possible leak.
+	 * @return the threshold in milliseconds, 0 (disabled) by default
+	 */
+	public long getDatabasePoolLeakDetectionThreshold() {
+		long value = getLong(KEY_DATABASE_POOL_LEAK_DETECTION_THRESHOLD, 0);
+		// values under 2 seconds are refused by the pool
+		return value < 2000 ? 0 : value;
+	}
+
+	/**
+	 * Get the number of parsed statements cached per database connection.
+	 * @return the query cache size, 64 by default
+	 */
+	public int getDatabaseQueryCacheSize() {
+		return Math.max(0, getInt(KEY_DATABASE_QUERY_CACHE_SIZE, 64));
+	}
+
+	/**
+	 * Return whether the execution time of the database statements is
+	 * recorded in the server metrics.
+	 * @return true if the statements are timed, false by default
+	 */
+	public boolean isDatabaseQueryMetrics() {
+		return getBoolean(KEY_DATABASE_QUERY_METRICS, false);
+	}
+
 	public boolean isVlcUseHardwareAccel() {
 		return getBoolean(KEY_VLC_USE_HW_ACCELERATION, false);
 	}
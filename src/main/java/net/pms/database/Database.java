@@ -35,6 +35,8 @@ public abstract class Database extends DatabaseHelper {
 
 	private final boolean embedded;
 	private final HikariDataSource ds;
+	private final DatabasePoolMetrics poolMetrics;
+	private final boolean queryMetrics;
 	private final String dbName;
 
 	protected DatabaseStatus status;
@@ -56,23 +58,41 @@ public abstract class Database extends DatabaseHelper {
 		ds = new HikariDataSource();
 		ds.setJdbcUrl(jdbcUrl);
 		ds.setUsername(DatabaseEmbedded.getDbUser());
+		ds.setPoolName(name);
+		ds.setMaximumPoolSize(CONFIGURATION.getDatabasePoolSize());
+		long leakDetectionThreshold = CONFIGURATION.getDatabasePoolLeakDetectionThreshold();
+		ds.setLeakDetectionThreshold(leakDetectionThreshold);
+		poolMetrics = new DatabasePoolMetrics(leakDetectionThreshold);
+		ds.setMetricsTrackerFactory(poolMetrics);
+		queryMetrics = CONFIGURATION.isDatabaseQueryMetrics();
 	}
 
 	/**
 	 * Gets a new connection from the connection pool if one is available. If
 	 * not waits for a free slot until timeout.<br>
 	 * <br>
-	 * <strong>Important: Every connection must be closed after use</strong>
+	 * <strong>Important: Every connection must be closed after use</strong><br>
+	 * <br>
+	 * The execution time of the statements of the connection is recorded in
+	 * the server metrics when the query metrics are enabled.
 	 *
 	 * @return the new connection
 	 * @throws SQLException
 	 */
 	public Connection getConnection() throws SQLException {
-		return ds.getConnection();
+		Connection connection = ds.getConnection();
+		return queryMetrics ? MeteredConnection.wrap(connection) : connection;
 	}
 
 	public int getActiveConnections() throws SQLException {
-		return ds.isRegisterMbeans() ? ds.getHikariPoolMXBean().getActiveConnections() : 0;
+		return poolMetrics.getActiveConnections();
+	}
+
+	/**
+	 * @return the metrics of the connection pool.
+	 */
+	public DatabasePoolMetrics getPoolMetrics() {
+		return poolMetrics;
 	}
 
 	public boolean isOpened() {
@@ -169,6 +189,7 @@ public abstract class Database extends DatabaseHelper {
 				LOGGER.error("shutdown DB ", ex);
 			}
 		}
+		LOGGER.debug("Database \"{}\" connection pool: {}", dbName, poolMetrics);
 		ds.close();
 		status = DatabaseStatus.CLOSED;
 	}
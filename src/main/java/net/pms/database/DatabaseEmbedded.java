@@ -71,6 +71,10 @@ public class DatabaseEmbedded {
 			url += ";CACHE_TYPE=" + Constants.CACHE_TYPE_DEFAULT;
 		}
 
+		// Parsed statements are cached per connection, so the same SQL
+		// prepared again by the MediaTable helpers is not parsed again
+		url += ";QUERY_CACHE_SIZE=" + CONFIGURATION.getDatabaseQueryCacheSize();
+
 		if (CONFIGURATION.isDatabaseMediaUseMemoryIndexes()) {
 			url += ";DEFAULT_TABLE_TYPE=MEMORY";
 			LOGGER.info("Database indexes in memory is enabled");
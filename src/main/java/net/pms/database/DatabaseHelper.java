@@ -248,6 +248,7 @@ public abstract class DatabaseHelper {
 	protected static final String FROM = " FROM ";
 	protected static final String GREATER_OR_EQUAL_THAN = " >= ";
 	protected static final String GREATER_THAN = " > ";
+	protected static final String GROUP_BY = " GROUP BY ";
 	protected static final String IF = "IF ";
 	protected static final String IN = " IN ";
 	protected static final String IS = " IS ";
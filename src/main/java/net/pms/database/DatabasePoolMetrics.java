@@ -0,0 +1,148 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the metrics of a database connection pool: connections usage,
+ * time spent waiting for a connection, timeouts and connections held longer
+ * than the leak detection threshold.
+ */
+public class DatabasePoolMetrics implements MetricsTrackerFactory {
+
+	private final long leakThresholdMs;
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong leaks = new AtomicLong();
+	private volatile PoolStats poolStats;
+
+	/**
+	 * @param leakThresholdMs the time after which a connection which was not
+	 *            returned to the pool is counted as leaked, 0 to disable.
+	 */
+	public DatabasePoolMetrics(long leakThresholdMs) {
+		this.leakThresholdMs = leakThresholdMs;
+	}
+
+	@Override
+	public IMetricsTracker create(String poolName, PoolStats poolStats) {
+		this.poolStats = poolStats;
+		return new IMetricsTracker() {
+			@Override
+			public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+				acquired.incrementAndGet();
+				waitNanos.addAndGet(elapsedAcquiredNanos);
+				maxWaitNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+			}
+
+			@Override
+			public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+				if (leakThresholdMs > 0 && elapsedBorrowedMillis >= leakThresholdMs) {
+					leaks.incrementAndGet();
+				}
+			}
+
+			@Override
+			public void recordConnectionTimeout() {
+				timeouts.incrementAndGet();
+			}
+		};
+	}
+
+	/**
+	 * @return the number of connections currently in use.
+	 */
+	public int getActiveConnections() {
+		PoolStats stats = poolStats;
+		return stats != null ? stats.getActiveConnections() : 0;
+	}
+
+	/**
+	 * @return the number of idle connections in the pool.
+	 */
+	public int getIdleConnections() {
+		PoolStats stats = poolStats;
+		return stats != null ? stats.getIdleConnections() : 0;
+	}
+
+	/**
+	 * @return the number of threads waiting for a connection.
+	 */
+	public int getPendingThreads() {
+		PoolStats stats = poolStats;
+		return stats != null ? stats.getPendingThreads() : 0;
+	}
+
+	/**
+	 * @return the number of connections handed out by the pool.
+	 */
+	public long getAcquiredConnections() {
+		return acquired.get();
+	}
+
+	/**
+	 * @return the average time spent waiting for a connection, in
+	 *         microseconds.
+	 */
+	public long getAverageWaitMicros() {
+		long count = acquired.get();
+		return count > 0 ? TimeUnit.NANOSECONDS.toMicros(waitNanos.get() / count) : 0;
+	}
+
+	/**
+	 * @return the longest time spent waiting for a connection, in
+	 *         microseconds.
+	 */
+	public long getMaxWaitMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get());
+	}
+
+	/**
+	 * @return the number of connection requests which timed out.
+	 */
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	/**
+	 * @return the number of connections held longer than the leak detection
+	 *         threshold.
+	 */
+	public long getLeaks() {
+		return leaks.get();
+	}
+
+	@Override
+	public String toString() {
+		return "active=" + getActiveConnections() +
+			", idle=" + getIdleConnections() +
+			", pending=" + getPendingThreads() +
+			", acquired=" + getAcquiredConnections() +
+			", avgWait=" + getAverageWaitMicros() + " us" +
+			", maxWait=" + getMaxWaitMicros() + " us" +
+			", timeouts=" + getTimeouts() +
+			", leaks=" + getLeaks();
+	}
+
+}
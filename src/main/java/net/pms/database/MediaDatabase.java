@@ -19,6 +19,7 @@ package net.pms.database;
 import java.sql.Connection;
 import java.sql.SQLException;
 import net.pms.store.MediaScanner;
+import net.pms.store.MediaStoreIds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +52,8 @@ public class MediaDatabase extends Database {
 
 	@Override
 	public final void onOpening(boolean force) {
+		// the database may have been recreated, cached ids are no longer valid
+		MediaStoreIds.clearCache();
 		try {
 			checkTables(force);
 		} catch (SQLException se) {
@@ -113,6 +116,11 @@ public class MediaDatabase extends Database {
 				MediaTableMusicBrainzReleaseLike.checkTable(connection);
 
 				MediaTableStoreIds.checkTable(connection);
+				MediaTableFolderFingerprints.checkTable(connection);
+				MediaTableSearchIndex.checkTable(connection);
+
+				//Generations (need to be last)
+				TableGenerations.checkTables(connection);
 			}
 			tablesChecked = true;
 		}
@@ -148,6 +156,8 @@ public class MediaDatabase extends Database {
 
 		dropTableAndConstraint(connection, MediaTableTVSeries.TABLE_NAME);
 		dropTableAndConstraint(connection, MediaTableFailedLookups.TABLE_NAME);
+		dropTableAndConstraint(connection, MediaTableFolderFingerprints.TABLE_NAME);
+		dropTableAndConstraint(connection, MediaTableSearchIndex.TABLE_NAME);
 
 		// Video metadata tables
 		dropTableAndConstraint(connection, MediaTableVideoMetadataActors.TABLE_NAME);
@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
@@ -483,6 +484,8 @@ public class MediaTableFiles extends MediaTable {
 				//delete rows to cascade delete
 				LOGGER.error("Deleting data from table: {}", TABLE_NAME);
 				executeUpdate(connection, DELETE_FROM + TABLE_NAME);
+				//unchanged folders must be scanned again to refill the table
+				MediaTableFolderFingerprints.clear(connection);
 				//remove table and constraints
 				MediaDatabase.dropCascadeConstraint(connection, TABLE_NAME);
 				MediaDatabase.dropTable(connection, TABLE_NAME);
@@ -726,6 +729,7 @@ public class MediaTableFiles extends MediaTable {
 					if (isCreatingNewRecord) {
 						result.insertRow();
 						fileId = getFileId(connection, name);
+						MediaTableSearchIndex.setFileName(connection, fileId, name);
 					} else {
 						result.updateRow();
 					}
@@ -929,6 +933,7 @@ public class MediaTableFiles extends MediaTable {
 					PreparedStatement ps = connection.prepareStatement(SQL_GET_FILENAME_MODIFIED_ID, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
 					ResultSet rs = ps.executeQuery()) {
 					List<File> sharedFolders = SharedContentConfiguration.getSharedFolders();
+					Set<String> removedFolders = new HashSet<>();
 					int oldpercent = 0;
 					int i = 0;
 					while (rs.next()) {
@@ -938,6 +943,7 @@ public class MediaTableFiles extends MediaTable {
 						if (!file.exists() || file.lastModified() != modified) {
 							LOGGER.trace("Removing the file {} from our database because it is no longer on the hard drive", filename);
 							rs.deleteRow();
+							removedFolders.add(file.getParent());
 						} else {
 							// the file exists on the hard drive, but now check if we are still sharing it
 							boolean isFileStillShared = false;
@@ -951,6 +957,7 @@ public class MediaTableFiles extends MediaTable {
 							if (!isFileStillShared) {
 								LOGGER.trace("Removing the file {} from our database because it is no longer shared", filename);
 								rs.deleteRow();
+								removedFolders.add(file.getParent());
 							}
 						}
 
@@ -961,6 +968,8 @@ public class MediaTableFiles extends MediaTable {
 							oldpercent = newpercent;
 						}
 					}
+					removedFolders.remove(null);
+					MediaTableFolderFingerprints.removeFoldersAndParents(connection, removedFolders);
 				}
 				GuiManager.setStatusLine(null);
 			}
@@ -1071,13 +1080,50 @@ public class MediaTableFiles extends MediaTable {
 	//TODO : review this
 	public static List<File> getFiles(final Connection connection, String sql) {
 		List<File> list = new ArrayList<>();
-		String psSql = sql.toUpperCase().startsWith(SELECT) || sql.toUpperCase().startsWith(WITH) ? sql : (SELECT + TABLE_COL_FILENAME + COMMA + TABLE_COL_MODIFIED + FROM + TABLE_NAME + WHERE + sql);
+		getFiles(connection, sql, list);
+		return list;
+	}
+
+	/**
+	 * Returns one page of the files of a query.
+	 *
+	 * The page is only returned if each of its rows is an existing and
+	 * unchanged file, so that it matches the rows counted by
+	 * {@link #getFilesCount}.
+	 *
+	 * @param connection the db connection
+	 * @param sql the files query, which must define the order of the files
+	 * @param offset the number of rows to skip
+	 * @param limit the maximum number of rows, or 0 for all the remaining rows
+	 * @return the files of the page, or {@code null} if a file of the page
+	 *         is missing or changed since it was parsed.
+	 */
+	public static List<File> getFiles(final Connection connection, String sql, int offset, int limit) {
+		StringBuilder psSql = new StringBuilder(sql);
+		psSql.append(" OFFSET ").append(Math.max(0, offset)).append(" ROWS");
+		if (limit > 0) {
+			psSql.append(" FETCH NEXT ").append(limit).append(" ROWS ONLY");
+		}
+		List<File> list = new ArrayList<>();
+		int rows = getFiles(connection, psSql.toString(), list);
+		return rows == list.size() ? list : null;
+	}
+
+	/**
+	 * Adds the existing and unchanged files of a query to a list.
+	 *
+	 * @return the number of rows read.
+	 */
+	private static int getFiles(final Connection connection, String sql, List<File> list) {
+		int rows = 0;
+		String psSql = getFilesSql(sql);
 		try {
 			try (
 				PreparedStatement ps = connection.prepareStatement(psSql);
 				ResultSet rs = ps.executeQuery();
 			) {
 				while (rs.next()) {
+					rows++;
 					String filename = rs.getString(COL_FILENAME);
 					long modified = rs.getTimestamp(COL_MODIFIED).getTime();
 					File file = new File(filename);
@@ -1089,9 +1135,35 @@ public class MediaTableFiles extends MediaTable {
 		} catch (SQLException se) {
 			LOGGER.trace("Error get files with sql: {}", psSql);
 			LOGGER.error(null, se);
-			return list;
 		}
-		return list;
+		return rows;
+	}
+
+	/**
+	 * Returns the number of rows of a files query.
+	 *
+	 * @param connection the db connection
+	 * @param sql the files query
+	 * @return the number of rows, or -1 on error.
+	 */
+	public static int getFilesCount(final Connection connection, String sql) {
+		String psSql = SELECT + "COUNT(*)" + FROM + "(" + getFilesSql(sql) + ")";
+		try (
+			PreparedStatement ps = connection.prepareStatement(psSql);
+			ResultSet rs = ps.executeQuery();
+		) {
+			if (rs.next()) {
+				return rs.getInt(1);
+			}
+		} catch (SQLException se) {
+			LOGGER.trace("Error count files with sql: {}", psSql);
+			LOGGER.error(null, se);
+		}
+		return -1;
+	}
+
+	private static String getFilesSql(String sql) {
+		return sql.toUpperCase().startsWith(SELECT) || sql.toUpperCase().startsWith(WITH) ? sql : (SELECT + TABLE_COL_FILENAME + COMMA + TABLE_COL_MODIFIED + FROM + TABLE_NAME + WHERE + sql);
 	}
 
 }
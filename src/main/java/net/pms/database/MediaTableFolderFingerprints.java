@@ -0,0 +1,271 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class is responsible for managing the folder fingerprints table. It
+ * stores one row per scanned folder with its modification time and a hash of
+ * the fingerprints of its sub-folders, which allows the media scanner to skip
+ * unchanged folders.
+ */
+public final class MediaTableFolderFingerprints extends MediaTable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaTableFolderFingerprints.class);
+	public static final String TABLE_NAME = "FOLDER_FINGERPRINTS";
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable(Connection, int)}
+	 */
+	private static final int TABLE_VERSION = 1;
+
+	/**
+	 * COLUMNS NAMES
+	 */
+	private static final String COL_ID = "ID";
+	private static final String COL_FOLDERNAME = "FOLDERNAME";
+	private static final String COL_MODIFIED = "MODIFIED";
+	private static final String COL_FINGERPRINT = "FINGERPRINT";
+
+	/**
+	 * COLUMNS with table name
+	 */
+	private static final String TABLE_COL_FOLDERNAME = TABLE_NAME + "." + COL_FOLDERNAME;
+	private static final String TABLE_COL_MODIFIED = TABLE_NAME + "." + COL_MODIFIED;
+	private static final String TABLE_COL_FINGERPRINT = TABLE_NAME + "." + COL_FINGERPRINT;
+
+	/**
+	 * SQL Queries
+	 */
+	private static final String SQL_GET_ALL = SELECT + TABLE_COL_FOLDERNAME + COMMA + TABLE_COL_MODIFIED + COMMA + TABLE_COL_FINGERPRINT + FROM + TABLE_NAME;
+	private static final String SQL_GET_FOLDERNAME = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_FOLDERNAME + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_DELETE_FOLDERNAME = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FOLDERNAME + EQUAL + PARAMETER;
+	private static final String SQL_DELETE_FOLDERNAME_LIKE = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FOLDERNAME + LIKE + LIKE_STARTING_WITH_PARAMETER;
+
+	/**
+	 * Checks and creates or upgrades the table as needed.
+	 *
+	 * @param connection the {@link Connection} to use
+	 *
+	 * @throws SQLException
+	 */
+	protected static void checkTable(final Connection connection) throws SQLException {
+		if (tableExists(connection, TABLE_NAME)) {
+			Integer version = MediaTableTablesVersions.getTableVersion(connection, TABLE_NAME);
+			if (version != null) {
+				if (version < TABLE_VERSION) {
+					upgradeTable(connection, version);
+				} else if (version > TABLE_VERSION) {
+					LOGGER.warn(LOG_TABLE_NEWER_VERSION_DELETEDB,
+							DATABASE_NAME,
+							TABLE_NAME,
+							DATABASE.getDatabaseFilename()
+					);
+				}
+			} else {
+				LOGGER.warn(LOG_TABLE_UNKNOWN_VERSION_RECREATE, DATABASE_NAME, TABLE_NAME);
+				dropTable(connection, TABLE_NAME);
+				createTable(connection);
+				MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+			}
+		} else {
+			createTable(connection);
+			MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+		}
+	}
+
+	/**
+	 * This method <strong>MUST</strong> be updated if the table definition are
+	 * altered. The changes for each version in the form of
+	 * <code>ALTER TABLE</code> must be implemented here.
+	 *
+	 * @param connection the {@link Connection} to use
+	 * @param currentVersion the version to upgrade <strong>from</strong>
+	 *
+	 * @throws SQLException
+	 */
+	private static void upgradeTable(final Connection connection, final int currentVersion) throws SQLException {
+		LOGGER.info(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, currentVersion, TABLE_VERSION);
+		for (int version = currentVersion; version < TABLE_VERSION; version++) {
+			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
+			switch (version) {
+				default ->
+					throw new IllegalStateException(
+							getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
+					);
+			}
+		}
+		MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+	}
+
+	private static void createTable(final Connection connection) throws SQLException {
+		LOGGER.info(LOG_CREATING_TABLE, DATABASE_NAME, TABLE_NAME);
+		execute(connection,
+				CREATE_TABLE + TABLE_NAME + "(" +
+					COL_ID +               IDENTITY                 + PRIMARY_KEY    + COMMA +
+					COL_FOLDERNAME +       VARCHAR_1024             + NOT_NULL       + COMMA +
+					COL_MODIFIED +         TIMESTAMP                + NOT_NULL       + COMMA +
+					COL_FINGERPRINT +      VARCHAR_32               + NOT_NULL       +
+				")",
+				CREATE_UNIQUE_INDEX + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_FOLDERNAME + IDX_MARKER + ON + TABLE_NAME + "(" + COL_FOLDERNAME + ")"
+		);
+	}
+
+	/**
+	 * Returns the stored fingerprints of the folders whose modification time
+	 * is still the stored one.
+	 *
+	 * @param connection the db connection
+	 * @return a map of the stored fingerprints keyed by folder name.
+	 */
+	public static Map<String, String> getFingerprints(final Connection connection) {
+		Map<String, String> result = new HashMap<>();
+		try (
+			PreparedStatement statement = connection.prepareStatement(SQL_GET_ALL);
+			ResultSet resultSet = statement.executeQuery()
+		) {
+			while (resultSet.next()) {
+				String foldername = resultSet.getString(COL_FOLDERNAME);
+				long modified = resultSet.getTimestamp(COL_MODIFIED).getTime();
+				if (new File(foldername).lastModified() == modified) {
+					result.put(foldername, resultSet.getString(COL_FINGERPRINT));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "reading fingerprints", TABLE_NAME, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Sets or updates the fingerprint of a folder.
+	 *
+	 * @param connection the db connection
+	 * @param foldername the absolute path of the folder
+	 * @param modified the last modification time of the folder
+	 * @param fingerprint the fingerprint of the folder sub-folders
+	 */
+	public static void setFingerprint(final Connection connection, final String foldername, final long modified, final String fingerprint) {
+		try (PreparedStatement statement = connection.prepareStatement(SQL_GET_FOLDERNAME, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE)) {
+			statement.setString(1, foldername);
+			try (ResultSet result = statement.executeQuery()) {
+				if (result.next()) {
+					result.updateTimestamp(COL_MODIFIED, new Timestamp(modified));
+					result.updateString(COL_FINGERPRINT, fingerprint);
+					result.updateRow();
+				} else {
+					result.moveToInsertRow();
+					result.updateString(COL_FOLDERNAME, foldername);
+					result.updateTimestamp(COL_MODIFIED, new Timestamp(modified));
+					result.updateString(COL_FINGERPRINT, fingerprint);
+					result.insertRow();
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, foldername, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Removes the fingerprints of a folder, all its sub-folders and all its
+	 * parent folders, whose fingerprints include it.
+	 *
+	 * @param connection the db connection
+	 * @param pathToFolder the absolute path of the folder
+	 */
+	public static void removeFolder(final Connection connection, final String pathToFolder) {
+		try (PreparedStatement statement = connection.prepareStatement(SQL_DELETE_FOLDERNAME_LIKE)) {
+			statement.setString(1, pathToFolder);
+			int rows = statement.executeUpdate();
+			LOGGER.trace("Removed entries {} in " + TABLE_NAME + " for folder \"{}\"", rows, pathToFolder);
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "removing entries", TABLE_NAME, pathToFolder, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		removeFoldersAndParents(connection, List.of(pathToFolder));
+	}
+
+	/**
+	 * Removes the fingerprints of a folder and all its parent folders, whose
+	 * fingerprints include it.
+	 *
+	 * This must be called when media entries of the folder are dropped while
+	 * the folder itself is unchanged, otherwise the next scan would skip it.
+	 *
+	 * @param connection the db connection
+	 * @param folders the absolute paths of the folders
+	 */
+	public static void removeFoldersAndParents(final Connection connection, final Collection<String> folders) {
+		if (folders.isEmpty()) {
+			return;
+		}
+		Set<String> foldernames = new HashSet<>();
+		for (String folder : folders) {
+			File parent = new File(folder);
+			while (parent != null && foldernames.add(parent.getAbsolutePath())) {
+				parent = parent.getParentFile();
+			}
+		}
+		try (PreparedStatement statement = connection.prepareStatement(SQL_DELETE_FOLDERNAME)) {
+			for (String foldername : foldernames) {
+				statement.setString(1, foldername);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+			LOGGER.trace("Removed the entries in " + TABLE_NAME + " of {} folders and their parents", folders.size());
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "removing entries", TABLE_NAME, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Removes all the fingerprints, forcing a full scan on next media scan.
+	 *
+	 * @param connection the db connection
+	 */
+	public static void clear(final Connection connection) {
+		try {
+			if (!tableExists(connection, TABLE_NAME)) {
+				return;
+			}
+			executeUpdate(connection, DELETE_FROM + TABLE_NAME);
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "clearing", TABLE_NAME, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+}
@@ -0,0 +1,347 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import net.pms.media.audio.metadata.MediaAudioMetadata;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class is responsible for managing the search index table. It stores
+ * every word suffix of the indexed metadata of the files, so a
+ * {@code contains} search can be resolved by a single index range scan
+ * instead of a full table scan.
+ *
+ * The index is maintained when the files and their audio metadata are
+ * stored. Rows are removed with the files they belong to.
+ */
+public final class MediaTableSearchIndex extends MediaTable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MediaTableSearchIndex.class);
+	public static final String TABLE_NAME = "SEARCH_INDEX";
+
+	/**
+	 * Table version must be increased every time a change is done to the table
+	 * definition. Table upgrade SQL must also be added to
+	 * {@link #upgradeTable(Connection, int)}
+	 */
+	private static final int TABLE_VERSION = 2;
+
+	/**
+	 * The METADATA key set once the index covers all the stored files.
+	 */
+	private static final String METADATA_READY = "SEARCH_INDEX_READY";
+	private static final int MIN_TERM_LENGTH = 2;
+	private static final int MAX_TERM_LENGTH = 32;
+	private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	/**
+	 * COLUMNS NAMES
+	 */
+	private static final String COL_FILEID = MediaTableFiles.CHILD_ID;
+	private static final String COL_FIELD = "FIELD";
+	private static final String COL_TERM = "TERM";
+
+	/**
+	 * COLUMNS with table name
+	 */
+	private static final String TABLE_COL_FILEID = TABLE_NAME + "." + COL_FILEID;
+	private static final String TABLE_COL_FIELD = TABLE_NAME + "." + COL_FIELD;
+	private static final String TABLE_COL_TERM = TABLE_NAME + "." + COL_TERM;
+
+	/**
+	 * SQL Queries
+	 */
+	private static final String SQL_INSERT = INSERT_INTO + TABLE_NAME + " (" + COL_FILEID + COMMA + COL_FIELD + COMMA + COL_TERM + ") VALUES (" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_DELETE_FILEID_FIELD = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FILEID + EQUAL + PARAMETER + AND + TABLE_COL_FIELD + EQUAL + PARAMETER;
+	private static final String SQL_GET_FILES = SELECT + "F.ID, F.FILENAME, A.SONGNAME, A.ARTIST, A.ALBUMARTIST, A.ALBUM, A.COMPOSER, A.CONDUCTOR, A.GENRE" +
+		FROM + MediaTableFiles.TABLE_NAME + " F" + LEFT_JOIN + MediaTableAudioMetadata.TABLE_NAME + " A" + ON + "A.FILEID" + EQUAL + "F.ID";
+
+	private static volatile boolean ready;
+
+	/**
+	 * The indexed fields. The id is stored in the table, so it must never
+	 * change.
+	 */
+	public enum Field {
+		SONGNAME(1),
+		ARTIST(2),
+		ALBUMARTIST(3),
+		ALBUM(4),
+		COMPOSER(5),
+		CONDUCTOR(6),
+		GENRE(7),
+		FILENAME(8);
+
+		private final int id;
+
+		Field(int id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Checks and creates or upgrades the table as needed.
+	 *
+	 * @param connection the {@link Connection} to use
+	 *
+	 * @throws SQLException
+	 */
+	protected static void checkTable(final Connection connection) throws SQLException {
+		if (tableExists(connection, TABLE_NAME)) {
+			Integer version = MediaTableTablesVersions.getTableVersion(connection, TABLE_NAME);
+			if (version != null) {
+				if (version < TABLE_VERSION) {
+					upgradeTable(connection, version);
+				} else if (version > TABLE_VERSION) {
+					LOGGER.warn(LOG_TABLE_NEWER_VERSION_DELETEDB,
+							DATABASE_NAME,
+							TABLE_NAME,
+							DATABASE.getDatabaseFilename()
+					);
+				}
+			} else {
+				LOGGER.warn(LOG_TABLE_UNKNOWN_VERSION_RECREATE, DATABASE_NAME, TABLE_NAME);
+				dropTable(connection, TABLE_NAME);
+				createTable(connection);
+				MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+			}
+		} else {
+			createTable(connection);
+			MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+		}
+		ready = Boolean.parseBoolean(MediaTableMetadata.getMetadataValue(connection, METADATA_READY));
+		if (!ready) {
+			Thread builder = new Thread(MediaTableSearchIndex::build, "Search index builder");
+			builder.setPriority(Thread.MIN_PRIORITY);
+			builder.setDaemon(true);
+			builder.start();
+		}
+	}
+
+	/**
+	 * This method <strong>MUST</strong> be updated if the table definition are
+	 * altered. The changes for each version in the form of
+	 * <code>ALTER TABLE</code> must be implemented here.
+	 *
+	 * @param connection the {@link Connection} to use
+	 * @param currentVersion the version to upgrade <strong>from</strong>
+	 *
+	 * @throws SQLException
+	 */
+	private static void upgradeTable(final Connection connection, final int currentVersion) throws SQLException {
+		LOGGER.info(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, currentVersion, TABLE_VERSION);
+		for (int version = currentVersion; version < TABLE_VERSION; version++) {
+			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
+			switch (version) {
+				case 1 -> {
+					//file names are now indexed with their folders, index them again
+					executeUpdate(connection, DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_FIELD + EQUAL + Field.FILENAME.id);
+					MediaTableMetadata.setOrUpdateMetadataValue(connection, METADATA_READY, Boolean.FALSE.toString());
+				}
+				default ->
+					throw new IllegalStateException(
+							getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
+					);
+			}
+		}
+		MediaTableTablesVersions.setTableVersion(connection, TABLE_NAME, TABLE_VERSION);
+	}
+
+	private static void createTable(final Connection connection) throws SQLException {
+		LOGGER.info(LOG_CREATING_TABLE, DATABASE_NAME, TABLE_NAME);
+		MediaTableMetadata.setOrUpdateMetadataValue(connection, METADATA_READY, Boolean.FALSE.toString());
+		execute(connection,
+				CREATE_TABLE + TABLE_NAME + "(" +
+					COL_FILEID +           BIGINT                   + NOT_NULL       + COMMA +
+					COL_FIELD +            TINYINT                  + NOT_NULL       + COMMA +
+					COL_TERM +             VARCHAR_32               + NOT_NULL       + COMMA +
+					CONSTRAINT + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_FILEID + FK_MARKER + FOREIGN_KEY + "(" + COL_FILEID + ")" + REFERENCES + MediaTableFiles.REFERENCE_TABLE_COL_ID + ON_DELETE_CASCADE +
+				")",
+				CREATE_INDEX + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_FIELD + CONSTRAINT_SEPARATOR + COL_TERM + IDX_MARKER + ON + TABLE_NAME + "(" + COL_FIELD + COMMA + COL_TERM + ")",
+				CREATE_INDEX + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_FILEID + IDX_MARKER + ON + TABLE_NAME + "(" + COL_FILEID + COMMA + COL_FIELD + ")"
+		);
+	}
+
+	/**
+	 * Indexes the files stored before the table existed.
+	 */
+	private static void build() {
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection == null) {
+				return;
+			}
+			LOGGER.info("Building the search index");
+			int count = 0;
+			try (
+				PreparedStatement statement = connection.prepareStatement(SQL_GET_FILES);
+				ResultSet resultSet = statement.executeQuery()
+			) {
+				while (resultSet.next()) {
+					long fileId = resultSet.getLong(1);
+					setFileName(connection, fileId, resultSet.getString(2));
+					setValue(connection, fileId, Field.SONGNAME, resultSet.getString(3));
+					setValue(connection, fileId, Field.ARTIST, resultSet.getString(4));
+					setValue(connection, fileId, Field.ALBUMARTIST, resultSet.getString(5));
+					setValue(connection, fileId, Field.ALBUM, resultSet.getString(6));
+					setValue(connection, fileId, Field.COMPOSER, resultSet.getString(7));
+					setValue(connection, fileId, Field.CONDUCTOR, resultSet.getString(8));
+					setValue(connection, fileId, Field.GENRE, resultSet.getString(9));
+					count++;
+				}
+			}
+			MediaTableMetadata.setOrUpdateMetadataValue(connection, METADATA_READY, Boolean.TRUE.toString());
+			ready = true;
+			LOGGER.info("Search index built for {} files", count);
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN, DATABASE_NAME, "building", TABLE_NAME, e.getMessage());
+			LOGGER.trace("", e);
+		} finally {
+			MediaDatabase.close(connection);
+		}
+	}
+
+	/**
+	 * Indexes the full path of a file, which is what the FILENAME column
+	 * holds and searches match.
+	 *
+	 * @param connection the db connection
+	 * @param fileId the file id from FILES table
+	 * @param filename the full path of the file
+	 */
+	public static void setFileName(final Connection connection, final long fileId, final String filename) {
+		setValue(connection, fileId, Field.FILENAME, filename);
+	}
+
+	/**
+	 * Indexes the audio metadata of a file.
+	 *
+	 * @param connection the db connection
+	 * @param fileId the file id from FILES table
+	 * @param audioMetadata the {@link MediaAudioMetadata} of the file
+	 */
+	public static void setAudioMetadata(final Connection connection, final long fileId, final MediaAudioMetadata audioMetadata) {
+		setValue(connection, fileId, Field.SONGNAME, audioMetadata.getSongname());
+		setValue(connection, fileId, Field.ARTIST, audioMetadata.getArtist());
+		setValue(connection, fileId, Field.ALBUMARTIST, audioMetadata.getAlbumArtist());
+		setValue(connection, fileId, Field.ALBUM, audioMetadata.getAlbum());
+		setValue(connection, fileId, Field.COMPOSER, audioMetadata.getComposer());
+		setValue(connection, fileId, Field.CONDUCTOR, audioMetadata.getConductor());
+		setValue(connection, fileId, Field.GENRE, audioMetadata.getGenre());
+	}
+
+	/**
+	 * Replaces the indexed terms of a field of a file.
+	 *
+	 * @param connection the db connection
+	 * @param fileId the file id from FILES table
+	 * @param field the indexed {@link Field}
+	 * @param value the new value of the field, or {@code null}
+	 */
+	public static void setValue(final Connection connection, final long fileId, final Field field, final String value) {
+		try {
+			try (PreparedStatement statement = connection.prepareStatement(SQL_DELETE_FILEID_FIELD)) {
+				statement.setLong(1, fileId);
+				statement.setInt(2, field.id);
+				statement.executeUpdate();
+			}
+			Set<String> terms = getTerms(value);
+			if (terms.isEmpty()) {
+				return;
+			}
+			try (PreparedStatement statement = connection.prepareStatement(SQL_INSERT)) {
+				for (String term : terms) {
+					statement.setLong(1, fileId);
+					statement.setInt(2, field.id);
+					statement.setString(3, term);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+			}
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, fileId, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+	/**
+	 * Returns a SQL condition restricting a column holding file ids to the
+	 * files whose field contains every word of a search term.
+	 *
+	 * The condition selects a superset of the matching files, so it must be
+	 * combined with the exact match on the field.
+	 *
+	 * @param fileIdColumn the column holding the file ids
+	 * @param field the indexed {@link Field}
+	 * @param term the search term
+	 * @return the SQL condition, or {@code null} if the index can't be used
+	 *         for this term.
+	 */
+	public static String getContainsCondition(final String fileIdColumn, final Field field, final String term) {
+		if (!ready || StringUtils.isBlank(term)) {
+			return null;
+		}
+		String[] words = WORD_SEPARATOR.split(term.toLowerCase(Locale.ROOT));
+		StringBuilder sb = new StringBuilder();
+		for (String word : words) {
+			if (word.isEmpty()) {
+				continue;
+			}
+			if (word.length() < MIN_TERM_LENGTH) {
+				return null;
+			}
+			if (!sb.isEmpty()) {
+				sb.append(AND);
+			}
+			sb.append(fileIdColumn).append(IN).append("(")
+				.append(SELECT).append(TABLE_COL_FILEID).append(FROM).append(TABLE_NAME)
+				.append(WHERE).append(TABLE_COL_FIELD).append(EQUAL).append(field.id)
+				.append(AND).append(TABLE_COL_TERM).append(LIKE).append("'").append(StringUtils.left(word, MAX_TERM_LENGTH)).append("%'")
+				.append(")");
+		}
+		return sb.isEmpty() ? null : sb.toString();
+	}
+
+	/**
+	 * Splits a value into words and returns every suffix of each word, so
+	 * that a prefix search on the terms matches any part of a word.
+	 */
+	private static Set<String> getTerms(final String value) {
+		Set<String> terms = new LinkedHashSet<>();
+		if (StringUtils.isBlank(value)) {
+			return terms;
+		}
+		for (String word : WORD_SEPARATOR.split(value.toLowerCase(Locale.ROOT))) {
+			for (int i = 0; i <= word.length() - MIN_TERM_LENGTH; i++) {
+				terms.add(StringUtils.left(word.substring(i), MAX_TERM_LENGTH));
+			}
+		}
+		return terms;
+	}
+
+}
@@ -21,10 +21,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import net.pms.store.MediaStoreId;
-import net.pms.store.StoreResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,7 +42,12 @@ public class MediaTableStoreIds extends MediaTable {
 	 * definition. Table upgrade SQL must also be added to
 	 * {@link #upgradeTable(Connection, int)}
 	 */
-	private static final int TABLE_VERSION = 1;
+	private static final int TABLE_VERSION = 2;
+
+	/**
+	 * The maximum depth of an object path, deeper paths are considered broken.
+	 */
+	private static final int MAX_TREE_DEPTH = 100;
 
 	/**
 	 * COLUMNS
@@ -70,6 +76,24 @@ public class MediaTableStoreIds extends MediaTable {
 	private static final String SQL_GET_ID_NAME_TYPE = SQL_GET_ID_NAME + AND + TABLE_COL_OBJECT_TYPE + EQUAL + PARAMETER;
 	private static final String SQL_GET_ID_NAME_TYPE_PARENTTYPE = SQL_GET_ID_NAME_TYPE + AND + TABLE_COL_PARENT_ID + IN + "(" + SQL_GET_ID_TYPE + ")";
 	private static final String SQL_UPDATE_UPDATEID_ID = UPDATE + TABLE_NAME + SET + COL_UPDATE_ID + EQUAL + PARAMETER + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
+	private static final String SQL_GET_ALL_PARENTID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_PARENT_ID + EQUAL + PARAMETER;
+	private static final String SQL_INSERT_ID = INSERT_INTO + TABLE_NAME + " (" + COL_PARENT_ID + COMMA + COL_NAME + COMMA + COL_OBJECT_TYPE + COMMA + COL_UPDATE_ID + ") VALUES (" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_INSERT_ID_IF_MISSING = INSERT_INTO + TABLE_NAME + " (" + COL_PARENT_ID + COMMA + COL_NAME + COMMA + COL_OBJECT_TYPE + COMMA + COL_UPDATE_ID + ") " +
+		SELECT + "CAST(? AS BIGINT)" + COMMA + "CAST(? AS VARCHAR)" + COMMA + "CAST(? AS VARCHAR)" + COMMA + "CAST(? AS BIGINT)" +
+		WHERE + NOT + EXISTS + "(" + SELECT + TABLE_COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_PARENT_ID + EQUAL + PARAMETER + AND + TABLE_COL_NAME + EQUAL + PARAMETER + ")";
+	private static final String SQL_DELETE_DUPLICATED_IDS = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_ID + NOT_IN +
+		"(" + SELECT + "MIN(" + COL_ID + ")" + FROM + TABLE_NAME + GROUP_BY + COL_PARENT_ID + COMMA + COL_NAME + ")";
+	private static final String SQL_CREATE_PARENTID_NAME_INDEX = CREATE_UNIQUE_INDEX + IF_NOT_EXISTS + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_PARENT_ID + CONSTRAINT_SEPARATOR + COL_NAME + IDX_MARKER + ON + TABLE_NAME + "(" + COL_PARENT_ID + COMMA + COL_NAME + ")";
+	private static final String TREE = "TREE";
+	private static final String COL_DEPTH = "DEPTH";
+	private static final String TREE_COLUMNS = COL_ID + COMMA + COL_PARENT_ID + COMMA + COL_NAME + COMMA + COL_OBJECT_TYPE + COMMA + COL_UPDATE_ID;
+	private static final String SQL_GET_TREE_ID = WITH + "RECURSIVE " + TREE + "(" + TREE_COLUMNS + COMMA + COL_DEPTH + ")" + AS + "(" +
+		SELECT + TREE_COLUMNS + COMMA + "0" + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER +
+		" UNION ALL " +
+		SELECT + TABLE_COL_ID + COMMA + TABLE_COL_PARENT_ID + COMMA + TABLE_COL_NAME + COMMA + TABLE_COL_OBJECT_TYPE + COMMA + TABLE_NAME + "." + COL_UPDATE_ID + COMMA + TREE + "." + COL_DEPTH + " + 1" +
+		FROM + TABLE_NAME + JOIN + TREE + ON + TABLE_COL_ID + EQUAL + TREE + "." + COL_PARENT_ID +
+		WHERE + TREE + "." + COL_PARENT_ID + NOT_EQUAL + "0" + AND + TREE + "." + COL_DEPTH + " < " + (MAX_TREE_DEPTH + 1) +
+		")" + SELECT + TREE_COLUMNS + FROM + TREE + ORDER_BY + COL_DEPTH + DESC;
 
 	/**
 	 * Checks and creates or upgrades the table as needed.
@@ -101,6 +125,11 @@ public class MediaTableStoreIds extends MediaTable {
 		for (int version = currentVersion; version < TABLE_VERSION; version++) {
 			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
 			switch (version) {
+				case 1 -> {
+					//an object can only have one id per container, remove the duplicates created concurrently
+					executeUpdate(connection, SQL_DELETE_DUPLICATED_IDS);
+					executeUpdate(connection, SQL_CREATE_PARENTID_NAME_INDEX);
+				}
 				default -> {
 					throw new IllegalStateException(
 							getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
@@ -128,51 +157,169 @@ public class MediaTableStoreIds extends MediaTable {
 					COL_UPDATE_ID +       BIGINT                              +
 				")",
 				CREATE_INDEX + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_PARENT_ID + IDX_MARKER + ON + TABLE_NAME + "(" + COL_PARENT_ID + ")",
-				CREATE_INDEX + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_NAME + IDX_MARKER + ON + TABLE_NAME + "(" + COL_NAME + ")"
+				CREATE_INDEX + TABLE_NAME + CONSTRAINT_SEPARATOR + COL_NAME + IDX_MARKER + ON + TABLE_NAME + "(" + COL_NAME + ")",
+				SQL_CREATE_PARENTID_NAME_INDEX
 		);
 		ensureSystemId(connection);
 	}
 
 	/**
-	 * Get an id for a StoreResource.
+	 * Get the known ids of all the children of a container.
+	 *
+	 * Usefull for the MediaStore to resolve the ids of all the children of a
+	 * container in one query.
 	 *
-	 * Usefull for the MediaStore to use the old known id if any.
+	 * @param connection
+	 * @param parentId the container id
+	 * @return the StoreIds stored for the container children
+	 */
+	public static List<MediaStoreId> getChildrenMediaStoreIds(Connection connection, long parentId) {
+		List<MediaStoreId> result = new ArrayList<>();
+		if (connection == null) {
+			return result;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_PARENTID)) {
+			stmt.setLong(1, parentId);
+			try (ResultSet elements = stmt.executeQuery()) {
+				while (elements.next()) {
+					result.add(getMediaStoreId(elements));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for parent \"{}\": {}", parentId, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return result;
+	}
+
+	/**
+	 * Create an id for a StoreResource.
 	 *
 	 * @param connection
-	 * @param resource
-	 * @return the StoreId stored or created
+	 * @param parentId the container id
+	 * @param name the resource system name
+	 * @param objectType the resource class name
+	 * @param updateId the object update id
+	 * @return the StoreId created, the existing one if the container already
+	 *         has an object with this name, or {@code null} on error
 	 */
-	public static MediaStoreId getResourceMediaStoreId(Connection connection, StoreResource resource) {
-		if (connection == null || resource == null || resource.getParent() == null || resource.getParent().getLongId() == null) {
+	public static MediaStoreId insertMediaStoreId(Connection connection, long parentId, String name, String objectType, long updateId) {
+		if (connection == null) {
 			return null;
 		}
-		long parentId = resource.getParent().getLongId();
-		String name = resource.getSystemName();
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_INSERT_ID, Statement.RETURN_GENERATED_KEYS)) {
+			stmt.setLong(1, parentId);
+			stmt.setString(2, name);
+			stmt.setString(3, objectType);
+			stmt.setLong(4, updateId);
+			stmt.executeUpdate();
+			try (ResultSet keys = stmt.getGeneratedKeys()) {
+				if (keys.next()) {
+					MediaStoreId result = new MediaStoreId();
+					result.setId(keys.getLong(1));
+					result.setParentId(parentId);
+					result.setName(name);
+					result.setObjectType(objectType);
+					result.setUpdateId(updateId);
+					return result;
+				}
+			}
+		} catch (SQLException e) {
+			MediaStoreId existing = getMediaStoreId(connection, parentId, name);
+			if (existing != null) {
+				LOGGER.trace("Id of \"{}\" in {} was created concurrently", name, parentId);
+				return existing;
+			}
+			LOGGER.error("Database error in " + TABLE_NAME + " for \"{}\": {}", name, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return null;
+	}
 
-		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_PARENTID_NAME, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE)) {
+	private static MediaStoreId getMediaStoreId(Connection connection, long parentId, String name) {
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_ALL_PARENTID_NAME)) {
 			stmt.setLong(1, parentId);
 			stmt.setString(2, name);
 			try (ResultSet elements = stmt.executeQuery()) {
 				if (elements.next()) {
-					return getMediaStoreId(connection, elements.getLong(COL_ID));
-				} else {
-					elements.moveToInsertRow();
-					elements.updateLong(COL_PARENT_ID, parentId);
-					elements.updateString(COL_NAME, name);
-					elements.updateString(COL_OBJECT_TYPE, resource.getClass().getSimpleName());
-					elements.updateLong(COL_UPDATE_ID, 0);
-					elements.insertRow();
-					return getResourceMediaStoreId(connection, resource);
+					return getMediaStoreId(elements);
 				}
 			}
 		} catch (SQLException e) {
-			LOGGER.error("Database error in " + TABLE_NAME + " for \"{}\": {}", resource.getDisplayName(), e.getMessage());
+			LOGGER.error("Database error in " + TABLE_NAME + " for \"{}\": {}", name, e.getMessage());
 			LOGGER.trace("", e);
 		}
-
 		return null;
 	}
 
+	/**
+	 * Create the ids of several children of a container in one batch.
+	 *
+	 * Children which already have an id, e.g. created concurrently, are
+	 * skipped.
+	 *
+	 * @param connection
+	 * @param parentId the container id
+	 * @param objectTypes the resources class names keyed by system name
+	 * @param updateId the objects update id
+	 * @return whether the ids were created
+	 */
+	public static boolean insertMediaStoreIds(Connection connection, long parentId, Map<String, String> objectTypes, long updateId) {
+		if (connection == null) {
+			return false;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_INSERT_ID_IF_MISSING)) {
+			for (Map.Entry<String, String> objectType : objectTypes.entrySet()) {
+				stmt.setLong(1, parentId);
+				stmt.setString(2, objectType.getKey());
+				stmt.setString(3, objectType.getValue());
+				stmt.setLong(4, updateId);
+				stmt.setLong(5, parentId);
+				stmt.setString(6, objectType.getKey());
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+			return true;
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for parent \"{}\": {}", parentId, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return false;
+	}
+
+	/**
+	 * Retreive the path of an object, from the top container to the object.
+	 *
+	 * The whole path is read in one recursive query.
+	 *
+	 * @param connection
+	 * @param id
+	 * @return the objects path, empty if unknown or broken
+	 */
+	public static List<MediaStoreId> getMediaStoreTree(Connection connection, long id) {
+		List<MediaStoreId> result = new ArrayList<>();
+		if (connection == null) {
+			return result;
+		}
+		try (PreparedStatement stmt = connection.prepareStatement(SQL_GET_TREE_ID)) {
+			stmt.setLong(1, id);
+			try (ResultSet elements = stmt.executeQuery()) {
+				while (elements.next()) {
+					result.add(getMediaStoreId(elements));
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error("Database error in " + TABLE_NAME + " for \"{}\": {}", id, e.getMessage());
+			LOGGER.trace("", e);
+			return new ArrayList<>();
+		}
+		if (result.size() > MAX_TREE_DEPTH && result.get(0).getParentId() != 0) {
+			LOGGER.trace("MediaStore path is more than {} entries, something was wrong", MAX_TREE_DEPTH);
+			return new ArrayList<>();
+		}
+		return result;
+	}
+
 	/**
 	 * Retreive the last known object from id.
 	 *
@@ -190,13 +337,7 @@ public class MediaTableStoreIds extends MediaTable {
 			stmt.setLong(1, id);
 			try (ResultSet elements = stmt.executeQuery()) {
 				if (elements.next()) {
-					MediaStoreId result = new MediaStoreId();
-					result.setId(elements.getLong(COL_ID));
-					result.setParentId(elements.getLong(COL_PARENT_ID));
-					result.setName(elements.getString(COL_NAME));
-					result.setObjectType(elements.getString(COL_OBJECT_TYPE));
-					result.setUpdateId(elements.getLong(COL_UPDATE_ID));
-					return result;
+					return getMediaStoreId(elements);
 				}
 			}
 		} catch (SQLException e) {
@@ -207,6 +348,16 @@ public class MediaTableStoreIds extends MediaTable {
 		return null;
 	}
 
+	private static MediaStoreId getMediaStoreId(ResultSet elements) throws SQLException {
+		MediaStoreId result = new MediaStoreId();
+		result.setId(elements.getLong(COL_ID));
+		result.setParentId(elements.getLong(COL_PARENT_ID));
+		result.setName(elements.getString(COL_NAME));
+		result.setObjectType(elements.getString(COL_OBJECT_TYPE));
+		result.setUpdateId(elements.getLong(COL_UPDATE_ID));
+		return result;
+	}
+
 	public static void setMediaStoreUpdateId(Connection connection, long id, long updateId) {
 		if (connection == null) {
 			return;
@@ -24,6 +24,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.dlna.DLNAThumbnailFixer;
 import org.apache.commons.codec.digest.DigestUtils;
@@ -50,7 +51,7 @@ public final class MediaTableThumbnails extends MediaTable {
 	 * definition. Table upgrade SQL must also be added to
 	 * {@link #upgradeTable()}
 	 */
-	private static final int TABLE_VERSION = 1;
+	private static final int TABLE_VERSION = 2;
 
 	/**
 	 * COLUMNS NAMES
@@ -59,6 +60,8 @@ public final class MediaTableThumbnails extends MediaTable {
 	private static final String COL_ID = "ID";
 	private static final String COL_MD5 = "MD5";
 	private static final String COL_MODIFIED = "MODIFIED";
+	private static final String COL_JPEG_TN = "JPEG_TN";
+	private static final String COL_PNG_TN = "PNG_TN";
 
 	/**
 	 * COLUMNS with table name
@@ -72,7 +75,11 @@ public final class MediaTableThumbnails extends MediaTable {
 	 */
 	private static final String SQL_GET_ID = SELECT_ALL + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER + LIMIT_1;
 	private static final String SQL_GET_ID_MD5 = SELECT + TABLE_COL_ID + FROM + TABLE_NAME + WHERE + TABLE_COL_MD5 + EQUAL + PARAMETER + LIMIT_1;
-	private static final String SQL_INSERT_ID_MD5 = INSERT_INTO + TABLE_NAME + " (" + COL_THUMBNAIL + COMMA + COL_MODIFIED + COMMA + COL_MD5 + ") VALUES (" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_INSERT_ID_MD5 = INSERT_INTO + TABLE_NAME + " (" + COL_THUMBNAIL + COMMA + COL_MODIFIED + COMMA + COL_MD5 + COMMA + COL_JPEG_TN + COMMA + COL_PNG_TN + ") VALUES (" + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + COMMA + PARAMETER + ")";
+	private static final String SQL_GET_JPEG_TN_ID = SELECT + COL_JPEG_TN + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_GET_PNG_TN_ID = SELECT + COL_PNG_TN + FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER + LIMIT_1;
+	private static final String SQL_UPDATE_JPEG_TN_ID = UPDATE + TABLE_NAME + SET + COL_JPEG_TN + EQUAL + PARAMETER + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
+	private static final String SQL_UPDATE_PNG_TN_ID = UPDATE + TABLE_NAME + SET + COL_PNG_TN + EQUAL + PARAMETER + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
 	private static final String SQL_DELETE_ID = DELETE_FROM + TABLE_NAME + WHERE + TABLE_COL_ID + EQUAL + PARAMETER;
 	private static final String SQL_CLEANUP = DELETE_FROM + TABLE_NAME + WHERE + NOT + EXISTS + "(" + SELECT + MediaTableTVSeries.TABLE_COL_THUMBID + FROM + MediaTableTVSeries.TABLE_NAME + WHERE + MediaTableTVSeries.TABLE_COL_THUMBID + EQUAL + TABLE_COL_ID + ")" + AND + NOT + EXISTS + "(" + SELECT + MediaTableFiles.TABLE_COL_THUMBID + FROM + MediaTableFiles.TABLE_NAME + WHERE + MediaTableFiles.TABLE_COL_THUMBID + EQUAL + TABLE_COL_ID + ")";
 
@@ -120,6 +127,10 @@ public final class MediaTableThumbnails extends MediaTable {
 		for (int version = currentVersion; version < TABLE_VERSION; version++) {
 			LOGGER.trace(LOG_UPGRADING_TABLE, DATABASE_NAME, TABLE_NAME, version, version + 1);
 			switch (version) {
+				case 1 -> {
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_JPEG_TN + OTHER);
+					executeUpdate(connection, ALTER_TABLE + TABLE_NAME + ADD + COLUMN + IF_NOT_EXISTS + COL_PNG_TN + OTHER);
+				}
 				default ->
 					throw new IllegalStateException(
 							getMessage(LOG_UPGRADING_TABLE_MISSING, DATABASE_NAME, TABLE_NAME, version, TABLE_VERSION)
@@ -136,7 +147,9 @@ public final class MediaTableThumbnails extends MediaTable {
 				COL_ID                + IDENTITY                       + COMMA +
 				COL_THUMBNAIL         + OTHER      + NOT_NULL          + COMMA +
 				COL_MODIFIED          + TIMESTAMP                      + COMMA +
-				COL_MD5               + VARCHAR    + UNIQUE_NOT_NULL   +
+				COL_MD5               + VARCHAR    + UNIQUE_NOT_NULL   + COMMA +
+				COL_JPEG_TN           + OTHER                          + COMMA +
+				COL_PNG_TN            + OTHER                          +
 			")"
 		);
 	}
@@ -185,6 +198,24 @@ public final class MediaTableThumbnails extends MediaTable {
 	 * match introduced to fix unrecoverable serialization
 	 */
 	public static Long setThumbnail(final Connection connection, final DLNAThumbnail thumbnail, final boolean forceNew) {
+		return setThumbnail(connection, thumbnail, null, null, forceNew);
+	}
+
+	/**
+	 * Attempts to find a thumbnail in this table by MD5 hash. If not found, it
+	 * writes the new thumbnail to this table together with its pre-scaled
+	 * {@link DLNAImageProfile#JPEG_TN} and {@link DLNAImageProfile#PNG_TN}
+	 * variants.
+	 *
+	 * @param connection the db connection
+	 * @param thumbnail the thumbnail
+	 * @param jpegTn the JPEG_TN variant, or {@code null} to create it later.
+	 * @param pngTn the PNG_TN variant, or {@code null} to create it later.
+	 * @param forceNew whether to use a new thumbnail and remove any existing
+	 * match
+	 * @return the thumbnail ID, or {@code null} on error.
+	 */
+	public static Long setThumbnail(final Connection connection, final DLNAThumbnail thumbnail, final DLNAThumbnail jpegTn, final DLNAThumbnail pngTn, final boolean forceNew) {
 		String md5Hash = DigestUtils.md5Hex(thumbnail.getBytes(false));
 
 		try {
@@ -208,6 +239,8 @@ public final class MediaTableThumbnails extends MediaTable {
 					insertStatement.setObject(1, thumbnail);
 					insertStatement.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
 					insertStatement.setString(3, md5Hash);
+					insertStatement.setObject(4, jpegTn);
+					insertStatement.setObject(5, pngTn);
 					insertStatement.executeUpdate();
 
 					try (ResultSet generatedKeys = insertStatement.getGeneratedKeys()) {
@@ -257,6 +290,73 @@ public final class MediaTableThumbnails extends MediaTable {
 		return null;
 	}
 
+	/**
+	 * Returns the stored pre-scaled variant of a thumbnail.
+	 *
+	 * @param connection the db connection
+	 * @param id the thumbnail ID
+	 * @param profile {@link DLNAImageProfile#JPEG_TN} or
+	 *            {@link DLNAImageProfile#PNG_TN}.
+	 * @return the variant, or {@code null} if it was not stored yet.
+	 */
+	public static DLNAThumbnail getThumbnailVariant(final Connection connection, final Long id, final DLNAImageProfile profile) {
+		String sql;
+		if (DLNAImageProfile.JPEG_TN.equals(profile)) {
+			sql = SQL_GET_JPEG_TN_ID;
+		} else if (DLNAImageProfile.PNG_TN.equals(profile)) {
+			sql = SQL_GET_PNG_TN_ID;
+		} else {
+			return null;
+		}
+		if (id == null) {
+			return null;
+		}
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			statement.setLong(1, id);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (resultSet.next()) {
+					return (DLNAThumbnail) resultSet.getObject(1);
+				}
+			}
+		} catch (SQLException e) {
+			// An unreadable variant is simply created again
+			LOGGER.debug("Could not read the {} variant of thumbnail {} in " + TABLE_NAME + ": {}", profile, id, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return null;
+	}
+
+	/**
+	 * Stores a pre-scaled variant of a thumbnail.
+	 *
+	 * @param connection the db connection
+	 * @param id the thumbnail ID
+	 * @param profile {@link DLNAImageProfile#JPEG_TN} or
+	 *            {@link DLNAImageProfile#PNG_TN}.
+	 * @param variant the variant to store.
+	 */
+	public static void setThumbnailVariant(final Connection connection, final Long id, final DLNAImageProfile profile, final DLNAThumbnail variant) {
+		String sql;
+		if (DLNAImageProfile.JPEG_TN.equals(profile)) {
+			sql = SQL_UPDATE_JPEG_TN_ID;
+		} else if (DLNAImageProfile.PNG_TN.equals(profile)) {
+			sql = SQL_UPDATE_PNG_TN_ID;
+		} else {
+			return;
+		}
+		if (id == null) {
+			return;
+		}
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			statement.setObject(1, variant);
+			statement.setLong(2, id);
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing variant", TABLE_NAME, id, e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
 	/**
 	 * Removes an entry or entries based on its ID.
 	 *
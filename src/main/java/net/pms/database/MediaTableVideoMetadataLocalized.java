@@ -188,6 +188,9 @@ public final class MediaTableVideoMetadataLocalized extends MediaTable {
 					rs.updateRow();
 				}
 			}
+			if (connection.getAutoCommit()) {
+				TableGenerations.increment(TABLE_NAME);
+			}
 		} catch (SQLException e) {
 			LOGGER.error(LOG_ERROR_WHILE_IN_FOR, DATABASE_NAME, "writing", TABLE_NAME, id, e.getMessage());
 			LOGGER.trace("", e);
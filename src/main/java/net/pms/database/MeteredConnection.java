@@ -0,0 +1,116 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import net.pms.util.ServerMetrics;
+
+/**
+ * Wraps the pooled connections so the execution time of their statements is
+ * recorded in {@link ServerMetrics}, when enabled by the configuration.
+ *
+ * The time is accounted to the {@code MediaTable*} or {@code UserTable*} class
+ * which created the statement, or to "other" when the statement was created
+ * from elsewhere.
+ */
+final class MeteredConnection implements InvocationHandler {
+
+	private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+	private static final String OTHER = "other";
+	private final Connection connection;
+
+	private MeteredConnection(Connection connection) {
+		this.connection = connection;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		Object result = invokeTarget(connection, method, args);
+		if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+			return Proxy.newProxyInstance(
+				MeteredConnection.class.getClassLoader(),
+				new Class<?>[] {method.getReturnType()},
+				new MeteredStatement((Statement) result, (Connection) proxy, getCaller())
+			);
+		}
+		return result;
+	}
+
+	/**
+	 * @param connection the connection to wrap.
+	 * @return a connection recording the execution time of its statements.
+	 */
+	static Connection wrap(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(
+			MeteredConnection.class.getClassLoader(),
+			new Class<?>[] {Connection.class},
+			new MeteredConnection(connection)
+		);
+	}
+
+	private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static String getCaller() {
+		return STACK_WALKER.walk(frames -> frames
+			.map(frame -> frame.getDeclaringClass().getNestHost().getSimpleName())
+			.filter(name -> name.startsWith("MediaTable") || name.startsWith("UserTable"))
+			.findFirst()
+			.orElse(OTHER)
+		);
+	}
+
+	private static class MeteredStatement implements InvocationHandler {
+		private final Statement statement;
+		private final Connection connection;
+		private final String caller;
+
+		private MeteredStatement(Statement statement, Connection connection, String caller) {
+			this.statement = statement;
+			this.connection = connection;
+			this.caller = caller;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if ("getConnection".equals(method.getName()) && method.getParameterCount() == 0) {
+				// Don't let the callers close or use the unwrapped connection
+				return connection;
+			}
+			if (!method.getName().startsWith("execute")) {
+				return invokeTarget(statement, method, args);
+			}
+			long start = System.nanoTime();
+			try {
+				return invokeTarget(statement, method, args);
+			} finally {
+				ServerMetrics.recordQuery(caller, System.nanoTime() - start);
+			}
+		}
+	}
+
+}
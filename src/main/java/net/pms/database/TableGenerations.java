@@ -0,0 +1,139 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a generation counter for each media library table, increased every
+ * time rows of the table are inserted, updated or deleted.
+ *
+ * The counters are increased by the code writing the tables, once the write
+ * is committed, so a reader recording a generation before querying never
+ * misses a write. Deletions cascading from {@code FILES} are covered since
+ * its generation is part of every combined generation. The counters are only
+ * kept in memory: a consumer comparing the generations it has seen with the
+ * current ones knows whether the tables it reads may have changed without
+ * querying them.
+ */
+public final class TableGenerations extends DatabaseHelper {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TableGenerations.class);
+	/**
+	 * The suffix of the statement triggers which used to maintain the
+	 * generations. They are dropped, since they were persisted in the
+	 * database and would break older versions opening it.
+	 */
+	private static final String TRIGGER_SUFFIX = "_GENERATION_TRG";
+	private static final String[] TABLES = {
+		MediaTableAudioMetadata.TABLE_NAME,
+		MediaTableAudiotracks.TABLE_NAME,
+		MediaTableFiles.TABLE_NAME,
+		MediaTableFilesStatus.TABLE_NAME,
+		MediaTableMusicBrainzReleaseLike.TABLE_NAME,
+		MediaTableRegexpRules.TABLE_NAME,
+		MediaTableSubtracks.TABLE_NAME,
+		MediaTableTVSeries.TABLE_NAME,
+		MediaTableVideoMetadata.TABLE_NAME,
+		MediaTableVideoMetadataActors.TABLE_NAME,
+		MediaTableVideoMetadataAwards.TABLE_NAME,
+		MediaTableVideoMetadataCountries.TABLE_NAME,
+		MediaTableVideoMetadataDirectors.TABLE_NAME,
+		MediaTableVideoMetadataGenres.TABLE_NAME,
+		MediaTableVideoMetadataLocalized.TABLE_NAME,
+		MediaTableVideoMetadataRatings.TABLE_NAME,
+		MediaTableVideotracks.TABLE_NAME
+	};
+	private static final Map<String, AtomicLong> GENERATIONS = new ConcurrentHashMap<>();
+
+	static {
+		for (String table : TABLES) {
+			GENERATIONS.put(table, new AtomicLong());
+		}
+	}
+
+	private TableGenerations() {
+		//should not be instantiated
+	}
+
+	/**
+	 * Called once the tables were checked: drops the generation triggers
+	 * created by previous versions, and increases all generations since
+	 * tables may have been recreated.
+	 *
+	 * @param connection the db connection
+	 */
+	static void checkTables(final Connection connection) {
+		for (String table : TABLES) {
+			try {
+				execute(connection, "DROP TRIGGER IF EXISTS " + table + TRIGGER_SUFFIX);
+			} catch (SQLException e) {
+				LOGGER.error(LOG_ERROR_WHILE_IN, MediaDatabase.DATABASE_NAME, "dropping generation trigger", table, e.getMessage());
+				LOGGER.trace("", e);
+			}
+			increment(table);
+		}
+	}
+
+	/**
+	 * Increases the generation of tables. This must be called once the
+	 * writes to the tables are committed.
+	 *
+	 * @param tables the table names
+	 */
+	public static void increment(final String... tables) {
+		for (String table : tables) {
+			AtomicLong generation = GENERATIONS.get(table.toUpperCase(Locale.ROOT));
+			if (generation != null) {
+				generation.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Returns the combined generation of the tables read by a SQL query.
+	 *
+	 * Every tracked table whose name appears in the query is counted, and
+	 * the {@code FILES} table always is since its deletions cascade to the
+	 * other tables. As the generations only increase, an unchanged result
+	 * means that none of these tables were written since.
+	 *
+	 * @param sql the SQL query
+	 * @return the combined generation.
+	 */
+	public static long get(final String sql) {
+		long result = GENERATIONS.get(MediaTableFiles.TABLE_NAME).get();
+		if (sql == null) {
+			return result;
+		}
+		String query = sql.toUpperCase(Locale.ROOT);
+		for (String table : TABLES) {
+			if (!MediaTableFiles.TABLE_NAME.equals(table) && query.contains(table)) {
+				result += GENERATIONS.get(table).get();
+			}
+		}
+		return result;
+	}
+
+}
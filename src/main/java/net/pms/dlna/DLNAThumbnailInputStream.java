@@ -27,6 +27,7 @@ import net.pms.image.ImageFormat;
 import net.pms.image.ImageInfo;
 import net.pms.image.ImagesUtil;
 import net.pms.image.ImagesUtil.ScaleType;
+import net.pms.store.ThumbnailStore;
 
 /**
  * This is an {@link InputStream} implementation of {@link DLNAThumbnail}. It
@@ -41,6 +42,18 @@ public class DLNAThumbnailInputStream extends ByteArrayInputStream {
 	/** The {@link DLNAImageProfile} for this {@link DLNAThumbnailInputStream} */
 	protected final DLNAImageProfile profile;
 
+	/**
+	 * The {@link ThumbnailStore} ID of the thumbnail, used to fetch its
+	 * pre-scaled variants, or {@code null}.
+	 */
+	protected final Long thumbnailId;
+
+	/**
+	 * The {@link RenderedThumbnailCache} key of a transcoded thumbnail, or
+	 * {@code null}.
+	 */
+	private String renderedKey;
+
 	/**
 	 * Creates a {@link DLNAThumbnailInputStream} where it uses
 	 * {@code imageByteArray} as its buffer array. The buffer array is not
@@ -184,15 +197,32 @@ public class DLNAThumbnailInputStream extends ByteArrayInputStream {
 	 * @throws NullPointerException if {@code thumbnail} is {@code null}.
 	 */
 	public DLNAThumbnailInputStream(DLNAThumbnail thumbnail) {
+		this(thumbnail, null);
+	}
+
+	/**
+	 * Creates a {@link DLNAThumbnailInputStream} for a thumbnail of the
+	 * {@link ThumbnailStore}, which allows {@link #transcode} to use its
+	 * stored pre-scaled variants.
+	 *
+	 * @param thumbnail the input thumbnail
+	 * @param thumbnailId the {@link ThumbnailStore} ID of {@code thumbnail},
+	 *            or {@code null}.
+	 *
+	 * @throws NullPointerException if {@code thumbnail} is {@code null}.
+	 */
+	public DLNAThumbnailInputStream(DLNAThumbnail thumbnail, Long thumbnailId) {
 		super(thumbnail.getBytes(false));
 		this.imageInfo = thumbnail.getImageInfo();
 		this.profile = thumbnail.getDLNAImageProfile();
+		this.thumbnailId = thumbnailId;
 	}
 
 	/**
 	 * Converts and scales a thumbnail according to the given
 	 * {@link DLNAImageProfile}. Preserves aspect ratio. Format support is
-	 * limited to that of {@link ImageIO}.
+	 * limited to that of {@link ImageIO}. The result is kept in the
+	 * {@link RenderedThumbnailCache}.
 	 *
 	 * @param outputProfile the DLNA media profile to adhere to for the output.
 	 * @param padToSize Whether padding should be used if source aspect doesn't
@@ -208,15 +238,38 @@ public class DLNAThumbnailInputStream extends ByteArrayInputStream {
 		boolean padToSize,
 		BufferedImageFilterChain filterChain
 	) throws IOException {
-		DLNAThumbnail thumbnail;
-		thumbnail = (DLNAThumbnail) ImagesUtil.transcodeImage(
-			this.getBytes(false),
-			outputProfile,
-			true,
-			padToSize,
-			filterChain
-		);
-		return thumbnail != null ? new DLNAThumbnailInputStream(thumbnail) : null;
+		String key = RenderedThumbnailCache.getKey(this.getBytes(false), outputProfile, padToSize, filterChain);
+		DLNAThumbnail thumbnail = null;
+		if (thumbnailId != null && !padToSize && filterChain == null) {
+			thumbnail = ThumbnailStore.getThumbnailVariant(thumbnailId, outputProfile);
+		}
+		if (thumbnail == null) {
+			thumbnail = RenderedThumbnailCache.get(key);
+		}
+		if (thumbnail == null) {
+			thumbnail = (DLNAThumbnail) ImagesUtil.transcodeImage(
+				this.getBytes(false),
+				outputProfile,
+				true,
+				padToSize,
+				filterChain
+			);
+			if (thumbnail == null) {
+				return null;
+			}
+			RenderedThumbnailCache.put(key, thumbnail);
+		}
+		DLNAThumbnailInputStream result = new DLNAThumbnailInputStream(thumbnail);
+		result.renderedKey = key;
+		return result;
+	}
+
+	/**
+	 * @return the HTTP entity tag of this thumbnail if it was returned by
+	 *         {@link #transcode}, {@code null} otherwise.
+	 */
+	public String getETag() {
+		return renderedKey != null ? RenderedThumbnailCache.getETag(renderedKey) : null;
 	}
 
 	/**
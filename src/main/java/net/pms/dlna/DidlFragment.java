@@ -0,0 +1,67 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import net.pms.renderers.Renderer;
+import org.apache.commons.text.StringEscapeUtils;
+
+/**
+ * The DIDL-Lite representation of a resource, as generated for a renderer.
+ *
+ * The fragment is kept by the resource and reused as long as its stamp,
+ * built from the object update id and the state of the resource, is
+ * unchanged.
+ */
+public final class DidlFragment {
+
+	private final Renderer renderer;
+	private final long generation;
+	private final String stamp;
+	private final String escaped;
+	private volatile String unescaped;
+
+	DidlFragment(Renderer renderer, long generation, String stamp, String escaped) {
+		this.renderer = renderer;
+		this.generation = generation;
+		this.stamp = stamp;
+		this.escaped = escaped;
+	}
+
+	boolean isValid(Renderer renderer, long generation, String stamp) {
+		return this.renderer == renderer && this.generation == generation && this.stamp != null && this.stamp.equals(stamp);
+	}
+
+	/**
+	 * @return the fragment escaped to be embedded in a SOAP response.
+	 */
+	String getEscaped() {
+		return escaped;
+	}
+
+	/**
+	 * @return the fragment as it appears in a DIDL-Lite document.
+	 */
+	String getUnescaped() {
+		String result = unescaped;
+		if (result == null) {
+			result = StringEscapeUtils.unescapeXml(escaped);
+			unescaped = result;
+		}
+		return result;
+	}
+
+}
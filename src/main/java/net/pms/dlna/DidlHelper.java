@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
 import net.pms.encoders.Engine;
 import net.pms.formats.Format;
 import net.pms.image.ImageFormat;
@@ -37,6 +38,7 @@ import net.pms.media.video.MediaVideo;
 import net.pms.media.video.metadata.MediaVideoMetadata;
 import net.pms.network.mediaserver.HTTPXMLHelper;
 import net.pms.renderers.Renderer;
+import net.pms.store.MediaStoreIds;
 import net.pms.store.StoreContainer;
 import net.pms.store.StoreItem;
 import net.pms.store.StoreResource;
@@ -48,6 +50,7 @@ import net.pms.util.FullyPlayed;
 import net.pms.util.StringUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
+import org.jupnp.model.types.UnsignedIntegerFourBytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +58,9 @@ public class DidlHelper extends DlnaHelper {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(DidlHelper.class);
 	private static final SimpleDateFormat DIDL_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+	private static final String DIDL_HEADER_UNESCAPED = StringEscapeUtils.unescapeXml(HTTPXMLHelper.DIDL_HEADER);
+	private static final String DIDL_FOOTER_UNESCAPED = StringEscapeUtils.unescapeXml(HTTPXMLHelper.DIDL_FOOTER);
+	private static final AtomicLong FRAGMENTS_GENERATION = new AtomicLong();
 
 	/**
 	 * This class is not meant to be instantiated.
@@ -63,13 +69,32 @@ public class DidlHelper extends DlnaHelper {
 	}
 
 	public static final String getDidlResults(List<StoreResource> resultResources) {
-		StringBuilder filesData = new StringBuilder();
-		filesData.append(HTTPXMLHelper.DIDL_HEADER);
+		List<DidlFragment> fragments = new ArrayList<>(resultResources.size());
+		int length = DIDL_HEADER_UNESCAPED.length() + DIDL_FOOTER_UNESCAPED.length();
 		for (StoreResource resource : resultResources) {
-			filesData.append(DidlHelper.getDidlString(resource));
+			DidlFragment fragment = getDidlFragment(resource);
+			fragments.add(fragment);
+			length += fragment.getUnescaped().length();
 		}
-		filesData.append(HTTPXMLHelper.DIDL_FOOTER);
-		return StringEscapeUtils.unescapeXml(filesData.toString());
+		StringBuilder filesData = new StringBuilder(length);
+		filesData.append(DIDL_HEADER_UNESCAPED);
+		for (DidlFragment fragment : fragments) {
+			filesData.append(fragment.getUnescaped());
+		}
+		filesData.append(DIDL_FOOTER_UNESCAPED);
+		return filesData.toString();
+	}
+
+	/**
+	 * Appends the escaped XML (DIDL) representation of the DLNA node to a
+	 * response, reusing the one generated for a previous request if the node
+	 * is unchanged.
+	 *
+	 * @param sb the response to append to.
+	 * @param resource the DLNA node.
+	 */
+	public static void appendDidlString(StringBuilder sb, StoreResource resource) {
+		sb.append(getDidlFragment(resource).getEscaped());
 	}
 
 	/**
@@ -82,6 +107,71 @@ public class DidlHelper extends DlnaHelper {
 	 *         ="1">}
 	 */
 	public static final String getDidlString(StoreResource resource) {
+		return getDidlFragment(resource).getEscaped();
+	}
+
+	/**
+	 * Forgets the DIDL fragments generated so far, for example after a
+	 * configuration change.
+	 */
+	public static void clearFragmentCache() {
+		FRAGMENTS_GENERATION.incrementAndGet();
+	}
+
+	private static DidlFragment getDidlFragment(StoreResource resource) {
+		Renderer renderer = resource.getDefaultRenderer();
+		long generation = FRAGMENTS_GENERATION.get();
+		String stamp = getFragmentStamp(resource);
+		DidlFragment fragment = resource.getDidlFragment();
+		if (fragment != null && fragment.isValid(renderer, generation, stamp)) {
+			return fragment;
+		}
+		fragment = new DidlFragment(renderer, generation, stamp, buildDidlString(resource));
+		if (stamp != null) {
+			resource.setDidlFragment(fragment);
+		}
+		return fragment;
+	}
+
+	/**
+	 * Builds the stamp of the state of an item that its DIDL fragment depends
+	 * on. Containers are not cached since their child count keeps changing.
+	 *
+	 * @return the stamp, or {@code null} if the fragment should not be cached.
+	 */
+	private static String getFragmentStamp(StoreResource resource) {
+		if (!(resource instanceof StoreItem item)) {
+			return null;
+		}
+		UnsignedIntegerFourBytes updateId = MediaStoreIds.getObjectUpdateId(item.getLongId());
+		if (updateId == null) {
+			return null;
+		}
+		MediaInfo mediaInfo = item.getMediaInfo();
+		MediaStatus mediaStatus = item.getMediaStatus();
+		StringBuilder stamp = new StringBuilder(96);
+		stamp.append(updateId.getValue()).append('|').append(item.getParentId());
+		stamp.append('|').append(item.getDisplayName(false));
+		stamp.append('|').append(System.identityHashCode(mediaInfo));
+		if (mediaInfo != null) {
+			stamp.append(mediaInfo.isMediaParsed() ? 'p' : '-').append(mediaInfo.isThumbnailReady() ? 't' : '-');
+		}
+		stamp.append('|').append(System.identityHashCode(item.getEngine()));
+		stamp.append('|').append(System.identityHashCode(item.getMediaSubtitle()));
+		if (mediaStatus != null) {
+			stamp.append('|').append(mediaStatus.getPlaybackCount());
+			stamp.append('|').append(mediaStatus.getLastPlaybackTime());
+			stamp.append('|').append(mediaStatus.getLastPlaybackPosition());
+			stamp.append('|').append(mediaStatus.getBookmark());
+			stamp.append('|').append(mediaStatus.isFullyPlayed());
+		}
+		if (item.isResume()) {
+			stamp.append("|r").append(item.getResume().getTimeOffset());
+		}
+		return stamp.toString();
+	}
+
+	private static String buildDidlString(StoreResource resource) {
 		final Renderer renderer = resource.getDefaultRenderer();
 		final MediaInfo mediaInfo = resource.getMediaInfo();
 		final MediaStatus mediaStatus = resource.getMediaStatus();
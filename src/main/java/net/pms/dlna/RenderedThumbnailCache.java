@@ -0,0 +1,283 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.dlna;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.pms.PMS;
+import net.pms.image.BufferedImageFilter;
+import net.pms.image.BufferedImageFilterChain;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded memory and disk cache of the thumbnails sent to the renderers,
+ * after scaling, padding, filtering and encoding.
+ *
+ * The entries are keyed by a hash of the source image, the output profile,
+ * the padding and the filters, so they never need to be invalidated: a
+ * changed thumbnail or filter gives another key. The key is also used as
+ * the HTTP entity tag of the rendered thumbnail.
+ */
+public class RenderedThumbnailCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RenderedThumbnailCache.class);
+	private static final String DIRECTORY_NAME = "rendered_thumbnails";
+	private static final String FILE_EXTENSION = ".thumb";
+	private static final long MAX_MEMORY_SIZE = 32L * 1024 * 1024;
+	private static final long MAX_DISK_SIZE = 256L * 1024 * 1024;
+
+	// Both guarded by MEMORY
+	private static final Map<String, DLNAThumbnail> MEMORY = new LinkedHashMap<>(16, 0.75f, true);
+	private static long memorySize;
+
+	// All guarded by DISK
+	private static final Map<String, Long> DISK = new LinkedHashMap<>(16, 0.75f, true);
+	private static long diskSize;
+	private static File directory;
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private RenderedThumbnailCache() {
+	}
+
+	/**
+	 * Computes the cache key of a rendered thumbnail.
+	 *
+	 * @param source the bytes of the source image.
+	 * @param outputProfile the output {@link DLNAImageProfile}.
+	 * @param padToSize whether the output is padded.
+	 * @param filterChain the applied filters or {@code null}.
+	 * @return the key.
+	 */
+	public static String getKey(byte[] source, DLNAImageProfile outputProfile, boolean padToSize, BufferedImageFilterChain filterChain) {
+		StringBuilder sb = new StringBuilder(DigestUtils.md5Hex(source));
+		sb.append('|').append(outputProfile).append('|').append(outputProfile.getMaxWidth()).append('x').append(outputProfile.getMaxHeight());
+		sb.append('|').append(padToSize);
+		if (filterChain != null) {
+			for (BufferedImageFilter filter : filterChain) {
+				sb.append('|').append(filter.getClass().getName()).append(':').append(filter.getDescription());
+			}
+		}
+		return DigestUtils.md5Hex(sb.toString());
+	}
+
+	/**
+	 * @param key the cache key.
+	 * @return the HTTP entity tag of the rendered thumbnail.
+	 */
+	public static String getETag(String key) {
+		return "\"" + key + "\"";
+	}
+
+	/**
+	 * Checks an {@code If-None-Match} request header against an entity tag.
+	 *
+	 * @param ifNoneMatch the header value or {@code null}.
+	 * @param etag the entity tag of the current representation.
+	 * @return {@code true} if the client already has the representation.
+	 */
+	public static boolean isNotModified(String ifNoneMatch, String etag) {
+		if (StringUtils.isBlank(ifNoneMatch) || etag == null) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = StringUtils.removeStart(tag.trim(), "W/");
+			if ("*".equals(tag) || etag.equals(tag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a rendered thumbnail from memory, or from disk.
+	 *
+	 * @param key the cache key.
+	 * @return the rendered thumbnail or {@code null} if not cached.
+	 */
+	public static DLNAThumbnail get(String key) {
+		synchronized (MEMORY) {
+			DLNAThumbnail thumbnail = MEMORY.get(key);
+			if (thumbnail != null) {
+				return thumbnail;
+			}
+		}
+		DLNAThumbnail thumbnail = read(key);
+		if (thumbnail != null) {
+			putInMemory(key, thumbnail);
+		}
+		return thumbnail;
+	}
+
+	/**
+	 * Stores a rendered thumbnail in memory and on disk.
+	 *
+	 * @param key the cache key.
+	 * @param thumbnail the rendered thumbnail.
+	 */
+	public static void put(String key, DLNAThumbnail thumbnail) {
+		putInMemory(key, thumbnail);
+		write(key, thumbnail);
+	}
+
+	private static void putInMemory(String key, DLNAThumbnail thumbnail) {
+		long size = thumbnail.getBytes(false).length;
+		if (size > MAX_MEMORY_SIZE / 16) {
+			return;
+		}
+		synchronized (MEMORY) {
+			DLNAThumbnail previous = MEMORY.put(key, thumbnail);
+			if (previous != null) {
+				memorySize -= previous.getBytes(false).length;
+			}
+			memorySize += size;
+			Iterator<DLNAThumbnail> iterator = MEMORY.values().iterator();
+			while (memorySize > MAX_MEMORY_SIZE && iterator.hasNext()) {
+				memorySize -= iterator.next().getBytes(false).length;
+				iterator.remove();
+			}
+		}
+	}
+
+	private static DLNAThumbnail read(String key) {
+		File file;
+		synchronized (DISK) {
+			// get() and not containsKey(), to update the least recently used order
+			if (!init() || DISK.get(key) == null) {
+				return null;
+			}
+			file = getFile(key);
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			DLNAThumbnail thumbnail = (DLNAThumbnail) ois.readObject();
+			// Keep the least recently used order for the next runs
+			file.setLastModified(System.currentTimeMillis());
+			return thumbnail;
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			LOGGER.debug("Could not read rendered thumbnail \"{}\": {}", file, e.getMessage());
+			synchronized (DISK) {
+				remove(key);
+			}
+			return null;
+		}
+	}
+
+	private static void write(String key, DLNAThumbnail thumbnail) {
+		File file;
+		synchronized (DISK) {
+			if (!init() || DISK.containsKey(key)) {
+				return;
+			}
+			file = getFile(key);
+		}
+		Path temp = null;
+		try {
+			// A unique temporary file, so concurrent writes of a key don't mix
+			temp = Files.createTempFile(file.getParentFile().toPath(), key, ".tmp");
+			try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				oos.writeObject(thumbnail);
+			}
+			try {
+				Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not write rendered thumbnail \"{}\": {}", file, e.getMessage());
+			LOGGER.trace("", e);
+			if (temp != null) {
+				temp.toFile().delete();
+			}
+			return;
+		}
+		synchronized (DISK) {
+			Long previous = DISK.put(key, file.length());
+			if (previous != null) {
+				diskSize -= previous;
+			}
+			diskSize += file.length();
+			Iterator<String> iterator = DISK.keySet().iterator();
+			while (diskSize > MAX_DISK_SIZE && iterator.hasNext()) {
+				String eldest = iterator.next();
+				diskSize -= DISK.get(eldest);
+				iterator.remove();
+				getFile(eldest).delete();
+			}
+		}
+	}
+
+	private static void remove(String key) {
+		Long size = DISK.remove(key);
+		if (size != null) {
+			diskSize -= size;
+		}
+		getFile(key).delete();
+	}
+
+	private static File getFile(String key) {
+		return new File(directory, key + FILE_EXTENSION);
+	}
+
+	/**
+	 * Indexes the files of the previous runs, the least recently used first.
+	 *
+	 * @return whether the disk cache is usable.
+	 */
+	private static boolean init() {
+		if (directory == null) {
+			File dir = new File(PMS.getConfiguration().getDataFile(DIRECTORY_NAME));
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				LOGGER.debug("Could not create the rendered thumbnails folder \"{}\"", dir);
+				return false;
+			}
+			File[] files = dir.listFiles();
+			if (files != null) {
+				Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+				for (File file : files) {
+					String name = file.getName();
+					if (name.endsWith(FILE_EXTENSION)) {
+						DISK.put(name.substring(0, name.length() - FILE_EXTENSION.length()), file.length());
+						diskSize += file.length();
+					} else {
+						// Leftover of an interrupted write
+						file.delete();
+					}
+				}
+			}
+			directory = dir;
+		}
+		return true;
+	}
+
+}
@@ -1361,6 +1361,93 @@ public class FFMpegVideo extends Engine {
 		params.setMinBufferSize(params.getMinFileSize());
 		params.setSecondReadMinSize(100000);
 		params.setWaitBeforeStart(0);
+		HlsHelper.HlsConfiguration hlsConfiguration = params.getHlsConfiguration();
+		boolean needVideo = hlsConfiguration.video.resolutionWidth > -1;
+		boolean needAudio = hlsConfiguration.audioStream > -1;
+		boolean needSubtitle = hlsConfiguration.subtitle > -1;
+		List<String> cmdList = getHlsTranscodeCommand(resource, media, params, true);
+
+		cmdList.add("-f");
+		if (needSubtitle && !needAudio && !needVideo) {
+			cmdList.add("webvtt");
+		} else {
+			cmdList.add("mpegts");
+			cmdList.add("-skip_estimate_duration_from_pts");
+			cmdList.add("1");
+			cmdList.add("-use_wallclock_as_timestamps");
+			cmdList.add("1");
+			//transcodeOptions.add("-mpegts_flags");
+			//transcodeOptions.add("latm");
+			cmdList.add("-movflags");
+			cmdList.add("frag_keyframe"); //frag_keyframe
+		}
+
+		ProcessWrapperImpl pw = runTranscodeProcess(params, cmdList);
+
+		return pw;
+	}
+
+	/**
+	 * Launches a single HLS transcode writing consecutive MPEG-TS segments of
+	 * {@link HlsHelper#DEFAULT_TARGETDURATION} seconds to a folder, named
+	 * after their index in the rendition playlist.
+	 *
+	 * Segments are written to a temporary file first and renamed once
+	 * complete, so an existing segment file is always complete.
+	 *
+	 * @param resource the item to transcode.
+	 * @param media the media info of the item.
+	 * @param params the transcode parameters, the time seek must be the start
+	 *            of the first segment.
+	 * @param folder the folder to write the segments to.
+	 * @param firstSegment the index of the first segment.
+	 * @return the running process.
+	 */
+	public ProcessWrapperImpl launchHlsSegmenter(
+		StoreItem resource,
+		MediaInfo media,
+		OutputParams params,
+		File folder,
+		int firstSegment
+	) {
+		List<String> cmdList = getHlsTranscodeCommand(resource, media, params, false);
+		String segmentDuration = String.valueOf((int) HlsHelper.DEFAULT_TARGETDURATION);
+
+		// Segments must start at the same times as in the rendition playlist
+		cmdList.add("-force_key_frames");
+		cmdList.add("expr:gte(t,n_forced*" + segmentDuration + ")");
+		// Keep the timestamps of the source without -copyts, which would shift the segments
+		cmdList.add("-output_ts_offset");
+		cmdList.add(String.valueOf((int) params.getTimeSeek()));
+
+		cmdList.add("-f");
+		cmdList.add("hls");
+		cmdList.add("-hls_time");
+		cmdList.add(segmentDuration);
+		cmdList.add("-hls_list_size");
+		cmdList.add("0");
+		cmdList.add("-hls_flags");
+		cmdList.add("independent_segments+temp_file");
+		cmdList.add("-start_number");
+		cmdList.add(String.valueOf(firstSegment));
+		cmdList.add("-hls_segment_filename");
+		cmdList.add(new File(folder, "%d.ts").getAbsolutePath());
+		cmdList.add(new File(folder, firstSegment + ".m3u8").getAbsolutePath());
+
+		String[] cmdArray = new String[cmdList.size()];
+		cmdList.toArray(cmdArray);
+		params.setLog(true);
+		ProcessWrapperImpl pw = new ProcessWrapperImpl(cmdArray, params);
+		pw.runInNewThread();
+		return pw;
+	}
+
+	private List<String> getHlsTranscodeCommand(
+		StoreItem resource,
+		MediaInfo media,
+		OutputParams params,
+		boolean copyTimestamps
+	) {
 		// Use device-specific conf
 		UmsConfiguration configuration = params.getMediaRenderer().getUmsConfiguration();
 		HlsHelper.HlsConfiguration hlsConfiguration = params.getHlsConfiguration();
@@ -1433,7 +1520,9 @@ public class FFMpegVideo extends Engine {
 		}
 		//remove data
 		cmdList.add("-dn");
-		cmdList.add("-copyts");
+		if (copyTimestamps) {
+			cmdList.add("-copyts");
+		}
 
 		//setup video
 		if (needVideo) {
@@ -1524,24 +1613,7 @@ public class FFMpegVideo extends Engine {
 		// Encoder threads
 		setEncodingThreads(cmdList, configuration);
 
-		cmdList.add("-f");
-		if (needSubtitle && !needAudio && !needVideo) {
-			cmdList.add("webvtt");
-		} else {
-			cmdList.add("mpegts");
-			cmdList.add("-skip_estimate_duration_from_pts");
-			cmdList.add("1");
-			cmdList.add("-use_wallclock_as_timestamps");
-			cmdList.add("1");
-			//transcodeOptions.add("-mpegts_flags");
-			//transcodeOptions.add("latm");
-			cmdList.add("-movflags");
-			cmdList.add("frag_keyframe"); //frag_keyframe
-		}
-
-		ProcessWrapperImpl pw = runTranscodeProcess(params, cmdList);
-
-		return pw;
+		return cmdList;
 	}
 
 	public static void setLogLevel(List<String> cmdList, UmsConfiguration configuration) {
@@ -62,6 +62,13 @@ public class HlsHelper {
 	private HlsHelper() {
 	}
 
+	/**
+	 * Stops the HLS transcoding sessions and their cleaner thread.
+	 */
+	public static void stopSessions() {
+		HlsSession.stopAll();
+	}
+
 	public static HlsConfiguration getByKey(String label) {
 		String[] labelParts = label.split("_");
 		if (labelParts.length > 1) {
@@ -314,19 +321,24 @@ public class HlsHelper {
 		return null;
 	}
 
-	private static TimeRange getTimeRange(String url) {
+	private static int getSegmentIndex(String url) {
 		if (!url.contains("/")) {
-			return null;
+			return -1;
 		}
 		String positionStr = url.substring(url.lastIndexOf("/") + 1);
 		if (!positionStr.contains(".")) {
-			return null;
+			return -1;
 		}
 		positionStr = positionStr.substring(0, positionStr.indexOf("."));
-		int position;
 		try {
-			position = Integer.parseInt(positionStr);
+			return Integer.parseInt(positionStr);
 		} catch (NumberFormatException es) {
+			return -1;
+		}
+	}
+
+	private static TimeRange getTimeRange(int position) {
+		if (position < 0) {
 			return null;
 		}
 		double askedStart =  Double.valueOf(position) * HlsHelper.DEFAULT_TARGETDURATION;
@@ -341,8 +353,16 @@ public class HlsHelper {
 		rendition = rendition.substring(0, rendition.indexOf("/"));
 		//here we need to set rendition to renderer
 		HlsHelper.HlsConfiguration hlsConfiguration = getByKey(rendition);
-		Range timeRange = getTimeRange(url);
+		int position = getSegmentIndex(url);
+		Range timeRange = getTimeRange(position);
 		if (hlsConfiguration != null && timeRange != null) {
+			if (url.endsWith(".ts")) {
+				// Read the segment from the rendition transcode, if possible
+				InputStream segment = HlsSession.getSegment(resource, rendition, hlsConfiguration, position);
+				if (segment != null) {
+					return segment;
+				}
+			}
 			return resource.getInputStream(timeRange, hlsConfiguration);
 		}
 		return null;
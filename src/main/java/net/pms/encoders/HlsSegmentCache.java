@@ -0,0 +1,105 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.pms.PMS;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded on-disk cache of the HLS segments written by the
+ * {@link HlsSession}s, evicting the least recently used segments when the
+ * configured size is exceeded.
+ */
+class HlsSegmentCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(HlsSegmentCache.class);
+	private static final Map<File, Long> SEGMENTS = new LinkedHashMap<>(16, 0.75f, true);
+	private static long size;
+	private static File cacheFolder;
+
+	private HlsSegmentCache() {
+		//should not be instantiated
+	}
+
+	/**
+	 * Returns the folder holding the segments of a session, removing the
+	 * segments left by a previous run of UMS the first time it's called.
+	 *
+	 * @param sessionId the session id.
+	 * @return the session folder.
+	 * @throws IOException if the folder can't be created.
+	 */
+	static synchronized File getFolder(String sessionId) throws IOException {
+		if (cacheFolder == null) {
+			File folder = new File(PMS.getConfiguration().getTempFolder(), "hls");
+			FileUtils.deleteQuietly(folder);
+			cacheFolder = folder;
+		}
+		File folder = new File(cacheFolder, sessionId);
+		if (!folder.isDirectory() && !folder.mkdirs()) {
+			throw new IOException("Unable to create HLS segment folder " + folder.getAbsolutePath());
+		}
+		return folder;
+	}
+
+	/**
+	 * Adds a complete segment to the cache, or marks it as recently used.
+	 *
+	 * @param segment the segment file.
+	 */
+	static synchronized void add(File segment) {
+		long length = segment.length();
+		Long previous = SEGMENTS.put(segment, length);
+		size += length - (previous != null ? previous : 0);
+		long maxSize = PMS.getConfiguration().getHlsSegmentCacheSize() * 1024L * 1024L;
+		Iterator<Map.Entry<File, Long>> entries = SEGMENTS.entrySet().iterator();
+		while (size > maxSize && entries.hasNext()) {
+			Map.Entry<File, Long> entry = entries.next();
+			if (entry.getKey().equals(segment)) {
+				continue;
+			}
+			entries.remove();
+			size -= entry.getValue();
+			if (!entry.getKey().delete()) {
+				LOGGER.debug("Unable to delete HLS segment {}", entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * @param segment the segment file.
+	 * @return whether the segment is cached, marking it as recently used.
+	 */
+	static synchronized boolean contains(File segment) {
+		if (SEGMENTS.get(segment) == null) {
+			return false;
+		}
+		if (!segment.isFile()) {
+			size -= SEGMENTS.remove(segment);
+			return false;
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,310 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.encoders;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
+import net.pms.io.FileRangeInputStream;
+import net.pms.io.OutputParams;
+import net.pms.io.ProcessWrapperImpl;
+import net.pms.media.MediaInfo;
+import net.pms.renderers.Renderer;
+import net.pms.store.StoreItem;
+import net.pms.store.item.RealFile;
+import net.pms.util.SimpleThreadFactory;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An HLS rendition of an item, transcoded by a single FFmpeg process writing
+ * its segments into the {@link HlsSegmentCache}.
+ *
+ * The transcode runs ahead of the segments requested by the player and is
+ * paused (stopped) when it gets too far ahead. A request for a segment which
+ * is neither cached nor about to be written restarts the transcode from that
+ * segment, up to the next cached one.
+ */
+class HlsSession {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(HlsSession.class);
+	private static final Map<String, HlsSession> SESSIONS = new HashMap<>();
+
+	/**
+	 * Time after the last request before a session is closed.
+	 */
+	private static final long SESSION_TIMEOUT = 2 * 60 * 1000;
+
+	/**
+	 * Maximum time to wait for a segment to be written.
+	 */
+	private static final long SEGMENT_TIMEOUT = 60 * 1000;
+
+	/**
+	 * Number of segments written ahead of the last requested one above which
+	 * the transcode is paused.
+	 */
+	private static final int MAX_SEGMENTS_AHEAD = 50;
+
+	/**
+	 * Number of segments ahead of the requested one which should be cached
+	 * or being written.
+	 */
+	private static final int MIN_SEGMENTS_AHEAD = 10;
+
+	/**
+	 * Maximum distance between the next segment of the running transcode and
+	 * a requested one to wait for it rather than restarting the transcode.
+	 */
+	private static final int MAX_SEGMENTS_GAP = 3;
+
+	private static ScheduledExecutorService cleaner;
+
+	private final StoreItem item;
+	private final FFMpegVideo engine;
+	private final HlsHelper.HlsConfiguration hlsConfiguration;
+	private final File folder;
+	private final int segmentCount;
+	private ProcessWrapperImpl process;
+	private int nextSegment;
+	private int endSegment;
+	private int lastRequestedSegment;
+	private long lastAccess;
+
+	private HlsSession(StoreItem item, FFMpegVideo engine, HlsHelper.HlsConfiguration hlsConfiguration, File folder, int segmentCount) {
+		this.item = item;
+		this.engine = engine;
+		this.hlsConfiguration = hlsConfiguration;
+		this.folder = folder;
+		this.segmentCount = segmentCount;
+	}
+
+	/**
+	 * Returns a segment of an HLS rendition from the session transcoding it,
+	 * waiting for the segment to be written if needed.
+	 *
+	 * @param item the item.
+	 * @param rendition the rendition key.
+	 * @param hlsConfiguration the rendition configuration.
+	 * @param segment the segment index in the rendition playlist.
+	 * @return the segment, or {@code null} if HLS sessions can't be used for
+	 *         this item or the segment could not be transcoded in time.
+	 */
+	static InputStream getSegment(StoreItem item, String rendition, HlsHelper.HlsConfiguration hlsConfiguration, int segment) {
+		MediaInfo mediaInfo = item.getMediaInfo();
+		if (
+			PMS.getConfiguration().getHlsSegmentCacheSize() == 0 ||
+			!(item.getEngine() instanceof FFMpegVideo ffmpeg) ||
+			hlsConfiguration.isSubtitle() ||
+			mediaInfo == null ||
+			mediaInfo.getDurationInSeconds() <= 0
+		) {
+			return null;
+		}
+		int segmentCount = (int) Math.ceil(mediaInfo.getDurationInSeconds() / HlsHelper.DEFAULT_TARGETDURATION);
+		if (segment < 0 || segment >= segmentCount) {
+			return null;
+		}
+		// A modified file gets a new session, and new segments
+		long modified = item instanceof RealFile realFile ? realFile.getFile().lastModified() : item.getLastModified();
+		String key = item.getSystemName() + "|" + modified + "|" + rendition;
+		HlsSession session;
+		synchronized (SESSIONS) {
+			session = SESSIONS.get(key);
+			if (session == null) {
+				try {
+					File folder = HlsSegmentCache.getFolder(DigestUtils.md5Hex(key));
+					session = new HlsSession(item, ffmpeg, hlsConfiguration, folder, segmentCount);
+				} catch (IOException e) {
+					LOGGER.warn("Unable to start HLS session for {}: {}", item.getName(), e.getMessage());
+					LOGGER.trace("", e);
+					return null;
+				}
+				SESSIONS.put(key, session);
+				if (cleaner == null) {
+					cleaner = Executors.newSingleThreadScheduledExecutor(new SimpleThreadFactory("HLS session cleaner"));
+					cleaner.scheduleWithFixedDelay(HlsSession::cleanSessions, 10, 10, TimeUnit.SECONDS);
+				}
+			}
+		}
+		return session.getSegment(segment);
+	}
+
+	/**
+	 * Stops all the sessions and their cleaner, when the server stops.
+	 */
+	static void stopAll() {
+		synchronized (SESSIONS) {
+			for (HlsSession session : SESSIONS.values()) {
+				synchronized (session) {
+					session.stop();
+				}
+			}
+			SESSIONS.clear();
+			if (cleaner != null) {
+				cleaner.shutdownNow();
+				cleaner = null;
+			}
+		}
+	}
+
+	/**
+	 * Pauses the transcodes which are too far ahead of the player and closes
+	 * the sessions which are no longer used.
+	 */
+	private static void cleanSessions() {
+		synchronized (SESSIONS) {
+			Iterator<HlsSession> sessions = SESSIONS.values().iterator();
+			while (sessions.hasNext()) {
+				HlsSession session = sessions.next();
+				synchronized (session) {
+					session.update();
+					if (System.currentTimeMillis() - session.lastAccess > SESSION_TIMEOUT) {
+						session.stop();
+						sessions.remove();
+					} else if (session.isRunning() && session.nextSegment - session.lastRequestedSegment > MAX_SEGMENTS_AHEAD) {
+						LOGGER.trace("Pausing HLS transcode of {} at segment {}", session.item.getName(), session.nextSegment);
+						session.stop();
+					}
+				}
+			}
+		}
+	}
+
+	private InputStream getSegment(int segment) {
+		File segmentFile = getSegmentFile(segment);
+		synchronized (this) {
+			lastAccess = System.currentTimeMillis();
+			lastRequestedSegment = segment;
+			update();
+			if (!segmentFile.isFile() && !isWriting(segment)) {
+				start(segment);
+			} else {
+				// Keep transcoding ahead of the player
+				int maxSegment = Math.min(segment + MIN_SEGMENTS_AHEAD, segmentCount);
+				for (int next = segment + 1; next < maxSegment; next++) {
+					if (!getSegmentFile(next).isFile()) {
+						if (!isWriting(next)) {
+							start(next);
+						}
+						break;
+					}
+				}
+			}
+		}
+
+		long start = System.currentTimeMillis();
+		while (!segmentFile.isFile() && System.currentTimeMillis() - start < SEGMENT_TIMEOUT) {
+			synchronized (this) {
+				if (!isWriting(segment)) {
+					break;
+				}
+			}
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+
+		synchronized (this) {
+			update();
+		}
+		if (!segmentFile.isFile()) {
+			LOGGER.debug("HLS segment {} of {} was not transcoded in time", segment, item.getName());
+			return null;
+		}
+		HlsSegmentCache.add(segmentFile);
+		try {
+			return new FileRangeInputStream(segmentFile);
+		} catch (IOException e) {
+			LOGGER.debug("Unable to read HLS segment {}: {}", segmentFile, e.getMessage());
+			return null;
+		}
+	}
+
+	private File getSegmentFile(int segment) {
+		return new File(folder, segment + ".ts");
+	}
+
+	private boolean isRunning() {
+		return process != null && process.isAlive();
+	}
+
+	/**
+	 * @return whether the running transcode is about to write a segment.
+	 */
+	private boolean isWriting(int segment) {
+		return isRunning() && segment >= nextSegment && segment < endSegment && segment - nextSegment <= MAX_SEGMENTS_GAP;
+	}
+
+	/**
+	 * Adds the segments written by the running transcode to the cache.
+	 */
+	private void update() {
+		while (nextSegment < endSegment && getSegmentFile(nextSegment).isFile()) {
+			HlsSegmentCache.add(getSegmentFile(nextSegment));
+			nextSegment++;
+		}
+	}
+
+	/**
+	 * Starts transcoding from a segment up to the next cached one.
+	 */
+	private void start(int segment) {
+		stop();
+		int end = segment + 1;
+		while (end < segmentCount && !HlsSegmentCache.contains(getSegmentFile(end))) {
+			end++;
+		}
+		LOGGER.debug("Starting HLS transcode of {} for segments {} to {}", item.getName(), segment, end - 1);
+		Renderer renderer = item.getDefaultRenderer();
+		OutputParams params = new OutputParams(renderer.getUmsConfiguration());
+		params.setAid(item.getMediaAudio());
+		params.setSid(item.getMediaSubtitle());
+		params.setMediaRenderer(renderer);
+		params.setHlsConfiguration(hlsConfiguration);
+		params.setTimeSeek(segment * HlsHelper.DEFAULT_TARGETDURATION);
+		if (end < segmentCount) {
+			params.setTimeEnd(end * HlsHelper.DEFAULT_TARGETDURATION);
+		}
+		nextSegment = segment;
+		endSegment = end;
+		process = engine.launchHlsSegmenter(item, item.getMediaInfo(), params, folder, segment);
+	}
+
+	private void stop() {
+		if (process != null) {
+			if (process.isAlive()) {
+				process.stopProcess();
+				// hls_flags temp_file: the unfinished segment
+				new File(folder, nextSegment + ".ts.tmp").delete();
+			}
+			process = null;
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.external;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Spaces the requests sent to an external server.
+ *
+ * The interval between two requests starts at the minimum interval. It is
+ * doubled every time the server throttles a request (HTTP 429 or 5xx) and
+ * slowly decreased back while the requests succeed. A {@code Retry-After}
+ * delay sent by the server is always honored.
+ */
+public class AdaptiveRateLimiter {
+
+	private static final long BACKOFF_STEP_MILLIS = 250;
+
+	private final long minIntervalMillis;
+	private final long maxIntervalMillis;
+	private long intervalMillis;
+	private long nextPermitMillis;
+
+	/**
+	 * @param minIntervalMillis the interval between requests while the server
+	 *            does not throttle them.
+	 * @param maxIntervalMillis the maximum interval between requests.
+	 */
+	public AdaptiveRateLimiter(long minIntervalMillis, long maxIntervalMillis) {
+		this.minIntervalMillis = minIntervalMillis;
+		this.maxIntervalMillis = Math.max(minIntervalMillis, maxIntervalMillis);
+		this.intervalMillis = minIntervalMillis;
+	}
+
+	/**
+	 * Waits until a request can be sent.
+	 *
+	 * @throws InterruptedIOException if the thread is interrupted while
+	 *             waiting.
+	 */
+	public void acquire() throws InterruptedIOException {
+		long wait;
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			long permit = Math.max(now, nextPermitMillis);
+			nextPermitMillis = permit + intervalMillis;
+			wait = permit - now;
+		}
+		if (wait > 0) {
+			try {
+				Thread.sleep(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the rate limiter");
+			}
+		}
+	}
+
+	/**
+	 * Reports the response status of a request.
+	 *
+	 * @param statusCode the HTTP status code.
+	 * @param retryAfterSeconds the {@code Retry-After} delay in seconds, or
+	 *            {@code null} if none.
+	 */
+	public void onResponse(int statusCode, Long retryAfterSeconds) {
+		if (statusCode == 429 || statusCode >= 500) {
+			onThrottled(retryAfterSeconds != null ? retryAfterSeconds * 1000 : 0);
+		} else {
+			onSuccess();
+		}
+	}
+
+	/**
+	 * Reports a request which succeeded.
+	 */
+	public synchronized void onSuccess() {
+		if (intervalMillis > minIntervalMillis) {
+			intervalMillis = Math.max(minIntervalMillis, intervalMillis * 3 / 4);
+		}
+	}
+
+	/**
+	 * Reports a request which was throttled or failed.
+	 *
+	 * @param retryAfterMillis the delay requested by the server before the
+	 *            next request, or 0 if none.
+	 */
+	public synchronized void onThrottled(long retryAfterMillis) {
+		intervalMillis = Math.min(maxIntervalMillis, Math.max(intervalMillis * 2, BACKOFF_STEP_MILLIS));
+		long now = System.currentTimeMillis();
+		nextPermitMillis = Math.max(nextPermitMillis, now + Math.max(retryAfterMillis, intervalMillis));
+	}
+
+	/**
+	 * @return the current interval between requests in milliseconds.
+	 */
+	public synchronized long getIntervalMillis() {
+		return intervalMillis;
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.external;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A persistent cache of the HTTP responses received from external servers.
+ *
+ * Each response body is stored in its own file, named after the hash of the
+ * request URL. The modification time of the file is the time the response
+ * was received, so the freshness of an entry is decided by the caller when
+ * reading it.
+ */
+public class HttpResponseCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(HttpResponseCache.class);
+	private static final String EXTENSION = ".cache";
+
+	private final File directory;
+
+	/**
+	 * Creates a cache storing its entries in the given directory.
+	 *
+	 * @param directory the cache directory, created if needed.
+	 */
+	public HttpResponseCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the cached response body of a URL if it is fresh enough.
+	 *
+	 * @param url the request URL.
+	 * @param maxAgeMillis the maximum age of the response in milliseconds.
+	 * @return the response body, or {@code null} if none or expired.
+	 */
+	public byte[] get(String url, long maxAgeMillis) {
+		File file = getFile(url);
+		long modified = file.lastModified();
+		if (modified == 0 || System.currentTimeMillis() - modified > maxAgeMillis) {
+			return null;
+		}
+		try {
+			return Files.readAllBytes(file.toPath());
+		} catch (IOException e) {
+			LOGGER.debug("Could not read the cached response of \"{}\": {}", url, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the response body of a URL.
+	 *
+	 * @param url the request URL.
+	 * @param body the response body.
+	 */
+	public void put(String url, byte[] body) {
+		File file = getFile(url);
+		try {
+			Files.createDirectories(directory.toPath());
+			File temp = File.createTempFile(file.getName(), ".tmp", directory);
+			Files.write(temp.toPath(), body);
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			LOGGER.debug("Could not cache the response of \"{}\": {}", url, e.getMessage());
+		}
+	}
+
+	/**
+	 * Removes the cached response of a URL.
+	 *
+	 * @param url the request URL.
+	 */
+	public void remove(String url) {
+		File file = getFile(url);
+		if (file.exists() && !file.delete()) {
+			LOGGER.debug("Could not delete the cached response of \"{}\"", url);
+		}
+	}
+
+	/**
+	 * Deletes the entries older than the given age.
+	 *
+	 * @param maxAgeMillis the maximum age of the kept entries in milliseconds.
+	 * @return the number of deleted entries.
+	 */
+	public int purge(long maxAgeMillis) {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION) || name.endsWith(".tmp"));
+		if (files == null) {
+			return 0;
+		}
+		int deleted = 0;
+		long oldest = System.currentTimeMillis() - maxAgeMillis;
+		for (File file : files) {
+			if (file.lastModified() < oldest && file.delete()) {
+				deleted++;
+			}
+		}
+		return deleted;
+	}
+
+	private File getFile(String url) {
+		return new File(directory, DigestUtils.sha1Hex(url) + EXTENSION);
+	}
+
+}
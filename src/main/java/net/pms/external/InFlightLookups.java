@@ -0,0 +1,133 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.external;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Deduplicates the lookups sent to an external server.
+ *
+ * Concurrent lookups with the same key share the result of the first one, and
+ * successful results are kept for a short time so the lookups following each
+ * other (like the episodes of a series) do not repeat the same query.
+ *
+ * @param <K> the type of the lookup keys.
+ * @param <V> the type of the lookup results.
+ */
+public class InFlightLookups<K, V> {
+
+	private final Map<K, Lookup<V>> lookups = new ConcurrentHashMap<>();
+	private final long keepMillis;
+	private final int maxEntries;
+
+	/**
+	 * @param keepMillis how long the successful results are kept.
+	 * @param maxEntries the maximum number of kept results.
+	 */
+	public InFlightLookups(long keepMillis, int maxEntries) {
+		this.keepMillis = keepMillis;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns the result of a lookup, running it only if no lookup with the
+	 * same key is in flight or recently completed.
+	 *
+	 * @param key the normalized lookup key.
+	 * @param loader the lookup.
+	 * @return the lookup result.
+	 * @throws IOException if the lookup failed.
+	 */
+	public V get(K key, Callable<V> loader) throws IOException {
+		Lookup<V> lookup = new Lookup<>();
+		Lookup<V> existing = lookups.putIfAbsent(key, lookup);
+		while (existing != null) {
+			if (!existing.isExpired()) {
+				return join(existing.future);
+			}
+			if (lookups.replace(key, existing, lookup)) {
+				break;
+			}
+			existing = lookups.putIfAbsent(key, lookup);
+		}
+		try {
+			V result = loader.call();
+			if (lookups.size() > maxEntries) {
+				lookups.values().removeIf(Lookup::isExpired);
+			}
+			if (keepMillis > 0 && lookups.size() <= maxEntries) {
+				lookup.expires = System.currentTimeMillis() + keepMillis;
+				lookup.future.complete(result);
+			} else {
+				lookup.future.complete(result);
+				lookups.remove(key, lookup);
+			}
+			return result;
+		} catch (Exception e) {
+			lookups.remove(key, lookup);
+			lookup.future.completeExceptionally(e);
+			if (e instanceof IOException ioException) {
+				throw ioException;
+			}
+			if (e instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Forgets the kept results.
+	 */
+	public void clear() {
+		lookups.values().removeIf(lookup -> lookup.future.isDone());
+	}
+
+	private static <V> V join(CompletableFuture<V> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a lookup");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException ioException) {
+				throw ioException;
+			}
+			if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private static class Lookup<V> {
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+		private volatile long expires = Long.MAX_VALUE;
+
+		private boolean isExpired() {
+			return future.isDone() && System.currentTimeMillis() > expires;
+		}
+	}
+
+}
@@ -25,6 +25,11 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.image.ImageFormat;
 import net.pms.image.ImagesUtil.ScaleType;
@@ -38,6 +43,11 @@ import org.slf4j.LoggerFactory;
 public class JavaHttpClient {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(JavaHttpClient.class);
+	private static final long MIN_REQUEST_INTERVAL_MILLIS = 50;
+	private static final long MAX_REQUEST_INTERVAL_MILLIS = 60000;
+	private static final Map<String, AdaptiveRateLimiter> RATE_LIMITERS = new ConcurrentHashMap<>();
+	private static final InFlightLookups<String, byte[]> IN_FLIGHT_DOWNLOADS = new InFlightLookups<>(0, 0);
+	private static HttpResponseCache responseCache;
 
 	/**
 	 * This class is not meant to be instantiated.
@@ -57,16 +67,20 @@ public class JavaHttpClient {
 	 */
 	public static byte[] getBytes(String uri) throws IOException {
 		try {
+			URI requestUri = new URI(uri);
 			HttpRequest request = HttpRequest.newBuilder()
-					.uri(new URI(uri))
+					.uri(requestUri)
 					.GET()
 					.build();
+			AdaptiveRateLimiter rateLimiter = getRateLimiter(requestUri.getHost());
+			rateLimiter.acquire();
 			HttpResponse<byte[]> response = HttpClient.newBuilder()
 					.followRedirects(HttpClient.Redirect.ALWAYS)
 					.build()
 					.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
 					.join();
 			int statusCode = response.statusCode();
+			rateLimiter.onResponse(statusCode, response.headers().firstValue("retry-after").map(JavaHttpClient::parseRetryAfter).orElse(null));
 			if (statusCode != 200) {
 				String contentType = response.headers().firstValue("content-type").orElse(null);
 				Long contentLength = response.headers().firstValueAsLong("content-length").orElse(0);
@@ -82,6 +96,88 @@ public class JavaHttpClient {
 		}
 	}
 
+	/**
+	 * Download file from the external server, or read it from the response
+	 * cache if it was downloaded recently.
+	 *
+	 * Concurrent downloads of the same URI are sent only once.
+	 *
+	 * @param uri The URI of the external server file.
+	 * @param maxAgeMillis the maximum age of a cached response.
+	 *
+	 * @return the content of the downloaded file.
+	 *
+	 * @throws IOException
+	 */
+	public static byte[] getCachedBytes(String uri, long maxAgeMillis) throws IOException {
+		HttpResponseCache cache = getResponseCache();
+		if (cache != null) {
+			byte[] cached = cache.get(uri, maxAgeMillis);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		return IN_FLIGHT_DOWNLOADS.get(uri, () -> {
+			byte[] bytes = getBytes(uri);
+			if (cache != null) {
+				cache.put(uri, bytes);
+			}
+			return bytes;
+		});
+	}
+
+	/**
+	 * Returns the shared cache of the responses of the external servers.
+	 *
+	 * @return the cache, or {@code null} if it is disabled.
+	 */
+	public static synchronized HttpResponseCache getResponseCache() {
+		if (PMS.getConfiguration().getExternalNetworkCacheDays() == 0) {
+			return null;
+		}
+		if (responseCache == null) {
+			responseCache = new HttpResponseCache(new File(PMS.getConfiguration().getDataFile("http_cache")));
+			int purged = responseCache.purge(getResponseCacheMaxAge());
+			if (purged > 0) {
+				LOGGER.debug("Purged {} expired HTTP responses from the cache", purged);
+			}
+		}
+		return responseCache;
+	}
+
+	/**
+	 * @return the maximum age of the cached responses in milliseconds.
+	 */
+	public static long getResponseCacheMaxAge() {
+		return TimeUnit.DAYS.toMillis(PMS.getConfiguration().getExternalNetworkCacheDays());
+	}
+
+	/**
+	 * Returns the rate limiter of the requests sent to a server.
+	 *
+	 * @param host the server host name.
+	 * @return the {@link AdaptiveRateLimiter}.
+	 */
+	public static AdaptiveRateLimiter getRateLimiter(String host) {
+		String key = host == null ? "" : host.toLowerCase(Locale.ROOT);
+		return RATE_LIMITERS.computeIfAbsent(key, k -> new AdaptiveRateLimiter(MIN_REQUEST_INTERVAL_MILLIS, MAX_REQUEST_INTERVAL_MILLIS));
+	}
+
+	/**
+	 * Parses the delay of a {@code Retry-After} header.
+	 *
+	 * @param value the header value.
+	 * @return the delay in seconds, or {@code null} if it is not a number of
+	 *         seconds.
+	 */
+	public static Long parseRetryAfter(String value) {
+		try {
+			return value == null ? null : Long.valueOf(value.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
 	public static void getFile(File file, String uri, ProgressCallback callback) throws IOException {
 		try {
 			HttpRequest request = HttpRequest.newBuilder()
@@ -106,7 +202,7 @@ public class JavaHttpClient {
 	public static DLNAThumbnail getThumbnail(String uri) {
 		try {
 			LOGGER.trace("Downloading image from {}", uri);
-			byte[] image = getBytes(uri);
+			byte[] image = getCachedBytes(uri, getResponseCacheMaxAge());
 			return DLNAThumbnail.toThumbnail(image, 640, 480, ScaleType.MAX, ImageFormat.JPEG, false);
 		} catch (EOFException e) {
 			LOGGER.debug(
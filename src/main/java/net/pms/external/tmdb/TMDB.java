@@ -59,6 +59,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -72,7 +73,10 @@ import net.pms.database.MediaTableFiles;
 import net.pms.database.MediaTableTVSeries;
 import net.pms.database.MediaTableVideoMetadata;
 import net.pms.database.MediaTableVideoMetadataLocalized;
+import net.pms.database.TableGenerations;
 import net.pms.dlna.DLNAThumbnail;
+import net.pms.external.AdaptiveRateLimiter;
+import net.pms.external.InFlightLookups;
 import net.pms.external.JavaHttpClient;
 import net.pms.external.umsapi.APIUtils;
 import net.pms.gui.GuiManager;
@@ -104,6 +108,17 @@ public class TMDB {
 	private static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
 	private static final TMDbClient CLIENT = new TMDbClient();
 	private static final Gson GSON = new Gson();
+	private static final AdaptiveRateLimiter RATE_LIMITER = JavaHttpClient.getRateLimiter("api.themoviedb.org");
+
+	/**
+	 * The TV show and movie lookups are shared by the files being looked up at
+	 * the same time and kept for a while, so the episodes of a series make a
+	 * single series lookup.
+	 */
+	private static final long LOOKUP_KEEP_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	private static final InFlightLookups<String, TvDetailsSchema> TV_SHOW_LOOKUPS = new InFlightLookups<>(LOOKUP_KEEP_MILLIS, 1000);
+	private static final InFlightLookups<Long, TvDetailsSchema> TV_SHOW_INFO_LOOKUPS = new InFlightLookups<>(LOOKUP_KEEP_MILLIS, 1000);
+	private static final InFlightLookups<String, MovieDetailsSchema> MOVIE_LOOKUPS = new InFlightLookups<>(LOOKUP_KEEP_MILLIS, 1000);
 
 	// Minimum number of threads in pool
 	private static final ThreadPoolExecutor BACKGROUND_EXECUTOR = new ThreadPoolExecutor(
@@ -228,6 +243,7 @@ public class TMDB {
 			try {
 				connection.commit();
 				connection.setAutoCommit(true);
+				TableGenerations.increment(MediaTableVideoMetadata.TABLE_NAME, MediaTableTVSeries.TABLE_NAME);
 			} catch (SQLException e) {
 				LOGGER.error("Error in commit in TMDB.backgroundLookupAndAddMetadata: {}", e.getMessage());
 				LOGGER.trace("", e);
@@ -777,9 +793,14 @@ public class TMDB {
 
 	private static TvDetailsSchema getTvShowFromEpisode(String title, Integer year, String imdbId) throws IOException {
 		String titleSimplified = FileUtil.getSimplifiedShowName(title);
+		String key = title + "|" + year + "|" + imdbId;
+		return TV_SHOW_LOOKUPS.get(key, () -> searchTvShowFromEpisode(title, titleSimplified, year, imdbId));
+	}
+
+	private static TvDetailsSchema searchTvShowFromEpisode(String title, String titleSimplified, Integer year, String imdbId) throws IOException {
 		List<Long> tvShowIds = new ArrayList<>();
 		if (imdbId != null) {
-			FindSchema findResult = CLIENT.find(imdbId, FindExternalSource.IMDB_ID).getResults();
+			FindSchema findResult = request(() -> CLIENT.find(imdbId, FindExternalSource.IMDB_ID).getResults());
 			//look into episode results
 			if (!findResult.getTvEpisodeResults().isEmpty()) {
 				for (TvEpisodeTypedSchema tvEpisodeTyped : findResult.getTvEpisodeResults()) {
@@ -810,7 +831,7 @@ public class TMDB {
 			}
 		}
 		SearchTvEndpoint searchTvEndpoint = CLIENT.search(title).forTvShow();
-		TvSimpleResultsSchema tvSimpleResultsSchema = searchTvEndpoint.getResults();
+		TvSimpleResultsSchema tvSimpleResultsSchema = request(searchTvEndpoint::getResults);
 		if (tvSimpleResultsSchema.getTotalResults() > 0) {
 			for (TvSimpleSchema tvSimple : tvSimpleResultsSchema.getResults()) {
 				Long tvShowId = tvSimple.getId();
@@ -864,6 +885,9 @@ public class TMDB {
 			LOGGER.trace("Error in setMovieMetadata:", ex);
 		} finally {
 			MediaDatabase.close(connection);
+			if (connection != null) {
+				TableGenerations.increment(MediaTableVideoMetadata.TABLE_NAME, MediaTableTVSeries.TABLE_NAME);
+			}
 		}
 		return false;
 	}
@@ -885,6 +909,9 @@ public class TMDB {
 			LOGGER.trace("Error in updateTvShowMetadata:", ex);
 		} finally {
 			MediaDatabase.close(connection);
+			if (connection != null) {
+				TableGenerations.increment(MediaTableVideoMetadata.TABLE_NAME, MediaTableTVSeries.TABLE_NAME);
+			}
 		}
 		return false;
 	}
@@ -923,7 +950,7 @@ public class TMDB {
 		if (lang != null) {
 			searchMovieEndpoint.setLanguage(lang);
 		}
-		MovieShortResultsSchema movieShortResults = searchMovieEndpoint.getResults();
+		MovieShortResultsSchema movieShortResults = request(searchMovieEndpoint::getResults);
 		for (MovieShortSchema movie : movieShortResults.getResults()) {
 			JsonObject movieObject = new JsonObject();
 			movieObject.addProperty("id", movie.getId());
@@ -960,6 +987,9 @@ public class TMDB {
 			LOGGER.trace("Error in setMovieMetadata:", ex);
 		} finally {
 			MediaDatabase.close(connection);
+			if (connection != null) {
+				TableGenerations.increment(MediaTableVideoMetadata.TABLE_NAME, MediaTableTVSeries.TABLE_NAME);
+			}
 		}
 		return false;
 	}
@@ -1105,34 +1135,44 @@ public class TMDB {
 			int seasonNumber,
 			int episodeNumber
 	) throws IOException {
-		return CLIENT.tvEpisode(tvShowId, seasonNumber, episodeNumber)
+		return request(() -> CLIENT.tvEpisode(tvShowId, seasonNumber, episodeNumber)
 				.appendToResponse(TvEpisodeAppendToResponse.CREDITS)
 				.appendToResponse(TvEpisodeAppendToResponse.EXTERNAL_IDS)
 				.appendToResponse(TvEpisodeAppendToResponse.IMAGES)
 				.appendToResponse(TvEpisodeAppendToResponse.TRANSLATIONS)
-				.getDetails();
+				.getDetails());
 	}
 
 	private static TvDetailsSchema getTvShowInfo(
 			long tvId
 	) throws IOException {
-		return CLIENT.tv(tvId)
+		return TV_SHOW_INFO_LOOKUPS.get(tvId, () -> request(() -> CLIENT.tv(tvId)
 				.appendToResponse(TvIdAppendToResponse.ALTERNATIVE_TITLES)
 				.appendToResponse(TvIdAppendToResponse.CONTENT_RATINGS)
 				.appendToResponse(TvIdAppendToResponse.CREDITS)
 				.appendToResponse(TvIdAppendToResponse.EXTERNAL_IDS)
 				.appendToResponse(TvIdAppendToResponse.IMAGES)
 				.appendToResponse(TvIdAppendToResponse.TRANSLATIONS)
-				.getDetails();
+				.getDetails()));
 	}
 
 	private static MovieDetailsSchema getMovieInfo(
 			String title,
 			Integer year,
 			String imdbID
+	) throws IOException {
+		// the exact query parameters, titles simplifying the same may search differently
+		String key = title + "|" + year + "|" + imdbID;
+		return MOVIE_LOOKUPS.get(key, () -> searchMovieInfo(title, year, imdbID));
+	}
+
+	private static MovieDetailsSchema searchMovieInfo(
+			String title,
+			Integer year,
+			String imdbID
 	) throws IOException {
 		if (imdbID != null) {
-			FindSchema findResult = CLIENT.find(imdbID, FindExternalSource.IMDB_ID).getResults();
+			FindSchema findResult = request(() -> CLIENT.find(imdbID, FindExternalSource.IMDB_ID).getResults());
 			if (!findResult.getMovieResults().isEmpty()) {
 				for (MovieTypedSchema movieTyped : findResult.getMovieResults()) {
 					Long tmdbId = movieTyped.getId();
@@ -1153,7 +1193,7 @@ public class TMDB {
 		if (year != null && year != 0) {
 			searchMovieEndpoint.setYear(year);
 		}
-		MovieShortResultsSchema movieShortResults = searchMovieEndpoint.getResults();
+		MovieShortResultsSchema movieShortResults = request(searchMovieEndpoint::getResults);
 		if (movieShortResults.getTotalResults() > 0) {
 			for (MovieShortSchema movieShort : movieShortResults.getResults()) {
 				Long tmdbId = movieShort.getId();
@@ -1187,7 +1227,27 @@ public class TMDB {
 		if (language != null) {
 			movieIdEndpoint.setLanguage(language);
 		}
-		return movieIdEndpoint.getDetails();
+		return request(movieIdEndpoint::getDetails);
+	}
+
+	/**
+	 * Sends a request to TMDB, spaced from the other ones by the adaptive
+	 * rate limiter.
+	 */
+	private static <T> T request(Callable<T> request) throws IOException {
+		RATE_LIMITER.acquire();
+		try {
+			T result = request.call();
+			RATE_LIMITER.onSuccess();
+			return result;
+		} catch (IOException e) {
+			RATE_LIMITER.onThrottled(0);
+			throw e;
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
 	}
 
 	/**
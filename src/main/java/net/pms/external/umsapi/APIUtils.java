@@ -46,7 +46,11 @@ import net.pms.database.MediaTableFiles;
 import net.pms.database.MediaTableMetadata;
 import net.pms.database.MediaTableTVSeries;
 import net.pms.database.MediaTableVideoMetadata;
+import net.pms.database.TableGenerations;
 import net.pms.dlna.DLNAThumbnail;
+import net.pms.external.AdaptiveRateLimiter;
+import net.pms.external.HttpResponseCache;
+import net.pms.external.InFlightLookups;
 import net.pms.external.JavaHttpClient;
 import net.pms.external.opensubtitles.OpenSubtitle;
 import net.pms.gui.GuiManager;
@@ -105,6 +109,7 @@ public class APIUtils {
 	}
 
 	private static final Gson GSON = new Gson();
+	private static final InFlightLookups<String, String> IN_FLIGHT_REQUESTS = new InFlightLookups<>(0, 0);
 
 	/**
 	 * These versions are returned to us from the API server. The versions are
@@ -541,6 +546,7 @@ public class APIUtils {
 			try {
 				connection.commit();
 				connection.setAutoCommit(true);
+				TableGenerations.increment(MediaTableVideoMetadata.TABLE_NAME, MediaTableTVSeries.TABLE_NAME);
 			} catch (SQLException e) {
 				LOGGER.error("Error in commit in APIUtils.backgroundLookupAndAdd: {}", e.getMessage());
 				LOGGER.trace("", e);
@@ -948,7 +954,27 @@ public class APIUtils {
 		return getJson(url);
 	}
 
+	/**
+	 * Returns the API response of a URL, from the response cache if it was
+	 * received recently. Concurrent requests of the same URL, like the series
+	 * lookups of the episodes of a series, are sent only once.
+	 */
 	private static String getJson(URL url) throws IOException {
+		String key = url.toString();
+		HttpResponseCache cache = JavaHttpClient.getResponseCache();
+		if (cache != null) {
+			byte[] cached = cache.get(key, JavaHttpClient.getResponseCacheMaxAge());
+			if (cached != null) {
+				LOGGER.trace("Using the cached API response for {}", url);
+				return new String(cached, StandardCharsets.UTF_8);
+			}
+		}
+		return IN_FLIGHT_REQUESTS.get(key, () -> requestJson(url, cache));
+	}
+
+	private static String requestJson(URL url, HttpResponseCache cache) throws IOException {
+		AdaptiveRateLimiter rateLimiter = JavaHttpClient.getRateLimiter(url.getHost());
+		rateLimiter.acquire();
 		HttpURLConnection connection = null;
 		try {
 			connection = (HttpURLConnection) url.openConnection();
@@ -961,6 +987,7 @@ public class APIUtils {
 			connection.connect();
 
 			int status = connection.getResponseCode();
+			rateLimiter.onResponse(status, JavaHttpClient.parseRetryAfter(connection.getHeaderField("Retry-After")));
 			String response;
 
 			switch (status) {
@@ -979,6 +1006,9 @@ public class APIUtils {
 					}
 					LOGGER.debug("API URL was {}", connection.getURL());
 					response = sb.toString().trim();
+					if (cache != null && !response.isEmpty()) {
+						cache.put(url.toString(), response.getBytes(StandardCharsets.UTF_8));
+					}
 				}
 				default -> {
 					StringBuilder errorMessage = new StringBuilder();
@@ -1003,6 +1033,7 @@ public class APIUtils {
 
 			return response;
 		} catch (IOException e) {
+			rateLimiter.onThrottled(0);
 			LOGGER.debug("Error with HttpURLConnection: {}", e);
 		} finally {
 			if (connection != null) {
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableFilesStatus;
+import net.pms.database.TableGenerations;
 import net.pms.database.UserDatabase;
 import net.pms.database.UserTableGroups;
 import net.pms.database.UserTableUsers;
@@ -186,6 +187,7 @@ public class AccountService {
 		if (mConnection != null) {
 			MediaTableFilesStatus.deleteUser(mConnection, userId);
 			MediaDatabase.close(mConnection);
+			TableGenerations.increment(MediaTableFilesStatus.TABLE_NAME);
 		}
 		if (USERS.containsKey(userId)) {
 			USERS.remove(userId);
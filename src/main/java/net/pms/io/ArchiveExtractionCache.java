@@ -0,0 +1,529 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
+import net.pms.util.SimpleThreadFactory;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded cache of the compressed archive entries extracted to the
+ * temporary folder.
+ *
+ * An entry is extracted once, on a small shared pool of threads, and every
+ * reader of the entry reads the extracted file while it grows. Readers can
+ * skip ahead without reading the skipped data, so the entries can be seeked,
+ * and once extracted they are sent like regular files. The least recently
+ * used entries which are not being read are deleted when the cache is full.
+ * Entries larger than the cache are streamed without seeking support, read
+ * directly when the archive format allows it.
+ */
+public class ArchiveExtractionCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ArchiveExtractionCache.class);
+	private static final String DIRECTORY_NAME = "archive_cache";
+	private static final String FILE_EXTENSION = ".entry";
+	private static final int MAX_EXTRACTIONS = 2;
+	private static final int PIPE_SIZE = 64 * 1024;
+	private static final long STALL_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+	private static final Cleaner CLEANER = Cleaner.create(new SimpleThreadFactory("Archive cache cleaner"));
+	private static final ThreadPoolExecutor EXTRACTORS;
+	private static final ExecutorService PUSHERS = Executors.newCachedThreadPool(
+		new SimpleThreadFactory("Archive entry pusher", "Archive entry pushers")
+	);
+
+	// All guarded by ENTRIES
+	private static final Map<String, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+	private static long cacheSize;
+	private static long sequence;
+	private static File directory;
+
+	static {
+		EXTRACTORS = new ThreadPoolExecutor(
+			MAX_EXTRACTIONS,
+			MAX_EXTRACTIONS,
+			30,
+			TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(),
+			new SimpleThreadFactory("Archive extractor", "Archive extractors", Thread.NORM_PRIORITY - 1)
+		);
+		EXTRACTORS.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Extracts an archive entry.
+	 */
+	@FunctionalInterface
+	public interface Extractor {
+		/**
+		 * Writes the content of the entry.
+		 *
+		 * @param out the stream to write to, closed by the caller.
+		 * @throws IOException if the entry can't be extracted.
+		 */
+		void extract(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Opens a stream of an archive entry, read in the calling thread.
+	 */
+	@FunctionalInterface
+	public interface Opener {
+		/**
+		 * Opens the content of the entry.
+		 *
+		 * @return the stream of the entry, closed by the caller.
+		 * @throws IOException if the entry can't be read.
+		 */
+		InputStream open() throws IOException;
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private ArchiveExtractionCache() {
+	}
+
+	/**
+	 * Returns a stream of a compressed archive entry, starting its extraction
+	 * if it isn't already cached or being extracted.
+	 *
+	 * @param archive the archive file.
+	 * @param entryName the name of the entry in the archive.
+	 * @param length the uncompressed length of the entry.
+	 * @param extractor the extractor of the entry.
+	 * @return the stream of the entry.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static InputStream getInputStream(File archive, String entryName, long length, Extractor extractor) throws IOException {
+		return getInputStream(archive, entryName, length, extractor, null);
+	}
+
+	/**
+	 * Returns a stream of a compressed archive entry, starting its extraction
+	 * if it isn't already cached or being extracted.
+	 *
+	 * @param archive the archive file.
+	 * @param entryName the name of the entry in the archive.
+	 * @param length the uncompressed length of the entry.
+	 * @param extractor the extractor of the entry.
+	 * @param opener the opener of the entry used when it is too large for the
+	 *            cache, or {@code null} to extract it on a shared thread.
+	 * @return the stream of the entry.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static InputStream getInputStream(File archive, String entryName, long length, Extractor extractor, Opener opener) throws IOException {
+		long maxSize = PMS.getConfiguration().getArchiveExtractionCacheSize() * 1024L * 1024L;
+		Entry entry = null;
+		if (length > 0 && length <= maxSize) {
+			String key = DigestUtils.md5Hex(archive.getAbsolutePath() + '|' + archive.lastModified() + '|' + entryName);
+			synchronized (ENTRIES) {
+				if (init()) {
+					entry = ENTRIES.get(key);
+					if (entry == null || entry.isFailed()) {
+						if (entry != null) {
+							ENTRIES.remove(key);
+							cacheSize -= entry.length;
+							entry.evict();
+						}
+						// A previous extraction of the entry may still be
+						// running, never share its file
+						Entry newEntry = new Entry(new File(directory, key + '.' + sequence++ + FILE_EXTENSION), length);
+						ENTRIES.put(key, newEntry);
+						cacheSize += length;
+						EXTRACTORS.execute(() -> newEntry.extract(extractor));
+						entry = newEntry;
+					}
+					entry.readers++;
+					evict(maxSize);
+				}
+			}
+		}
+
+		if (entry == null) {
+			// Not cacheable, read it directly or extract it while it is read
+			if (opener != null) {
+				return opener.open();
+			}
+			PipedOutputStream out = new PipedOutputStream();
+			InputStream in = new PipedInputStream(out, PIPE_SIZE);
+			push(extractor, out);
+			return in;
+		}
+
+		boolean opened = false;
+		try {
+			InputStream in = entry.open();
+			opened = true;
+			return in;
+		} finally {
+			if (!opened) {
+				release(entry);
+			}
+		}
+	}
+
+	/**
+	 * Writes an archive entry to a stream on a shared pool of threads,
+	 * without caching it, and closes the stream when done. This is used to
+	 * feed the archive entries to the standard input of the external
+	 * processes, which read them once.
+	 *
+	 * @param extractor the extractor of the entry.
+	 * @param out the stream to write to.
+	 */
+	public static void push(Extractor extractor, OutputStream out) {
+		PUSHERS.execute(() -> {
+			try (out) {
+				extractor.extract(out);
+			} catch (IOException e) {
+				LOGGER.debug("Unpack error, maybe it's normal, as the reader can be closed: {}", e.getMessage());
+			}
+		});
+	}
+
+	private static void release(Entry entry) {
+		synchronized (ENTRIES) {
+			entry.readers--;
+			evict(PMS.getConfiguration().getArchiveExtractionCacheSize() * 1024L * 1024L);
+		}
+	}
+
+	/**
+	 * Releases an entry when its stream is closed, or when the stream is
+	 * garbage collected if a reader forgot to close it, so that the entry can
+	 * still be evicted.
+	 *
+	 * @param stream the stream of the entry.
+	 * @param entry the entry.
+	 * @return the action releasing the entry once.
+	 */
+	private static Cleaner.Cleanable registerReader(InputStream stream, Entry entry) {
+		return CLEANER.register(stream, () -> release(entry));
+	}
+
+	/**
+	 * Deletes the least recently used entries which are not being read until
+	 * the cache fits in its maximum size. Must be called with the lock of
+	 * {@link #ENTRIES}.
+	 */
+	private static void evict(long maxSize) {
+		Iterator<Entry> iterator = ENTRIES.values().iterator();
+		while (cacheSize > maxSize && iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if (entry.readers == 0) {
+				iterator.remove();
+				cacheSize -= entry.length;
+				entry.evict();
+			}
+		}
+	}
+
+	/**
+	 * Creates the cache folder and deletes the leftovers of the previous runs,
+	 * which can't be known to be complete. Must be called with the lock of
+	 * {@link #ENTRIES}.
+	 *
+	 * @return whether the cache is usable.
+	 */
+	private static boolean init() {
+		if (directory == null) {
+			File dir;
+			try {
+				dir = new File(PMS.getConfiguration().getTempFolder(), DIRECTORY_NAME);
+			} catch (IOException e) {
+				LOGGER.debug("Could not get the temporary folder: {}", e.getMessage());
+				return false;
+			}
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				LOGGER.debug("Could not create the archive extraction folder \"{}\"", dir);
+				return false;
+			}
+			File[] files = dir.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			directory = dir;
+		}
+		return true;
+	}
+
+	private static class Entry {
+		private final File file;
+		private final long length;
+		// All guarded by this
+		private long extracted;
+		private boolean complete;
+		private boolean failed;
+		private boolean evicted;
+		// Guarded by ENTRIES
+		private int readers;
+
+		private Entry(File file, long length) {
+			this.file = file;
+			this.length = length;
+		}
+
+		private void extract(Extractor extractor) {
+			synchronized (this) {
+				if (evicted) {
+					return;
+				}
+			}
+			LOGGER.trace("Starting the extraction of \"{}\"", file.getName());
+			boolean failure = false;
+			try (OutputStream out = new ProgressOutputStream(this, new FileOutputStream(file))) {
+				extractor.extract(out);
+			} catch (IOException e) {
+				LOGGER.debug("Unpack error of \"{}\": {}", file.getName(), e.getMessage());
+				failure = true;
+			}
+			finish(failure);
+		}
+
+		/**
+		 * Marks the extraction as done, and deletes the file if the entry
+		 * was evicted meanwhile, which {@link #evict()} leaves to this.
+		 */
+		private synchronized void finish(boolean failure) {
+			if (failure) {
+				failed = true;
+			} else {
+				complete = true;
+			}
+			notifyAll();
+			if (evicted) {
+				file.delete();
+			}
+		}
+
+		private synchronized void written(int count) throws IOException {
+			if (evicted) {
+				throw new IOException("evicted from the cache");
+			}
+			extracted += count;
+			notifyAll();
+		}
+
+		private synchronized boolean isFailed() {
+			return failed;
+		}
+
+		private synchronized void evict() {
+			evicted = true;
+			if (complete || failed) {
+				file.delete();
+			}
+		}
+
+		/**
+		 * Waits until a byte of the entry is extracted.
+		 *
+		 * @param position the position of the byte.
+		 * @return the number of bytes extracted, or -1 if the entry ends
+		 *         before the position.
+		 * @throws IOException if the extraction failed or made no progress
+		 *         for {@link #STALL_TIMEOUT}.
+		 */
+		private synchronized long waitFor(long position) throws IOException {
+			long progress = extracted;
+			long deadline = System.currentTimeMillis() + STALL_TIMEOUT;
+			while (extracted <= position && !complete && !failed) {
+				if (extracted != progress) {
+					progress = extracted;
+					deadline = System.currentTimeMillis() + STALL_TIMEOUT;
+				}
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					throw new InterruptedIOException("Timed out waiting for the extraction of \"" + file.getName() + "\"");
+				}
+				try {
+					wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the extraction of \"" + file.getName() + "\"");
+				}
+			}
+			if (extracted > position) {
+				return extracted;
+			}
+			if (failed) {
+				throw new IOException("The extraction of \"" + file.getName() + "\" failed");
+			}
+			return -1;
+		}
+
+		private InputStream open() throws IOException {
+			synchronized (this) {
+				if (complete) {
+					// Already extracted, it can be sent like a regular file
+					return new CachedFileInputStream(this);
+				}
+			}
+			return new EntryInputStream(this);
+		}
+	}
+
+	/**
+	 * Reads an extracted entry.
+	 */
+	private static class CachedFileInputStream extends FileRangeInputStream {
+		private final Cleaner.Cleanable releaser;
+
+		private CachedFileInputStream(Entry entry) throws IOException {
+			super(entry.file);
+			releaser = registerReader(this, entry);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				releaser.clean();
+			}
+		}
+	}
+
+	/**
+	 * Reads an entry while it is being extracted.
+	 */
+	private static class EntryInputStream extends InputStream {
+		private final Entry entry;
+		private final Cleaner.Cleanable releaser;
+		private FileChannel channel;
+		private long position;
+		private boolean closed;
+
+		private EntryInputStream(Entry entry) {
+			this.entry = entry;
+			releaser = registerReader(this, entry);
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) throws IOException {
+			if (closed) {
+				throw new IOException("Stream closed");
+			}
+			if (len == 0) {
+				return 0;
+			}
+			long available = entry.waitFor(position);
+			if (available == -1) {
+				return -1;
+			}
+			if (channel == null) {
+				channel = FileChannel.open(entry.file.toPath(), StandardOpenOption.READ);
+			}
+			int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available - position)), position);
+			if (read > 0) {
+				position += read;
+			}
+			return read;
+		}
+
+		@Override
+		public synchronized long skip(long n) {
+			long skipped = Math.min(Math.max(n, 0), entry.length - position);
+			position += skipped;
+			return skipped;
+		}
+
+		@Override
+		public synchronized int available() {
+			synchronized (entry) {
+				return (int) Math.min(Math.max(entry.extracted - position, 0), Integer.MAX_VALUE);
+			}
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				if (channel != null) {
+					channel.close();
+				}
+			} finally {
+				releaser.clean();
+			}
+		}
+	}
+
+	/**
+	 * Publishes the progress of an extraction to the readers of the entry.
+	 */
+	private static class ProgressOutputStream extends OutputStream {
+		private final Entry entry;
+		private final OutputStream out;
+
+		private ProgressOutputStream(Entry entry, OutputStream out) {
+			this.entry = entry;
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			entry.written(1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			entry.written(len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+}
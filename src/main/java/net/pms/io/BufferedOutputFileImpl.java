@@ -16,6 +16,7 @@
  */
 package net.pms.io;
 
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,6 +42,10 @@ import org.slf4j.LoggerFactory;
  * misleading, as there is typically no file involved in the process at all.
  * Instead, the buffer is typically used to hold data piped by a transcoding
  * process in one thread until a request for data comes in from another thread.
+ * <p>
+ * The buffer data is held by a {@link TranscodeBuffer}, which lives on the
+ * heap, in direct memory or in a memory-mapped temporary file depending on
+ * the configured transcode buffer type.
  *
  * @see ProcessWrapperImpl
  * @see net.pms.network.Request Request
@@ -82,96 +87,17 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	private int bufferOverflowWarning;
 	private boolean eof;
 	private long writeCount;
-	private byte[] buffer;
-	private ArrayList<WaitBufferedInputStream> inputStreams;
+	private TranscodeBuffer buffer;
+	/**
+	 * The attached readers, guarded by this buffer's monitor as renderers
+	 * sharing the transcode process attach and detach from their own threads.
+	 */
+	private final ArrayList<WaitBufferedInputStream> inputStreams = new ArrayList<>();
 	private ProcessWrapper attachedThread;
 	private Timer timer;
 	private boolean buffered = false;
 	private long packetpos = 0;
 
-	/**
-	 * Try to increase the size of a memory buffer, while retaining its
-	 * contents. The provided new size is considered to be a request, it is
-	 * scaled down when an OutOfMemory error occurs. There is no guarantee
-	 * about the exact length of the returned byte array, only that it is
-	 * greater than or equal to the original buffer size. When null is
-	 * passed as an argument, a fresh buffer will be allocated. Copying one
-	 * byte array to another is a costly operation, both in memory usage and
-	 * performance. It is best to avoid using this method.
-	 *
-	 * @param buffer The byte array to resize, null is allowed.
-	 * @param newSize The requested final size. Should be greater than the
-	 * original size or the original buffer will be returned.
-	 * @return The resized byte array.
-	 */
-	private byte[] growBuffer(byte[] buffer, int newSize) {
-		byte[] copy;
-
-		if (buffer == null) {
-			// Temporary empty array to avoid null tests in the code below
-			buffer = new byte[0];
-		}
-
-		if (newSize <= buffer.length) {
-			// Cannot shrink the original
-			return buffer;
-		}
-
-		try {
-			// Try to allocate the requested new size
-			copy = new byte[newSize];
-		} catch (OutOfMemoryError e) {
-			if (buffer.length == 0) {
-				LOGGER.trace("Cannot initialize buffer to " + FORMATTER.format(newSize) + " bytes.");
-			} else {
-				LOGGER.debug("Cannot grow buffer size from " + FORMATTER.format(buffer.length) + " bytes to " + FORMATTER.format(newSize) + " bytes.");
-				LOGGER.debug("Error given: " + e);
-
-			}
-
-			// Could not allocate the requested new size, use 30% of free memory instead.
-			// Rationale behind using 30%: multiple threads are running at the same time,
-			// we do not want one thread's memory usage to suffocate the others.
-			// Using maxMemory() to ignore the initial Java heap space size that freeMemory()
-			// takes into account.
-			// See http://javarevisited.blogspot.com/2011/05/java-heap-space-memory-size-jvm.html
-			long realisticSize = Runtime.getRuntime().maxMemory() * 3 / 10;
-
-			if (realisticSize < buffer.length) {
-				// A copy would be smaller in size, shrinking instead of growing the buffer.
-				// Better to return the original and retain its size.
-				return buffer;
-			} else {
-				try {
-					// Try to allocate the realistic alternative size
-					copy = new byte[(int) realisticSize];
-				} catch (OutOfMemoryError e2) {
-					LOGGER.debug("Cannot grow buffer size from " + FORMATTER.format(buffer.length) + " bytes to " + FORMATTER.format(realisticSize) + " bytes either.");
-					LOGGER.trace("freeMemory: " + FORMATTER.format(Runtime.getRuntime().freeMemory()));
-					LOGGER.trace("totalMemory: " + FORMATTER.format(Runtime.getRuntime().totalMemory()));
-					LOGGER.trace("maxMemory: " + FORMATTER.format(Runtime.getRuntime().maxMemory()));
-					LOGGER.debug("Error given: " + e2);
-
-					// Cannot allocate memory, no other option than to return the original.
-					return buffer;
-				}
-			}
-		}
-
-		if (buffer.length == 0) {
-			LOGGER.trace("Successfully initialized buffer to " + FORMATTER.format(copy.length) + " bytes.");
-		} else {
-			try {
-				System.arraycopy(buffer, 0, copy, 0, buffer.length);
-				LOGGER.trace("Successfully grown buffer from " + FORMATTER.format(buffer.length) + " bytes to " + FORMATTER.format(copy.length) + " bytes.");
-			} catch (NullPointerException npe) {
-				LOGGER.trace("Cannot grow buffer size, error copying buffer contents.");
-			}
-		}
-
-		return copy;
-	}
-
 	/**
 	 * Constructor to create a memory buffer based on settings that are
 	 * passed on. Will also start up a timer task to display buffer size and
@@ -206,15 +132,22 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		this.hidebuffer = params.isHideBuffer();
 		this.cleanup = params.isCleanup();
 
-		if (maxMemorySize > INITIAL_BUFFER_SIZE) {
-			// Try to limit memory usage a bit.
-			// Start with a modest allocation initially, grow to max when needed later.
-			buffer = growBuffer(null, INITIAL_BUFFER_SIZE);
+		TranscodeBuffer.Type bufferType = TranscodeBuffer.Type.typeOf(configuration.getTranscodeBufferType());
+		if (bufferType == TranscodeBuffer.Type.HEAP) {
+			if (maxMemorySize > INITIAL_BUFFER_SIZE) {
+				// Try to limit memory usage a bit.
+				// Start with a modest allocation initially, grow to max when needed later.
+				buffer = TranscodeBuffer.allocate(bufferType, INITIAL_BUFFER_SIZE, null);
+			} else {
+				buffer = TranscodeBuffer.allocate(bufferType, maxMemorySize, null);
+			}
 		} else {
-			buffer = growBuffer(null, maxMemorySize);
+			// Off-heap buffers don't put pressure on the garbage collector,
+			// allocate them to their final size.
+			buffer = TranscodeBuffer.allocate(bufferType, maxMemorySize, getBufferFolder());
 		}
 
-		if (buffer.length == 0) {
+		if (buffer.capacity() == 0) {
 			// Cannot transcode without a buffer
 			LOGGER.info("FATAL ERROR: OutOfMemory / dumping stats");
 			LOGGER.trace("freeMemory: " + Runtime.getRuntime().freeMemory());
@@ -222,8 +155,18 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			LOGGER.trace("maxMemory: " + Runtime.getRuntime().maxMemory());
 			System.exit(1);
 		}
+	}
 
-		inputStreams = new ArrayList<>();
+	/**
+	 * @return the folder where memory-mapped buffers are created.
+	 */
+	private File getBufferFolder() {
+		try {
+			return configuration.getTempFolder();
+		} catch (IOException e) {
+			LOGGER.debug("Cannot get the temporary folder, using the system one: " + e.getMessage());
+			return new File(System.getProperty("java.io.tmpdir"));
+		}
 	}
 
 	@Override
@@ -231,29 +174,41 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		LOGGER.trace("EOF");
 		eof = true;
 		if (cleanup) {
-			detachInputStream();
+			synchronized (this) {
+				// readers still attached detach the process when they close
+				if (inputStreams.isEmpty()) {
+					detachInputStream();
+				}
+			}
 		}
 	}
 
 	@Override
-	public WaitBufferedInputStream getCurrentInputStream() {
-		WaitBufferedInputStream wai = null;
+	public synchronized WaitBufferedInputStream getCurrentInputStream() {
+		if (inputStreams.isEmpty()) {
+			return null;
+		}
+		return forcefirst ? inputStreams.get(0) : inputStreams.get(inputStreams.size() - 1);
+	}
 
-		if (!inputStreams.isEmpty()) {
-			try {
-				wai = forcefirst ? inputStreams.get(0) : inputStreams.get(inputStreams.size() - 1);
-			} catch (IndexOutOfBoundsException e) {
-				// this should never happen unless there's a concurrency issue,
-				// so log it if it does
-				LOGGER.error("Unexpected input stream removal", e);
+	/**
+	 * Returns the read position of the attached reader that is the furthest
+	 * behind, so that writing never overruns the data it still has to read.
+	 *
+	 * @return the lowest read count, or -1 if no reader is attached.
+	 */
+	private synchronized long getSlowestReadCount() {
+		long readCount = -1;
+		for (WaitBufferedInputStream inputStream : inputStreams) {
+			if (readCount == -1 || inputStream.getReadCount() < readCount) {
+				readCount = inputStream.getReadCount();
 			}
 		}
-
-		return wai;
+		return readCount;
 	}
 
 	@Override
-	public InputStream getInputStream(long newReadPosition) {
+	public synchronized InputStream getInputStream(long newReadPosition) {
 		if (attachedThread != null) {
 			attachedThread.setReadyToStop(false);
 		}
@@ -267,15 +222,8 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			if (configuration.getTrancodeKeepFirstConnections()) {
 				LOGGER.debug("BufferedOutputFile is already attached to an InputStream: " + getCurrentInputStream());
 			} else {
-				// Ditlew - fixes the above (the above iterator breaks on items getting close, cause they will remove them self from the arraylist)
-				while (!inputStreams.isEmpty()) {
-					try {
-						inputStreams.get(0).close();
-					} catch (IOException e) {
-						LOGGER.error("Error: ", e);
-					}
-				}
-
+				// Drop the previous readers without detaching the process,
+				// the new reader replaces them
 				inputStreams.clear();
 				atominputStream = new WaitBufferedInputStream(this);
 				inputStreams.add(atominputStream);
@@ -293,6 +241,18 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		return atominputStream;
 	}
 
+	/**
+	 * Returns whether the data at the given position is still held by this
+	 * buffer, so that a new reader can start from there.
+	 *
+	 * @param position the position in the written data, in bytes.
+	 * @return {@code true} if the data at this position can be read.
+	 */
+	public synchronized boolean isReadable(long position) {
+		return buffer != null && position >= 0 && position <= writeCount &&
+			writeCount - position < Math.min(buffer.capacity(), bufferOverflowWarning);
+	}
+
 	@Override
 	public long getWriteCount() {
 		return writeCount;
@@ -305,31 +265,31 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			debugOutput.flush();
 		}
 
-		WaitBufferedInputStream input = getCurrentInputStream();
+		long readCount = getSlowestReadCount();
 
-		//LOGGER.trace("write(" + b.length + ", " + off + ", " + len + "), writeCount = " + writeCount + ", readCount = " + (input != null ? input.getReadCount() : "null"));
+		//LOGGER.trace("write(" + b.length + ", " + off + ", " + len + "), writeCount = " + writeCount + ", readCount = " + readCount);
 
-		while ((input != null && (writeCount - input.getReadCount() > bufferOverflowWarning)) || (input == null && writeCount > bufferOverflowWarning)) {
+		while ((readCount != -1 && (writeCount - readCount > bufferOverflowWarning)) || (readCount == -1 && writeCount > bufferOverflowWarning)) {
 			UMSUtils.sleep(CHECK_INTERVAL);
-			input = getCurrentInputStream();
+			readCount = getSlowestReadCount();
 		}
 
 		if (buffer != null) {
 			int mb = (int) (writeCount % maxMemorySize);
 
-			if (mb >= buffer.length - (len - off)) {
-				if (buffer.length == INITIAL_BUFFER_SIZE) {
+			if (mb >= buffer.capacity() - (len - off)) {
+				if (buffer.capacity() == INITIAL_BUFFER_SIZE) {
 					// Initial buffer size was not big enough, try to increase it
-					buffer = growBuffer(buffer, maxMemorySize);
+					buffer = buffer.grow(maxMemorySize);
 				}
 
 				// FIXME: This smells like 2x System.arraycopy()!
 				int s = (len - off);
 				for (int i = 0; i < s; i++) {
-					buffer[modulo(mb + i, buffer.length)] = b[off + i];
+					buffer.put(modulo(mb + i, buffer.capacity()), b[off + i]);
 				}
 			} else {
-				System.arraycopy(b, off, buffer, mb, (len - off));
+				buffer.put(mb, b, off, (len - off));
 				if ((len - off) > 0) {
 					buffered = true;
 				}
@@ -350,24 +310,24 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 				while (packetpos + packetLength < writeCount && buffer != null) {
 					int packetposMB = (int) (packetpos % maxMemorySize);
 					int streamPos = 0;
-					if (buffer[modulo(packetposMB, buffer.length)] == 71) { // TS
+					if (buffer.get(modulo(packetposMB, buffer.capacity())) == 71) { // TS
 						packetLength = 188;
 						streamPos = 4;
 
 						// adaptation field
-						if ((buffer[modulo(packetposMB + 3, buffer.length)] & 0x20) == 0x20) {
-							streamPos += 1 + ((buffer[modulo(packetposMB + 4, buffer.length)] + 256) % 256);
+						if ((buffer.get(modulo(packetposMB + 3, buffer.capacity())) & 0x20) == 0x20) {
+							streamPos += 1 + ((buffer.get(modulo(packetposMB + 4, buffer.capacity())) + 256) % 256);
 						}
 
 						if (streamPos == 188) {
 							streamPos = -1;
 						}
 
-					} else if (buffer[modulo(packetposMB + 3, buffer.length)] == -70) { // BA
+					} else if (buffer.get(modulo(packetposMB + 3, buffer.capacity())) == -70) { // BA
 						packetLength = 14;
 						streamPos = -1;
 					} else {
-						packetLength = 6 + ((buffer[modulo(packetposMB + 4, buffer.length)] + 256) % 256) * 256 + ((buffer[modulo(packetposMB + 5, buffer.length)] + 256) % 256);
+						packetLength = 6 + ((buffer.get(modulo(packetposMB + 4, buffer.capacity())) + 256) % 256) * 256 + ((buffer.get(modulo(packetposMB + 5, buffer.capacity())) + 256) % 256);
 					}
 					if (streamPos != -1) {
 						mb = packetposMB + streamPos + 18;
@@ -401,18 +361,18 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	@Override
 	public void write(int b) throws IOException {
 		boolean bb = b % 100000 == 0;
-		WaitBufferedInputStream input = getCurrentInputStream();
-		while (bb && ((input != null && (writeCount - input.getReadCount() > bufferOverflowWarning)) || (input == null && writeCount == bufferOverflowWarning))) {
+		long readCount = getSlowestReadCount();
+		while (bb && ((readCount != -1 && (writeCount - readCount > bufferOverflowWarning)) || (readCount == -1 && writeCount == bufferOverflowWarning))) {
 			UMSUtils.sleep(CHECK_INTERVAL);
 			//LOGGER.trace("BufferedOutputFile Full");
-			input = getCurrentInputStream();
+			readCount = getSlowestReadCount();
 		}
 		int mb = (int) (writeCount++ % maxMemorySize);
 		if (buffer != null) {
-			buffer[mb] = (byte) b;
+			buffer.put(mb, (byte) b);
 			buffered = true;
 			if (writeCount == INITIAL_BUFFER_SIZE) {
-				buffer = growBuffer(buffer, maxMemorySize);
+				buffer = buffer.grow(maxMemorySize);
 			}
 
 			if (timeseek > 0 && writeCount > 19) {
@@ -428,32 +388,32 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 	// Ditlew - Modify SCR
 	private void shiftSCRByTimeSeek(int bufferIndex, int offsetSec) {
-		int m9 = modulo(bufferIndex - 9, buffer.length);
-		int m8 = modulo(bufferIndex - 8, buffer.length);
-		int m7 = modulo(bufferIndex - 7, buffer.length);
-		int m6 = modulo(bufferIndex - 6, buffer.length);
-		int m5 = modulo(bufferIndex - 5, buffer.length);
-		int m4 = modulo(bufferIndex - 4, buffer.length);
-		int m3 = modulo(bufferIndex - 3, buffer.length);
-		int m2 = modulo(bufferIndex - 2, buffer.length);
-		int m1 = modulo(bufferIndex - 1, buffer.length);
-		int m0 = modulo(bufferIndex, buffer.length);
+		int m9 = modulo(bufferIndex - 9, buffer.capacity());
+		int m8 = modulo(bufferIndex - 8, buffer.capacity());
+		int m7 = modulo(bufferIndex - 7, buffer.capacity());
+		int m6 = modulo(bufferIndex - 6, buffer.capacity());
+		int m5 = modulo(bufferIndex - 5, buffer.capacity());
+		int m4 = modulo(bufferIndex - 4, buffer.capacity());
+		int m3 = modulo(bufferIndex - 3, buffer.capacity());
+		int m2 = modulo(bufferIndex - 2, buffer.capacity());
+		int m1 = modulo(bufferIndex - 1, buffer.capacity());
+		int m0 = modulo(bufferIndex, buffer.capacity());
 
 		// SCR
-		if (buffer[m9] == 0 &&
-			buffer[m8] == 0 &&
-			buffer[m7] == 1 &&
-			buffer[m6] == -70 && // 0xBA - Java/UMS wants -70
+		if (buffer.get(m9) == 0 &&
+			buffer.get(m8) == 0 &&
+			buffer.get(m7) == 1 &&
+			buffer.get(m6) == -70 && // 0xBA - Java/UMS wants -70
 			// control bits
-			((buffer[m5] & 128) != 128) &&
-			((buffer[m5] & 64) == 64) &&
-			((buffer[m5] & 4) == 4) &&
-			((buffer[m3] & 4) == 4) &&
-			((buffer[m1] & 4) == 4) &&
-			((buffer[m0] & 1) == 1)) {
-			long scr3230 = ((buffer[m5] & 56) >> 3);
-			long scr2915 = ((buffer[m5] & 3) << 13) + (buffer[m4] << 5) + ((buffer[m3] & 248) >> 3);
-			long scr1400 = ((buffer[m3] & 3) << 13) + (buffer[m2] << 5) + ((buffer[m1] & 248) >> 3);
+			((buffer.get(m5) & 128) != 128) &&
+			((buffer.get(m5) & 64) == 64) &&
+			((buffer.get(m5) & 4) == 4) &&
+			((buffer.get(m3) & 4) == 4) &&
+			((buffer.get(m1) & 4) == 4) &&
+			((buffer.get(m0) & 1) == 1)) {
+			long scr3230 = ((buffer.get(m5) & 56) >> 3);
+			long scr2915 = ((buffer.get(m5) & 3) << 13) + (buffer.get(m4) << 5) + ((buffer.get(m3) & 248) >> 3);
+			long scr1400 = ((buffer.get(m3) & 3) << 13) + (buffer.get(m2) << 5) + ((buffer.get(m1) & 248) >> 3);
 
 			long scr = (scr3230 << 30) + (scr2915 << 15) + scr1400;
 			long scrNew = scr + (90000L * offsetSec);
@@ -463,17 +423,17 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			long scr1400New = (scrNew & 32767L);             // 000000000000000000111111111111111
 
 			// scr_32_30_new
-			buffer[m5] = (byte) ((buffer[m5] & 199) + ((scr3230New << 3) & 56)); // 11000111
+			buffer.put(m5, (byte) ((buffer.get(m5) & 199) + ((scr3230New << 3) & 56))); // 11000111
 
 			// scr_29_15_new
-			buffer[m5] = (byte) ((buffer[m5] & 252) + ((scr2915New >> 13) & 3)); // 00000011
-			buffer[m4] = (byte) (scr2915New >> 5);                               // 11111111
-			buffer[m3] = (byte) ((buffer[m3] & 7) + ((scr2915New << 3) & 248));  // 11111000
+			buffer.put(m5, (byte) ((buffer.get(m5) & 252) + ((scr2915New >> 13) & 3))); // 00000011
+			buffer.put(m4, (byte) (scr2915New >> 5));                               // 11111111
+			buffer.put(m3, (byte) ((buffer.get(m3) & 7) + ((scr2915New << 3) & 248)));  // 11111000
 
 			// scr_14_00_new
-			buffer[m3] = (byte) ((buffer[m3] & 252) + ((scr1400New >> 13) & 3)); // 00000011
-			buffer[m2] = (byte) (scr1400New >> 5);                               // 11111111
-			buffer[m1] = (byte) ((buffer[m1] & 7) + ((scr1400New << 3) & 248));  // 11111000
+			buffer.put(m3, (byte) ((buffer.get(m3) & 252) + ((scr1400New >> 13) & 3))); // 00000011
+			buffer.put(m2, (byte) (scr1400New >> 5));                               // 11111111
+			buffer.put(m1, (byte) ((buffer.get(m1) & 7) + ((scr1400New << 3) & 248)));  // 11111000
 
 			// Debug
 			//LOGGER.trace("Ditlew - SCR "+scr+" ("+(int)(scr/90000)+") -> "+scr_new+" ("+(int)(scr_new/90000)+")  "+offset_sec+" secs");
@@ -483,31 +443,31 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 	// Ditlew - Modify GOP
 	@SuppressWarnings("unused")
 	private void shiftGOPByTimeSeek(int bufferIndex, int offsetSec) {
-		int m7 = modulo(bufferIndex - 7, buffer.length);
-		int m6 = modulo(bufferIndex - 6, buffer.length);
-		int m5 = modulo(bufferIndex - 5, buffer.length);
-		int m4 = modulo(bufferIndex - 4, buffer.length);
-		int m3 = modulo(bufferIndex - 3, buffer.length);
-		int m2 = modulo(bufferIndex - 2, buffer.length);
-		int m1 = modulo(bufferIndex - 1, buffer.length);
-		int m0 = modulo(bufferIndex, buffer.length);
+		int m7 = modulo(bufferIndex - 7, buffer.capacity());
+		int m6 = modulo(bufferIndex - 6, buffer.capacity());
+		int m5 = modulo(bufferIndex - 5, buffer.capacity());
+		int m4 = modulo(bufferIndex - 4, buffer.capacity());
+		int m3 = modulo(bufferIndex - 3, buffer.capacity());
+		int m2 = modulo(bufferIndex - 2, buffer.capacity());
+		int m1 = modulo(bufferIndex - 1, buffer.capacity());
+		int m0 = modulo(bufferIndex, buffer.capacity());
 
 		// check if valid gop
-		if (buffer[m7] == 0 &&
-			buffer[m6] == 0 &&
-			buffer[m5] == 1 &&
-			buffer[m4] == -72 && // 0xB8 - Java/UMS wants -72
+		if (buffer.get(m7) == 0 &&
+			buffer.get(m6) == 0 &&
+			buffer.get(m5) == 1 &&
+			buffer.get(m4) == -72 && // 0xB8 - Java/UMS wants -72
 			// control bits
-			((buffer[m2] & 0x08) == 0x08) &&
-			((buffer[m0] & 31) == 0) &&
+			((buffer.get(m2) & 0x08) == 0x08) &&
+			((buffer.get(m0) & 31) == 0) &&
 			// of interest
-			((buffer[m3] & 128) != 128) && // not drop frm
-			((buffer[m0] & 16) != 16) // not broken
+			((buffer.get(m3) & 128) != 128) && // not drop frm
+			((buffer.get(m0) & 16) != 16) // not broken
 			) {
 			// org timecode
-			byte h = (byte) ((buffer[m3] & 124) >> 2);
-			byte m = (byte) (((buffer[m3] & 3) << 4) + ((buffer[m2] & 240) >> 4));
-			byte s = (byte) (((buffer[m2] & 7) << 3) + ((buffer[m1] & 224) >> 5));
+			byte h = (byte) ((buffer.get(m3) & 124) >> 2);
+			byte m = (byte) (((buffer.get(m3) & 3) << 4) + ((buffer.get(m2) & 240) >> 4));
+			byte s = (byte) (((buffer.get(m2) & 7) << 3) + ((buffer.get(m1) & 224) >> 5));
 
 			// updated offset
 			int offset = s + m * 60 + h * 60 + offsetSec;
@@ -519,13 +479,13 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 			// update gop
 			// h - ok
-			buffer[m3] = (byte) ((buffer[m3] & 131) + (newh << 2)); // 10000011
+			buffer.put(m3, (byte) ((buffer.get(m3) & 131) + (newh << 2))); // 10000011
 			// m - ok
-			buffer[m3] = (byte) ((buffer[m3] & 252) + (newm >> 4)); // 11111100
-			buffer[m2] = (byte) ((buffer[m2] & 15) + (newm << 4)); // 00001111
+			buffer.put(m3, (byte) ((buffer.get(m3) & 252) + (newm >> 4))); // 11111100
+			buffer.put(m2, (byte) ((buffer.get(m2) & 15) + (newm << 4))); // 00001111
 			// s - ok
-			buffer[m2] = (byte) ((buffer[m2] & 248) + (news >> 3)); // 11111000
-			buffer[m1] = (byte) ((buffer[m1] & 31) + (news << 5)); // 00011111
+			buffer.put(m2, (byte) ((buffer.get(m2) & 248) + (news >> 3))); // 11111000
+			buffer.put(m1, (byte) ((buffer.get(m1) & 31) + (news << 5))); // 00011111
 
 			// Debug
 			//LOGGER.trace("Ditlew - GOP "+h+":"+m+":"+s+" -> "+_h+":"+_m+":"+_s+"  "+offset_sec+" secs");
@@ -541,26 +501,26 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		boolean bb = (
 				!mod &&
 				(
-					buffer[mb - 10] == -67 || buffer[mb - 10] == -64
+					buffer.get(mb - 10) == -67 || buffer.get(mb - 10) == -64
 				) &&
-				buffer[mb - 11] == 1 &&
-				buffer[mb - 12] == 0 &&
-				buffer[mb - 13] == 0 &&
-				(buffer[mb - 6] & 128) == 128
+				buffer.get(mb - 11) == 1 &&
+				buffer.get(mb - 12) == 0 &&
+				buffer.get(mb - 13) == 0 &&
+				(buffer.get(mb - 6) & 128) == 128
 			) ||
 			(
 				mod &&
 				(
-					buffer[modulo(mb - 10, buffer.length)] == -67 ||
-					buffer[modulo(mb - 10, buffer.length)] == -64
+					buffer.get(modulo(mb - 10, buffer.capacity())) == -67 ||
+					buffer.get(modulo(mb - 10, buffer.capacity())) == -64
 				) &&
-				buffer[modulo(mb - 11, buffer.length)] == 1 &&
-				buffer[modulo(mb - 12, buffer.length)] == 0 &&
-				buffer[modulo(mb - 13, buffer.length)] == 0 &&
-				(buffer[modulo(mb - 6, buffer.length)] & 128) == 128
+				buffer.get(modulo(mb - 11, buffer.capacity())) == 1 &&
+				buffer.get(modulo(mb - 12, buffer.capacity())) == 0 &&
+				buffer.get(modulo(mb - 13, buffer.capacity())) == 0 &&
+				(buffer.get(modulo(mb - 6, buffer.capacity())) & 128) == 128
 			);
 		if (bb) {
-			int pts = (((((buffer[modulo(mb - 3, buffer.length)] & 0xff) << 8) + (buffer[modulo(mb - 2, buffer.length)] & 0xff)) >> 1) << 15) + ((((buffer[modulo(mb - 1, buffer.length)] & 0xff) << 8) + (buffer[modulo(mb, buffer.length)] & 0xff)) >> 1);
+			int pts = (((((buffer.get(modulo(mb - 3, buffer.capacity())) & 0xff) << 8) + (buffer.get(modulo(mb - 2, buffer.capacity())) & 0xff)) >> 1) << 15) + ((((buffer.get(modulo(mb - 1, buffer.capacity())) & 0xff) << 8) + (buffer.get(modulo(mb, buffer.capacity())) & 0xff)) >> 1);
 			pts += (int) (timeseek * 90000);
 
 			setTS(pts, mb, mod);
@@ -571,26 +531,26 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 	private boolean shiftVideo(int mb, boolean mod) {
 		boolean bb = (!mod &&
-			(buffer[mb - 15] == -32 || buffer[mb - 15] == -3) &&
-			buffer[mb - 16] == 1 &&
-			buffer[mb - 17] == 0 &&
-			buffer[mb - 18] == 0 &&
-			(buffer[mb - 11] & 128) == 128 &&
-			(buffer[mb - 9] & 32) == 32) || (mod &&
-			(buffer[modulo(mb - 15, buffer.length)] == -32 || buffer[modulo(mb - 15, buffer.length)] == -3) &&
-			buffer[modulo(mb - 16, buffer.length)] == 1 &&
-			buffer[modulo(mb - 17, buffer.length)] == 0 &&
-			buffer[modulo(mb - 18, buffer.length)] == 0 &&
-			(buffer[modulo(mb - 11, buffer.length)] & 128) == 128 &&
-			(buffer[modulo(mb - 9, buffer.length)] & 32) == 32);
+			(buffer.get(mb - 15) == -32 || buffer.get(mb - 15) == -3) &&
+			buffer.get(mb - 16) == 1 &&
+			buffer.get(mb - 17) == 0 &&
+			buffer.get(mb - 18) == 0 &&
+			(buffer.get(mb - 11) & 128) == 128 &&
+			(buffer.get(mb - 9) & 32) == 32) || (mod &&
+			(buffer.get(modulo(mb - 15, buffer.capacity())) == -32 || buffer.get(modulo(mb - 15, buffer.capacity())) == -3) &&
+			buffer.get(modulo(mb - 16, buffer.capacity())) == 1 &&
+			buffer.get(modulo(mb - 17, buffer.capacity())) == 0 &&
+			buffer.get(modulo(mb - 18, buffer.capacity())) == 0 &&
+			(buffer.get(modulo(mb - 11, buffer.capacity())) & 128) == 128 &&
+			(buffer.get(modulo(mb - 9, buffer.capacity())) & 32) == 32);
 
 		if (bb) { // check EO or FD (tsMuxeR)
 			int pts = getTS(mb - 5, mod);
 			int dts = 0;
-			boolean dtsPresent = (buffer[modulo(mb - 11, buffer.length)] & 64) == 64;
+			boolean dtsPresent = (buffer.get(modulo(mb - 11, buffer.capacity())) & 64) == 64;
 			if (dtsPresent) {
-				if ((buffer[modulo(mb - 4, buffer.length)] & 15) == 15) {
-					dts = (((((255 - (buffer[modulo(mb - 3, buffer.length)] & 0xff)) << 8) + (255 - (buffer[modulo(mb - 2, buffer.length)] & 0xff))) >> 1) << 15) + ((((255 - (buffer[modulo(mb - 1, buffer.length)] & 0xff)) << 8) + (255 - (buffer[modulo(mb, buffer.length)] & 0xff))) >> 1);
+				if ((buffer.get(modulo(mb - 4, buffer.capacity())) & 15) == 15) {
+					dts = (((((255 - (buffer.get(modulo(mb - 3, buffer.capacity())) & 0xff)) << 8) + (255 - (buffer.get(modulo(mb - 2, buffer.capacity())) & 0xff))) >> 1) << 15) + ((((255 - (buffer.get(modulo(mb - 1, buffer.capacity())) & 0xff)) << 8) + (255 - (buffer.get(modulo(mb, buffer.capacity())) & 0xff))) >> 1);
 					dts = -dts;
 				} else {
 					dts = getTS(mb, mod);
@@ -606,7 +566,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			setTS(pts, mb - 5, mod);
 			if (dtsPresent) {
 				if (dts < 0) {
-					buffer[modulo(mb - 4, buffer.length)] = 17;
+					buffer.put(modulo(mb - 4, buffer.capacity()), (byte) 17);
 				}
 				dts += ts;
 				setTS(dts, mb, mod);
@@ -622,14 +582,14 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		int m1 = mb - 1;
 		int m0 = mb;
 		if (modulo) {
-			m3 = modulo(m3, buffer.length);
-			m2 = modulo(m2, buffer.length);
-			m1 = modulo(m1, buffer.length);
-			m0 = modulo(m0, buffer.length);
+			m3 = modulo(m3, buffer.capacity());
+			m2 = modulo(m2, buffer.capacity());
+			m1 = modulo(m1, buffer.capacity());
+			m0 = modulo(m0, buffer.capacity());
 		}
 
-		return (((((buffer[m3] & 0xff) << 8) + (buffer[m2] & 0xff)) >> 1) << 15) +
-			((((buffer[m1] & 0xff) << 8) + (buffer[m0] & 0xff)) >> 1);
+		return (((((buffer.get(m3) & 0xff) << 8) + (buffer.get(m2) & 0xff)) >> 1) << 15) +
+			((((buffer.get(m1) & 0xff) << 8) + (buffer.get(m0) & 0xff)) >> 1);
 	}
 
 	private void setTS(int ts, int mb, boolean modulo) {
@@ -638,19 +598,19 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		int m1 = mb - 1;
 		int m0 = mb;
 		if (modulo) {
-			m3 = modulo(m3, buffer.length);
-			m2 = modulo(m2, buffer.length);
-			m1 = modulo(m1, buffer.length);
-			m0 = modulo(m0, buffer.length);
+			m3 = modulo(m3, buffer.capacity());
+			m2 = modulo(m2, buffer.capacity());
+			m1 = modulo(m1, buffer.capacity());
+			m0 = modulo(m0, buffer.capacity());
 		}
 		int ptsLow = ts & 32767;
 		int ptsHigh = (ts >> 15) & 32767;
 		int ptsLeftLow = 1 + (ptsLow << 1);
 		int ptsLeftHigh = 1 + (ptsHigh << 1);
-		buffer[m3] = (byte) ((ptsLeftHigh & 65280) >> 8);
-		buffer[m2] = (byte) (ptsLeftHigh & 255);
-		buffer[m1] = (byte) ((ptsLeftLow & 65280) >> 8);
-		buffer[m0] = (byte) (ptsLeftLow & 255);
+		buffer.put(m3, (byte) ((ptsLeftHigh & 65280) >> 8));
+		buffer.put(m2, (byte) (ptsLeftHigh & 255));
+		buffer.put(m1, (byte) ((ptsLeftLow & 65280) >> 8));
+		buffer.put(m0, (byte) (ptsLeftLow & 255));
 	}
 
 	@Override
@@ -693,7 +653,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		}
 
 		int mb = (int) (readCount % maxMemorySize);
-		int endOF = buffer.length;
+		int endOF = buffer.capacity();
 		int cut = 0;
 
 		if (eof && (writeCount - readCount) < len) {
@@ -707,10 +667,10 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		if (mb >= endOF - len) {
 			length = endOF - mb - cut;
 			try {
-				System.arraycopy(buffer, mb, buf, off, length);
-			} catch (ArrayIndexOutOfBoundsException e) {
+				buffer.get(mb, buf, off, length);
+			} catch (IndexOutOfBoundsException e) {
 				LOGGER.trace("Something went wrong with the buffer, error: " + e);
-				LOGGER.trace("buffer: " + Arrays.toString(buffer));
+				LOGGER.trace("buffer capacity: " + buffer.capacity());
 				LOGGER.trace("mb: " + mb);
 				LOGGER.trace("buf: " + Arrays.toString(buf));
 				LOGGER.trace("off: " + off);
@@ -719,7 +679,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 			return length;
 		} else {
 			length = len - cut;
-			System.arraycopy(buffer, mb, buf, off, length);
+			buffer.get(mb, buf, off, length);
 			return length;
 		}
 	}
@@ -766,9 +726,9 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		}
 
 		try {
-			return 0xff & buffer[(int) (readCount % maxMemorySize)];
-		} catch (ArrayIndexOutOfBoundsException e) {
-			LOGGER.info("Buffer read ArrayIndexOutOfBoundsException error:");
+			return 0xff & buffer.get((int) (readCount % maxMemorySize));
+		} catch (IndexOutOfBoundsException e) {
+			LOGGER.info("Buffer read IndexOutOfBoundsException error:");
 			LOGGER.info("readCount: \"" + readCount + "\"");
 			LOGGER.info("maxMemorySize: \"" + maxMemorySize + "\"");
 			return -1;
@@ -793,14 +753,19 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 				@Override
 				public void run() {
 					long rc = 0;
+					int inputs;
 
-					if (getCurrentInputStream() != null) {
-						rc = getCurrentInputStream().getReadCount();
-						GuiManager.setReadValue(rc);
+					synchronized (BufferedOutputFileImpl.this) {
+						WaitBufferedInputStream input = getCurrentInputStream();
+						if (input != null) {
+							rc = input.getReadCount();
+							GuiManager.setReadValue(rc);
+						}
+						inputs = inputStreams.size();
 					}
 
 					long space = (writeCount - rc);
-					LOGGER.trace("buffered: " + FORMATTER.format(space) + " bytes / inputs: " + inputStreams.size());
+					LOGGER.trace("buffered: " + FORMATTER.format(space) + " bytes / inputs: " + inputs);
 
 					// There are 1048576 bytes in a megabyte
 					long bufferInMBs = space / 1048576;
@@ -813,13 +778,22 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 		}
 	}
 
+	/**
+	 * Removes a reader from this buffer, and detaches the process once the
+	 * last reader is gone. Other readers of a shared process keep it running
+	 * even if they don't read for a while.
+	 *
+	 * @param inputStream the reader to remove.
+	 */
 	@Override
-	public void removeInputStream(WaitBufferedInputStream inputStream) {
-		inputStreams.remove(inputStream);
+	public synchronized void removeInputStream(WaitBufferedInputStream inputStream) {
+		if (inputStreams.remove(inputStream) && inputStreams.isEmpty()) {
+			detachInputStream();
+		}
 	}
 
 	@Override
-	public void detachInputStream() {
+	public synchronized void detachInputStream() {
 		if (!hidebuffer) {
 			GuiManager.setReadValue(0);
 		}
@@ -835,7 +809,12 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 				LOGGER.error(null, e);
 			}
 
-			if (attachedThread != null && attachedThread.isReadyToStop()) {
+			boolean stop;
+			synchronized (this) {
+				// a reader may have attached in the meantime
+				stop = attachedThread != null && attachedThread.isReadyToStop() && inputStreams.isEmpty();
+			}
+			if (stop) {
 				if (!attachedThread.isDestroyed()) {
 					attachedThread.stopProcess();
 				}
@@ -862,6 +841,7 @@ public class BufferedOutputFileImpl extends OutputStream implements BufferedOutp
 
 		if (buffer != null) {
 			LOGGER.trace("Destroying buffer");
+			buffer.release();
 			buffer = null;
 		}
 
@@ -0,0 +1,96 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.nio.ByteBuffer;
+import java.text.NumberFormat;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link TranscodeBuffer} backed by a direct {@link ByteBuffer}, which lives
+ * outside of the Java heap and is therefore not moved or scanned by the
+ * garbage collector.
+ */
+class DirectTranscodeBuffer implements TranscodeBuffer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DirectTranscodeBuffer.class);
+	private static final NumberFormat FORMATTER = NumberFormat.getInstance(Locale.US);
+
+	protected final ByteBuffer buffer;
+
+	protected DirectTranscodeBuffer(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Allocates a direct buffer, falling back to a heap buffer if the direct
+	 * memory is exhausted.
+	 *
+	 * @param size the requested capacity.
+	 * @return the new buffer.
+	 */
+	static TranscodeBuffer allocate(int size) {
+		try {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+			LOGGER.trace("Successfully initialized direct buffer to " + FORMATTER.format(size) + " bytes.");
+			return new DirectTranscodeBuffer(buffer);
+		} catch (OutOfMemoryError e) {
+			LOGGER.debug("Cannot initialize direct buffer to " + FORMATTER.format(size) + " bytes, using a heap buffer instead: " + e.getMessage());
+			return new HeapTranscodeBuffer().grow(size);
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return buffer.capacity();
+	}
+
+	@Override
+	public byte get(int index) {
+		return buffer.get(index);
+	}
+
+	@Override
+	public void put(int index, byte value) {
+		buffer.put(index, value);
+	}
+
+	@Override
+	public void get(int index, byte[] dst, int off, int len) {
+		buffer.get(index, dst, off, len);
+	}
+
+	@Override
+	public void put(int index, byte[] src, int off, int len) {
+		buffer.put(index, src, off, len);
+	}
+
+	/**
+	 * Direct buffers are allocated with their final size, they can't grow.
+	 */
+	@Override
+	public TranscodeBuffer grow(int newSize) {
+		return this;
+	}
+
+	@Override
+	public void release() {
+		// the direct memory is freed when the buffer is garbage collected
+	}
+
+}
@@ -0,0 +1,201 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An input stream reading a byte range of a file through a
+ * {@link FileChannel}.
+ *
+ * Unlike a plain {@link java.io.FileInputStream}, it exposes the channel and
+ * the range still to be sent, so servers can hand the range over to the
+ * kernel ({@link FileChannel#transferTo}) instead of copying it through heap
+ * buffers.
+ */
+public class FileRangeInputStream extends InputStream {
+
+	private static final int TRANSFER_BUFFER_SIZE = 256 * 1024;
+
+	private final FileChannel channel;
+	private final long start;
+	private final long length;
+	private long position;
+	private long end;
+
+	/**
+	 * Opens a stream over the whole file.
+	 *
+	 * @param file the file to read.
+	 * @throws IOException if the file can't be opened.
+	 */
+	public FileRangeInputStream(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		start = 0;
+		length = -1;
+		position = 0;
+		end = channel.size();
+	}
+
+	/**
+	 * Opens a stream over a part of a file, like an entry stored without
+	 * compression in an archive. The stream then behaves as if the file only
+	 * contained this part.
+	 *
+	 * @param file the file to read.
+	 * @param offset the position of the part in the file.
+	 * @param length the length of the part.
+	 * @throws IOException if the file can't be opened.
+	 */
+	public FileRangeInputStream(File file, long offset, long length) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		start = offset;
+		this.length = length;
+		position = offset;
+		end = offset + length;
+	}
+
+	/**
+	 * Restricts the stream to a byte range of the file, the same way
+	 * {@code skip(low)} followed by a {@link SizeLimitInputStream} would.
+	 *
+	 * @param low the first byte to read.
+	 * @param high the last byte to read (inclusive), or a value lower than
+	 *            {@code low} to read up to the end of the file.
+	 * @throws IOException if the file size can't be read.
+	 */
+	public synchronized void setRange(long low, long high) throws IOException {
+		long size = length < 0 ? channel.size() : length;
+		position = start + Math.min(Math.max(low, 0), size);
+		end = start + (high > low ? Math.min(high + 1, size) : size);
+	}
+
+	/**
+	 * @return the underlying file channel.
+	 */
+	public FileChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * @return the position in the file of the next byte to read, including
+	 *         the offset of the part of the file read.
+	 */
+	public synchronized long getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return the number of bytes left to read.
+	 */
+	public synchronized long getRemaining() {
+		return Math.max(end - position, 0);
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+	}
+
+	@Override
+	public synchronized int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		long remaining = getRemaining();
+		if (remaining == 0) {
+			return -1;
+		}
+		int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+		if (read > 0) {
+			position += read;
+		}
+		return read;
+	}
+
+	@Override
+	public synchronized long skip(long n) throws IOException {
+		long skipped = Math.min(Math.max(n, 0), getRemaining());
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(getRemaining(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Sends the remaining range to a channel using
+	 * {@link FileChannel#transferTo}, which lets the kernel copy the data
+	 * directly when the target is a socket.
+	 *
+	 * @param target the channel to write to.
+	 * @return the number of bytes sent.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public synchronized long transferTo(WritableByteChannel target) throws IOException {
+		long sent = 0;
+		while (position < end) {
+			long count = channel.transferTo(position, end - position, target);
+			if (count <= 0) {
+				break;
+			}
+			position += count;
+			sent += count;
+		}
+		return sent;
+	}
+
+	/**
+	 * Sends the remaining range to an output stream with positional reads in
+	 * large blocks, flushing only once at the end.
+	 */
+	@Override
+	public synchronized long transferTo(OutputStream out) throws IOException {
+		byte[] buffer = new byte[(int) Math.min(TRANSFER_BUFFER_SIZE, Math.max(getRemaining(), 1))];
+		ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+		long sent = 0;
+		while (position < end) {
+			byteBuffer.clear();
+			byteBuffer.limit((int) Math.min(buffer.length, end - position));
+			int read = channel.read(byteBuffer, position);
+			if (read <= 0) {
+				break;
+			}
+			out.write(buffer, 0, read);
+			position += read;
+			sent += read;
+		}
+		out.flush();
+		return sent;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
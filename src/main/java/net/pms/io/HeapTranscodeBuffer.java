@@ -0,0 +1,142 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link TranscodeBuffer} backed by a byte array on the Java heap.
+ */
+class HeapTranscodeBuffer implements TranscodeBuffer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(HeapTranscodeBuffer.class);
+	private static final NumberFormat FORMATTER = NumberFormat.getInstance(Locale.US);
+
+	private final byte[] buffer;
+
+	HeapTranscodeBuffer() {
+		this(new byte[0]);
+	}
+
+	private HeapTranscodeBuffer(byte[] buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public int capacity() {
+		return buffer.length;
+	}
+
+	@Override
+	public byte get(int index) {
+		return buffer[index];
+	}
+
+	@Override
+	public void put(int index, byte value) {
+		buffer[index] = value;
+	}
+
+	@Override
+	public void get(int index, byte[] dst, int off, int len) {
+		System.arraycopy(buffer, index, dst, off, len);
+	}
+
+	@Override
+	public void put(int index, byte[] src, int off, int len) {
+		System.arraycopy(src, off, buffer, index, len);
+	}
+
+	/**
+	 * Try to increase the size of the memory buffer, while retaining its
+	 * contents. The provided new size is considered to be a request, it is
+	 * scaled down when an OutOfMemory error occurs. Copying one byte array to
+	 * another is a costly operation, both in memory usage and performance. It
+	 * is best to avoid using this method.
+	 *
+	 * @param newSize The requested final size. Should be greater than the
+	 * original size or the original buffer will be returned.
+	 * @return The resized buffer.
+	 */
+	@Override
+	public TranscodeBuffer grow(int newSize) {
+		byte[] copy;
+
+		if (newSize <= buffer.length) {
+			// Cannot shrink the original
+			return this;
+		}
+
+		try {
+			// Try to allocate the requested new size
+			copy = new byte[newSize];
+		} catch (OutOfMemoryError e) {
+			if (buffer.length == 0) {
+				LOGGER.trace("Cannot initialize buffer to " + FORMATTER.format(newSize) + " bytes.");
+			} else {
+				LOGGER.debug("Cannot grow buffer size from " + FORMATTER.format(buffer.length) + " bytes to " + FORMATTER.format(newSize) + " bytes.");
+				LOGGER.debug("Error given: " + e);
+
+			}
+
+			// Could not allocate the requested new size, use 30% of free memory instead.
+			// Rationale behind using 30%: multiple threads are running at the same time,
+			// we do not want one thread's memory usage to suffocate the others.
+			// Using maxMemory() to ignore the initial Java heap space size that freeMemory()
+			// takes into account.
+			// See http://javarevisited.blogspot.com/2011/05/java-heap-space-memory-size-jvm.html
+			long realisticSize = Runtime.getRuntime().maxMemory() * 3 / 10;
+
+			if (realisticSize < buffer.length) {
+				// A copy would be smaller in size, shrinking instead of growing the buffer.
+				// Better to return the original and retain its size.
+				return this;
+			} else {
+				try {
+					// Try to allocate the realistic alternative size
+					copy = new byte[(int) realisticSize];
+				} catch (OutOfMemoryError e2) {
+					LOGGER.debug("Cannot grow buffer size from " + FORMATTER.format(buffer.length) + " bytes to " + FORMATTER.format(realisticSize) + " bytes either.");
+					LOGGER.trace("freeMemory: " + FORMATTER.format(Runtime.getRuntime().freeMemory()));
+					LOGGER.trace("totalMemory: " + FORMATTER.format(Runtime.getRuntime().totalMemory()));
+					LOGGER.trace("maxMemory: " + FORMATTER.format(Runtime.getRuntime().maxMemory()));
+					LOGGER.debug("Error given: " + e2);
+
+					// Cannot allocate memory, no other option than to return the original.
+					return this;
+				}
+			}
+		}
+
+		if (buffer.length == 0) {
+			LOGGER.trace("Successfully initialized buffer to " + FORMATTER.format(copy.length) + " bytes.");
+		} else {
+			System.arraycopy(buffer, 0, copy, 0, buffer.length);
+			LOGGER.trace("Successfully grown buffer from " + FORMATTER.format(buffer.length) + " bytes to " + FORMATTER.format(copy.length) + " bytes.");
+		}
+
+		return new HeapTranscodeBuffer(copy);
+	}
+
+	@Override
+	public void release() {
+		// the garbage collector will take care of it
+	}
+
+}
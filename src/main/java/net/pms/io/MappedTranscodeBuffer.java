@@ -0,0 +1,91 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.NumberFormat;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link TranscodeBuffer} backed by a memory-mapped temporary file. The
+ * operating system pages the data in and out as needed, so neither the heap
+ * nor the direct memory has to hold the whole buffer.
+ */
+class MappedTranscodeBuffer extends DirectTranscodeBuffer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedTranscodeBuffer.class);
+	private static final NumberFormat FORMATTER = NumberFormat.getInstance(Locale.US);
+
+	private final FileChannel channel;
+
+	private MappedTranscodeBuffer(FileChannel channel, int size) throws IOException {
+		super(channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+		this.channel = channel;
+	}
+
+	/**
+	 * Allocates a memory-mapped buffer, falling back to a heap buffer if the
+	 * temporary file can't be created or mapped.
+	 *
+	 * @param size the requested capacity.
+	 * @param tempFolder the folder where to create the temporary file.
+	 * @return the new buffer.
+	 */
+	static TranscodeBuffer allocate(int size, File tempFolder) {
+		FileChannel channel = null;
+		try {
+			Path path = Files.createTempFile(tempFolder.toPath(), "ums-buffer-", ".tmp");
+			channel = FileChannel.open(
+				path,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE
+			);
+			MappedTranscodeBuffer result = new MappedTranscodeBuffer(channel, size);
+			LOGGER.trace("Successfully mapped buffer of " + FORMATTER.format(size) + " bytes to \"" + path + "\".");
+			return result;
+		} catch (IOException | UnsupportedOperationException e) {
+			LOGGER.debug("Cannot map buffer to a temporary file, using a heap buffer instead: " + e.getMessage());
+			LOGGER.trace("", e);
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e1) {
+					LOGGER.trace("", e1);
+				}
+			}
+			return new HeapTranscodeBuffer().grow(size);
+		}
+	}
+
+	@Override
+	public void release() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LOGGER.debug("Error while closing the buffer file: " + e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+}
@@ -47,6 +47,8 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 	private String[] cmdArray;
 	private boolean nullable;
 	private ArrayList<ProcessWrapper> attachedProcesses;
+	private final List<Runnable> endListeners = new ArrayList<>();
+	private boolean ended;
 	private BufferedOutputFile bo = null;
 	private boolean keepStdout;
 	private boolean keepStderr;
@@ -128,6 +130,34 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 		attachedProcesses.add(process);
 	}
 
+	/**
+	 * Registers a listener run once this process has ended or was stopped.
+	 * The listener is run immediately if that's already the case.
+	 *
+	 * @param listener the listener to run.
+	 */
+	public void addEndListener(Runnable listener) {
+		synchronized (endListeners) {
+			if (!ended && !destroyed) {
+				endListeners.add(listener);
+				return;
+			}
+		}
+		listener.run();
+	}
+
+	private void notifyEnd() {
+		List<Runnable> listeners;
+		synchronized (endListeners) {
+			ended = true;
+			listeners = new ArrayList<>(endListeners);
+			endListeners.clear();
+		}
+		for (Runnable listener : listeners) {
+			listener.run();
+		}
+	}
+
 	@Override
 	public void run() {
 		ProcessBuilder pb = new ProcessBuilder(cmdArray);
@@ -291,6 +321,7 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 				}
 			}
 			CURRENT_PROCESSES.remove(process);
+			notifyEnd();
 		}
 	}
 
@@ -332,6 +363,22 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 		return bo instanceof BufferedOutputByteArrayImpl ? (BufferedOutputByteArrayImpl) bo : null;
 	}
 
+	/**
+	 * Returns whether an additional reader can be attached to the output of
+	 * this process at the given position, i.e. whether the data at this
+	 * position is still held by the output buffer.
+	 *
+	 * @param position the position in the output, in bytes.
+	 * @return {@code true} if a reader can be attached at this position.
+	 */
+	public boolean canAttachInputStream(long position) {
+		BufferedOutputFile buffer = bo;
+		if (buffer == null && stdoutConsumer != null) {
+			buffer = stdoutConsumer.getBuffer();
+		}
+		return !destroyed && buffer instanceof BufferedOutputFileImpl bufferedOutputFileImpl && bufferedOutputFileImpl.isReadable(position);
+	}
+
 	@Override
 	public InputStream getInputStream(long seek) throws IOException {
 		if (bo != null) {
@@ -386,6 +433,7 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 			if (stdoutConsumer != null && stdoutConsumer.getBuffer() != null) {
 				stdoutConsumer.getBuffer().reset();
 			}
+			notifyEnd();
 		}
 	}
 
@@ -413,6 +461,13 @@ public class ProcessWrapperImpl extends Thread implements ProcessWrapper {
 		this.stderrConsumer = consumer;
 	}
 
+	/**
+	 * @return the number of external processes currently running.
+	 */
+	public static int getCurrentProcessesCount() {
+		return CURRENT_PROCESSES.size();
+	}
+
 	public static void destroyCurrentProcesses() {
 		for (Process p : CURRENT_PROCESSES) {
 			try {
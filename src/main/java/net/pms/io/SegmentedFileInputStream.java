@@ -0,0 +1,153 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An input stream reading consecutive parts of several files as a single
+ * stream, like an entry stored without compression and split over the
+ * volumes of a multi-volume archive.
+ *
+ * Skipping only moves the position, so the stream can be seeked without
+ * reading the skipped data.
+ */
+public class SegmentedFileInputStream extends InputStream {
+
+	private final List<Segment> segments = new ArrayList<>();
+	private final long length;
+	private long position;
+	private int current = -1;
+	private FileChannel channel;
+
+	/**
+	 * @param segments the parts of the files, in stream order.
+	 */
+	public SegmentedFileInputStream(List<Segment> segments) {
+		long total = 0;
+		for (Segment segment : segments) {
+			this.segments.add(segment);
+			total += segment.getLength();
+		}
+		length = total;
+	}
+
+	/**
+	 * @return the length of the stream.
+	 */
+	public long length() {
+		return length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+	}
+
+	@Override
+	public synchronized int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		long segmentStart = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			Segment segment = segments.get(i);
+			if (position < segmentStart + segment.getLength()) {
+				long offset = position - segmentStart;
+				int count = (int) Math.min(len, segment.getLength() - offset);
+				int read = getChannel(i).read(ByteBuffer.wrap(b, off, count), segment.getOffset() + offset);
+				if (read > 0) {
+					position += read;
+				}
+				return read;
+			}
+			segmentStart += segment.getLength();
+		}
+		return -1;
+	}
+
+	@Override
+	public synchronized long skip(long n) {
+		long skipped = Math.min(Math.max(n, 0), length - position);
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public synchronized int available() {
+		return (int) Math.min(length - position, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+		current = -1;
+	}
+
+	private FileChannel getChannel(int index) throws IOException {
+		if (index != current) {
+			close();
+			channel = FileChannel.open(segments.get(index).getFile().toPath(), StandardOpenOption.READ);
+			current = index;
+		}
+		return channel;
+	}
+
+	/**
+	 * A part of a file.
+	 */
+	public static class Segment {
+		private final File file;
+		private final long offset;
+		private final long length;
+
+		/**
+		 * @param file the file.
+		 * @param offset the position of the part in the file.
+		 * @param length the length of the part.
+		 */
+		public Segment(File file, long offset, long length) {
+			this.file = file;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public long getLength() {
+			return length;
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.File;
+
+/**
+ * Storage backing the circular buffer of a {@link BufferedOutputFileImpl}.
+ *
+ * Implementations can keep the data on the Java heap, in direct memory or in
+ * a memory-mapped temporary file, so that large transcode buffers don't have
+ * to live on the heap.
+ */
+interface TranscodeBuffer {
+
+	/**
+	 * The kinds of storage that can back a transcode buffer.
+	 */
+	enum Type {
+		/**
+		 * A byte array on the Java heap.
+		 */
+		HEAP,
+		/**
+		 * A direct {@link java.nio.ByteBuffer} outside of the Java heap.
+		 */
+		DIRECT,
+		/**
+		 * A memory-mapped temporary file.
+		 */
+		MAPPED;
+
+		/**
+		 * Returns the {@link Type} matching the given name, or {@link #HEAP}
+		 * if it doesn't match any type.
+		 *
+		 * @param name the type name.
+		 * @return the matching {@link Type}.
+		 */
+		public static Type typeOf(String name) {
+			if (name != null) {
+				for (Type type : values()) {
+					if (type.name().equalsIgnoreCase(name.trim())) {
+						return type;
+					}
+				}
+			}
+			return HEAP;
+		}
+	}
+
+	/**
+	 * @return the number of bytes this buffer can hold.
+	 */
+	int capacity();
+
+	byte get(int index);
+
+	void put(int index, byte value);
+
+	/**
+	 * Copies bytes from this buffer into the given array.
+	 */
+	void get(int index, byte[] dst, int off, int len);
+
+	/**
+	 * Copies bytes from the given array into this buffer.
+	 */
+	void put(int index, byte[] src, int off, int len);
+
+	/**
+	 * Tries to increase the capacity of this buffer while retaining its
+	 * content. There is no guarantee about the resulting capacity, only that
+	 * it is greater than or equal to the current one.
+	 *
+	 * @param newSize the requested capacity.
+	 * @return the grown buffer, which may be this buffer.
+	 */
+	TranscodeBuffer grow(int newSize);
+
+	/**
+	 * Releases the resources held by this buffer.
+	 */
+	void release();
+
+	/**
+	 * Allocates a new buffer.
+	 *
+	 * @param type the kind of storage to use.
+	 * @param size the requested capacity.
+	 * @param tempFolder the folder for memory-mapped files.
+	 * @return the new buffer, whose capacity is zero if it could not be
+	 *         allocated.
+	 */
+	static TranscodeBuffer allocate(Type type, int size, File tempFolder) {
+		switch (type) {
+			case DIRECT -> {
+				return DirectTranscodeBuffer.allocate(size);
+			}
+			case MAPPED -> {
+				return MappedTranscodeBuffer.allocate(size, tempFolder);
+			}
+			default -> {
+				return new HeapTranscodeBuffer().grow(size);
+			}
+		}
+	}
+
+}
@@ -21,7 +21,7 @@ import java.io.InputStream;
 
 public class WaitBufferedInputStream extends InputStream {
 	private final BufferedOutputFile outputStream;
-	private long readCount;
+	private volatile long readCount;
 	private boolean firstRead;
 
 	public void setReadCount(long readCount) {
@@ -69,8 +69,8 @@ public class WaitBufferedInputStream extends InputStream {
 
 	@Override
 	public void close() throws IOException {
+		// the buffer detaches the process once its last reader is removed
 		outputStream.removeInputStream(this);
-		outputStream.detachInputStream();
 	}
 }
 
@@ -380,7 +380,7 @@ public class MediaInfo implements Cloneable {
 
 	public DLNAThumbnailInputStream getThumbnailInputStream() {
 		DLNAThumbnail thumb = getThumbnail();
-		return thumb != null ? new DLNAThumbnailInputStream(thumb) : null;
+		return thumb != null ? new DLNAThumbnailInputStream(thumb, thumbnailId) : null;
 	}
 
 	/**
@@ -19,13 +19,17 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -38,6 +42,9 @@ import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
 import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
+import net.pms.io.FileRangeInputStream;
+import net.pms.renderers.Renderer;
+import net.pms.util.ServerMetrics;
 import net.pms.util.StringUtil;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -66,6 +73,75 @@ public abstract class HttpServletHelper extends HttpServlet {
 	protected HttpServletHelper() {
 	}
 
+	@Override
+	protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		TimedResponse timedResponse = new TimedResponse(resp, getClass().getSimpleName());
+		try {
+			super.service(req, timedResponse);
+		} finally {
+			timedResponse.record();
+		}
+	}
+
+	/**
+	 * Records the time a handler takes to start its response, when it starts
+	 * writing the body or sends an error, instead of the time to send it, so
+	 * that media streams and event streams don't count their playback time.
+	 */
+	private static class TimedResponse extends HttpServletResponseWrapper {
+		private final String handler;
+		private final long start = System.nanoTime();
+		private boolean recorded;
+
+		private TimedResponse(HttpServletResponse response, String handler) {
+			super(response);
+			this.handler = handler;
+		}
+
+		private synchronized void record() {
+			if (!recorded) {
+				recorded = true;
+				ServerMetrics.recordHttpRequest(handler, System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			record();
+			return super.getOutputStream();
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			record();
+			return super.getWriter();
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			record();
+			super.flushBuffer();
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			record();
+			super.sendError(sc, msg);
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			record();
+			super.sendError(sc);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			record();
+			super.sendRedirect(location);
+		}
+	}
+
 	protected static InetAddress getInetAddress(ServletRequest req) {
 		try {
 			return InetAddress.getByName(req.getRemoteAddr());
@@ -230,16 +306,26 @@ public abstract class HttpServletHelper extends HttpServlet {
 		return formattedContent;
 	}
 
-	protected static void copyStream(final InputStream in, final OutputStream os) {
+	/**
+	 * Copies the stream to the response, then closes both.
+	 *
+	 * @return the number of bytes sent.
+	 */
+	protected static long copyStream(final InputStream in, final OutputStream os) {
 		byte[] buffer = new byte[32 * 1024];
 		int bytes;
-		int sendBytes = 0;
+		long sendBytes = 0;
 
 		try {
-			while ((bytes = in.read(buffer)) != -1) {
-				os.write(buffer, 0, bytes);
-				sendBytes += bytes;
-				os.flush();
+			if (in instanceof FileRangeInputStream fileRange) {
+				// Untranscoded file, read it in large blocks from its channel
+				sendBytes = fileRange.transferTo(os);
+			} else {
+				while ((bytes = in.read(buffer)) != -1) {
+					os.write(buffer, 0, bytes);
+					sendBytes += bytes;
+					os.flush();
+				}
 			}
 			LOGGER.trace("Sending stream finished after: " + sendBytes + " bytes.");
 		} catch (IOException e) {
@@ -257,6 +343,7 @@ public abstract class HttpServletHelper extends HttpServlet {
 		} catch (IOException e) {
 			//do not care
 		}
+		return sendBytes;
 	}
 
 	protected static void copyStreamAsync(final InputStream in, final OutputStream os, final AsyncContext context) {
@@ -268,6 +355,19 @@ public abstract class HttpServletHelper extends HttpServlet {
 		context.start(r);
 	}
 
+	/**
+	 * Copies the stream to the response asynchronously, adding the bytes sent
+	 * to the renderer in the server metrics.
+	 */
+	protected static void copyStreamAsync(final InputStream in, final OutputStream os, final AsyncContext context, final Renderer renderer) {
+		context.setTimeout(0);
+		Runnable r = () -> {
+			ServerMetrics.addBytesServed(renderer, copyStream(in, os));
+			context.complete();
+		};
+		context.start(r);
+	}
+
 	protected static void respond(HttpServletRequest req, HttpServletResponse resp, String response, int status, String mime) {
 		respond(req, resp, response, status, mime, true);
 	}
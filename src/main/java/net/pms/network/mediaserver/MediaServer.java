@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
+import net.pms.encoders.HlsHelper;
 import net.pms.gui.GuiManager;
 import net.pms.network.configuration.NetworkConfiguration;
 import net.pms.network.configuration.NetworkInterfaceAssociation;
@@ -150,6 +151,7 @@ public class MediaServer {
 			upnpService = null;
 			LOGGER.debug("UPnP service stopped");
 		}
+		HlsHelper.stopSessions();
 		status = ServerStatus.STOPPED;
 		isStarted = false;
 		GuiManager.updateServerStatus();
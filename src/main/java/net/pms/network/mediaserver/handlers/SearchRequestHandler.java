@@ -28,6 +28,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableAudioMetadata;
+import net.pms.database.MediaTableSearchIndex;
 import net.pms.dlna.DidlHelper;
 import net.pms.formats.Format;
 import net.pms.media.audio.metadata.MusicBrainzAlbum;
@@ -131,7 +132,7 @@ public class SearchRequestHandler {
 		String sqlFiles = convertToFilesSql(requestMessage, requestType);
 		for (StoreResource resource : getLibraryResourceFromSQL(renderer, sqlFiles, requestType)) {
 			numberReturned++;
-			dlnaItems.append(DidlHelper.getDidlString(resource));
+			DidlHelper.appendDidlString(dlnaItems, resource);
 		}
 
 		// Build response message
@@ -337,13 +338,47 @@ public class SearchRequestHandler {
 		if ("=".equals(op)) {
 			sb.append(String.format(" %s = '%s' ", getField(property, requestType), val));
 		} else if ("contains".equals(op)) {
-			sb.append(String.format("LOWER(%s) LIKE '%%%s%%'", getField(property, requestType), escapeH2dbSql(val).toLowerCase()));
+			String field = getField(property, requestType);
+			String indexed = getIndexedCondition(field, val);
+			if (indexed != null) {
+				sb.append('(').append(indexed).append(" AND ");
+			}
+			sb.append(String.format("LOWER(%s) LIKE '%%%s%%'", field, escapeH2dbSql(val).toLowerCase()));
+			if (indexed != null) {
+				sb.append(')');
+			}
 		} else {
 			throw new RuntimeException("unknown or unimplemented operator : " + op);
 		}
 		sb.append("");
 	}
 
+	/**
+	 * Resolves a {@code contains} search on an indexed field through the
+	 * search index, so the LIKE is only applied to the matching files.
+	 */
+	private static String getIndexedCondition(String field, String val) {
+		MediaTableSearchIndex.Field indexedField;
+		String fileIdColumn = "A.FILEID";
+		switch (field.trim().toUpperCase()) {
+			case "A.SONGNAME" -> indexedField = MediaTableSearchIndex.Field.SONGNAME;
+			case "A.ARTIST" -> indexedField = MediaTableSearchIndex.Field.ARTIST;
+			case "A.ALBUMARTIST" -> indexedField = MediaTableSearchIndex.Field.ALBUMARTIST;
+			case "A.ALBUM" -> indexedField = MediaTableSearchIndex.Field.ALBUM;
+			case "A.COMPOSER" -> indexedField = MediaTableSearchIndex.Field.COMPOSER;
+			case "A.CONDUCTOR" -> indexedField = MediaTableSearchIndex.Field.CONDUCTOR;
+			case "A.GENRE" -> indexedField = MediaTableSearchIndex.Field.GENRE;
+			case "F.FILENAME" -> {
+				indexedField = MediaTableSearchIndex.Field.FILENAME;
+				fileIdColumn = "F.ID";
+			}
+			default -> {
+				return null;
+			}
+		}
+		return MediaTableSearchIndex.getContainsCondition(fileIdColumn, indexedField, val);
+	}
+
 	private static String escapeH2dbSql(String val) {
 		val = val.replaceAll("'", "''");
 
@@ -28,6 +28,7 @@ import net.pms.PMS;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableAudioMetadata;
 import net.pms.database.MediaTableMusicBrainzReleaseLike;
+import net.pms.database.TableGenerations;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.h2.tools.RunScript;
@@ -65,6 +66,7 @@ public class LikeMusic implements NextcpApiResponseHandler {
 					try (PreparedStatement ps = connection.prepareStatement(sql)) {
 						ps.setString(1, content);
 						ps.executeUpdate();
+						TableGenerations.increment(MediaTableMusicBrainzReleaseLike.TABLE_NAME);
 					} catch (SQLException e) {
 						LOG.warn("error preparing statement", e);
 						response.setResponse("ERROR:" + e.getMessage());
@@ -76,6 +78,7 @@ public class LikeMusic implements NextcpApiResponseHandler {
 					try (PreparedStatement ps = connection.prepareStatement(sql)) {
 						ps.setString(1, content);
 						ps.executeUpdate();
+						TableGenerations.increment(MediaTableMusicBrainzReleaseLike.TABLE_NAME);
 					} catch (SQLException e) {
 						LOG.warn("error preparing statement", e);
 						response.setResponse("ERROR:" + e.getMessage());
@@ -151,6 +154,7 @@ public class LikeMusic implements NextcpApiResponseHandler {
 					throw new RuntimeException("restoring MUSIC_BRAINZ_RELEASE_LIKE table failed", e);
 				}
 				connection.commit();
+				TableGenerations.increment(MediaTableMusicBrainzReleaseLike.TABLE_NAME);
 				LOG.trace("restoring MUSIC_BRAINZ_RELEASE_LIKE table : success");
 			}
 		} else {
@@ -24,6 +24,7 @@ import java.util.List;
 import net.pms.PMS;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableAudioMetadata;
+import net.pms.database.TableGenerations;
 import net.pms.network.mediaserver.handlers.nextcpapi.NextcpApiResponse;
 import net.pms.network.mediaserver.handlers.nextcpapi.NextcpApiResponseHandler;
 import org.apache.commons.lang3.StringUtils;
@@ -93,6 +94,7 @@ public class StarRating implements NextcpApiResponseHandler {
 				case "setrating" -> {
 					RequestVO request = parseSetRatingRequest(content);
 					setDatabaseRatingByMusicbrainzTrackId(connection, request.getStars(), request.getTrackID());
+					TableGenerations.increment(MediaTableAudioMetadata.TABLE_NAME);
 					if (PMS.getConfiguration().isAudioUpdateTag()) {
 						List<String> filenames = getFilenameListByMusicbrainzTrackId(connection, request.getTrackID());
 						for (String filename : filenames) {
@@ -112,6 +114,7 @@ public class StarRating implements NextcpApiResponseHandler {
 					if (NumberUtils.isParsable(request.getTrackID())) {
 						Integer audiotrackId = Integer.valueOf(request.getTrackID());
 						MediaTableAudioMetadata.updateRatingByAudiotrackId(connection, request.getStars(), audiotrackId);
+						TableGenerations.increment(MediaTableAudioMetadata.TABLE_NAME);
 						if (PMS.getConfiguration().isAudioUpdateTag()) {
 							String filename = getFilenameForAudiotrackId(connection, audiotrackId);
 							setRatingInFile(request.getStars(), filename);
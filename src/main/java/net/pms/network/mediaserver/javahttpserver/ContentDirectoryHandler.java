@@ -595,13 +595,13 @@ public class ContentDirectoryHandler implements HttpHandler {
 				}
 
 				if (resource instanceof StoreContainer) {
-					filesData.append(DidlHelper.getDidlString(resource));
+					DidlHelper.appendDidlString(filesData, resource);
 				} else if (resource instanceof StoreItem item && (item.isCompatible() &&
 						(item.getEngine() == null || item.getEngine().isEngineCompatible(renderer)) ||
 						// do not check compatibility of the media for items in the FileTranscodeVirtualFolder because we need
 						// all possible combination not only those supported by renderer because the renderer setting could be wrong.
 						resources.get(0).isInsideTranscodeFolder())) {
-					filesData.append(DidlHelper.getDidlString(resource));
+					DidlHelper.appendDidlString(filesData, resource);
 				} else {
 					minus++;
 				}
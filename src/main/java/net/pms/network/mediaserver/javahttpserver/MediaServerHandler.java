@@ -38,6 +38,7 @@ import net.pms.dlna.DLNAImageInputStream;
 import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.dlna.DlnaHelper;
+import net.pms.dlna.RenderedThumbnailCache;
 import net.pms.dlna.protocolinfo.PanasonicDmpProfiles;
 import net.pms.encoders.HlsHelper;
 import net.pms.encoders.ImageEngine;
@@ -45,6 +46,7 @@ import net.pms.formats.Format;
 import net.pms.formats.v2.SubtitleType;
 import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImagesUtil;
+import net.pms.io.FileRangeInputStream;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.media.MediaInfo;
@@ -64,6 +66,7 @@ import net.pms.store.StoreResource;
 import net.pms.util.ByteRange;
 import net.pms.util.FullyPlayed;
 import net.pms.util.Range;
+import net.pms.util.ServerMetrics;
 import net.pms.util.StringUtil;
 import net.pms.util.SubtitleUtils;
 import net.pms.util.TimeRange;
@@ -279,12 +282,17 @@ public class MediaServerHandler implements HttpHandler {
 				byte[] buf = new byte[BUFFER_SIZE];
 				int length;
 				try (OutputStream outputStream = exchange.getResponseBody()) {
-					int lengthSent = 0;
+					long lengthSent = 0;
 					try {
-						while ((length = inputStream.read(buf)) > 0) {
-							outputStream.write(buf, 0, length);
-							outputStream.flush();
-							lengthSent += length;
+						if (inputStream instanceof FileRangeInputStream fileRange) {
+							// Untranscoded file, read it in large blocks from its channel
+							lengthSent = fileRange.transferTo(outputStream);
+						} else {
+							while ((length = inputStream.read(buf)) > 0) {
+								outputStream.write(buf, 0, length);
+								outputStream.flush();
+								lengthSent += length;
+							}
 						}
 					} catch (IOException ioe) {
 						//client close the connection
@@ -295,6 +303,7 @@ public class MediaServerHandler implements HttpHandler {
 						//client close the connection and insufficient bytes written to stream
 					}
 					LOGGER.trace("OutputStream({}) - bytes sent: {}/{}", outputStream.getClass().getName(), lengthSent, contentLength);
+					ServerMetrics.addBytesServed(renderer, lengthSent);
 				}
 			}
 			try {
@@ -721,11 +730,21 @@ public class MediaServerHandler implements HttpHandler {
 			filterChain = new BufferedImageFilterChain(FullyPlayed.getOverlayFilter());
 		}
 		filterChain = resource.addFlagFilters(filterChain);
-		inputStream = thumbInputStream.transcode(
+		DLNAThumbnailInputStream transcodedInputStream = thumbInputStream.transcode(
 				imageProfile,
 				renderer.isThumbnailPadding(),
 				filterChain
 		);
+		inputStream = transcodedInputStream;
+		if (transcodedInputStream != null && transcodedInputStream.getETag() != null) {
+			exchange.getResponseHeaders().set("ETag", transcodedInputStream.getETag());
+			if (RenderedThumbnailCache.isNotModified(exchange.getRequestHeaders().getFirst("If-None-Match"), transcodedInputStream.getETag())) {
+				exchange.getResponseHeaders().set("Server", PMS.get().getServerName());
+				exchange.sendResponseHeaders(304, -1);
+				exchange.close();
+				return;
+			}
+		}
 		if (contentFeatures != null) {
 			if (CONFIGURATION.isUpnpJupnpDidl()) {
 				exchange.getResponseHeaders().set("ContentFeatures.DLNA.ORG",
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import net.pms.PMS;
 import net.pms.network.NetworkDeviceFilter;
+import net.pms.util.ServerMetrics;
 
 public class RequestHandler implements HttpHandler {
 
@@ -36,15 +37,23 @@ public class RequestHandler implements HttpHandler {
 		}
 
 		String uri = exchange.getRequestURI().getPath();
+		HttpHandler handler;
 		if (uri.startsWith("/ums/")) {
-			new MediaServerHandler().handle(exchange);
+			handler = new MediaServerHandler();
 		} else if (uri.startsWith("/api/")) {
-			new NextcpApiHandler().handle(exchange);
+			handler = new NextcpApiHandler();
 		} else if (uri.startsWith("/dev/")) {
 			//This is the contendirectory service that can (should) be handled directly by JUPnP
-			new ContentDirectoryHandler().handle(exchange);
+			handler = new ContentDirectoryHandler();
 		} else {
 			sendErrorResponse(exchange, 404);
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			handler.handle(exchange);
+		} finally {
+			ServerMetrics.recordHttpRequest(handler.getClass().getSimpleName(), System.nanoTime() - start);
 		}
 	}
 
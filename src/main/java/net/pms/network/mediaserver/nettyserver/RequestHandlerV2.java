@@ -38,6 +38,7 @@ import net.pms.network.mediaserver.MediaServerRequest;
 import net.pms.renderers.ConnectedRenderers;
 import net.pms.renderers.Renderer;
 import net.pms.service.StartStopListenerDelegate;
+import net.pms.util.ServerMetrics;
 import net.pms.util.StringUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -187,6 +188,8 @@ public class RequestHandlerV2 extends SimpleChannelUpstreamHandler {
 					request.setTransferMode(headerLine.substring(headerLine.toLowerCase().indexOf("transfermode.dlna.org:") + 22).trim());
 				} else if (headerLine.toLowerCase().contains("getcontentfeatures.dlna.org:")) {
 					request.setContentFeatures(headerLine.substring(headerLine.toLowerCase().indexOf("getcontentfeatures.dlna.org:") + 28).trim());
+				} else if (temp.equalsIgnoreCase("IF-NONE-MATCH:")) {
+					request.setIfNoneMatch(headers.get(name));
 				} else if (headerLine.toLowerCase().contains("getmediainfo.sec:")) {
 					request.setSamsungMediaInfo(headerLine.substring(headerLine.toLowerCase().indexOf("getmediainfo.sec:") + 17).trim());
 				} else {
@@ -374,6 +377,7 @@ public class RequestHandlerV2 extends SimpleChannelUpstreamHandler {
 			ctx.setAttachment(startStopListenerDelegate);
 		}
 
+		long start = System.nanoTime();
 		try {
 			request.answer(response, event, close, startStopListenerDelegate);
 		} catch (IOException e1) {
@@ -386,6 +390,8 @@ public class RequestHandlerV2 extends SimpleChannelUpstreamHandler {
 			if (startStopListenerDelegate != null) {
 				startStopListenerDelegate.stop();
 			}
+		} finally {
+			ServerMetrics.recordHttpRequest(RequestV2.class.getSimpleName(), System.nanoTime() - start);
 		}
 	}
 
@@ -51,12 +51,14 @@ import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.dlna.DidlHelper;
 import net.pms.dlna.DlnaHelper;
+import net.pms.dlna.RenderedThumbnailCache;
 import net.pms.encoders.HlsHelper;
 import net.pms.encoders.ImageEngine;
 import net.pms.formats.Format;
 import net.pms.formats.v2.SubtitleType;
 import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImagesUtil;
+import net.pms.io.FileRangeInputStream;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.media.MediaInfo;
@@ -83,6 +85,7 @@ import net.pms.store.container.MediaLibrary;
 import net.pms.store.container.PlaylistFolder;
 import net.pms.util.FullyPlayed;
 import net.pms.util.Range;
+import net.pms.util.ServerMetrics;
 import net.pms.util.StringUtil;
 import net.pms.util.SubtitleUtils;
 import net.pms.util.TimeRange;
@@ -93,6 +96,7 @@ import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.DefaultFileRegion;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpMethod;
@@ -144,6 +148,7 @@ public class RequestV2 extends HTTPResource {
 	private Renderer renderer;
 	private String transferMode;
 	private String contentFeatures;
+	private String ifNoneMatch;
 	private String samsungMediaInfo;
 	private final TimeRange range = new TimeRange();
 
@@ -202,6 +207,14 @@ public class RequestV2 extends HTTPResource {
 		this.contentFeatures = contentFeatures;
 	}
 
+	public String getIfNoneMatch() {
+		return ifNoneMatch;
+	}
+
+	public void setIfNoneMatch(String ifNoneMatch) {
+		this.ifNoneMatch = ifNoneMatch;
+	}
+
 	public String getSamsungMediaInfo() {
 		return samsungMediaInfo;
 	}
@@ -357,10 +370,19 @@ public class RequestV2 extends HTTPResource {
 						filterChain = new BufferedImageFilterChain(FullyPlayed.getOverlayFilter());
 					}
 					filterChain = resource.addFlagFilters(filterChain);
-					inputStream = thumbInputStream.transcode(imageProfile,
+					DLNAThumbnailInputStream transcodedInputStream = thumbInputStream.transcode(imageProfile,
 							renderer != null && renderer.isThumbnailPadding(),
 							filterChain
 					);
+					inputStream = transcodedInputStream;
+					if (transcodedInputStream != null && transcodedInputStream.getETag() != null) {
+						output.headers().set(HttpHeaders.Names.ETAG, transcodedInputStream.getETag());
+						if (RenderedThumbnailCache.isNotModified(ifNoneMatch, transcodedInputStream.getETag())) {
+							// The renderer already has it, only send the headers
+							output.setStatus(HttpResponseStatus.NOT_MODIFIED);
+							inputStream = null;
+						}
+					}
 					if (contentFeatures != null) {
 						if (configuration.isUpnpJupnpDidl()) {
 							output.headers().set("ContentFeatures.DLNA.ORG",
@@ -775,8 +797,15 @@ public class RequestV2 extends HTTPResource {
 				future = event.getChannel().write(output);
 
 				if (lowRange != MediaInfo.ENDFILE_POS && !HttpMethod.HEAD.equals(method)) {
-					// Send the response body to the client in chunks.
-					ChannelFuture chunkWriteFuture = event.getChannel().write(new ChunkedStream(inputStream, BUFFER_SIZE));
+					final Object body;
+					if (inputStream instanceof FileRangeInputStream fileRange) {
+						// Untranscoded file, let the kernel send the range (sendfile)
+						body = new DefaultFileRegion(fileRange.getChannel(), fileRange.getPosition(), fileRange.getRemaining());
+					} else {
+						// Send the response body to the client in chunks.
+						body = new ChunkedStream(inputStream, BUFFER_SIZE);
+					}
+					ChannelFuture chunkWriteFuture = event.getChannel().write(body);
 
 					// Add a listener to clean up after sending the entire response body.
 					final InputStream finalInputStream = inputStream;
@@ -786,6 +815,11 @@ public class RequestV2 extends HTTPResource {
 						} catch (IOException e) {
 							LOGGER.error("Caught exception", e);
 						}
+						if (body instanceof ChunkedStream chunkedStream) {
+							ServerMetrics.addBytesServed(renderer, chunkedStream.getTransferredBytes());
+						} else if (future1.isSuccess()) {
+							ServerMetrics.addBytesServed(renderer, ((DefaultFileRegion) body).getCount());
+						}
 						// Always close the channel after the response is sent because of
 						// a freeze at the end of video when the channel is not closed.
 						future1.getChannel().close();
@@ -813,7 +847,9 @@ public class RequestV2 extends HTTPResource {
 			} else {
 				// No response data and no input stream. Seems we are merely serving up headers.
 				output.headers().set(HttpHeaders.Names.CONTENT_LENGTH, "0");
-				output.setStatus(HttpResponseStatus.NO_CONTENT);
+				if (!HttpResponseStatus.NOT_MODIFIED.equals(output.getStatus())) {
+					output.setStatus(HttpResponseStatus.NO_CONTENT);
+				}
 
 				// Send the response headers to the client.
 				future = event.getChannel().write(output);
@@ -1132,13 +1168,13 @@ public class RequestV2 extends HTTPResource {
 				}
 
 				if (resource instanceof StoreContainer) {
-					filesData.append(DidlHelper.getDidlString(resource));
+					DidlHelper.appendDidlString(filesData, resource);
 				} else if (resource instanceof StoreItem item && (item.isCompatible() &&
 						(item.getEngine() == null || item.getEngine().isEngineCompatible(renderer)) ||
 						// do not check compatibility of the media for items in the FileTranscodeVirtualFolder because we need
 						// all possible combination not only those supported by renderer because the renderer setting could be wrong.
 						resources.get(0).isInsideTranscodeFolder())) {
-					filesData.append(DidlHelper.getDidlString(resource));
+					DidlHelper.appendDidlString(filesData, resource);
 				} else {
 					minus++;
 				}
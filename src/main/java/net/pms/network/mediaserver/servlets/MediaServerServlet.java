@@ -36,6 +36,7 @@ import net.pms.dlna.DLNAImageInputStream;
 import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.dlna.DlnaHelper;
+import net.pms.dlna.RenderedThumbnailCache;
 import net.pms.dlna.protocolinfo.PanasonicDmpProfiles;
 import net.pms.encoders.HlsHelper;
 import net.pms.encoders.ImageEngine;
@@ -268,7 +269,7 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 		if (writeStream && !HEAD.equalsIgnoreCase(req.getMethod())) {
 			// Send the response body to the client in chunks.
 			OutputStream os = new BufferedOutputStream(resp.getOutputStream(), BUFFER_SIZE);
-			copyStreamAsync(inputStream, os, async);
+			copyStreamAsync(inputStream, os, async, renderer);
 		} else {
 			try {
 				inputStream.close();
@@ -671,11 +672,20 @@ public class MediaServerServlet extends MediaServerHttpServlet {
 			filterChain = new BufferedImageFilterChain(FullyPlayed.getOverlayFilter());
 		}
 		filterChain = resource.addFlagFilters(filterChain);
-		inputStream = thumbInputStream.transcode(
+		DLNAThumbnailInputStream transcodedInputStream = thumbInputStream.transcode(
 				imageProfile,
 				renderer.isThumbnailPadding(),
 				filterChain
 		);
+		inputStream = transcodedInputStream;
+		if (transcodedInputStream != null && transcodedInputStream.getETag() != null) {
+			resp.setHeader("ETag", transcodedInputStream.getETag());
+			if (RenderedThumbnailCache.isNotModified(req.getHeader("If-None-Match"), transcodedInputStream.getETag())) {
+				resp.setHeader("Server", PMS.get().getServerName());
+				resp.setStatus(304);
+				return;
+			}
+		}
 		if (contentFeatures != null) {
 			if (CONFIGURATION.isUpnpJupnpDidl()) {
 				resp.setHeader("ContentFeatures.DLNA.ORG",
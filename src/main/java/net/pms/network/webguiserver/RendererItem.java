@@ -274,7 +274,9 @@ public class RendererItem implements IRendererGuiListener {
 		if (SseApiServlet.hasHomeServerSentEvents()) {
 			JsonObject result = toJsonObject();
 			result.addProperty("action", action);
-			SseApiServlet.broadcastHomeMessage(result.toString());
+			// Only the last state of a renderer is needed
+			String key = ACTION_UPDATE.equals(action) ? "renderer_update_" + id : null;
+			SseApiServlet.broadcastHomeMessage(key, result.toString());
 		}
 	}
 
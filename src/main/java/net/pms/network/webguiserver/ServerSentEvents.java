@@ -19,19 +19,40 @@ package net.pms.network.webguiserver;
 import jakarta.servlet.AsyncContext;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import net.pms.network.IServerSentEvents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A Server Sent Events stream.
+ *
+ * Messages are queued and sent in batches by the {@link ServerSentEventsHub},
+ * so sending never blocks. Messages sent with a key replace the pending
+ * message with the same key. When a slow client lets too many messages pile
+ * up, the oldest droppable ones, like log lines, are dropped. If the other
+ * messages still pile up, the client is stalled and the stream is closed, so
+ * that it reconnects and reloads its state.
+ */
 public class ServerSentEvents implements IServerSentEvents {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ServerSentEvents.class);
+	private static final int MAX_PENDING_MESSAGES = 1000;
 
 	private final Object osLock = new Object();
 	private final AsyncContext context;
 	private final Runnable callback;
-	private OutputStream os;
-	private Thread pingThread;
+	private final AtomicBoolean flushing = new AtomicBoolean();
+	// Both guarded by pending
+	private final Map<Object, PendingMessage> pending = new LinkedHashMap<>();
+	private int dropped;
+	private boolean overflowed;
+	private volatile long lastSent;
+	private volatile OutputStream os;
 
 	public ServerSentEvents(AsyncContext context) {
 		this(context, null);
@@ -59,12 +80,69 @@ public class ServerSentEvents implements IServerSentEvents {
 	}
 
 	public boolean sendMessage(String message, boolean log) {
-		String response = "event: message\n";
-		response += "data: " + message + "\n\n";
+		return sendMessage(null, message, log);
+	}
+
+	/**
+	 * Queues a message.
+	 *
+	 * @param key the key of the message, a pending message with the same key
+	 *            is replaced, or {@code null} to always send the message.
+	 * @param message the message.
+	 * @param log whether to log the message.
+	 * @return whether the stream is opened.
+	 */
+	public boolean sendMessage(String key, String message, boolean log) {
+		return sendMessage(key, message, log, false);
+	}
+
+	/**
+	 * Queues a message.
+	 *
+	 * @param key the key of the message, a pending message with the same key
+	 *            is replaced, or {@code null} to always send the message.
+	 * @param message the message.
+	 * @param log whether to log the message.
+	 * @param droppable whether the message may be dropped when the client is
+	 *            too slow.
+	 * @return whether the stream is opened.
+	 */
+	public boolean sendMessage(String key, String message, boolean log, boolean droppable) {
+		if (!isOpened()) {
+			return false;
+		}
 		if (log) {
 			LOGGER.trace("ServerSentEvents send message: {}", message);
 		}
-		return send(response);
+		boolean overflow = false;
+		synchronized (pending) {
+			if (overflowed) {
+				return false;
+			}
+			Object messageKey = key != null ? key : new Object();
+			// Replaced messages move to the end, after the ones they follow
+			pending.remove(messageKey);
+			pending.put(messageKey, new PendingMessage(message, droppable));
+			Iterator<PendingMessage> iterator = pending.values().iterator();
+			while (pending.size() > MAX_PENDING_MESSAGES && iterator.hasNext()) {
+				if (iterator.next().droppable) {
+					iterator.remove();
+					dropped++;
+				}
+			}
+			if (pending.size() > MAX_PENDING_MESSAGES) {
+				LOGGER.debug("ServerSentEvents client is not reading its messages, closing the stream");
+				pending.clear();
+				overflowed = true;
+				overflow = true;
+			}
+		}
+		if (overflow) {
+			// A writer may be blocked on this stream, don't wait for it here
+			ServerSentEventsHub.close(this);
+			return false;
+		}
+		return true;
 	}
 
 	@Override
@@ -80,6 +158,7 @@ public class ServerSentEvents implements IServerSentEvents {
 					context.complete();
 				}
 				os = null;
+				ServerSentEventsHub.unregister(this);
 				if (callback != null) {
 					new Thread(callback, "ServerSentEvents callback").start();
 				}
@@ -87,66 +166,92 @@ public class ServerSentEvents implements IServerSentEvents {
 		}
 	}
 
+	/**
+	 * @param pingBefore the time before which the last frame is old enough
+	 *            to send a ping.
+	 * @return whether there are pending messages or a ping to send.
+	 */
+	boolean needFlush(long pingBefore) {
+		if (lastSent < pingBefore) {
+			return true;
+		}
+		synchronized (pending) {
+			return !pending.isEmpty();
+		}
+	}
+
+	/**
+	 * @return whether the flush can start, {@code false} if the previous one
+	 *         is still writing.
+	 */
+	boolean startFlush() {
+		return flushing.compareAndSet(false, true);
+	}
+
+	/**
+	 * Sends the pending messages as one frame, or a ping if there is none.
+	 */
+	void flush() {
+		try {
+			StringBuilder frame = new StringBuilder();
+			int droppedMessages;
+			synchronized (pending) {
+				for (PendingMessage message : pending.values()) {
+					frame.append("event: message\n");
+					frame.append("data: ").append(message.text).append("\n\n");
+				}
+				pending.clear();
+				droppedMessages = dropped;
+				dropped = 0;
+			}
+			if (droppedMessages > 0) {
+				LOGGER.debug("ServerSentEvents dropped {} messages for a slow client", droppedMessages);
+			}
+			if (frame.isEmpty()) {
+				frame.append("event: ping\n");
+				frame.append("data: ").append(new Timestamp(System.currentTimeMillis())).append("\n\n");
+			}
+			send(frame.toString().getBytes(StandardCharsets.UTF_8));
+		} finally {
+			flushing.set(false);
+		}
+	}
+
 	private void addEventStream(OutputStream os) {
 		synchronized (osLock) {
 			this.os = os;
 		}
 		LOGGER.debug("ServerSentEvents OutputStream was set");
-		startPing();
-	}
-
-	private boolean send(String response) {
-		return send(response.getBytes());
+		lastSent = System.currentTimeMillis();
+		ServerSentEventsHub.register(this);
 	}
 
 	private boolean send(byte[] response) {
 		try {
-			if (isOpened()) {
-				synchronized (osLock) {
-					os.write(response);
-					os.flush();
+			synchronized (osLock) {
+				if (os == null) {
+					return false;
 				}
-				return true;
+				os.write(response);
+				os.flush();
 			}
+			lastSent = System.currentTimeMillis();
+			return true;
 		} catch (IOException ex) {
 			LOGGER.debug("ServerSentEvents OutputStream seems closed");
-			stopPing();
 			close();
 		}
 		return false;
 	}
 
-	private void startPing() {
-		if (pingThread != null && pingThread.isAlive()) {
-			LOGGER.trace("ServerSentEvents pingThread already running");
-			return;
-		}
-		Runnable rPing = () -> {
-			while (isOpened()) {
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					close();
-					Thread.currentThread().interrupt();
-					return;
-				}
-				sendPing();
-			}
-		};
-		pingThread = new Thread(rPing, "ServerSentEvents ping");
-		pingThread.start();
-	}
+	private static class PendingMessage {
+		private final String text;
+		private final boolean droppable;
 
-	private void stopPing() {
-		if (pingThread != null) {
-			pingThread.interrupt();
+		private PendingMessage(String text, boolean droppable) {
+			this.text = text;
+			this.droppable = droppable;
 		}
 	}
 
-	private boolean sendPing() {
-		String response = "event: ping\n";
-		response += "data: " + new Timestamp(System.currentTimeMillis()) + "\n\n";
-		return send(response);
-	}
-
 }
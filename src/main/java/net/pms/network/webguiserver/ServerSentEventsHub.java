@@ -0,0 +1,94 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.webguiserver;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the queued messages and the pings of all the Server Sent Events
+ * streams.
+ *
+ * A single scheduler checks the streams a few times per second. The pending
+ * messages of a stream are then written as one frame on a shared pool of
+ * writers, so the threads producing the messages never wait for the clients,
+ * and a slow client only holds one writer.
+ */
+class ServerSentEventsHub {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ServerSentEventsHub.class);
+	private static final long FLUSH_INTERVAL_MS = 100;
+	private static final long PING_INTERVAL_MS = 1000;
+	private static final Set<ServerSentEvents> STREAMS = ConcurrentHashMap.newKeySet();
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+		new SimpleThreadFactory("ServerSentEvents hub")
+	);
+	private static final ExecutorService WRITERS = Executors.newCachedThreadPool(
+		new SimpleThreadFactory("ServerSentEvents writer", "ServerSentEvents writers")
+	);
+
+	static {
+		SCHEDULER.scheduleWithFixedDelay(ServerSentEventsHub::flushAll, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private ServerSentEventsHub() {
+	}
+
+	static void register(ServerSentEvents sse) {
+		STREAMS.add(sse);
+	}
+
+	static void unregister(ServerSentEvents sse) {
+		STREAMS.remove(sse);
+	}
+
+	/**
+	 * Closes a stream on a writer, as closing waits for the frame being
+	 * written to the client.
+	 */
+	static void close(ServerSentEvents sse) {
+		WRITERS.execute(sse::close);
+	}
+
+	private static void flushAll() {
+		try {
+			long now = System.currentTimeMillis();
+			for (ServerSentEvents sse : STREAMS) {
+				if (!sse.isOpened()) {
+					STREAMS.remove(sse);
+				} else if (sse.needFlush(now - PING_INTERVAL_MS) && sse.startFlush()) {
+					WRITERS.execute(sse::flush);
+				}
+			}
+		} catch (RuntimeException e) {
+			// An exception would cancel the next runs
+			LOGGER.error("Unexpected error while sending the Server Sent Events: {}", e.getMessage());
+			LOGGER.trace("", e);
+		}
+	}
+
+}
@@ -31,6 +31,7 @@ import net.pms.network.webguiserver.servlets.ActionsApiServlet;
 import net.pms.network.webguiserver.servlets.AuthApiServlet;
 import net.pms.network.webguiserver.servlets.I18nApiServlet;
 import net.pms.network.webguiserver.servlets.LogsApiServlet;
+import net.pms.network.webguiserver.servlets.MetricsApiServlet;
 import net.pms.network.webguiserver.servlets.PlayerApiServlet;
 import net.pms.network.webguiserver.servlets.RenderersApiServlet;
 import net.pms.network.webguiserver.servlets.SettingsApiServlet;
@@ -73,6 +74,7 @@ public class WebGuiServerHttpServer extends WebGuiServer {
 				container.createServlet(AuthApiServlet.class);
 				container.createServlet(I18nApiServlet.class);
 				container.createServlet(LogsApiServlet.class);
+				container.createServlet(MetricsApiServlet.class);
 				container.createServlet(PlayerApiServlet.class);
 				container.createServlet(RenderersApiServlet.class);
 				container.createServlet(SettingsApiServlet.class);
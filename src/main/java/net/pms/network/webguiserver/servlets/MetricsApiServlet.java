@@ -0,0 +1,70 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.webguiserver.servlets;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import net.pms.iam.Account;
+import net.pms.iam.AuthService;
+import net.pms.iam.Permissions;
+import net.pms.network.webguiserver.GuiHttpServlet;
+import net.pms.util.ServerMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exposes the server metrics as JSON, or in the Prometheus text format when
+ * requested with {@code ?format=prometheus}.
+ */
+@WebServlet(name = "MetricsApiServlet", urlPatterns = {"/v1/api/metrics"}, displayName = "Metrics Api Servlet")
+public class MetricsApiServlet extends GuiHttpServlet {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MetricsApiServlet.class);
+	private static final String PROMETHEUS_MIME = "text/plain; version=0.0.4; charset=utf-8";
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		try {
+			var path = req.getServletPath();
+			if (path.equals("/")) {
+				Account account = AuthService.getAccountLoggedIn(req);
+				if (account == null) {
+					respondUnauthorized(req, resp);
+					return;
+				}
+				if (!account.havePermission(Permissions.SETTINGS_VIEW)) {
+					respondForbidden(req, resp);
+					return;
+				}
+				if ("prometheus".equals(req.getParameter("format"))) {
+					respond(req, resp, ServerMetrics.toPrometheus(), 200, PROMETHEUS_MIME, false);
+				} else {
+					respond(req, resp, ServerMetrics.toJson().toString(), 200, "application/json", false);
+				}
+			} else {
+				LOGGER.trace("MetricsApiServlet request not available : {}", path);
+				respondNotFound(req, resp);
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("RuntimeException in MetricsApiServlet: {}", e.getMessage());
+			respondInternalServerError(req, resp);
+		}
+	}
+
+}
@@ -29,6 +29,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
 import net.pms.PMS;
 import net.pms.iam.Account;
 import net.pms.iam.AccountService;
@@ -36,6 +37,7 @@ import net.pms.iam.AuthService;
 import net.pms.iam.Permissions;
 import net.pms.network.webguiserver.GuiHttpServlet;
 import net.pms.network.webguiserver.ServerSentEvents;
+import net.pms.util.ServerMetrics;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,11 +47,11 @@ public class SseApiServlet extends GuiHttpServlet {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(SseApiServlet.class);
 	private static final Map<Integer, ArrayList<ServerSentEvents>> SSE_INSTANCES = new HashMap<>();
-	private static final List<ServerSentEvents> SSE_ABOUT_INSTANCES = new ArrayList<>();
-	private static final List<ServerSentEvents> SSE_HOME_INSTANCES = new ArrayList<>();
-	private static final List<ServerSentEvents> SSE_LOGS_INSTANCES = new ArrayList<>();
-	private static final List<ServerSentEvents> SSE_SETTINGS_INSTANCES = new ArrayList<>();
-	private static final List<ServerSentEvents> SSE_SHARED_INSTANCES = new ArrayList<>();
+	private static final List<ServerSentEvents> SSE_ABOUT_INSTANCES = new CopyOnWriteArrayList<>();
+	private static final List<ServerSentEvents> SSE_HOME_INSTANCES = new CopyOnWriteArrayList<>();
+	private static final List<ServerSentEvents> SSE_LOGS_INSTANCES = new CopyOnWriteArrayList<>();
+	private static final List<ServerSentEvents> SSE_SETTINGS_INSTANCES = new CopyOnWriteArrayList<>();
+	private static final List<ServerSentEvents> SSE_SHARED_INSTANCES = new CopyOnWriteArrayList<>();
 
 	@Override
 	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
@@ -93,29 +95,19 @@ public class SseApiServlet extends GuiHttpServlet {
 				if (sseType != null) {
 					switch (sseType) {
 						case WebGuiServlet.BASE_PATH -> {
-							synchronized (SSE_HOME_INSTANCES) {
-								SSE_HOME_INSTANCES.add(sse);
-							}
+							SSE_HOME_INSTANCES.add(sse);
 						}
 						case WebGuiServlet.LOGS_BASE_PATH -> {
-							synchronized (SSE_LOGS_INSTANCES) {
-								SSE_LOGS_INSTANCES.add(sse);
-							}
+							SSE_LOGS_INSTANCES.add(sse);
 						}
 						case WebGuiServlet.SETTINGS_BASE_PATH -> {
-							synchronized (SSE_SETTINGS_INSTANCES) {
-								SSE_SETTINGS_INSTANCES.add(sse);
-							}
+							SSE_SETTINGS_INSTANCES.add(sse);
 						}
 						case WebGuiServlet.SHARED_BASE_PATH -> {
-							synchronized (SSE_SHARED_INSTANCES) {
-								SSE_SHARED_INSTANCES.add(sse);
-							}
+							SSE_SHARED_INSTANCES.add(sse);
 						}
 						case WebGuiServlet.ABOUT_BASE_PATH -> {
-							synchronized (SSE_ABOUT_INSTANCES) {
-								SSE_ABOUT_INSTANCES.add(sse);
-							}
+							SSE_ABOUT_INSTANCES.add(sse);
 						}
 						default -> {
 							//nothing to do
@@ -133,21 +125,15 @@ public class SseApiServlet extends GuiHttpServlet {
 	}
 
 	public static boolean hasHomeServerSentEvents() {
-		synchronized (SSE_HOME_INSTANCES) {
-			return !SSE_HOME_INSTANCES.isEmpty();
-		}
+		return !SSE_HOME_INSTANCES.isEmpty();
 	}
 
 	public static boolean hasAboutServerSentEvents() {
-		synchronized (SSE_ABOUT_INSTANCES) {
-			return !SSE_ABOUT_INSTANCES.isEmpty();
-		}
+		return !SSE_ABOUT_INSTANCES.isEmpty();
 	}
 
 	public static boolean hasLogsServerSentEvents() {
-		synchronized (SSE_LOGS_INSTANCES) {
-			return !SSE_LOGS_INSTANCES.isEmpty();
-		}
+		return !SSE_LOGS_INSTANCES.isEmpty();
 	}
 
 	/**
@@ -165,16 +151,18 @@ public class SseApiServlet extends GuiHttpServlet {
 	 * @param message
 	 */
 	public static void broadcastSettingsMessage(String message) {
-		synchronized (SSE_SETTINGS_INSTANCES) {
-			for (Iterator<ServerSentEvents> sseIterator = SSE_SETTINGS_INSTANCES.iterator(); sseIterator.hasNext();) {
-				ServerSentEvents sse = sseIterator.next();
-				if (!sse.isOpened()) {
-					sseIterator.remove();
-				} else {
-					sse.sendMessage(message);
-				}
-			}
-		}
+		broadcastSettingsMessage(null, message);
+	}
+
+	/**
+	 * Broadcast a message to settings page Server Sent Events Streams,
+	 * replacing the pending message with the same key.
+	 *
+	 * @param key
+	 * @param message
+	 */
+	public static void broadcastSettingsMessage(String key, String message) {
+		broadcast(SSE_SETTINGS_INSTANCES, key, message, true);
 	}
 
 	/**
@@ -183,16 +171,7 @@ public class SseApiServlet extends GuiHttpServlet {
 	 * @param message
 	 */
 	public static void broadcastSharedMessage(String message) {
-		synchronized (SSE_SHARED_INSTANCES) {
-			for (Iterator<ServerSentEvents> sseIterator = SSE_SHARED_INSTANCES.iterator(); sseIterator.hasNext();) {
-				ServerSentEvents sse = sseIterator.next();
-				if (!sse.isOpened()) {
-					sseIterator.remove();
-				} else {
-					sse.sendMessage(message);
-				}
-			}
-		}
+		broadcast(SSE_SHARED_INSTANCES, null, message, true);
 	}
 
 	/**
@@ -201,16 +180,18 @@ public class SseApiServlet extends GuiHttpServlet {
 	 * @param message
 	 */
 	public static void broadcastAboutMessage(String message) {
-		synchronized (SSE_ABOUT_INSTANCES) {
-			for (Iterator<ServerSentEvents> sseIterator = SSE_ABOUT_INSTANCES.iterator(); sseIterator.hasNext();) {
-				ServerSentEvents sse = sseIterator.next();
-				if (!sse.isOpened()) {
-					sseIterator.remove();
-				} else {
-					sse.sendMessage(message);
-				}
-			}
-		}
+		broadcastAboutMessage(null, message);
+	}
+
+	/**
+	 * Broadcast a message to about page Server Sent Events Streams, replacing
+	 * the pending message with the same key.
+	 *
+	 * @param key
+	 * @param message
+	 */
+	public static void broadcastAboutMessage(String key, String message) {
+		broadcast(SSE_ABOUT_INSTANCES, key, message, true);
 	}
 
 	/**
@@ -219,16 +200,18 @@ public class SseApiServlet extends GuiHttpServlet {
 	 * @param message
 	 */
 	public static void broadcastHomeMessage(String message) {
-		synchronized (SSE_HOME_INSTANCES) {
-			for (Iterator<ServerSentEvents> sseIterator = SSE_HOME_INSTANCES.iterator(); sseIterator.hasNext();) {
-				ServerSentEvents sse = sseIterator.next();
-				if (!sse.isOpened()) {
-					sseIterator.remove();
-				} else {
-					sse.sendMessage(message);
-				}
-			}
-		}
+		broadcastHomeMessage(null, message);
+	}
+
+	/**
+	 * Broadcast a message to home page Server Sent Events Streams, replacing
+	 * the pending message with the same key.
+	 *
+	 * @param key
+	 * @param message
+	 */
+	public static void broadcastHomeMessage(String key, String message) {
+		broadcast(SSE_HOME_INSTANCES, key, message, true);
 	}
 
 	/**
@@ -237,20 +220,34 @@ public class SseApiServlet extends GuiHttpServlet {
 	 * @param message
 	 */
 	public static void broadcastLogsMessage(String message) {
-		synchronized (SSE_LOGS_INSTANCES) {
-			for (Iterator<ServerSentEvents> sseIterator = SSE_LOGS_INSTANCES.iterator(); sseIterator.hasNext();) {
-				ServerSentEvents sse = sseIterator.next();
-				if (!sse.isOpened()) {
-					sseIterator.remove();
-				} else {
-					//never log a log message
-					sse.sendMessage(message, false);
-				}
-			}
+		//never log a log message, log lines can be dropped for a slow client
+		broadcast(SSE_LOGS_INSTANCES, null, message, false, true);
+	}
+
+	private static void broadcast(List<ServerSentEvents> instances, String key, String message, boolean log) {
+		broadcast(instances, key, message, log, false);
+	}
+
+	private static void broadcast(List<ServerSentEvents> instances, String key, String message, boolean log, boolean droppable) {
+		instances.removeIf(sse -> !sse.isOpened());
+		for (ServerSentEvents sse : instances) {
+			sse.sendMessage(key, message, log, droppable);
 		}
 	}
 
 	public static void broadcastMessage(String message, boolean log) {
+		broadcastMessage(null, message, log);
+	}
+
+	/**
+	 * Broadcast a message to all Server Sent Events Streams, replacing the
+	 * pending message with the same key.
+	 *
+	 * @param key
+	 * @param message
+	 * @param log
+	 */
+	public static void broadcastMessage(String key, String message, boolean log) {
 		synchronized (SSE_INSTANCES) {
 			for (Iterator<Entry<Integer, ArrayList<ServerSentEvents>>> ssesIterator = SSE_INSTANCES.entrySet().iterator(); ssesIterator.hasNext();) {
 				Entry<Integer, ArrayList<ServerSentEvents>> entry = ssesIterator.next();
@@ -259,7 +256,7 @@ public class SseApiServlet extends GuiHttpServlet {
 					if (!sse.isOpened()) {
 						sseIterator.remove();
 					} else {
-						sse.sendMessage(message, log);
+						sse.sendMessage(key, message, log);
 					}
 				}
 				if (entry.getValue().isEmpty()) {
@@ -361,7 +358,7 @@ public class SseApiServlet extends GuiHttpServlet {
 	}
 
 	public static void setReloadable(boolean value) {
-		broadcastMessage("{\"action\":\"set_reloadable\",\"value\":" + (value ? "true" : "false") + "}");
+		broadcastMessage("set_reloadable", "{\"action\":\"set_reloadable\",\"value\":" + (value ? "true" : "false") + "}", true);
 	}
 
 	public static void setConfigurationChanged(String key) {
@@ -373,7 +370,11 @@ public class SseApiServlet extends GuiHttpServlet {
 	public static void setMemoryUsage(int maxMemory, int usedMemory, int dbCacheMemory, int bufferMemory) {
 		if (hasAboutServerSentEvents()) {
 			String json = "{\"action\":\"update_memory\",\"max\":" + maxMemory + ",\"used\":" + usedMemory + ",\"dbcache\":" + dbCacheMemory + ",\"buffer\":" + bufferMemory + "}";
-			broadcastAboutMessage(json);
+			broadcastAboutMessage("update_memory", json);
+			JsonObject metrics = new JsonObject();
+			metrics.addProperty("action", "update_metrics");
+			metrics.add("metrics", ServerMetrics.toJson());
+			broadcastAboutMessage("update_metrics", metrics.toString());
 		}
 	}
 
@@ -387,14 +388,14 @@ public class SseApiServlet extends GuiHttpServlet {
 	}
 
 	public static void setMediaScanStatus(boolean running) {
-		broadcastSettingsMessage("{\"action\":\"set_media_scan_status\",\"running\":" + (running ? "true" : "false") + "}");
+		broadcastSettingsMessage("set_media_scan_status", "{\"action\":\"set_media_scan_status\",\"running\":" + (running ? "true" : "false") + "}");
 	}
 
 	public static void setStatusLine(String line) {
 		JsonObject result = new JsonObject();
 		result.addProperty("action", "set_status_line");
 		result.addProperty("value", line);
-		broadcastMessage(result.toString());
+		broadcastMessage("set_status_line", result.toString(), true);
 	}
 
 }
@@ -35,6 +35,7 @@ import net.pms.media.MediaLang;
 import net.pms.network.HTTPResource;
 import net.pms.store.ThumbnailSource;
 import net.pms.util.InputFile;
+import net.pms.util.ServerMetrics;
 import net.pms.util.UnknownFormatException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,14 +62,25 @@ public class Parser {
 			return;
 		}
 		media.resetParser();
+		long start = System.nanoTime();
+		String parser = parseFile(media, file, ext, type);
+		ServerMetrics.recordParse(parser, System.nanoTime() - start);
+	}
+
+	/**
+	 * Parses the file with the first suitable parser.
+	 *
+	 * @return the name of the parser used.
+	 */
+	private static String parseFile(MediaInfo media, InputFile file, Format ext, int type) {
 		if (file.getFile() != null) {
 			// Special parsing for RealAudio 1.0 and 2.0 which isn't handled by MediaInfo or JAudioTagger
 			if (ext.getIdentifier() == Format.Identifier.RA && RealAudioParser.parse(media, file, type)) {
-				return;
+				return RealAudioParser.class.getSimpleName();
 			}
 			// Special parsing for raw image
 			if (ext.getIdentifier() == Format.Identifier.RAW && DCRawParser.parse(media, file, type)) {
-				return;
+				return DCRawParser.class.getSimpleName();
 			}
 			// MediaInfo can't correctly parse ADPCM, DFF, DSF or PNM
 			if (MediaInfoParser.isValid() &&
@@ -77,14 +89,14 @@ public class Parser {
 					ext.getIdentifier() != Format.Identifier.DSF &&
 					ext.getIdentifier() != Format.Identifier.PNM) {
 				MediaInfoParser.parse(media, file.getFile(), type);
+				return MediaInfoParser.class.getSimpleName();
 			} else if (type == Format.AUDIO || ext instanceof AudioAsVideo) {
 				JaudiotaggerParser.parse(media, file.getFile(), ext);
-			} else {
-				FFmpegParser.parse(media, file, ext, type);
+				return JaudiotaggerParser.class.getSimpleName();
 			}
-		} else {
-			FFmpegParser.parse(media, file, ext, type);
 		}
+		FFmpegParser.parse(media, file, ext, type);
+		return FFmpegParser.class.getSimpleName();
 	}
 
 	public static void postParse(MediaInfo mediaInfo, int type) {
@@ -160,7 +160,8 @@ public class LinuxUtils extends PlatformUtils {
 	 *
 	 * call chain (innermost last):
 	 *
-	 * WaitBufferedInputStream.close BufferedOutputFile.detachInputStream
+	 * WaitBufferedInputStream.close BufferedOutputFile.removeInputStream
+	 * BufferedOutputFile.detachInputStream
 	 * ProcessWrapperImpl.stopProcess ProcessUtil.destroy ProcessUtil.kill
 	 *
 	 * my best guess is that the process's stdout/stderr streams aren't
@@ -0,0 +1,143 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableFolderFingerprints;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Compares the shared folders with the fingerprints stored during the
+ * previous media scans.
+ *
+ * A folder is stored with its modification time, which changes when a file
+ * or sub-folder is added, removed or renamed in it, and a fingerprint hashing
+ * the fingerprints of its scanned sub-folders. A folder is unchanged if its
+ * modification time is the stored one and its sub-folders are unchanged, so
+ * checking a tree only reads the modification time of its folders, never of
+ * its files.
+ */
+class FolderFingerprints {
+
+	/**
+	 * The stored fingerprints of the folders whose modification time didn't
+	 * change, then the fingerprints of the folders scanned since.
+	 */
+	private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+	/**
+	 * The sub-folders with a fingerprint, by parent folder.
+	 */
+	private final Map<String, Set<String>> subFolders = new ConcurrentHashMap<>();
+	private final Map<String, Boolean> unchanged = new ConcurrentHashMap<>();
+
+	FolderFingerprints(Connection connection) {
+		for (Map.Entry<String, String> fingerprint : MediaTableFolderFingerprints.getFingerprints(connection).entrySet()) {
+			put(fingerprint.getKey(), fingerprint.getValue());
+		}
+	}
+
+	/**
+	 * @param directory the folder to check.
+	 * @return whether the folder tree is unchanged since it was last scanned.
+	 */
+	boolean isUnchanged(File directory) {
+		return isUnchanged(directory.getAbsolutePath());
+	}
+
+	private boolean isUnchanged(String path) {
+		Boolean result = unchanged.get(path);
+		if (result == null) {
+			String fingerprint = fingerprints.get(path);
+			result = fingerprint != null && fingerprint.equals(computeFingerprint(path));
+			if (result) {
+				for (String subFolder : getSubFolders(path)) {
+					if (!isUnchanged(subFolder)) {
+						result = false;
+						break;
+					}
+				}
+			}
+			unchanged.put(path, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the fingerprint of a folder tree which was completely scanned,
+	 * after its sub-folders.
+	 *
+	 * @param directory the scanned folder.
+	 */
+	void setScanned(File directory) {
+		String path = directory.getAbsolutePath();
+		long modified = directory.lastModified();
+		String fingerprint = computeFingerprint(path);
+		put(path, fingerprint);
+		unchanged.put(path, true);
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection != null) {
+				MediaTableFolderFingerprints.setFingerprint(connection, path, modified, fingerprint);
+			}
+		} finally {
+			MediaDatabase.close(connection);
+		}
+	}
+
+	private void put(String path, String fingerprint) {
+		fingerprints.put(path, fingerprint);
+		String parent = new File(path).getParent();
+		if (parent != null) {
+			subFolders.computeIfAbsent(parent, key -> ConcurrentHashMap.newKeySet()).add(path);
+		}
+	}
+
+	private Set<String> getSubFolders(String path) {
+		return subFolders.getOrDefault(path, Set.of());
+	}
+
+	/**
+	 * Hashes the names and fingerprints of the sub-folders of a folder, so a
+	 * sub-folder that changed or wasn't scanned changes its parent
+	 * fingerprint.
+	 */
+	private String computeFingerprint(String path) {
+		Map<String, String> sorted = new TreeMap<>();
+		for (String subFolder : getSubFolders(path)) {
+			String fingerprint = fingerprints.get(subFolder);
+			if (fingerprint != null) {
+				sorted.put(new File(subFolder).getName(), fingerprint);
+			}
+		}
+		MessageDigest digest = DigestUtils.getMd5Digest();
+		for (Map.Entry<String, String> entry : sorted.entrySet()) {
+			digest.update((entry.getKey() + "|d|" + entry.getValue() + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		return Hex.encodeHexString(digest.digest());
+	}
+
+}
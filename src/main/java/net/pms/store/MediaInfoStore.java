@@ -26,11 +26,19 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import javax.annotation.concurrent.GuardedBy;
+import net.pms.PMS;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableFailedLookups;
 import net.pms.database.MediaTableFiles;
+import net.pms.database.MediaTableFolderFingerprints;
 import net.pms.database.MediaTableTVSeries;
 import net.pms.database.MediaTableVideoMetadata;
+import net.pms.database.TableGenerations;
 import net.pms.external.tmdb.TMDB;
 import net.pms.formats.Format;
 import net.pms.media.MediaInfo;
@@ -49,6 +57,10 @@ public class MediaInfoStore {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MediaInfoStore.class);
 	private static final Map<String, WeakReference<MediaInfo>> STORE = new HashMap<>();
+	private static final Map<String, CompletableFuture<MediaInfo>> PARSING = new ConcurrentHashMap<>();
+
+	@GuardedBy("PARSING")
+	private static Semaphore parsingPermits;
 
 	private MediaInfoStore() {
 		//should not be instantiated
@@ -76,11 +88,77 @@ public class MediaInfoStore {
 		return null;
 	}
 
+	/**
+	 * Returns the {@link MediaInfo} for the given file, parsing it if it is not
+	 * already known.
+	 * <p>
+	 * Different files are parsed concurrently, up to the configured maximum
+	 * number of parsing threads. Concurrent requests for the same file share
+	 * a single parsing operation.
+	 *
+	 * @param filename the absolute path of the file.
+	 * @param file the file.
+	 * @param format the format of the file.
+	 * @param type the media type.
+	 * @return the {@link MediaInfo}, or {@code null} if it could not be
+	 *         obtained.
+	 */
 	public static MediaInfo getMediaInfo(String filename, File file, Format format, int type) {
-		synchronized (STORE) {
-			if (STORE.containsKey(filename) && STORE.get(filename).get() != null) {
-				return STORE.get(filename).get();
+		MediaInfo mediaInfo = getStoredMediaInfo(filename);
+		if (mediaInfo != null) {
+			return mediaInfo;
+		}
+		CompletableFuture<MediaInfo> parsing = new CompletableFuture<>();
+		CompletableFuture<MediaInfo> inFlight = PARSING.putIfAbsent(filename, parsing);
+		if (inFlight != null) {
+			return waitForParsing(filename, inFlight);
+		}
+		try {
+			// the parsing may have completed between the store check and now
+			mediaInfo = getStoredMediaInfo(filename);
+			if (mediaInfo == null) {
+				mediaInfo = parseMediaInfo(filename, file, format, type);
 			}
+			parsing.complete(mediaInfo);
+			return mediaInfo;
+		} catch (RuntimeException e) {
+			parsing.completeExceptionally(e);
+			throw e;
+		} finally {
+			PARSING.remove(filename, parsing);
+		}
+	}
+
+	private static MediaInfo getStoredMediaInfo(String filename) {
+		synchronized (STORE) {
+			WeakReference<MediaInfo> reference = STORE.get(filename);
+			return reference != null ? reference.get() : null;
+		}
+	}
+
+	private static MediaInfo waitForParsing(String filename, CompletableFuture<MediaInfo> inFlight) {
+		try {
+			return inFlight.get();
+		} catch (InterruptedException e) {
+			LOGGER.debug("Interrupted while waiting for the parsing of \"{}\"", filename);
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LOGGER.debug("Parsing of \"{}\" failed in another thread: {}", filename, e.getMessage());
+			LOGGER.trace("", e);
+		}
+		return null;
+	}
+
+	private static MediaInfo parseMediaInfo(String filename, File file, Format format, int type) {
+		Semaphore permits = getParsingPermits();
+		try {
+			permits.acquire();
+		} catch (InterruptedException e) {
+			LOGGER.debug("Interrupted while waiting to parse \"{}\"", filename);
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		try {
 			MediaInfo mediaInfo = null;
 			Connection connection = null;
 			InputFile input = new InputFile();
@@ -154,11 +232,29 @@ public class MediaInfoStore {
 					LOGGER.trace("", e);
 				}
 				MediaDatabase.close(connection);
+				if (connection != null) {
+					TableGenerations.increment(MediaTableFiles.TABLE_NAME);
+				}
 			}
 			if (mediaInfo != null) {
-				STORE.put(filename, new WeakReference<>(mediaInfo));
+				synchronized (STORE) {
+					STORE.put(filename, new WeakReference<>(mediaInfo));
+				}
 			}
 			return mediaInfo;
+		} finally {
+			permits.release();
+		}
+	}
+
+	private static Semaphore getParsingPermits() {
+		synchronized (PARSING) {
+			if (parsingPermits == null) {
+				int maxThreads = PMS.getConfiguration().getMediaParserMaxThreads();
+				LOGGER.debug("Allowing up to {} concurrent media parsing threads", maxThreads);
+				parsingPermits = new Semaphore(maxThreads, true);
+			}
+			return parsingPermits;
 		}
 	}
 
@@ -221,6 +317,7 @@ public class MediaInfoStore {
 			}
 		} finally {
 			MediaDatabase.close(connection);
+			TableGenerations.increment(MediaTableVideoMetadata.TABLE_NAME, MediaTableTVSeries.TABLE_NAME);
 		}
 	}
 
@@ -288,6 +385,7 @@ public class MediaInfoStore {
 							MediaTableVideoMetadata.insertVideoMetadata(connection, absolutePath, file.lastModified(), mediaInfo);
 						}
 					}
+					TableGenerations.increment(MediaTableVideoMetadata.TABLE_NAME, MediaTableTVSeries.TABLE_NAME);
 				}
 			}
 		} catch (SQLException e) {
@@ -308,9 +406,11 @@ public class MediaInfoStore {
 			connection = MediaDatabase.getConnectionIfAvailable();
 			if (connection != null) {
 				MediaTableFiles.removeMediaEntriesInFolder(connection, pathToFolder);
+				MediaTableFolderFingerprints.removeFolder(connection, pathToFolder);
 			}
 		} finally {
 			MediaDatabase.close(connection);
+			TableGenerations.increment(MediaTableFiles.TABLE_NAME);
 		}
 		boolean removed = false;
 		synchronized (STORE) {
@@ -335,6 +435,7 @@ public class MediaInfoStore {
 			}
 		} finally {
 			MediaDatabase.close(connection);
+			TableGenerations.increment(MediaTableFiles.TABLE_NAME);
 		}
 		boolean removed = false;
 		synchronized (STORE) {
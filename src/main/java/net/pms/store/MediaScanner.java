@@ -23,6 +23,10 @@ import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.GuardedBy;
 import net.pms.Messages;
@@ -33,6 +37,7 @@ import net.pms.configuration.sharedcontent.SharedContentConfiguration;
 import net.pms.configuration.sharedcontent.SharedContentListener;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableFiles;
+import net.pms.database.TableGenerations;
 import net.pms.gui.GuiManager;
 import net.pms.platform.PlatformUtils;
 import net.pms.renderers.ConnectedRenderers;
@@ -44,6 +49,7 @@ import net.pms.store.container.RealFolder;
 import net.pms.store.container.VirtualFolder;
 import net.pms.util.FileUtil;
 import net.pms.util.FileWatcher;
+import net.pms.util.ServerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,11 +64,17 @@ public class MediaScanner implements SharedContentListener {
 	private static final List<String> SHARED_FOLDERS = new ArrayList<>();
 	private static final Renderer RENDERER = MediaScannerDevice.getRenderer();
 	private static final MediaScanner INSTANCE = new MediaScanner();
+	private static final ForkJoinPool.ForkJoinWorkerThreadFactory SCAN_THREAD_FACTORY = (ForkJoinPool pool) -> {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("Media Scanner worker " + thread.getPoolIndex());
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	};
 
 	@GuardedBy("DEFAULT_FOLDERS_LOCK")
 	private static List<String> defaultFolders = null;
 	private static Thread scannerThread;
-	private static boolean running;
+	private static volatile boolean running;
 
 	private MediaScanner() {
 	}
@@ -93,7 +105,11 @@ public class MediaScanner implements SharedContentListener {
 			try {
 				connection = MediaDatabase.getConnectionIfAvailable();
 				if (connection != null) {
-					scan(RENDERER.getMediaStore());
+					FolderFingerprints fingerprints = null;
+					if (PMS.getConfiguration().isIncrementalMediaScan()) {
+						fingerprints = new FolderFingerprints(connection);
+					}
+					scan(RENDERER.getMediaStore(), fingerprints);
 					// Running might have been set false during scan
 					if (running) {
 						MediaTableFiles.cleanup(connection);
@@ -101,6 +117,7 @@ public class MediaScanner implements SharedContentListener {
 				}
 			} finally {
 				MediaDatabase.close(connection);
+				TableGenerations.increment(MediaTableFiles.TABLE_NAME);
 			}
 			setRunning(false);
 		}
@@ -109,20 +126,79 @@ public class MediaScanner implements SharedContentListener {
 		GuiManager.setStatusLine(null);
 	}
 
-	private static void scan(StoreContainer resource) {
+	/**
+	 * Scans the given container and its sub-containers.
+	 *
+	 * Sibling folders are scanned concurrently in a work-stealing pool, up to
+	 * the configured maximum number of scan threads.
+	 *
+	 * When folder fingerprints are given, the folders trees that did not
+	 * change since the previous scan are skipped.
+	 *
+	 * @param resource the container to scan.
+	 * @param fingerprints the folder fingerprints, or {@code null} to scan
+	 *            every folder.
+	 */
+	private static void scan(StoreContainer resource, FolderFingerprints fingerprints) {
 		if (running) {
-			for (StoreResource child : resource.getChildren()) {
+			int maxThreads = PMS.getConfiguration().getMediaScanMaxThreads();
+			LOGGER.debug("Scanning with up to {} threads", maxThreads);
+			ForkJoinPool pool = new ForkJoinPool(maxThreads, SCAN_THREAD_FACTORY, null, false);
+			ScanProgress progress = new ScanProgress(pool);
+			try {
+				pool.invoke(new ScanTask(resource, false, fingerprints, progress));
+			} finally {
+				pool.shutdown();
+			}
+			LOGGER.debug(
+				"Scanned {} folders and {} files in {} seconds",
+				progress.folders.get(),
+				progress.files.get(),
+				(System.currentTimeMillis() - progress.start) / 1000
+			);
+		} else {
+			GuiManager.setStatusLine(null);
+		}
+	}
+
+	/**
+	 * Discovers the children of a container and schedules the scan of the
+	 * sub-containers found.
+	 */
+	private static class ScanTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private final transient StoreContainer resource;
+		private final boolean clearChildren;
+		private final transient FolderFingerprints fingerprints;
+		private final transient ScanProgress progress;
+
+		private ScanTask(StoreContainer resource, boolean clearChildren, FolderFingerprints fingerprints, ScanProgress progress) {
+			this.resource = resource;
+			this.clearChildren = clearChildren;
+			this.fingerprints = fingerprints;
+			this.progress = progress;
+		}
+
+		@Override
+		protected void compute() {
+			List<ScanTask> subTasks = new ArrayList<>();
+			for (StoreResource child : new ArrayList<>(resource.getChildren())) {
 				// wait until the realtime lock is released before starting
 				PMS.REALTIME_LOCK.lock();
 				PMS.REALTIME_LOCK.unlock();
 
 				if (running && child instanceof StoreContainer storeContainer && storeContainer.allowScan()) {
 
-					// Display and log which folder is being scanned
+					if (fingerprints != null && storeContainer instanceof RealFolder realFolder &&
+						fingerprints.isUnchanged(realFolder.getSystemFile())) {
+						LOGGER.trace("Skipping unchanged folder: " + child.getName());
+						continue;
+					}
+
+					// Log which folder is being scanned
 					if (storeContainer instanceof RealFolder) {
-						String childName = child.getName();
-						LOGGER.debug("Scanning folder: " + childName);
-						GuiManager.setStatusLine(Messages.getString("ScanningFolder") + " " + childName);
+						LOGGER.debug("Scanning folder: " + child.getName());
 					}
 
 					if (storeContainer.isDiscovered()) {
@@ -141,16 +217,71 @@ public class MediaScanner implements SharedContentListener {
 					}
 
 					int count = storeContainer.getChildren().size();
+					progress.folderScanned(count);
 					if (count != 0) {
-						scan(storeContainer);
-						storeContainer.getChildren().clear();
+						subTasks.add(new ScanTask(storeContainer, true, fingerprints, progress));
+					} else {
+						setScanned(storeContainer);
 					}
 				} else if (!running) {
 					break;
 				}
 			}
-		} else {
-			GuiManager.setStatusLine(null);
+			invokeAll(subTasks);
+			if (clearChildren) {
+				setScanned(resource);
+				resource.getChildren().clear();
+			}
+		}
+
+		private void setScanned(StoreContainer container) {
+			if (running && fingerprints != null && container instanceof RealFolder realFolder) {
+				fingerprints.setScanned(realFolder.getSystemFile());
+			}
+		}
+	}
+
+	/**
+	 * Keeps track of the scan throughput and reports it to the GUI.
+	 */
+	private static class ScanProgress {
+
+		private static final long REPORT_INTERVAL = 1000;
+		private final ForkJoinPool pool;
+		private final long start = System.currentTimeMillis();
+		private final AtomicLong folders = new AtomicLong();
+		private final AtomicLong files = new AtomicLong();
+		private final AtomicLong lastReport = new AtomicLong(start);
+		private long lastFolders;
+		private long lastFiles;
+
+		private ScanProgress(ForkJoinPool pool) {
+			this.pool = pool;
+		}
+
+		private void folderScanned(int childrenCount) {
+			folders.incrementAndGet();
+			files.addAndGet(childrenCount);
+			ServerMetrics.addScannedFolder(childrenCount);
+			long now = System.currentTimeMillis();
+			long last = lastReport.get();
+			if (now - last >= REPORT_INTERVAL && lastReport.compareAndSet(last, now)) {
+				report(now - last);
+			}
+		}
+
+		private synchronized void report(long elapsed) {
+			long currentFolders = folders.get();
+			long currentFiles = files.get();
+			long foldersPerSecond = (currentFolders - lastFolders) * 1000 / elapsed;
+			long filesPerSecond = (currentFiles - lastFiles) * 1000 / elapsed;
+			lastFolders = currentFolders;
+			lastFiles = currentFiles;
+			long queued = pool.getQueuedTaskCount();
+			LOGGER.trace("Media scan: {} folders/s, {} files/s, {} folders queued", foldersPerSecond, filesPerSecond, queued);
+			if (running) {
+				GuiManager.setStatusLine(String.format(Messages.getString("ScanningFoldersProgress"), foldersPerSecond, filesPerSecond, queued));
+			}
 		}
 	}
 
@@ -253,7 +384,7 @@ public class MediaScanner implements SharedContentListener {
 				for (StoreResource storeResource : systemFileResources) {
 					if (storeResource instanceof VirtualFolder virtualFolder) {
 						virtualFolder.doRefreshChildren();
-						scan(virtualFolder);
+						scan(virtualFolder, null);
 					}
 				}
 			}
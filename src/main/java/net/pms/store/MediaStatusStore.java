@@ -24,6 +24,7 @@ import net.pms.Messages;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableFiles;
 import net.pms.database.MediaTableFilesStatus;
+import net.pms.database.TableGenerations;
 import net.pms.gui.GuiManager;
 import net.pms.media.MediaStatus;
 
@@ -102,6 +103,7 @@ public class MediaStatusStore {
 			}
 		} finally {
 			MediaDatabase.close(connection);
+			TableGenerations.increment(MediaTableFilesStatus.TABLE_NAME);
 		}
 	}
 
@@ -127,6 +129,7 @@ public class MediaStatusStore {
 				}
 			} finally {
 				MediaDatabase.close(connection);
+				TableGenerations.increment(MediaTableFilesStatus.TABLE_NAME);
 			}
 		}
 	}
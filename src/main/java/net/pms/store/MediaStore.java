@@ -19,9 +19,12 @@ package net.pms.store;
 import com.sun.jna.Platform;
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import net.pms.Messages;
@@ -54,6 +57,7 @@ import net.pms.store.container.IPhotoLibrary;
 import net.pms.store.container.ITunesLibrary;
 import net.pms.store.container.ImagesFeed;
 import net.pms.store.container.MediaLibrary;
+import net.pms.store.container.MediaLibraryFolder;
 import net.pms.store.container.MediaMonitor;
 import net.pms.store.container.Playlist;
 import net.pms.store.container.PlaylistFolder;
@@ -81,7 +85,13 @@ public class MediaStore extends StoreContainer {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MediaStore.class);
 
-	private final Map<Long, WeakReference<StoreResource>> weakResources = new HashMap<>();
+	/**
+	 * The resources known by this store, keyed by id. Lookups don't lock, so
+	 * playback requests never wait behind a browse; entries whose resource
+	 * was garbage collected are removed through {@link #weakResourcesQueue}.
+	 */
+	private final Map<Long, WeakResource> weakResources = new ConcurrentHashMap<>();
+	private final ReferenceQueue<StoreResource> weakResourcesQueue = new ReferenceQueue<>();
 	// A temp folder for non-xmb items
 	private final UnattachedFolder tempFolder;
 	private final MediaLibrary mediaLibrary;
@@ -412,7 +422,7 @@ public class MediaStore extends StoreContainer {
 		return tempFolder.add(uri, name);
 	}
 
-	public synchronized StoreResource getResource(String objectId) {
+	public StoreResource getResource(String objectId) {
 		// this method returns exactly ONE (1) LibraryResource
 		// it's used when someone requests playback of mediaInfo. The mediaInfo must
 		// have been discovered by someone first (unless it's a Temp item)
@@ -459,14 +469,20 @@ public class MediaStore extends StoreContainer {
 		if (id == null) {
 			return null;
 		}
-		if (weakResources.containsKey(id) && weakResources.get(id).get() != null) {
-			return weakResources.get(id).get();
+		StoreResource resource = getWeakResource(id);
+		if (resource != null) {
+			return resource;
 		} else {
 			// object id not founded, try recreate
 			return recreateResource(id);
 		}
 	}
 
+	private StoreResource getWeakResource(long id) {
+		WeakResource reference = weakResources.get(id);
+		return reference != null ? reference.get() : null;
+	}
+
 	/**
 	 * Try to recreate the item tree if possible.
 	 *
@@ -477,33 +493,33 @@ public class MediaStore extends StoreContainer {
 		List<MediaStoreId> libraryIds = MediaStoreIds.getMediaStoreResourceTree(id);
 		if (!libraryIds.isEmpty()) {
 			for (MediaStoreId libraryId : libraryIds) {
-				if (weakResources.containsKey(libraryId.getId()) && weakResources.get(libraryId.getId()).get() != null) {
-					StoreResource resource = weakResources.get(libraryId.getId()).get();
-					if (resource instanceof StoreContainer container) {
+				StoreResource resource = getWeakResource(libraryId.getId());
+				if (resource instanceof StoreContainer container) {
+					// discovery is only serialized per container
+					synchronized (container) {
 						container.discoverChildren();
-					}
-					if (resource instanceof VirtualFolder container) {
-						container.analyzeChildren(-1);
+						if (container instanceof VirtualFolder virtualFolder) {
+							virtualFolder.analyzeChildren(-1);
+						}
 					}
 				}
 			}
 			//now that parent folders are discovered, try to get the resource
-			if (weakResources.containsKey(id) && weakResources.get(id).get() != null) {
-				return weakResources.get(id).get();
-			}
+			return getWeakResource(id);
 		}
 		return null;
 	}
 
-	public synchronized boolean weakResourceExists(String objectId) {
+	public boolean weakResourceExists(String objectId) {
 		Long id = parseIndex(objectId);
-		return (id != null && weakResources.containsKey(id) && weakResources.get(id).get() != null);
+		return (id != null && getWeakResource(id) != null);
 	}
 
 	public boolean addWeakResource(StoreResource resource) {
 		Long id = MediaStoreIds.getMediaStoreResourceId(resource);
 		if (id != null) {
-			weakResources.put(id, new WeakReference<>(resource));
+			expungeWeakResources();
+			weakResources.put(id, new WeakResource(id, resource, weakResourcesQueue));
 			return true;
 		}
 		return false;
@@ -511,27 +527,42 @@ public class MediaStore extends StoreContainer {
 
 	public void replaceWeakResource(StoreResource a, StoreResource b) {
 		Long id = parseIndex(a.getId());
-		if (id != null && weakResources.containsKey(id)) {
-			weakResources.get(id).clear();
-			weakResources.put(id, new WeakReference<>(b));
+		if (id != null) {
+			weakResources.computeIfPresent(id, (key, reference) -> {
+				reference.clear();
+				return new WeakResource(key, b, weakResourcesQueue);
+			});
 		}
 	}
 
-	public synchronized void deleteWeakResource(StoreResource resource) {
+	public void deleteWeakResource(StoreResource resource) {
 		Long id = parseIndex(resource.getId());
-		if (id != null && weakResources.containsKey(id)) {
-			weakResources.get(id).clear();
-			weakResources.remove(id);
+		if (id != null) {
+			WeakResource reference = weakResources.remove(id);
+			if (reference != null) {
+				reference.clear();
+			}
 		}
 	}
 
-	public synchronized void clearWeakResources() {
+	public void clearWeakResources() {
 		weakResources.clear();
 	}
 
-	public synchronized List<StoreResource> findSystemFileResources(File file) {
+	/**
+	 * Removes the entries whose resource was garbage collected.
+	 */
+	private void expungeWeakResources() {
+		Reference<? extends StoreResource> reference;
+		while ((reference = weakResourcesQueue.poll()) != null) {
+			WeakResource weakResource = (WeakResource) reference;
+			weakResources.remove(weakResource.id, weakResource);
+		}
+	}
+
+	public List<StoreResource> findSystemFileResources(File file) {
 		List<StoreResource> systemFileResources = new ArrayList<>();
-		for (WeakReference<StoreResource> resource : weakResources.values()) {
+		for (WeakResource resource : weakResources.values()) {
 			if (resource.get() instanceof SystemFileResource systemFileResource &&
 					file.equals(systemFileResource.getSystemFile()) &&
 					systemFileResource instanceof StoreResource storeResource) {
@@ -556,16 +587,16 @@ public class MediaStore extends StoreContainer {
 	 * @return List of LibraryResource items.
 	 * @throws IOException
 	 */
-	public synchronized List<StoreResource> getResources(String objectId, boolean children, int start, int count) throws IOException {
+	public List<StoreResource> getResources(String objectId, boolean children, int start, int count) throws IOException {
 		return getResources(objectId, children, start, count, null);
 	}
 
-	public synchronized List<StoreResource> getResources(String objectId, boolean returnChildren, int start, int count,
+	public List<StoreResource> getResources(String objectId, boolean returnChildren, int start, int count,
 		String searchStr) {
 		return getResources(objectId, returnChildren, start, count, searchStr, null);
 	}
 
-	public synchronized List<StoreResource> getResources(String objectId, boolean returnChildren, int start, int count,
+	public List<StoreResource> getResources(String objectId, boolean returnChildren, int start, int count,
 			String searchStr, String lang) {
 		ArrayList<StoreResource> resources = new ArrayList<>();
 
@@ -604,10 +635,30 @@ public class MediaStore extends StoreContainer {
 				}
 			} else {
 				if (resource instanceof StoreContainer storeContainer) {
-					storeContainer.discover(count, true, searchStr, lang);
-
-					if (count == 0) {
-						count = storeContainer.getChildren().size();
+					List<StoreResource> children = null;
+					int first = 0;
+					if (storeContainer instanceof MediaLibraryFolder mediaLibraryFolder && mediaLibraryFolder.isPaged()) {
+						// Only the requested page is read and created
+						children = mediaLibraryFolder.getChildrenPage(start, count);
+						if (children != null) {
+							count = children.size();
+						}
+					}
+					if (children == null) {
+						// Discovery runs on the container monitor; snapshot the
+						// children under it so a concurrent refresh can't change
+						// the list while the page is resolved
+						synchronized (storeContainer) {
+							storeContainer.discover(count, true, searchStr, lang);
+							if (shouldDoAudioTrackSorting(storeContainer)) {
+								sortChildrenWithAudioElements(storeContainer);
+							}
+							children = new ArrayList<>(storeContainer.getChildren());
+						}
+						first = start;
+						if (count == 0) {
+							count = children.size();
+						}
 					}
 
 					if (count > 0) {
@@ -624,11 +675,8 @@ public class MediaStore extends StoreContainer {
 						ThreadPoolExecutor tpe = new ThreadPoolExecutor(Math.min(count, nParallelThreads), count, 20, TimeUnit.SECONDS, queue,
 								new SimpleThreadFactory("LibraryResource resolver thread", true));
 
-						if (shouldDoAudioTrackSorting(storeContainer)) {
-							sortChildrenWithAudioElements(storeContainer);
-						}
-						for (int i = start; i < start + count && i < storeContainer.getChildren().size(); i++) {
-							final StoreResource child = storeContainer.getChildren().get(i);
+						for (int i = first; i < first + count && i < children.size(); i++) {
+							final StoreResource child = children.get(i);
 							if (child != null) {
 								tpe.execute(child);
 								resources.add(child);
@@ -895,4 +943,19 @@ public class MediaStore extends StoreContainer {
 		return 0;
 	}
 
+	/**
+	 * A weak reference to a resource, knowing its id so it can be removed
+	 * from the registry once the resource is garbage collected.
+	 */
+	private static class WeakResource extends WeakReference<StoreResource> {
+
+		private final long id;
+
+		private WeakResource(long id, StoreResource resource, ReferenceQueue<StoreResource> queue) {
+			super(resource, queue);
+			this.id = id;
+		}
+
+	}
+
 }
@@ -18,8 +18,8 @@ package net.pms.store;
 
 import java.sql.Connection;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import net.pms.database.MediaDatabase;
@@ -37,7 +37,11 @@ import org.slf4j.LoggerFactory;
 public class MediaStoreIds {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(MediaStoreIds.class);
-	private static final Map<Long, UnsignedIntegerFourBytes> UPDATE_IDS = new HashMap<>();
+	private static final int MAX_CACHED_CONTAINERS = 1024;
+	private static final int MAX_CACHED_UPDATE_IDS = 65536;
+	private static final Map<Long, UnsignedIntegerFourBytes> UPDATE_IDS = new LruMap<>(MAX_CACHED_UPDATE_IDS);
+	private static final Map<Long, ChildrenIds> CHILDREN_IDS = new LruMap<>(MAX_CACHED_CONTAINERS);
+	private static UnsignedIntegerFourBytes systemUpdateId;
 
 	/**
 	 * This class is not meant to be instantiated.
@@ -45,33 +49,46 @@ public class MediaStoreIds {
 	private MediaStoreIds() {
 	}
 
-	public static synchronized Long getMediaStoreResourceId(StoreResource resource) {
-		if (resource == null) {
+	/**
+	 * Get the id of a resource, creating it as needed.
+	 *
+	 * The ids of all the children of the resource parent are read at once
+	 * and kept in memory, so the siblings of the resource are resolved
+	 * without querying the database.
+	 *
+	 * @param resource the resource.
+	 * @return the resource id, or {@code null} if it can't be resolved.
+	 */
+	public static Long getMediaStoreResourceId(StoreResource resource) {
+		if (resource == null || resource.getParent() == null || resource.getParent().getLongId() == null) {
 			return null;
 		}
-		//parse db
-		Connection connection = null;
-		try {
-			connection = MediaDatabase.getConnectionIfAvailable();
-			if (connection != null) {
-				//bump systemUpdateId
-				MediaStoreId mediaStoreId = MediaTableStoreIds.getResourceMediaStoreId(connection, resource);
-				if (mediaStoreId != null) {
-					long id = mediaStoreId.getId();
-					resource.setLongId(id);
-					if (mediaStoreId.getUpdateId() == 0) {
-						//brand new object : set its updateid to next systemUpdateId
-						long updateId = incrementUpdateId(id);
-						mediaStoreId.setUpdateId(updateId);
-					}
-					UPDATE_IDS.put(id, new UnsignedIntegerFourBytes(mediaStoreId.getUpdateId()));
-					return id;
-				}
-			}
-		} finally {
-			MediaDatabase.close(connection);
+		ChildrenIds childrenIds = getChildrenIds(resource.getParent().getLongId());
+		Long id;
+		synchronized (childrenIds) {
+			id = childrenIds.getId(resource);
+		}
+		if (id != null) {
+			resource.setLongId(id);
+		}
+		return id;
+	}
+
+	/**
+	 * Set the ids of several children of a container, creating the missing
+	 * ones in one batch.
+	 *
+	 * @param container the container, which must already have an id.
+	 * @param resources the children of the container.
+	 */
+	public static void setMediaStoreResourceIds(StoreContainer container, List<StoreResource> resources) {
+		if (container == null || container.getLongId() == null || resources.isEmpty()) {
+			return;
+		}
+		ChildrenIds childrenIds = getChildrenIds(container.getLongId());
+		synchronized (childrenIds) {
+			childrenIds.setIds(resources);
 		}
-		return null;
 	}
 
 	public static List<MediaStoreId> getMediaStoreResourceTree(long id) {
@@ -80,19 +97,7 @@ public class MediaStoreIds {
 		try {
 			connection = MediaDatabase.getConnectionIfAvailable();
 			if (connection != null) {
-				MediaStoreId mediaStoreId = MediaTableStoreIds.getMediaStoreId(connection, id);
-				if (mediaStoreId != null) {
-					mediaStoreIds.add(mediaStoreId);
-					while (mediaStoreId.getParentId() != 0) {
-						mediaStoreId = MediaTableStoreIds.getMediaStoreId(connection, mediaStoreId.getParentId());
-						mediaStoreIds.add(mediaStoreId);
-						if (mediaStoreIds.size() > 100) {
-							LOGGER.trace("MediaStore path is more than 100 entries, something was wrong");
-							return new ArrayList<>();
-						}
-					}
-					Collections.reverse(mediaStoreIds);
-				}
+				mediaStoreIds = MediaTableStoreIds.getMediaStoreTree(connection, id);
 			}
 		} finally {
 			MediaDatabase.close(connection);
@@ -169,6 +174,55 @@ public class MediaStoreIds {
 		}
 	}
 
+	/**
+	 * Returns the update id of an object, reading it from the database when
+	 * it is not cached.
+	 *
+	 * @param id the object id.
+	 * @return the update id, or {@code null} if the object is not known.
+	 */
+	public static UnsignedIntegerFourBytes getObjectUpdateId(Long id) {
+		if (id == null) {
+			return null;
+		}
+		synchronized (MediaStoreIds.class) {
+			UnsignedIntegerFourBytes updateId = UPDATE_IDS.get(id);
+			if (updateId != null) {
+				return updateId;
+			}
+		}
+		MediaStoreId mediaStoreId = null;
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection != null) {
+				mediaStoreId = MediaTableStoreIds.getMediaStoreId(connection, id);
+			}
+		} finally {
+			MediaDatabase.close(connection);
+		}
+		if (mediaStoreId == null) {
+			return null;
+		}
+		synchronized (MediaStoreIds.class) {
+			// an increment may have happened meanwhile, it wins
+			return UPDATE_IDS.computeIfAbsent(id, key -> new UnsignedIntegerFourBytes(mediaStoreId.getUpdateId()));
+		}
+	}
+
+	/**
+	 * Forgets all the cached ids, e.g. when the database was (re)opened.
+	 */
+	public static void clearCache() {
+		synchronized (CHILDREN_IDS) {
+			CHILDREN_IDS.clear();
+		}
+		synchronized (MediaStoreIds.class) {
+			UPDATE_IDS.clear();
+			systemUpdateId = null;
+		}
+	}
+
 	/**
 	 * Returns the updates id for all resources.
 	 *
@@ -177,7 +231,7 @@ public class MediaStoreIds {
 	 * @return The system updated id.
 	 */
 	public static synchronized UnsignedIntegerFourBytes getSystemUpdateId() {
-		if (!UPDATE_IDS.containsKey(-1L)) {
+		if (systemUpdateId == null) {
 			UnsignedIntegerFourBytes value = null;
 			Connection connection = null;
 			try {
@@ -193,12 +247,12 @@ public class MediaStoreIds {
 				if (value == null) {
 					value = new UnsignedIntegerFourBytes(0);
 				}
-				UPDATE_IDS.put(-1L, value);
+				systemUpdateId = value;
 			} finally {
 				MediaDatabase.close(connection);
 			}
 		}
-		return UPDATE_IDS.get(-1L);
+		return systemUpdateId;
 	}
 
 	/**
@@ -253,4 +307,144 @@ public class MediaStoreIds {
 		}
 	}
 
+	/**
+	 * Increments the systemUpdateId for new objects.
+	 *
+	 * @return the new systemUpdateId.
+	 */
+	private static synchronized long incrementSystemUpdateId(Connection connection) {
+		long updateId = getSystemUpdateId().increment(false).getValue();
+		MediaTableStoreIds.setMediaStoreUpdateId(connection, -1, updateId);
+		return updateId;
+	}
+
+	private static synchronized void setObjectUpdateId(long id, long updateId) {
+		UPDATE_IDS.put(id, new UnsignedIntegerFourBytes(updateId));
+	}
+
+	private static ChildrenIds getChildrenIds(long parentId) {
+		synchronized (CHILDREN_IDS) {
+			return CHILDREN_IDS.computeIfAbsent(parentId, ChildrenIds::new);
+		}
+	}
+
+	/**
+	 * The known ids of the children of a container, keyed by system name.
+	 *
+	 * Guarded by its own monitor, so the ids of different containers are
+	 * resolved concurrently.
+	 */
+	private static class ChildrenIds {
+		private final long parentId;
+		private Map<String, Long> ids;
+
+		private ChildrenIds(long parentId) {
+			this.parentId = parentId;
+		}
+
+		private Long getId(StoreResource resource) {
+			String name = resource.getSystemName();
+			if (ids != null && ids.containsKey(name)) {
+				return ids.get(name);
+			}
+			Connection connection = null;
+			try {
+				connection = MediaDatabase.getConnectionIfAvailable();
+				if (connection == null) {
+					return null;
+				}
+				if (ids == null) {
+					load(connection);
+					if (ids.containsKey(name)) {
+						return ids.get(name);
+					}
+				}
+				//brand new object : set its updateid to next systemUpdateId
+				long updateId = incrementSystemUpdateId(connection);
+				MediaStoreId mediaStoreId = MediaTableStoreIds.insertMediaStoreId(connection, parentId, name, resource.getClass().getSimpleName(), updateId);
+				if (mediaStoreId == null) {
+					return null;
+				}
+				ids.put(name, mediaStoreId.getId());
+				setObjectUpdateId(mediaStoreId.getId(), updateId);
+				return mediaStoreId.getId();
+			} finally {
+				MediaDatabase.close(connection);
+			}
+		}
+
+		private void setIds(List<StoreResource> resources) {
+			Connection connection = null;
+			try {
+				if (ids == null) {
+					connection = MediaDatabase.getConnectionIfAvailable();
+					if (connection == null) {
+						return;
+					}
+					load(connection);
+				}
+				Map<String, String> objectTypes = new LinkedHashMap<>();
+				for (StoreResource resource : resources) {
+					if (!ids.containsKey(resource.getSystemName())) {
+						objectTypes.putIfAbsent(resource.getSystemName(), resource.getClass().getSimpleName());
+					}
+				}
+				if (!objectTypes.isEmpty()) {
+					if (connection == null) {
+						connection = MediaDatabase.getConnectionIfAvailable();
+						if (connection == null) {
+							return;
+						}
+					}
+					long updateId = incrementSystemUpdateId(connection);
+					MediaTableStoreIds.insertMediaStoreIds(connection, parentId, objectTypes, updateId);
+					// reload even on failure, some ids may have been created concurrently
+					load(connection);
+				}
+				for (StoreResource resource : resources) {
+					Long id = ids.get(resource.getSystemName());
+					if (id != null) {
+						resource.setLongId(id);
+					}
+				}
+			} finally {
+				MediaDatabase.close(connection);
+			}
+		}
+
+		private void load(Connection connection) {
+			List<MediaStoreId> mediaStoreIds = MediaTableStoreIds.getChildrenMediaStoreIds(connection, parentId);
+			ids = new HashMap<>(mediaStoreIds.size() * 2);
+			for (MediaStoreId mediaStoreId : mediaStoreIds) {
+				ids.put(mediaStoreId.getName(), mediaStoreId.getId());
+			}
+			synchronized (MediaStoreIds.class) {
+				for (MediaStoreId mediaStoreId : mediaStoreIds) {
+					if (!UPDATE_IDS.containsKey(mediaStoreId.getId())) {
+						UPDATE_IDS.put(mediaStoreId.getId(), new UnsignedIntegerFourBytes(mediaStoreId.getUpdateId()));
+					}
+				}
+			}
+			LOGGER.trace("Loaded {} ids of container {}", mediaStoreIds.size(), parentId);
+		}
+	}
+
+	/**
+	 * A map which drops its least recently used entry when full.
+	 */
+	private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+
+		private LruMap(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > maxSize;
+		}
+	}
+
 }
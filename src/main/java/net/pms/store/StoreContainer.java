@@ -463,6 +463,8 @@ public class StoreContainer extends StoreResource {
 	private void addGlobalRepo(StoreResource resource) {
 		renderer.getMediaStore().addWeakResource(resource);
 		if (resource instanceof StoreContainer container) {
+			// resolve the ids of the children at once
+			MediaStoreIds.setMediaStoreResourceIds(container, container.children);
 			for (StoreResource child : container.children) {
 				addGlobalRepo(child);
 			}
@@ -488,7 +490,7 @@ public class StoreContainer extends StoreResource {
 		}
 	}
 
-	protected void refreshChildrenIfNeeded(String search, String lang) {
+	protected synchronized void refreshChildrenIfNeeded(String search, String lang) {
 		if (isDiscovered() && isRefreshNeeded()) {
 			refreshChildren(search, lang);
 			notifyRefresh();
@@ -724,7 +726,7 @@ public class StoreContainer extends StoreResource {
 		discoverChildren();
 	}
 
-	protected final void discover(int count, boolean forced, String searchStr, String lang) {
+	protected final synchronized void discover(int count, boolean forced, String searchStr, String lang) {
 		// Discover children if it hasn't been done already
 		if (!isDiscovered()) {
 			if (renderer.getUmsConfiguration().getFolderLimit() && depthLimit()) {
@@ -36,6 +36,7 @@ import net.pms.configuration.FormatConfiguration;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableSubtracks;
+import net.pms.database.TableGenerations;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.encoders.Engine;
@@ -45,6 +46,7 @@ import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
 import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImagesUtil;
+import net.pms.io.FileRangeInputStream;
 import net.pms.io.OutputParams;
 import net.pms.io.ProcessWrapper;
 import net.pms.io.SizeLimitInputStream;
@@ -93,8 +95,14 @@ public abstract class StoreItem extends StoreResource {
 	 *
 	 * @see Engine
 	 */
-	private Engine engine;
+	private volatile Engine engine;
 	private boolean skipTranscode = false;
+
+	/**
+	 * Guards the engine resolution, the transcoding process shared by the
+	 * stream requests of this item and the last time seek.
+	 */
+	private final Object processLock = new Object();
 	private ProcessWrapper externalProcess;
 
 	private Format format;
@@ -109,17 +117,17 @@ public abstract class StoreItem extends StoreResource {
 	/**
 	 * The system time when the resource was last (re)started by a user.
 	 */
-	private long lastStartSystemTimeUser;
+	private volatile long lastStartSystemTimeUser;
 
 	/**
 	 * The system time when the resource was last (re)started.
 	 */
-	private long lastStartSystemTime;
+	private volatile long lastStartSystemTime;
 
 	/**
 	 * The most recently requested time offset in seconds.
 	 */
-	private double lastStartPosition;
+	private volatile double lastStartPosition;
 
 	private double lastTimeSeek = -1.0;
 
@@ -788,7 +796,7 @@ public abstract class StoreItem extends StoreResource {
 	 * @return The inputstream
 	 * @throws IOException
 	 */
-	public synchronized InputStream getInputStream(Range range, HlsHelper.HlsConfiguration hlsConfiguration) throws IOException {
+	public InputStream getInputStream(Range range, HlsHelper.HlsConfiguration hlsConfiguration) throws IOException {
 		// Use device-specific UMS conf, if any
 		LOGGER.trace("Asked stream chunk : " + range + " of " + getName() + " and engine " + engine);
 
@@ -837,9 +845,10 @@ public abstract class StoreItem extends StoreResource {
 		// Determine source of the stream
 		if (engine == null && !isResume()) {
 			// No transcoding
-			if (this instanceof IPushOutput iPushOutput) {
+			InputStream fis = getInputStream();
+			if (fis == null && this instanceof IPushOutput iPushOutput) {
 				PipedOutputStream out = new PipedOutputStream();
-				InputStream fis = new PipedInputStream(out);
+				fis = new PipedInputStream(out);
 				iPushOutput.push(out);
 
 				if (low > 0) {
@@ -850,9 +859,13 @@ public abstract class StoreItem extends StoreResource {
 				return wrap(fis, high, low);
 			}
 
-			InputStream fis = getInputStream();
-
-			if (fis != null) {
+			if (fis instanceof FileRangeInputStream fileRange) {
+				// Keep the file channel visible so the range can be sent without copying
+				fileRange.setRange(low, high);
+				if (timeRange.getStartOrZero() > 0 && this instanceof RealFile) {
+					fis.skip(MpegUtil.getPositionForTimeInMpeg(((RealFile) this).getFile(), (int) timeRange.getStartOrZero()));
+				}
+			} else if (fis != null) {
 				if (low > 0) {
 					fis.skip(low);
 				}
@@ -881,15 +894,19 @@ public abstract class StoreItem extends StoreResource {
 			params.setStdIn(iPushOutput);
 		}
 
-		if (resume != null) {
-			if (range instanceof TimeRange tRange) {
-				resume.update(tRange, this);
-			}
+		Engine transcodeEngine;
+		synchronized (processLock) {
+			if (resume != null) {
+				if (range instanceof TimeRange tRange) {
+					resume.update(tRange, this);
+				}
 
-			params.setTimeSeek(resume.getTimeOffset() / 1000);
-			if (engine == null) {
-				engine = EngineFactory.getEngine(this);
+				params.setTimeSeek(resume.getTimeOffset() / 1000);
+				if (engine == null) {
+					engine = EngineFactory.getEngine(this);
+				}
 			}
+			transcodeEngine = engine;
 		}
 
 		if (System.currentTimeMillis() - lastStartSystemTime < 500) {
@@ -901,77 +918,106 @@ public abstract class StoreItem extends StoreResource {
 			}
 		}
 
-		// (Re)start transcoding process if necessary
-		if (externalProcess == null || externalProcess.isDestroyed() || hlsConfiguration != null) {
-			// First playback attempt => start new transcoding process
-			LOGGER.debug("Starting transcode/remux of " + getName() + " with media info: " + mediaInfo);
+		ProcessWrapper process;
+		long waitBeforeStart = 0;
+		if (hlsConfiguration != null) {
+			// Each HLS segment has its own process, it doesn't replace the item process
+			LOGGER.debug("Starting HLS transcode of " + getName() + " with media info: " + mediaInfo);
 			setLastStartSystemTime(System.currentTimeMillis());
-
-			if (params.getTimeSeek() > 0) {
-				// This must be a resume - so need to set lastTimeSeek to avoid a restart of the process
-				// from a new seek request to the same resume point
-				LOGGER.debug("Setting last time seek (from resume) to: " + params.getTimeSeek() + " seconds");
-				lastTimeSeek = params.getTimeSeek();
-			}
-
-			externalProcess = engine.launchTranscode(this, mediaInfo, params);
-			if (params.getWaitBeforeStart() > 0) {
-				LOGGER.trace("Sleeping for {} milliseconds", params.getWaitBeforeStart());
-				try {
-					Thread.sleep(params.getWaitBeforeStart());
-				} catch (InterruptedException e) {
-					LOGGER.error(null, e);
-					Thread.currentThread().interrupt();
+			process = transcodeEngine.launchTranscode(this, mediaInfo, params);
+			waitBeforeStart = params.getWaitBeforeStart();
+		} else {
+			synchronized (processLock) {
+				// (Re)start transcoding process if necessary
+				String sessionKey = null;
+				ProcessWrapper sharedProcess = null;
+				if (externalProcess == null || externalProcess.isDestroyed()) {
+					sessionKey = TranscodeSessions.getKey(this, transcodeEngine, params);
+					sharedProcess = TranscodeSessions.get(sessionKey);
 				}
+				if (sharedProcess != null) {
+					// Same item, engine and settings already transcoding for another renderer => read from it
+					LOGGER.debug("Attaching to the running transcode/remux of " + getName());
+					setLastStartSystemTime(System.currentTimeMillis());
+					externalProcess = sharedProcess;
+				} else if (externalProcess == null || externalProcess.isDestroyed()) {
+					// First playback attempt => start new transcoding process
+					LOGGER.debug("Starting transcode/remux of " + getName() + " with media info: " + mediaInfo);
+					setLastStartSystemTime(System.currentTimeMillis());
+
+					if (params.getTimeSeek() > 0) {
+						// This must be a resume - so need to set lastTimeSeek to avoid a restart of the process
+						// from a new seek request to the same resume point
+						LOGGER.debug("Setting last time seek (from resume) to: " + params.getTimeSeek() + " seconds");
+						lastTimeSeek = params.getTimeSeek();
+					}
 
-				LOGGER.trace("Finished sleeping for " + params.getWaitBeforeStart() + " milliseconds");
-			}
-		} else if (params.getTimeSeek() > 0 && mediaInfo != null && mediaInfo.isMediaParsed() && mediaInfo.getDurationInSeconds() > 0) {
+					externalProcess = transcodeEngine.launchTranscode(this, mediaInfo, params);
+					TranscodeSessions.put(sessionKey, externalProcess);
+					waitBeforeStart = params.getWaitBeforeStart();
+				} else if (params.getTimeSeek() > 0 && mediaInfo != null && mediaInfo.isMediaParsed() && mediaInfo.getDurationInSeconds() > 0) {
 
-			// Time seek request => stop running transcode process and start a new one
-			LOGGER.debug("Requesting time seek: " + params.getTimeSeek() + " seconds");
+					// Time seek request => stop running transcode process and start a new one
+					LOGGER.debug("Requesting time seek: " + params.getTimeSeek() + " seconds");
 
-			if (lastTimeSeek == params.getTimeSeek()) {
-				LOGGER.debug("Duplicate time seek request: " + params.getTimeSeek() + " seconds, ignoring");
-			} else {
+					if (lastTimeSeek == params.getTimeSeek()) {
+						LOGGER.debug("Duplicate time seek request: " + params.getTimeSeek() + " seconds, ignoring");
+					} else {
 
-				LOGGER.debug("Setting last time seek to: " + params.getTimeSeek() + " seconds");
-				lastTimeSeek = params.getTimeSeek();
+						LOGGER.debug("Setting last time seek to: " + params.getTimeSeek() + " seconds");
+						lastTimeSeek = params.getTimeSeek();
 
-				params.setMinBufferSize(1);
+						params.setMinBufferSize(1);
 
-				Runnable r = () -> {
-					externalProcess.stopProcess();
-				};
+						// A shared process is stopped by its buffer once its last reader is gone
+						if (TranscodeSessions.release(externalProcess, this)) {
+							ProcessWrapper oldExternalProcess = externalProcess;
+							Runnable r = () -> {
+								oldExternalProcess.stopProcess();
+							};
 
-				new Thread(r, "External Process Stopper").start();
+							new Thread(r, "External Process Stopper").start();
+						}
 
-				setLastStartSystemTime(System.currentTimeMillis());
-				ProcessWrapper newExternalProcess = engine.launchTranscode(this, mediaInfo, params);
+						setLastStartSystemTime(System.currentTimeMillis());
+						ProcessWrapper newExternalProcess = transcodeEngine.launchTranscode(this, mediaInfo, params);
+						TranscodeSessions.put(TranscodeSessions.getKey(this, transcodeEngine, params), newExternalProcess);
 
-				try {
-					Thread.sleep(1000);
-				} catch (InterruptedException e) {
-					LOGGER.error(null, e);
-					Thread.currentThread().interrupt();
-				}
+						if (newExternalProcess == null) {
+							LOGGER.trace("External process instance is null... sounds not good");
+						}
 
-				if (newExternalProcess == null) {
-					LOGGER.trace("External process instance is null... sounds not good");
+						externalProcess = newExternalProcess;
+						waitBeforeStart = 1000;
+					}
 				}
+				process = externalProcess;
+			}
+		}
 
-				externalProcess = newExternalProcess;
+		// Give the new process some time to start, without blocking the other requests
+		if (waitBeforeStart > 0) {
+			LOGGER.trace("Sleeping for {} milliseconds", waitBeforeStart);
+			try {
+				Thread.sleep(waitBeforeStart);
+			} catch (InterruptedException e) {
+				LOGGER.error(null, e);
+				Thread.currentThread().interrupt();
 			}
+
+			LOGGER.trace("Finished sleeping for " + waitBeforeStart + " milliseconds");
 		}
 
-		if (externalProcess == null) {
+		if (process == null) {
 			return null;
 		}
 
+		// Attaching to the buffer doesn't need the process lock, the buffer
+		// guards its readers against concurrent requests of other renderers
 		InputStream is = null;
 		int timer = 0;
 		while (is == null && timer < 10) {
-			is = externalProcess.getInputStream(low);
+			is = process.getInputStream(low);
 			timer++;
 			if (is == null) {
 				LOGGER.debug("External input stream instance is null... sounds not good, waiting 500ms");
@@ -989,16 +1035,16 @@ public abstract class StoreItem extends StoreResource {
 		// this cleans up lingering MEncoder web video transcode processes that
 		// hang
 		// instead of exiting
-		if (is == null && !externalProcess.isDestroyed()) {
+		if (is == null && !process.isDestroyed() && !TranscodeSessions.isShared(process, this)) {
 			Runnable r = () -> {
 				LOGGER.error("External input stream instance is null... stopping process");
-				externalProcess.stopProcess();
+				process.stopProcess();
 			};
 
 			new Thread(r, "Hanging External Process Stopper").start();
 		}
-
-		return is;
+		// Count the stream as a reader of a shared process until it is closed
+		return TranscodeSessions.attach(process, this, is);
 	}
 
 	/**
@@ -1342,29 +1388,43 @@ public abstract class StoreItem extends StoreResource {
 				!mediaInfo.isThumbnailReady() &&
 				renderer.getUmsConfiguration().isThumbnailGenerationEnabled() &&
 				renderer.isThumbnails()) {
-			Double seekPosition = null;
-			boolean isResume = isResume();
-			if (isResume) {
-				Double resumePosition = resume.getTimeOffset() / 1000d;
+			if (!isResume()) {
+				ThumbnailGenerator.generate(mediaInfo, inputFile, this);
+				return;
+			}
 
-				if (mediaInfo.getDurationInSeconds() > 0 && resumePosition < mediaInfo.getDurationInSeconds()) {
-					seekPosition = resumePosition;
-				} else {
-					seekPosition = (double) renderer.getUmsConfiguration().getThumbnailSeekPos();
-				}
+			Double seekPosition;
+			Double resumePosition = resume.getTimeOffset() / 1000d;
+			if (mediaInfo.getDurationInSeconds() > 0 && resumePosition < mediaInfo.getDurationInSeconds()) {
+				seekPosition = resumePosition;
+			} else {
+				seekPosition = (double) renderer.getUmsConfiguration().getThumbnailSeekPos();
 			}
 
 			DLNAThumbnail thumbnail = Parser.getThumbnail(mediaInfo, inputFile, getFormat(), getType(), seekPosition);
 			if (thumbnail != null) {
-				if (!isResume && mediaInfo.getFileId() != null) {
-					mediaInfo.setThumbnailId(ThumbnailStore.getId(thumbnail, mediaInfo.getFileId(), mediaInfo.getThumbnailSource()));
-				} else {
-					mediaInfo.setThumbnailId(ThumbnailStore.getTempId(thumbnail));
-				}
+				mediaInfo.setThumbnailId(ThumbnailStore.getTempId(thumbnail));
 			}
 		}
 	}
 
+	/**
+	 * Queues the generation of the thumbnail if it doesn't exist yet, without
+	 * waiting for it.
+	 *
+	 * @param inputFile File to generate the thumbnail for.
+	 * @param priority the {@link ThumbnailGenerator.Priority}.
+	 */
+	protected void queueThumbnail(InputFile inputFile, ThumbnailGenerator.Priority priority) {
+		if (mediaInfo != null &&
+				mediaInfo.getThumbnailId() == null &&
+				!isResume() &&
+				renderer.getUmsConfiguration().isThumbnailGenerationEnabled() &&
+				renderer.isThumbnails()) {
+			ThumbnailGenerator.queue(mediaInfo, inputFile, this, priority);
+		}
+	}
+
 	/**
 	 * Returns the input stream for this resource's generic thumbnail, which is
 	 * the first of:
@@ -1540,6 +1600,7 @@ public abstract class StoreItem extends StoreResource {
 						}
 					} finally {
 						MediaDatabase.close(connection);
+						TableGenerations.increment(MediaTableSubtracks.TABLE_NAME);
 					}
 				}
 			}
@@ -30,8 +30,10 @@ import net.pms.PMS;
 import net.pms.configuration.UmsConfiguration;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableFiles;
+import net.pms.database.TableGenerations;
 import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnailInputStream;
+import net.pms.dlna.DidlFragment;
 import net.pms.image.BufferedImageFilterChain;
 import net.pms.image.ImageInfo;
 import net.pms.media.MediaInfo;
@@ -60,7 +62,6 @@ public abstract class StoreResource implements Cloneable, Runnable {
 	protected static final UmsConfiguration CONFIGURATION = PMS.getConfiguration();
 
 	protected static final int MAX_ARCHIVE_ENTRY_SIZE = 10000000;
-	protected static final int MAX_ARCHIVE_SIZE_SEEK = 800000000;
 
 	/**
 	 * Maximum size of a stream, taking into account that some renderers (like
@@ -98,6 +99,11 @@ public abstract class StoreResource implements Cloneable, Runnable {
 
 	private String fakeParentId;
 
+	/**
+	 * The DIDL-Lite fragment last generated for this resource.
+	 */
+	private volatile DidlFragment didlFragment;
+
 	/**
 	 * The last time refresh was called.
 	 */
@@ -612,6 +618,25 @@ public abstract class StoreResource implements Cloneable, Runnable {
 		this.mediaInfo = media;
 	}
 
+	/**
+	 * Returns the DIDL-Lite fragment last generated for this resource.
+	 *
+	 * @return the fragment, or {@code null} if none.
+	 */
+	public DidlFragment getDidlFragment() {
+		return didlFragment;
+	}
+
+	/**
+	 * Keeps the DIDL-Lite fragment generated for this resource so it can be
+	 * reused while the resource is unchanged.
+	 *
+	 * @param didlFragment the fragment.
+	 */
+	public void setDidlFragment(DidlFragment didlFragment) {
+		this.didlFragment = didlFragment;
+	}
+
 	/**
 	 * Returns the {@link MediaStatus} object for this resource, containing the
 	 * status of this resource, e.g. the playback count.
@@ -924,6 +949,7 @@ public abstract class StoreResource implements Cloneable, Runnable {
 					if (currentAutoCommit) {
 						connection.commit();
 						connection.setAutoCommit(true);
+						TableGenerations.increment(MediaTableFiles.TABLE_NAME);
 					}
 				}
 			} catch (SQLException e) {
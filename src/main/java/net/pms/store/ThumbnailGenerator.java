@@ -0,0 +1,231 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import net.pms.PMS;
+import net.pms.dlna.DLNAThumbnail;
+import net.pms.formats.Format;
+import net.pms.media.MediaInfo;
+import net.pms.parsers.Parser;
+import net.pms.util.InputFile;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates the thumbnails of media files on a bounded pool of threads.
+ *
+ * Each file is generated at most once at a time. Thumbnails requested by a
+ * renderer are generated first, then the ones of the items being browsed and
+ * finally the ones queued while scanning. The generated thumbnails are stored
+ * through {@link ThumbnailStore#queueId}, which batches the database writes.
+ *
+ * The queued generations don't keep their item or media information alive,
+ * so that scanning a large library doesn't pin every scanned item in memory.
+ * A media information collected before its generation runs is read again
+ * from the database.
+ */
+public class ThumbnailGenerator {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailGenerator.class);
+	private static final int REQUEST_TIMEOUT_SECONDS = 10;
+	private static final Map<MediaInfo, Task> TASKS = Collections.synchronizedMap(new WeakHashMap<>());
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+	private static final ThreadPoolExecutor EXECUTOR;
+
+	static {
+		int threads = PMS.getConfiguration().getThumbnailGenerationThreads();
+		EXECUTOR = new ThreadPoolExecutor(
+			threads,
+			threads,
+			30,
+			TimeUnit.SECONDS,
+			new PriorityBlockingQueue<>(),
+			new SimpleThreadFactory("Thumbnail generator", "Thumbnail generators", Thread.NORM_PRIORITY - 1)
+		);
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	public enum Priority {
+		/**
+		 * A renderer is waiting for the thumbnail.
+		 */
+		REQUEST,
+		/**
+		 * The item is being browsed, so the thumbnail will be requested soon.
+		 */
+		BROWSE,
+		/**
+		 * The thumbnail is generated ahead of time.
+		 */
+		BACKGROUND
+	}
+
+	private ThumbnailGenerator() {
+		//should not be instantiated
+	}
+
+	/**
+	 * Queues the generation of the thumbnail of a media file, or raises the
+	 * priority of an already queued one.
+	 *
+	 * @param mediaInfo the media information of the file.
+	 * @param inputFile the file.
+	 * @param item the item of the file.
+	 * @param priority the {@link Priority}.
+	 * @return the future completed once the thumbnail ID is set.
+	 */
+	public static CompletableFuture<Void> queue(MediaInfo mediaInfo, InputFile inputFile, StoreItem item, Priority priority) {
+		Task task = TASKS.computeIfAbsent(mediaInfo, key -> new Task(key, inputFile, item.getFormat(), item.getType()));
+		task.schedule(priority);
+		return task.done;
+	}
+
+	/**
+	 * Generates the thumbnail of a media file ahead of any queued background
+	 * generation and waits for it.
+	 *
+	 * @param mediaInfo the media information of the file.
+	 * @param inputFile the file.
+	 * @param item the item of the file.
+	 */
+	public static void generate(MediaInfo mediaInfo, InputFile inputFile, StoreItem item) {
+		try {
+			queue(mediaInfo, inputFile, item, Priority.REQUEST).get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LOGGER.debug("Error while generating the thumbnail of \"{}\": {}", inputFile, e.getMessage());
+			LOGGER.trace("", e);
+		} catch (TimeoutException e) {
+			LOGGER.debug("Timed out waiting for the thumbnail of \"{}\"", inputFile);
+		}
+	}
+
+	/**
+	 * @return the number of thumbnails waiting to be generated.
+	 */
+	public static int getQueueSize() {
+		return EXECUTOR.getQueue().size();
+	}
+
+	private static class Task implements Runnable, Comparable<Task> {
+		private final WeakReference<MediaInfo> mediaInfoReference;
+		private final InputFile inputFile;
+		private final Format format;
+		private final int type;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+		// Only changed while the task is out of the executor queue
+		private volatile Priority priority;
+		private volatile long sequence;
+		private boolean scheduled;
+
+		private Task(MediaInfo mediaInfo, InputFile inputFile, Format format, int type) {
+			this.mediaInfoReference = new WeakReference<>(mediaInfo);
+			this.inputFile = inputFile;
+			this.format = format;
+			this.type = type;
+		}
+
+		private synchronized void schedule(Priority newPriority) {
+			if (!scheduled) {
+				scheduled = true;
+				priority = newPriority;
+				sequence = SEQUENCE.incrementAndGet();
+				EXECUTOR.execute(this);
+			} else if (newPriority.compareTo(priority) < 0 && EXECUTOR.getQueue().remove(this)) {
+				// Still waiting, requeue it with the higher priority
+				priority = newPriority;
+				EXECUTOR.execute(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				MediaInfo mediaInfo = getMediaInfo();
+				if (mediaInfo == null || mediaInfo.isThumbnailReady()) {
+					finish();
+					return;
+				}
+				DLNAThumbnail thumbnail = Parser.getThumbnail(mediaInfo, inputFile, format, type, null);
+				if (thumbnail == null) {
+					finish();
+				} else if (mediaInfo.getFileId() == null) {
+					mediaInfo.setThumbnailId(ThumbnailStore.getTempId(thumbnail));
+					finish();
+				} else {
+					ThumbnailStore.queueId(thumbnail, mediaInfo.getFileId(), mediaInfo.getThumbnailSource(), id -> {
+						if (id != null) {
+							mediaInfo.setThumbnailId(id);
+						}
+						finish();
+					});
+				}
+			} catch (RuntimeException e) {
+				remove();
+				done.completeExceptionally(e);
+			}
+		}
+
+		/**
+		 * @return the media information, read again from the database if
+		 *         it was collected, or {@code null} if it is not stored.
+		 */
+		private MediaInfo getMediaInfo() {
+			MediaInfo mediaInfo = mediaInfoReference.get();
+			if (mediaInfo == null) {
+				File file = inputFile.getFile();
+				if (file != null) {
+					mediaInfo = MediaInfoStore.getMediaInfo(file.getAbsolutePath());
+				}
+			}
+			return mediaInfo;
+		}
+
+		private void finish() {
+			remove();
+			done.complete(null);
+		}
+
+		private void remove() {
+			MediaInfo mediaInfo = mediaInfoReference.get();
+			if (mediaInfo != null) {
+				TASKS.remove(mediaInfo, this);
+			}
+		}
+
+		@Override
+		public int compareTo(Task other) {
+			int result = priority.compareTo(other.priority);
+			return result != 0 ? result : Long.compare(sequence, other.sequence);
+		}
+	}
+
+}
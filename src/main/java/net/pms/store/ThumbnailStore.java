@@ -16,22 +16,61 @@
  */
 package net.pms.store;
 
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.sql.Connection;
-import java.util.HashMap;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableFiles;
 import net.pms.database.MediaTableTVSeries;
 import net.pms.database.MediaTableThumbnails;
+import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnail;
 import net.pms.dlna.DLNAThumbnailInputStream;
+import net.pms.util.SimpleThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ThumbnailStore {
 
-	private static final Map<Long, WeakReference<DLNAThumbnail>> STORE = new HashMap<>();
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailStore.class);
+	private static final Map<Long, WeakReference<DLNAThumbnail>> STORE = new ConcurrentHashMap<>();
+	private static final Map<String, WeakReference<DLNAThumbnail>> VARIANTS = new ConcurrentHashMap<>();
 
-	private static Long tempId = Long.MAX_VALUE;
+	/**
+	 * Serializes the database writes, so that two identical thumbnails can't
+	 * race on the unique MD5 constraint.
+	 */
+	private static final Object WRITE_LOCK = new Object();
+
+	/**
+	 * Thumbnails waiting to be written by {@link #writeQueued()}, which writes
+	 * them in batches sharing a single transaction.
+	 */
+	private static final int WRITE_BATCH_SIZE = 50;
+	private static final BlockingQueue<QueuedThumbnail> QUEUED = new LinkedBlockingQueue<>();
+	private static final AtomicBoolean WRITER_SCHEDULED = new AtomicBoolean();
+	private static final ThreadPoolExecutor WRITER = new ThreadPoolExecutor(
+		0,
+		1,
+		30,
+		TimeUnit.SECONDS,
+		new LinkedBlockingQueue<>(),
+		new SimpleThreadFactory("Thumbnails writer")
+	);
+
+	private static final AtomicLong TEMP_ID = new AtomicLong(Long.MAX_VALUE);
 
 	private ThumbnailStore() {
 		//should not be instantiated
@@ -41,7 +80,7 @@ public class ThumbnailStore {
 		if (thumbnail == null) {
 			return null;
 		}
-		synchronized (STORE) {
+		synchronized (WRITE_LOCK) {
 			Connection connection = null;
 			Long id = null;
 			try {
@@ -63,7 +102,7 @@ public class ThumbnailStore {
 		if (thumbnail == null) {
 			return null;
 		}
-		synchronized (STORE) {
+		synchronized (WRITE_LOCK) {
 			Connection connection = null;
 			Long id = null;
 			try {
@@ -84,73 +123,263 @@ public class ThumbnailStore {
 		}
 	}
 
-	public static Long getIdForTvSerie(DLNAThumbnail thumbnail, long tvSeriesId, ThumbnailSource thumbnailSource) {
+	/**
+	 * Queues a generated thumbnail to be written to the database, together
+	 * with its pre-scaled {@link DLNAImageProfile#JPEG_TN} and
+	 * {@link DLNAImageProfile#PNG_TN} variants.
+	 *
+	 * The variants are created by the calling thread, the database writes
+	 * are batched by a single writer thread.
+	 *
+	 * @param thumbnail the thumbnail.
+	 * @param fileId the file ID to update, or {@code null}.
+	 * @param thumbnailSource the source of the thumbnail.
+	 * @param callback called by the writer thread with the thumbnail ID, or
+	 *            {@code null} if it couldn't be written.
+	 */
+	public static void queueId(DLNAThumbnail thumbnail, Long fileId, ThumbnailSource thumbnailSource, Consumer<Long> callback) {
 		if (thumbnail == null) {
-			return null;
+			callback.accept(null);
+			return;
 		}
-		Connection connection = null;
-		Long id = null;
-		try {
-			connection = MediaDatabase.getConnectionIfAvailable();
-			if (connection != null) {
-				id = MediaTableThumbnails.setThumbnail(connection, thumbnail, false);
-				if (id != null) {
-					STORE.put(id, new WeakReference<>(thumbnail));
-					MediaTableTVSeries.updateThumbnailId(connection, tvSeriesId, id, thumbnailSource.toString());
+		QUEUED.add(new QueuedThumbnail(
+			thumbnail,
+			createVariant(thumbnail, DLNAImageProfile.JPEG_TN),
+			createVariant(thumbnail, DLNAImageProfile.PNG_TN),
+			fileId,
+			thumbnailSource,
+			callback
+		));
+		if (WRITER_SCHEDULED.compareAndSet(false, true)) {
+			WRITER.execute(ThumbnailStore::writeQueued);
+		}
+	}
+
+	private static void writeQueued() {
+		List<QueuedThumbnail> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+		while (true) {
+			QUEUED.drainTo(batch, WRITE_BATCH_SIZE);
+			if (batch.isEmpty()) {
+				WRITER_SCHEDULED.set(false);
+				// Something may have been queued after the drain but before the reset
+				if (QUEUED.isEmpty() || !WRITER_SCHEDULED.compareAndSet(false, true)) {
+					return;
 				}
+				continue;
 			}
-		} finally {
-			MediaDatabase.close(connection);
+			try {
+				write(batch);
+			} catch (RuntimeException e) {
+				LOGGER.error("Unexpected error while writing thumbnails: {}", e.getMessage());
+				LOGGER.trace("", e);
+				for (QueuedThumbnail queued : batch) {
+					queued.id = null;
+				}
+			}
+			for (QueuedThumbnail queued : batch) {
+				if (queued.id != null) {
+					STORE.put(queued.id, new WeakReference<>(queued.thumbnail));
+					putVariant(queued.id, DLNAImageProfile.JPEG_TN, queued.jpegTn);
+					putVariant(queued.id, DLNAImageProfile.PNG_TN, queued.pngTn);
+				}
+				queued.callback.accept(queued.id);
+			}
+			batch.clear();
 		}
-		return id;
 	}
 
-	public static Long getTempId(DLNAThumbnail thumbnail) {
-		if (thumbnail == null) {
-			return null;
+	private static void write(List<QueuedThumbnail> batch) {
+		synchronized (WRITE_LOCK) {
+			Connection connection = null;
+			boolean currentAutoCommit = true;
+			try {
+				connection = MediaDatabase.getConnectionIfAvailable();
+				if (connection != null) {
+					currentAutoCommit = connection.getAutoCommit();
+					connection.setAutoCommit(false);
+					for (QueuedThumbnail queued : batch) {
+						queued.id = MediaTableThumbnails.setThumbnail(connection, queued.thumbnail, queued.jpegTn, queued.pngTn, false);
+						if (queued.id != null && queued.fileId != null) {
+							MediaTableFiles.updateThumbnailId(connection, queued.fileId, queued.id, queued.thumbnailSource.toString());
+						}
+					}
+					connection.commit();
+					LOGGER.trace("Wrote {} thumbnails", batch.size());
+				}
+			} catch (SQLException | RuntimeException e) {
+				LOGGER.error("Error while writing {} thumbnails: {}", batch.size(), e.getMessage());
+				LOGGER.trace("", e);
+				rollback(connection);
+				for (QueuedThumbnail queued : batch) {
+					queued.id = null;
+				}
+			} finally {
+				if (connection != null) {
+					try {
+						connection.setAutoCommit(currentAutoCommit);
+					} catch (SQLException e) {
+						LOGGER.trace("", e);
+					}
+				}
+				MediaDatabase.close(connection);
+			}
 		}
-		synchronized (STORE) {
-			//resume/temp thumbnail
-			Long id = tempId--;
-			STORE.put(id, new WeakReference<>(thumbnail));
-			return id;
+	}
+
+	private static void rollback(Connection connection) {
+		if (connection != null) {
+			try {
+				connection.rollback();
+			} catch (SQLException e) {
+				LOGGER.error("Error while rolling back the thumbnails: {}", e.getMessage());
+				LOGGER.trace("", e);
+			}
 		}
 	}
 
-	public static DLNAThumbnail getThumbnail(Long id) {
-		if (id == null) {
+	public static Long getIdForTvSerie(DLNAThumbnail thumbnail, long tvSeriesId, ThumbnailSource thumbnailSource) {
+		if (thumbnail == null) {
 			return null;
 		}
-		synchronized (STORE) {
-			if (STORE.containsKey(id) && STORE.get(id).get() != null) {
-				return STORE.get(id).get();
-			}
+		synchronized (WRITE_LOCK) {
 			Connection connection = null;
+			Long id = null;
 			try {
 				connection = MediaDatabase.getConnectionIfAvailable();
 				if (connection != null) {
-					DLNAThumbnail thumbnail = MediaTableThumbnails.getThumbnail(connection, id);
-					if (thumbnail != null) {
+					id = MediaTableThumbnails.setThumbnail(connection, thumbnail, false);
+					if (id != null) {
 						STORE.put(id, new WeakReference<>(thumbnail));
-						return thumbnail;
+						MediaTableTVSeries.updateThumbnailId(connection, tvSeriesId, id, thumbnailSource.toString());
 					}
 				}
 			} finally {
 				MediaDatabase.close(connection);
 			}
+			return id;
+		}
+	}
+
+	public static Long getTempId(DLNAThumbnail thumbnail) {
+		if (thumbnail == null) {
+			return null;
 		}
-		return null;
+		//resume/temp thumbnail
+		Long id = TEMP_ID.getAndDecrement();
+		STORE.put(id, new WeakReference<>(thumbnail));
+		return id;
+	}
+
+	public static DLNAThumbnail getThumbnail(Long id) {
+		if (id == null) {
+			return null;
+		}
+		WeakReference<DLNAThumbnail> reference = STORE.get(id);
+		DLNAThumbnail thumbnail = reference != null ? reference.get() : null;
+		if (thumbnail != null) {
+			return thumbnail;
+		}
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			return getThumbnail(connection, id);
+		} finally {
+			MediaDatabase.close(connection);
+		}
+	}
+
+	/**
+	 * Returns a thumbnail from the memory store, or reads it with an already
+	 * open connection.
+	 *
+	 * @param connection the db connection, or {@code null} if unavailable.
+	 * @param id the thumbnail ID.
+	 * @return the thumbnail, or {@code null} if not found.
+	 */
+	private static DLNAThumbnail getThumbnail(Connection connection, Long id) {
+		WeakReference<DLNAThumbnail> reference = STORE.get(id);
+		DLNAThumbnail thumbnail = reference != null ? reference.get() : null;
+		if (thumbnail != null || connection == null) {
+			return thumbnail;
+		}
+		thumbnail = MediaTableThumbnails.getThumbnail(connection, id);
+		if (thumbnail != null) {
+			STORE.put(id, new WeakReference<>(thumbnail));
+		}
+		return thumbnail;
 	}
 
 	public static DLNAThumbnailInputStream getThumbnailInputStream(Long id) {
 		DLNAThumbnail thumbnail = getThumbnail(id);
-		return thumbnail != null ? new DLNAThumbnailInputStream(thumbnail) : null;
+		return thumbnail != null ? new DLNAThumbnailInputStream(thumbnail, id) : null;
+	}
+
+	/**
+	 * Returns the thumbnail scaled to {@link DLNAImageProfile#JPEG_TN} or
+	 * {@link DLNAImageProfile#PNG_TN} without padding. The variant is read
+	 * from the database, or created and stored if it wasn't yet.
+	 *
+	 * @param id the thumbnail ID.
+	 * @param profile the {@link DLNAImageProfile}.
+	 * @return the variant, or {@code null} if the profile has no stored
+	 *         variant or the thumbnail doesn't exist.
+	 */
+	public static DLNAThumbnail getThumbnailVariant(Long id, DLNAImageProfile profile) {
+		if (id == null || !(DLNAImageProfile.JPEG_TN.equals(profile) || DLNAImageProfile.PNG_TN.equals(profile))) {
+			return null;
+		}
+		WeakReference<DLNAThumbnail> reference = VARIANTS.get(getVariantKey(id, profile));
+		DLNAThumbnail variant = reference != null ? reference.get() : null;
+		if (variant != null) {
+			return variant;
+		}
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection != null) {
+				variant = MediaTableThumbnails.getThumbnailVariant(connection, id, profile);
+			}
+			if (variant == null) {
+				DLNAThumbnail thumbnail = getThumbnail(connection, id);
+				variant = thumbnail != null ? createVariant(thumbnail, profile) : null;
+				if (variant != null && connection != null) {
+					synchronized (WRITE_LOCK) {
+						MediaTableThumbnails.setThumbnailVariant(connection, id, profile, variant);
+					}
+				}
+			}
+		} finally {
+			MediaDatabase.close(connection);
+		}
+		putVariant(id, profile, variant);
+		return variant;
+	}
+
+	private static DLNAThumbnail createVariant(DLNAThumbnail thumbnail, DLNAImageProfile profile) {
+		try {
+			return thumbnail.transcode(profile, false);
+		} catch (IOException e) {
+			LOGGER.debug("Could not scale thumbnail to {}: {}", profile, e.getMessage());
+			LOGGER.trace("", e);
+			return null;
+		}
+	}
+
+	private static void putVariant(Long id, DLNAImageProfile profile, DLNAThumbnail variant) {
+		if (variant != null) {
+			VARIANTS.put(getVariantKey(id, profile), new WeakReference<>(variant));
+		}
+	}
+
+	private static String getVariantKey(Long id, DLNAImageProfile profile) {
+		return id + "|" + profile;
 	}
 
 	public static void resetLanguage() {
-		synchronized (STORE) {
+		synchronized (WRITE_LOCK) {
 			STORE.clear();
-			tempId = Long.MAX_VALUE;
+			VARIANTS.clear();
+			TEMP_ID.set(Long.MAX_VALUE);
 			Connection connection = null;
 			try {
 				connection = MediaDatabase.getConnectionIfAvailable();
@@ -165,4 +394,30 @@ public class ThumbnailStore {
 		}
 	}
 
+	private static class QueuedThumbnail {
+		private final DLNAThumbnail thumbnail;
+		private final DLNAThumbnail jpegTn;
+		private final DLNAThumbnail pngTn;
+		private final Long fileId;
+		private final ThumbnailSource thumbnailSource;
+		private final Consumer<Long> callback;
+		private Long id;
+
+		private QueuedThumbnail(
+			DLNAThumbnail thumbnail,
+			DLNAThumbnail jpegTn,
+			DLNAThumbnail pngTn,
+			Long fileId,
+			ThumbnailSource thumbnailSource,
+			Consumer<Long> callback
+		) {
+			this.thumbnail = thumbnail;
+			this.jpegTn = jpegTn;
+			this.pngTn = pngTn;
+			this.fileId = fileId;
+			this.thumbnailSource = thumbnailSource;
+			this.callback = callback;
+		}
+	}
+
 }
@@ -0,0 +1,303 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.store;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.pms.encoders.Engine;
+import net.pms.io.OutputParams;
+import net.pms.io.ProcessWrapper;
+import net.pms.io.ProcessWrapperImpl;
+import net.pms.media.subtitle.MediaSubtitle;
+import net.pms.renderers.Renderer;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the running transcode processes, allowing renderers that play
+ * the same item with the same engine and settings to read from a single
+ * transcode process instead of starting their own.
+ *
+ * The sessions are keyed by the file, the engine, the renderer configuration
+ * and device settings used to build the encoder arguments, the selected audio
+ * and subtitles tracks and the requested time range. A session counts the
+ * open streams of each consumer and is dropped once the last one is closed.
+ */
+public class TranscodeSessions {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TranscodeSessions.class);
+	private static final Map<String, Session> SESSIONS = new HashMap<>();
+
+	private TranscodeSessions() {
+		//should not be instantiated
+	}
+
+	/**
+	 * Returns the key identifying the transcode session of an item.
+	 *
+	 * @param item the item to transcode.
+	 * @param engine the engine used to transcode.
+	 * @param params the transcode parameters.
+	 * @return the session key, or {@code null} if this transcode can't be
+	 *         shared.
+	 */
+	public static String getKey(StoreItem item, Engine engine, OutputParams params) {
+		Renderer renderer = params.getMediaRenderer();
+		if (
+			engine == null ||
+			renderer == null ||
+			params.getHlsConfiguration() != null ||
+			params.getStdIn() != null ||
+			!renderer.getUmsConfiguration().isSharedTranscodeSessions() ||
+			renderer.getUmsConfiguration().getTrancodeBlocksMultipleConnections()
+		) {
+			return null;
+		}
+		// the renderer configuration file and the device settings determine the encoder arguments
+		File rendererFile = renderer.getFile() != null ? renderer.getParentFile() : null;
+		if (rendererFile == null) {
+			return null;
+		}
+		return item.getSystemName() + "|" +
+			engine.getEngineId() + "|" +
+			rendererFile.getAbsolutePath() + "|" +
+			getDeviceSettingsKey(renderer.getDeviceConfiguration()) + "|" +
+			(params.getAid() != null ? params.getAid().getId() : -1) + "|" +
+			getSubtitlesKey(params.getSid()) + "|" +
+			params.getTimeSeek() + "|" +
+			params.getTimeEnd();
+	}
+
+	private static String getDeviceSettingsKey(PropertiesConfiguration deviceConfiguration) {
+		if (deviceConfiguration == null || deviceConfiguration.isEmpty()) {
+			return "";
+		}
+		// sorted, so that the same settings always give the same key
+		Map<String, Object> settings = new TreeMap<>();
+		for (Iterator<String> keys = deviceConfiguration.getKeys(); keys.hasNext();) {
+			String settingKey = keys.next();
+			settings.put(settingKey, deviceConfiguration.getProperty(settingKey));
+		}
+		return settings.toString();
+	}
+
+	private static String getSubtitlesKey(MediaSubtitle subtitle) {
+		if (subtitle == null) {
+			return "-1";
+		}
+		if (subtitle.isExternal() && subtitle.getExternalFile() != null) {
+			return subtitle.getExternalFile().getAbsolutePath();
+		}
+		return String.valueOf(subtitle.getId());
+	}
+
+	/**
+	 * Returns the running transcode process of a session, if a new reader
+	 * can still be attached to it from the start.
+	 *
+	 * @param key the session key, can be {@code null}.
+	 * @return the running process, or {@code null}.
+	 */
+	public static ProcessWrapper get(String key) {
+		if (key == null) {
+			return null;
+		}
+		synchronized (SESSIONS) {
+			Session session = SESSIONS.get(key);
+			if (session != null) {
+				if (session.process.canAttachInputStream(0)) {
+					LOGGER.debug("Sharing running transcode process {} with {} other consumers", session.process, session.consumers.size());
+					return session.process;
+				}
+				if (session.process.isDestroyed()) {
+					SESSIONS.remove(key);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Registers the transcode process of a session. The session is removed
+	 * once the process ends or its last stream is closed.
+	 *
+	 * @param key the session key, can be {@code null}.
+	 * @param process the transcode process.
+	 */
+	public static void put(String key, ProcessWrapper process) {
+		if (key == null || !(process instanceof ProcessWrapperImpl processWrapperImpl)) {
+			return;
+		}
+		Session session = new Session(processWrapperImpl);
+		synchronized (SESSIONS) {
+			SESSIONS.put(key, session);
+		}
+		processWrapperImpl.addEndListener(() -> {
+			synchronized (SESSIONS) {
+				SESSIONS.remove(key, session);
+			}
+		});
+	}
+
+	/**
+	 * Registers a stream read by a consumer from a transcode process, and
+	 * returns it wrapped so that closing it unregisters it.
+	 *
+	 * @param process the transcode process.
+	 * @param consumer the item that reads from the process.
+	 * @param inputStream the stream read from the process.
+	 * @return the stream to hand to the consumer.
+	 */
+	public static InputStream attach(ProcessWrapper process, StoreItem consumer, InputStream inputStream) {
+		if (process == null || inputStream == null) {
+			return inputStream;
+		}
+		synchronized (SESSIONS) {
+			Session session = getSession(process);
+			if (session == null) {
+				return inputStream;
+			}
+			session.consumers.merge(consumer, 1, Integer::sum);
+		}
+		return new SessionInputStream(inputStream, process, consumer);
+	}
+
+	/**
+	 * Unregisters a consumer of a transcode process, whatever the number of
+	 * streams it still has open on it.
+	 *
+	 * @param process the transcode process.
+	 * @param consumer the item that no longer reads from the process.
+	 * @return {@code true} if no other consumer reads from the process, so
+	 *         the caller may stop it.
+	 */
+	public static boolean release(ProcessWrapper process, StoreItem consumer) {
+		if (process == null) {
+			return true;
+		}
+		synchronized (SESSIONS) {
+			Session session = getSession(process);
+			if (session != null) {
+				session.consumers.remove(consumer);
+				return session.consumers.isEmpty();
+			}
+		}
+		return true;
+	}
+
+	private static void close(ProcessWrapper process, StoreItem consumer) {
+		synchronized (SESSIONS) {
+			Session session = getSession(process);
+			if (session == null) {
+				return;
+			}
+			Integer streams = session.consumers.get(consumer);
+			if (streams != null) {
+				if (streams > 1) {
+					session.consumers.put(consumer, streams - 1);
+				} else {
+					session.consumers.remove(consumer);
+				}
+			}
+			if (session.consumers.isEmpty()) {
+				// the buffer stops the process once its last reader is gone
+				SESSIONS.values().remove(session);
+			}
+		}
+	}
+
+	private static Session getSession(ProcessWrapper process) {
+		for (Session session : SESSIONS.values()) {
+			if (session.process == process) {
+				return session;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param process the transcode process.
+	 * @param consumer the item asking.
+	 * @return whether another consumer reads from the process.
+	 */
+	public static boolean isShared(ProcessWrapper process, StoreItem consumer) {
+		if (process == null) {
+			return false;
+		}
+		synchronized (SESSIONS) {
+			Session session = getSession(process);
+			if (session == null) {
+				return false;
+			}
+			for (StoreItem other : session.consumers.keySet()) {
+				if (other != consumer) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static class Session {
+		private final ProcessWrapperImpl process;
+		/**
+		 * The open streams of each consumer.
+		 */
+		private final Map<StoreItem, Integer> consumers = new IdentityHashMap<>();
+
+		private Session(ProcessWrapperImpl process) {
+			this.process = process;
+		}
+	}
+
+	/**
+	 * A stream read from a shared process, that unregisters itself from its
+	 * session once closed.
+	 */
+	private static class SessionInputStream extends FilterInputStream {
+		private final ProcessWrapper process;
+		private final StoreItem consumer;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private SessionInputStream(InputStream in, ProcessWrapper process, StoreItem consumer) {
+			super(in);
+			this.process = process;
+			this.consumer = consumer;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				if (closed.compareAndSet(false, true)) {
+					TranscodeSessions.close(process, consumer);
+				}
+			}
+		}
+	}
+
+}
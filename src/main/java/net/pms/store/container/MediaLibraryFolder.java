@@ -21,10 +21,13 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableAudioMetadata;
 import net.pms.database.MediaTableFiles;
@@ -35,12 +38,14 @@ import net.pms.database.MediaTableVideoMetadataActors;
 import net.pms.database.MediaTableVideoMetadataCountries;
 import net.pms.database.MediaTableVideoMetadataDirectors;
 import net.pms.database.MediaTableVideoMetadataGenres;
+import net.pms.database.TableGenerations;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.renderers.Renderer;
 import net.pms.store.MediaStoreIds;
 import net.pms.store.StoreResource;
 import net.pms.store.item.MediaLibraryTvEpisode;
 import net.pms.store.item.RealFile;
+import net.pms.util.FullyPlayedAction;
 import net.pms.util.UMSUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
@@ -62,6 +67,11 @@ public class MediaLibraryFolder extends MediaLibraryAbstract {
 	private int[] expectedOutputs;
 	private List<String> populatedVirtualFoldersListFromDb;
 	private List<String> populatedFilesListFromDb;
+	private volatile long populatedGeneration = -1;
+	private final Map<String, StoreResource> pagedChildren = new HashMap<>();
+	private long pagedGeneration = -1;
+	private int pagedCount = -1;
+	private boolean pagedMismatch;
 
 	public MediaLibraryFolder(Renderer renderer, String i18nName, String sql, int expectedOutput) {
 		this(renderer, i18nName, new String[]{sql}, new int[]{expectedOutput}, null);
@@ -84,6 +94,148 @@ public class MediaLibraryFolder extends MediaLibraryAbstract {
 		setDiscovered(true);
 	}
 
+	/**
+	 * Whether this folder is read from the database one page at a time.
+	 *
+	 * Only the folders listing the files of a single ordered query are paged,
+	 * and only while each file of the query is exactly one child, so that a
+	 * page of the query is a page of the folder and the query count is the
+	 * children count.
+	 *
+	 * @return whether this folder is paged.
+	 */
+	public boolean isPaged() {
+		if (!PMS.getConfiguration().isMediaLibraryPaging() || sqls.length != 1 || sqls[0] == null ||
+			(expectedOutputs[0] != FILES && expectedOutputs[0] != FILES_NOSORT) || !isOneChildPerFile()) {
+			return false;
+		}
+		synchronized (this) {
+			checkPagedGeneration();
+			if (pagedMismatch) {
+				return false;
+			}
+		}
+		String sql = sqls[0].toUpperCase();
+		return !sql.startsWith(WITH) && sql.contains(ORDER_BY) && !sql.contains(LIMIT);
+	}
+
+	/**
+	 * Whether the settings ensure that adding a file adds exactly one child:
+	 * no resume entry, no transcode, live subtitles or dynamic playlist
+	 * folder, no hidden files and no secondary format entry.
+	 *
+	 * What depends on the file itself (share access and format support) is
+	 * checked when the page is created.
+	 */
+	private boolean isOneChildPerFile() {
+		UmsConfiguration configuration = renderer.getUmsConfiguration();
+		return (!configuration.useCode() || PMS.get().masterCodeValid()) &&
+			(!configuration.isResumeEnabled() || renderer.disableUmsResume() || renderer.isSamsung()) &&
+			configuration.getFullyPlayedAction() != FullyPlayedAction.HIDE_MEDIA &&
+			!configuration.isShowTranscodeFolder() &&
+			(configuration.isDisableSubtitles() || !configuration.isAutoloadExternalSubtitles() || !configuration.isShowLiveSubtitlesFolder()) &&
+			(!configuration.isDynamicPls() || renderer.isNoDynPlsFolder()) &&
+			!renderer.isPS3();
+	}
+
+	/**
+	 * Returns one page of the children of a paged folder. Only the children
+	 * of the page are created, and they are kept until the tables of the
+	 * query change.
+	 *
+	 * If a file of the page is not exactly one child, e.g. it is not
+	 * supported by the renderer, or is missing or changed on disk so that
+	 * the page would be shorter than the rows counted, the folder stops
+	 * being paged until its tables change, and {@code null} is returned so
+	 * that the caller discovers it completely.
+	 *
+	 * @param start the index of the first child
+	 * @param count the maximum number of files, or 0 for all the remaining
+	 * @return the children of the page, or {@code null} if the folder can't
+	 *         be paged.
+	 */
+	public synchronized List<StoreResource> getChildrenPage(int start, int count) {
+		List<StoreResource> page = new ArrayList<>();
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			if (connection != null) {
+				checkPagedGeneration();
+				List<File> files = MediaTableFiles.getFiles(connection, transformSQL(sqls[0]), start, count);
+				if (files == null) {
+					LOGGER.debug("Files of \"{}\" changed since they were parsed, it will not be paged", getName());
+					setPagedMismatch();
+					return null;
+				}
+				for (File file : files) {
+					StoreResource resource = pagedChildren.get(file.getAbsolutePath());
+					if (resource == null) {
+						int size = getChildren().size();
+						if (renderer.hasShareAccess(file)) {
+							addChild(new RealFile(renderer, file));
+						}
+						if (getChildren().size() != size + 1) {
+							LOGGER.debug("\"{}\" is not one child of \"{}\", it will not be paged", file.getAbsolutePath(), getName());
+							setPagedMismatch();
+							return null;
+						}
+						resource = getChildren().get(size);
+						pagedChildren.put(file.getAbsolutePath(), resource);
+					}
+					page.add(resource);
+				}
+			}
+		} finally {
+			MediaDatabase.close(connection);
+		}
+		return page;
+	}
+
+	@Override
+	public int childrenCount() {
+		if (!isPaged()) {
+			return super.childrenCount();
+		}
+		synchronized (this) {
+			checkPagedGeneration();
+			if (pagedCount < 0) {
+				Connection connection = null;
+				try {
+					connection = MediaDatabase.getConnectionIfAvailable();
+					if (connection != null) {
+						pagedCount = MediaTableFiles.getFilesCount(connection, transformSQL(sqls[0]));
+					}
+				} finally {
+					MediaDatabase.close(connection);
+				}
+			}
+			return Math.max(0, pagedCount);
+		}
+	}
+
+	private void setPagedMismatch() {
+		clearChildren();
+		pagedChildren.clear();
+		pagedMismatch = true;
+	}
+
+	/**
+	 * Drops the created children of a paged folder when the tables of its
+	 * query were written.
+	 */
+	private void checkPagedGeneration() {
+		long generation = TableGenerations.get(sqls[0]);
+		if (generation != pagedGeneration) {
+			// the children may come from a complete discovery, after a mismatch
+			clearChildren();
+			setDiscovered(false);
+			pagedChildren.clear();
+			pagedCount = -1;
+			pagedMismatch = false;
+			pagedGeneration = generation;
+		}
+	}
+
 	private String transformSQL(String sql) {
 		int i = 1;
 		StoreResource resource = this;
@@ -108,10 +260,16 @@ public class MediaLibraryFolder extends MediaLibraryAbstract {
 	/**
 	 * Whether the contents of this virtual folder should be refreshed.
 	 *
+	 * The SQL query is only run again when one of the tables it reads was
+	 * written since the folder was populated.
+	 *
 	 * @return true if the old cached SQL result matches the new one.
 	 */
 	@Override
 	public boolean isRefreshNeeded() {
+		if (sqls.length > 0 && sqls[0] != null && populatedGeneration == TableGenerations.get(sqls[0])) {
+			return false;
+		}
 		Connection connection = null;
 		try {
 			connection = MediaDatabase.getConnectionIfAvailable();
@@ -119,6 +277,7 @@ public class MediaLibraryFolder extends MediaLibraryAbstract {
 				String sql = sqls[0];
 				int expectedOutput = expectedOutputs[0];
 				if (sql != null) {
+					long generation = TableGenerations.get(sql);
 					sql = transformSQL(sql);
 
 					if (
@@ -132,9 +291,9 @@ public class MediaLibraryFolder extends MediaLibraryAbstract {
 						expectedOutput == ISOS_WITH_FILTERS ||
 						expectedOutput == PLAYLISTS
 					) {
-						return !UMSUtils.isListsEqual(populatedFilesListFromDb, MediaTableFiles.getStrings(connection, sql));
+						return isRefreshNeeded(populatedFilesListFromDb, MediaTableFiles.getStrings(connection, sql), generation);
 					} else if (isTextOutputExpected(expectedOutput)) {
-						return !UMSUtils.isListsEqual(populatedVirtualFoldersListFromDb, MediaTableFiles.getStrings(connection, sql));
+						return isRefreshNeeded(populatedVirtualFoldersListFromDb, MediaTableFiles.getStrings(connection, sql), generation);
 					} else if (expectedOutput == EMPTY_FILES_WITH_FILTERS) {
 						return false;
 					}
@@ -149,6 +308,15 @@ public class MediaLibraryFolder extends MediaLibraryAbstract {
 		return true;
 	}
 
+	private boolean isRefreshNeeded(List<String> populated, List<String> current, long generation) {
+		if (UMSUtils.isListsEqual(populated, current)) {
+			// The tables were written but not the rows of this folder
+			populatedGeneration = generation;
+			return false;
+		}
+		return true;
+	}
+
 	private static List<String> getTVSeriesQueries(String tableName, String columnName) {
 		List<String> queries = new ArrayList<>();
 		queries.add(SELECT + columnName + FROM + tableName + WHERE + MediaTableTVSeries.CHILD_ID + IS_NOT_NULL + ORDER_BY + columnName + ASC);
@@ -240,6 +408,13 @@ public class MediaLibraryFolder extends MediaLibraryAbstract {
 			try {
 				connection = MediaDatabase.getConnectionIfAvailable();
 				if (connection != null) {
+					populatedGeneration = TableGenerations.get(sqls[0]);
+					synchronized (this) {
+						// after a mismatch, keep the discovered children until the tables change
+						if (!pagedMismatch) {
+							pagedGeneration = -1;
+						}
+					}
 					firstSql = sqls[0];
 					expectedOutput = expectedOutputs[0];
 					if (firstSql != null) {
@@ -30,6 +30,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 import net.pms.configuration.sharedcontent.SharedContentConfiguration;
 import net.pms.database.MediaDatabase;
 import net.pms.database.MediaTableFilesStatus;
+import net.pms.database.TableGenerations;
 import net.pms.platform.PlatformUtils;
 import net.pms.renderers.Renderer;
 import net.pms.store.MediaStatusStore;
@@ -306,6 +307,7 @@ public class MediaMonitor extends LocalizedStoreContainer {
 			}
 		} finally {
 			MediaDatabase.close(connection);
+			TableGenerations.increment(MediaTableFilesStatus.TABLE_NAME);
 		}
 	}
 
@@ -318,6 +320,7 @@ public class MediaMonitor extends LocalizedStoreContainer {
 			}
 		} finally {
 			MediaDatabase.close(connection);
+			TableGenerations.increment(MediaTableFilesStatus.TABLE_NAME);
 		}
 	}
 
@@ -19,14 +19,22 @@ package net.pms.store.item;
 import com.github.junrar.Archive;
 import com.github.junrar.exception.RarException;
 import com.github.junrar.rarfile.FileHeader;
+import com.github.junrar.volume.FileVolume;
 import com.github.junrar.volume.FileVolumeManager;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import net.pms.PMS;
 import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.formats.Format;
+import net.pms.io.ArchiveExtractionCache;
+import net.pms.io.FileRangeInputStream;
+import net.pms.io.SegmentedFileInputStream;
+import net.pms.io.SegmentedFileInputStream.Segment;
 import net.pms.media.MediaInfo;
 import net.pms.parsers.Parser;
 import net.pms.renderers.Renderer;
@@ -39,10 +47,13 @@ import org.slf4j.LoggerFactory;
 
 public class RarredEntry extends StoreItem implements IPushOutput {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RarredEntry.class);
+	private static final byte STORED_METHOD = 0x30;
 	private final String name;
 	private final File file;
 	private final String fileHeaderName;
 	private final long length;
+	private List<Segment> storedSegments;
+	private String storedSegmentsVolumes;
 
 	public RarredEntry(Renderer renderer, String name, File file, String fileHeaderName, long length) {
 		super(renderer);
@@ -61,9 +72,41 @@ public class RarredEntry extends StoreItem implements IPushOutput {
 		return super.getThumbnailURL(profile);
 	}
 
+	/**
+	 * Returns a seekable stream of the entry: entries stored without
+	 * compression are read directly from the archive volumes, the others from
+	 * the {@link ArchiveExtractionCache}.
+	 */
 	@Override
 	public InputStream getInputStream() throws IOException {
-		return null;
+		List<Segment> segments = getStoredSegments();
+		if (segments != null && segments.size() == 1) {
+			Segment segment = segments.get(0);
+			return new FileRangeInputStream(segment.getFile(), segment.getOffset(), segment.getLength());
+		} else if (segments != null) {
+			return new SegmentedFileInputStream(segments);
+		}
+		return ArchiveExtractionCache.getInputStream(file, fileHeaderName, length, this::extract);
+	}
+
+	private void extract(OutputStream out) throws IOException {
+		List<Segment> segments = getStoredSegments();
+		if (segments != null) {
+			try (InputStream in = new SegmentedFileInputStream(segments)) {
+				in.transferTo(out);
+			}
+			return;
+		}
+		try (Archive rarFile = new Archive(new FileVolumeManager(file), null, null)) {
+			FileHeader header = getFileHeader(rarFile);
+			if (header == null) {
+				throw new IOException("No such entry " + fileHeaderName + " in " + file);
+			}
+			LOGGER.trace("Starting the extraction of " + header.getFileName());
+			rarFile.extractFile(header, out);
+		} catch (RarException e) {
+			throw new IOException(e);
+		}
 	}
 
 	@Override
@@ -93,41 +136,80 @@ public class RarredEntry extends StoreItem implements IPushOutput {
 
 	@Override
 	public boolean isUnderlyingSeekSupported() {
-		return length() < MAX_ARCHIVE_SIZE_SEEK;
+		return getStoredSegments() != null || length <= PMS.getConfiguration().getArchiveExtractionCacheSize() * 1024L * 1024L;
 	}
 
 	@Override
 	public void push(final OutputStream out) throws IOException {
-		Runnable r = () -> {
-			Archive rarFile = null;
-			try {
-				rarFile = new Archive(new FileVolumeManager(file), null, null);
-				FileHeader header = null;
-				for (FileHeader fh : rarFile.getFileHeaders()) {
-					if (fh.getFileName().equals(fileHeaderName)) {
-						header = fh;
-						break;
-					}
-				}
-				if (header != null) {
-					LOGGER.trace("Starting the extraction of " + header.getFileName());
-					rarFile.extractFile(header, out);
+		ArchiveExtractionCache.push(this::extract, out);
+	}
+
+	/**
+	 * Finds the parts of the archive volumes holding the entry, when it is
+	 * stored without compression.
+	 *
+	 * They are found again when a volume was modified.
+	 *
+	 * @return the parts in order, or {@code null} if the entry is compressed,
+	 *         encrypted or if a volume is missing.
+	 */
+	private synchronized List<Segment> getStoredSegments() {
+		if (storedSegmentsVolumes == null || !storedSegmentsVolumes.equals(getVolumesState(storedSegments))) {
+			storedSegments = findStoredSegments();
+			storedSegmentsVolumes = getVolumesState(storedSegments);
+		}
+		return storedSegments;
+	}
+
+	/**
+	 * @return the paths and modification times of the archive and of the
+	 *         volumes holding the segments.
+	 */
+	private String getVolumesState(List<Segment> segments) {
+		StringBuilder state = new StringBuilder(file.getAbsolutePath()).append('|').append(file.lastModified());
+		if (segments != null) {
+			for (Segment segment : segments) {
+				state.append('|').append(segment.getFile().getAbsolutePath()).append('|').append(segment.getFile().lastModified());
+			}
+		}
+		return state.toString();
+	}
+
+	private List<Segment> findStoredSegments() {
+		List<Segment> segments = new ArrayList<>();
+		long total = 0;
+		try (Archive rarFile = new Archive(new FileVolumeManager(file), null, null)) {
+			if (rarFile.isEncrypted()) {
+				return null;
+			}
+			FileHeader header = getFileHeader(rarFile);
+			while (header != null) {
+				if (header.isEncrypted() || header.getUnpMethod() != STORED_METHOD || !(rarFile.getVolume() instanceof FileVolume volume)) {
+					return null;
 				}
-			} catch (RarException | IOException e) {
-				LOGGER.debug("Unpack error, maybe it's normal, as backend can be terminated: " + e.getMessage());
-			} finally {
-				try {
-					if (rarFile != null) {
-						rarFile.close();
-					}
-					out.close();
-				} catch (IOException e) {
-					LOGGER.debug("Caught exception", e);
+				segments.add(new Segment(volume.getFile(), header.getPositionInFile() + header.getHeaderSize(false), header.getFullPackSize()));
+				total += header.getFullPackSize();
+				if (!header.isSplitAfter()) {
+					break;
 				}
+				// The entry continues in the next volume
+				rarFile.setVolume(rarFile.getVolumeManager().nextVolume(rarFile, rarFile.getVolume()));
+				header = getFileHeader(rarFile);
 			}
-		};
+		} catch (RarException | IOException e) {
+			LOGGER.debug("Could not read the volumes of \"{}\": {}", file, e.getMessage());
+			return null;
+		}
+		return !segments.isEmpty() && total == length ? segments : null;
+	}
 
-		new Thread(r, "Rar Extractor").start();
+	private FileHeader getFileHeader(Archive rarFile) {
+		for (FileHeader fh : rarFile.getFileHeaders()) {
+			if (fh.getFileName().equals(fileHeaderName)) {
+				return fh;
+			}
+		}
+		return null;
 	}
 
 	@Override
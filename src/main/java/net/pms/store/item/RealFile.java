@@ -20,7 +20,6 @@ import com.sun.jna.Platform;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -30,6 +29,7 @@ import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.formats.Format;
 import net.pms.formats.FormatFactory;
+import net.pms.io.FileRangeInputStream;
 import net.pms.media.MediaLang;
 import net.pms.media.MediaType;
 import net.pms.media.subtitle.MediaOnDemandSubtitle;
@@ -41,6 +41,7 @@ import net.pms.store.MediaInfoStore;
 import net.pms.store.MediaStatusStore;
 import net.pms.store.StoreItem;
 import net.pms.store.SystemFilesHelper;
+import net.pms.store.ThumbnailGenerator;
 import net.pms.store.container.ChapterFileTranscodeVirtualFolder;
 import net.pms.store.container.OpenSubtitleFolder;
 import net.pms.store.container.VirtualFolder;
@@ -126,7 +127,7 @@ public class RealFile extends StoreItem {
 
 			// XXX isMediaInfoThumbnailGeneration is only true for the "default renderer"
 			if (getParent().getDefaultRenderer().isMediaInfoThumbnailGeneration()) {
-				checkThumbnail();
+				queueThumbnail(ThumbnailGenerator.Priority.BACKGROUND);
 			}
 		} else if (getType() == Format.UNKNOWN) {
 			return false;
@@ -143,8 +144,8 @@ public class RealFile extends StoreItem {
 	@Override
 	public InputStream getInputStream() {
 		try {
-			return new FileInputStream(getFile());
-		} catch (FileNotFoundException e) {
+			return new FileRangeInputStream(getFile());
+		} catch (IOException e) {
 			LOGGER.debug("File not found: {}", getFile().getAbsolutePath());
 		}
 
@@ -281,11 +282,21 @@ public class RealFile extends StoreItem {
 		checkThumbnail(input);
 	}
 
+	private void queueThumbnail(ThumbnailGenerator.Priority priority) {
+		if (getMediaInfo() != null && getMediaInfo().getThumbnailId() == null) {
+			InputFile input = new InputFile();
+			input.setFile(getFile());
+			queueThumbnail(input, priority);
+		}
+	}
+
 	@Override
 	public String getThumbnailURL(DLNAImageProfile profile) {
 		if (getType() == Format.IMAGE && !renderer.getUmsConfiguration().getImageThumbnailsEnabled()) {
 			return null;
 		}
+		// The renderer is likely to request it soon
+		queueThumbnail(ThumbnailGenerator.Priority.BROWSE);
 		return super.getThumbnailURL(profile);
 	}
 
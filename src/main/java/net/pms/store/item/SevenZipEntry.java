@@ -17,14 +17,15 @@
 package net.pms.store.item;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import net.pms.PMS;
 import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.formats.Format;
+import net.pms.io.ArchiveExtractionCache;
 import net.pms.media.MediaInfo;
 import net.pms.parsers.Parser;
 import net.pms.renderers.Renderer;
@@ -36,7 +37,6 @@ import net.sf.sevenzipjbinding.IInArchive;
 import net.sf.sevenzipjbinding.SevenZip;
 import net.sf.sevenzipjbinding.SevenZipException;
 import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
-import net.sf.sevenzipjbinding.simple.ISimpleInArchive;
 import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,7 +46,6 @@ public class SevenZipEntry extends StoreItem implements IPushOutput {
 	private final File file;
 	private final String zeName;
 	private final long length;
-	private IInArchive arc;
 
 	public SevenZipEntry(Renderer renderer, File file, String zeName, long length) {
 		super(renderer);
@@ -65,9 +64,42 @@ public class SevenZipEntry extends StoreItem implements IPushOutput {
 		return super.getThumbnailURL(profile);
 	}
 
+	/**
+	 * Returns a seekable stream of the entry from the
+	 * {@link ArchiveExtractionCache}.
+	 */
 	@Override
 	public InputStream getInputStream() throws IOException {
-		return null;
+		return ArchiveExtractionCache.getInputStream(file, zeName, length, this::extract);
+	}
+
+	private void extract(OutputStream out) throws IOException {
+		try (
+			RandomAccessFile rf = new RandomAccessFile(file, "r");
+			IInArchive arc = SevenZip.openInArchive(null, new RandomAccessFileInStream(rf))
+		) {
+			ISimpleInArchiveItem realItem = null;
+			for (ISimpleInArchiveItem item : arc.getSimpleInterface().getArchiveItems()) {
+				if (item.getPath().equals(zeName)) {
+					realItem = item;
+					break;
+				}
+			}
+
+			if (realItem == null) {
+				throw new IOException("No such item " + zeName + " found in archive");
+			}
+
+			realItem.extractSlow((byte[] data) -> {
+				try {
+					out.write(data);
+				} catch (IOException e) {
+					LOGGER.debug("Caught exception", e);
+					throw new SevenZipException(e);
+				}
+				return data.length;
+			});
+		}
 	}
 
 	@Override
@@ -97,53 +129,12 @@ public class SevenZipEntry extends StoreItem implements IPushOutput {
 
 	@Override
 	public boolean isUnderlyingSeekSupported() {
-		return length() < MAX_ARCHIVE_SIZE_SEEK;
+		return length <= PMS.getConfiguration().getArchiveExtractionCacheSize() * 1024L * 1024L;
 	}
 
 	@Override
 	public void push(final OutputStream out) throws IOException {
-		Runnable r = () -> {
-			try {
-				RandomAccessFile rf = new RandomAccessFile(file, "r");
-
-				arc = SevenZip.openInArchive(null, new RandomAccessFileInStream(rf));
-				ISimpleInArchive simpleInArchive = arc.getSimpleInterface();
-				ISimpleInArchiveItem realItem = null;
-
-				for (ISimpleInArchiveItem item : simpleInArchive.getArchiveItems()) {
-					if (item.getPath().equals(zeName)) {
-						realItem = item;
-						break;
-					}
-				}
-
-				if (realItem == null) {
-					LOGGER.trace("No such item " + zeName + " found in archive");
-					return;
-				}
-
-				realItem.extractSlow((byte[] data) -> {
-					try {
-						out.write(data);
-					} catch (IOException e) {
-						LOGGER.debug("Caught exception", e);
-						throw new SevenZipException();
-					}
-					return data.length;
-				});
-			} catch (FileNotFoundException | SevenZipException e) {
-				LOGGER.debug("Unpack error. Possibly harmless.", e.getMessage());
-			} finally {
-				try {
-					arc.close();
-					out.close();
-				} catch (IOException e) {
-					LOGGER.debug("Caught exception", e);
-				}
-			}
-		};
-
-		new Thread(r, "7Zip Extractor").start();
+		ArchiveExtractionCache.push(this::extract, out);
 	}
 
 	@Override
@@ -17,14 +17,23 @@
 package net.pms.store.item;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import net.pms.PMS;
 import net.pms.dlna.DLNAImageProfile;
 import net.pms.dlna.DLNAThumbnailInputStream;
 import net.pms.formats.Format;
+import net.pms.io.ArchiveExtractionCache;
+import net.pms.io.FileRangeInputStream;
 import net.pms.media.MediaInfo;
 import net.pms.parsers.Parser;
 import net.pms.renderers.Renderer;
@@ -37,10 +46,18 @@ import org.slf4j.LoggerFactory;
 
 public class ZippedEntry extends StoreItem implements IPushOutput {
 	private static final Logger LOGGER = LoggerFactory.getLogger(ZippedEntry.class);
+	private static final int LOCAL_SIGNATURE = 0x04034b50;
+	private static final int LOCAL_HEADER_LENGTH = 30;
+	private static final int CD_SIGNATURE = 0x02014b50;
+	private static final int CD_HEADER_LENGTH = 46;
+	private static final int EOCD_SIGNATURE = 0x06054b50;
+	private static final int EOCD_LENGTH = 22;
+	private static final long ZIP64_MARKER = 0xFFFFFFFFL;
 	private final File file;
 	private final String zeName;
 	private final long length;
-	private ZipFile zipFile;
+	private Long storedDataOffset;
+	private long storedDataModified;
 
 	public ZippedEntry(Renderer renderer, File file, String zeName, long length) {
 		super(renderer);
@@ -59,9 +76,58 @@ public class ZippedEntry extends StoreItem implements IPushOutput {
 		return super.getThumbnailURL(profile);
 	}
 
+	/**
+	 * Returns a seekable stream of the entry: entries stored without
+	 * compression are read directly from the zip file, the others from the
+	 * {@link ArchiveExtractionCache}.
+	 */
 	@Override
-	public InputStream getInputStream() {
-		return null;
+	public InputStream getInputStream() throws IOException {
+		long dataOffset = getStoredDataOffset();
+		if (dataOffset != -1) {
+			return new FileRangeInputStream(file, dataOffset, length);
+		}
+		return ArchiveExtractionCache.getInputStream(file, zeName, length, this::extract, this::open);
+	}
+
+	private void extract(OutputStream out) throws IOException {
+		long dataOffset = getStoredDataOffset();
+		if (dataOffset != -1) {
+			try (InputStream in = new FileRangeInputStream(file, dataOffset, length)) {
+				in.transferTo(out);
+			}
+			return;
+		}
+		try (InputStream in = open()) {
+			in.transferTo(out);
+		}
+	}
+
+	/**
+	 * Opens the inflated stream of the entry, which closes the zip file when
+	 * it is closed.
+	 */
+	private InputStream open() throws IOException {
+		ZipFile zipFile = new ZipFile(file);
+		try {
+			ZipEntry ze = zipFile.getEntry(zeName);
+			if (ze == null) {
+				throw new IOException("No such entry " + zeName + " in " + file);
+			}
+			return new FilterInputStream(zipFile.getInputStream(ze)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						zipFile.close();
+					}
+				}
+			};
+		} catch (IOException | RuntimeException e) {
+			zipFile.close();
+			throw e;
+		}
 	}
 
 	@Override
@@ -91,35 +157,81 @@ public class ZippedEntry extends StoreItem implements IPushOutput {
 
 	@Override
 	public boolean isUnderlyingSeekSupported() {
-		return length() < MAX_ARCHIVE_SIZE_SEEK;
+		return getStoredDataOffset() != -1 || length <= PMS.getConfiguration().getArchiveExtractionCacheSize() * 1024L * 1024L;
 	}
 
 	@Override
 	public void push(final OutputStream out) throws IOException {
-		Runnable r = () -> {
-			try {
-				int n;
-				byte[] data = new byte[65536];
-				zipFile = new ZipFile(file);
-				ZipEntry ze = zipFile.getEntry(zeName);
-				try (InputStream in = zipFile.getInputStream(ze)) {
-					while ((n = in.read(data)) > -1) {
-						out.write(data, 0, n);
+		ArchiveExtractionCache.push(this::extract, out);
+	}
+
+	/**
+	 * Finds the position of the data of the entry in the zip file, by reading
+	 * the central directory and the local header of the entry. It is found
+	 * again when the zip file was modified.
+	 *
+	 * @return the position, or -1 if the entry is compressed, encrypted or
+	 *         in a zip64 archive.
+	 */
+	private synchronized long getStoredDataOffset() {
+		long modified = file.lastModified();
+		if (storedDataOffset == null || storedDataModified != modified) {
+			storedDataOffset = findStoredDataOffset();
+			storedDataModified = modified;
+		}
+		return storedDataOffset;
+	}
+
+	private long findStoredDataOffset() {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			// The end of central directory record is followed by a comment of up to 65535 bytes
+			int tailLength = (int) Math.min(raf.length(), EOCD_LENGTH + 0xFFFF);
+			ByteBuffer tail = read(raf, raf.length() - tailLength, tailLength);
+			int eocd = tailLength - EOCD_LENGTH;
+			while (eocd >= 0 && tail.getInt(eocd) != EOCD_SIGNATURE) {
+				eocd--;
+			}
+			if (eocd < 0) {
+				return -1;
+			}
+			long cdLength = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+			long cdOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+			if (cdOffset == ZIP64_MARKER || cdLength > Integer.MAX_VALUE) {
+				return -1;
+			}
+			ByteBuffer cd = read(raf, cdOffset, (int) cdLength);
+			byte[] name = zeName.getBytes(StandardCharsets.UTF_8);
+			int pos = 0;
+			while (pos + CD_HEADER_LENGTH <= cdLength && cd.getInt(pos) == CD_SIGNATURE) {
+				int nameLength = Short.toUnsignedInt(cd.getShort(pos + 28));
+				int extraLength = Short.toUnsignedInt(cd.getShort(pos + 30));
+				int commentLength = Short.toUnsignedInt(cd.getShort(pos + 32));
+				if (nameLength == name.length && Arrays.equals(cd.array(), pos + CD_HEADER_LENGTH, pos + CD_HEADER_LENGTH + nameLength, name, 0, name.length)) {
+					int flags = Short.toUnsignedInt(cd.getShort(pos + 8));
+					int method = Short.toUnsignedInt(cd.getShort(pos + 10));
+					long localOffset = Integer.toUnsignedLong(cd.getInt(pos + 42));
+					if (method != ZipEntry.STORED || (flags & 1) != 0 || localOffset == ZIP64_MARKER) {
+						return -1;
 					}
+					ByteBuffer local = read(raf, localOffset, LOCAL_HEADER_LENGTH);
+					if (local.getInt(0) != LOCAL_SIGNATURE) {
+						return -1;
+					}
+					return localOffset + LOCAL_HEADER_LENGTH + Short.toUnsignedInt(local.getShort(26)) + Short.toUnsignedInt(local.getShort(28));
 				}
-			} catch (IOException e) {
-				LOGGER.error("Unpack error. Possibly harmless.", e);
-			} finally {
-				try {
-					zipFile.close();
-					out.close();
-				} catch (IOException e) {
-					LOGGER.debug("Caught exception", e);
-				}
+				pos += CD_HEADER_LENGTH + nameLength + extraLength + commentLength;
 			}
-		};
+		} catch (IOException e) {
+			LOGGER.debug("Could not read the central directory of \"{}\": {}", file, e.getMessage());
+		}
+		return -1;
+	}
 
-		new Thread(r, "Zip Extractor").start();
+	private static ByteBuffer read(RandomAccessFile raf, long position, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		raf.seek(position);
+		raf.readFully(bytes);
+		return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
 	}
 
 	@Override
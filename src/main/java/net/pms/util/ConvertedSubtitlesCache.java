@@ -0,0 +1,222 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import net.pms.PMS;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded disk cache of the subtitles extracted and converted for the
+ * transcoding engines.
+ *
+ * The entries are keyed by a hash of everything the conversion depends on:
+ * the source file or track and its modification time, the target type, the
+ * charset and the styling settings. A changed source or setting gives another
+ * key, so the entries never need to be invalidated. The least recently used
+ * entries are deleted when the cache is full.
+ */
+final class ConvertedSubtitlesCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConvertedSubtitlesCache.class);
+	private static final String DIRECTORY_NAME = "subs" + File.separator + "converted";
+	private static final long MAX_SIZE = 128L * 1024 * 1024;
+	private static final Map<String, KeyLock> LOCKS = new HashMap<>();
+
+	// All guarded by FILES
+	private static final Map<String, Long> FILES = new LinkedHashMap<>(16, 0.75f, true);
+	private static long size;
+	private static File directory;
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private ConvertedSubtitlesCache() {
+	}
+
+	/**
+	 * Computes the cache key of converted subtitles.
+	 *
+	 * @param parts the source and settings the conversion depends on.
+	 * @return the key.
+	 */
+	static String getKey(Object... parts) {
+		return DigestUtils.md5Hex(StringUtils.join(parts, '|'));
+	}
+
+	/**
+	 * Acquires the lock to hold while converting subtitles, so that concurrent
+	 * playback starts or seeks convert them only once. Conversions of other
+	 * subtitles are never blocked.
+	 *
+	 * @param key the cache key.
+	 * @return the acquired lock, to close once the conversion is done.
+	 */
+	static KeyLock lock(String key) {
+		KeyLock keyLock;
+		synchronized (LOCKS) {
+			keyLock = LOCKS.computeIfAbsent(key, KeyLock::new);
+			keyLock.users++;
+		}
+		keyLock.lock.lock();
+		return keyLock;
+	}
+
+	/**
+	 * Returns cached subtitles.
+	 *
+	 * @param key the cache key.
+	 * @param extension the extension of the subtitles file.
+	 * @return the subtitles file or {@code null} if not cached.
+	 */
+	static File get(String key, String extension) {
+		String name = getFileName(key, extension);
+		synchronized (FILES) {
+			if (!init() || !FILES.containsKey(name)) {
+				return null;
+			}
+			File file = new File(directory, name);
+			if (!file.canRead()) {
+				remove(name);
+				return null;
+			}
+			// Keep the least recently used order for the next runs
+			file.setLastModified(System.currentTimeMillis());
+			return file;
+		}
+	}
+
+	/**
+	 * Moves converted subtitles into the cache.
+	 *
+	 * @param key the cache key.
+	 * @param extension the extension of the subtitles file.
+	 * @param converted the converted subtitles file, which is moved.
+	 * @return the cached subtitles file, or {@code converted} if it couldn't
+	 *         be cached.
+	 */
+	static File put(String key, String extension, File converted) {
+		String name = getFileName(key, extension);
+		synchronized (FILES) {
+			if (!init()) {
+				return converted;
+			}
+			File file = new File(directory, name);
+			try {
+				Files.move(converted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				LOGGER.debug("Could not cache the converted subtitles \"{}\": {}", converted, e.getMessage());
+				return converted;
+			}
+			Long previous = FILES.put(name, file.length());
+			if (previous != null) {
+				size -= previous;
+			}
+			size += file.length();
+			Iterator<String> iterator = FILES.keySet().iterator();
+			while (size > MAX_SIZE && iterator.hasNext()) {
+				String eldest = iterator.next();
+				if (!eldest.equals(name)) {
+					size -= FILES.get(eldest);
+					iterator.remove();
+					new File(directory, eldest).delete();
+				}
+			}
+			return file;
+		}
+	}
+
+	/**
+	 * The lock of a cache key, dropped once no thread uses it.
+	 */
+	static final class KeyLock implements AutoCloseable {
+		private final String key;
+		private final ReentrantLock lock = new ReentrantLock();
+		// Guarded by LOCKS
+		private int users;
+
+		private KeyLock(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public void close() {
+			lock.unlock();
+			synchronized (LOCKS) {
+				if (--users == 0) {
+					LOCKS.remove(key);
+				}
+			}
+		}
+	}
+
+	private static void remove(String name) {
+		Long previous = FILES.remove(name);
+		if (previous != null) {
+			size -= previous;
+		}
+		new File(directory, name).delete();
+	}
+
+	private static String getFileName(String key, String extension) {
+		return StringUtils.isBlank(extension) ? key : key + "." + extension;
+	}
+
+	/**
+	 * Indexes the files of the previous runs, the least recently used first.
+	 * Must be called with the lock of {@link #FILES}.
+	 *
+	 * @return whether the cache is usable.
+	 */
+	private static boolean init() {
+		File dir = new File(PMS.getConfiguration().getDataFile(DIRECTORY_NAME));
+		if (directory != null && dir.isDirectory()) {
+			return true;
+		}
+		// First use, or the folder was deleted with the other subtitles
+		FILES.clear();
+		size = 0;
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			LOGGER.debug("Could not create the converted subtitles folder \"{}\"", dir);
+			return false;
+		}
+		File[] files = dir.listFiles();
+		if (files != null) {
+			Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+			for (File file : files) {
+				FILES.put(file.getName(), file.length());
+				size += file.length();
+			}
+		}
+		directory = dir;
+		return true;
+	}
+
+}
@@ -0,0 +1,327 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.pms.PMS;
+import net.pms.database.DatabasePoolMetrics;
+import net.pms.database.MediaDatabase;
+import net.pms.io.ProcessWrapperImpl;
+import net.pms.parsers.MediaInfoParser;
+import net.pms.renderers.Renderer;
+import net.pms.store.MediaScanner;
+import net.pms.store.ThumbnailGenerator;
+
+/**
+ * Collects the runtime metrics of the server hot paths: transcoding processes,
+ * transcode buffers, bytes served, HTTP handlers, database queries, parsers
+ * and media scanner.
+ *
+ * Counters and timers are only ever increased, so the rates are computed by
+ * the consumer from two successive reads. The metrics can be exported as JSON
+ * or in the Prometheus text format.
+ */
+public class ServerMetrics {
+
+	private static final String PREFIX = "ums_";
+	private static final String OTHER_RENDERERS = "other";
+	private static final int MAX_BYTES_SERVED_RENDERERS = 64;
+	private static final Map<String, Timer> HTTP_REQUESTS = new ConcurrentHashMap<>();
+	private static final Map<String, Timer> DATABASE_QUERIES = new ConcurrentHashMap<>();
+	private static final Map<String, Timer> PARSERS = new ConcurrentHashMap<>();
+	private static final Map<String, BytesServed> BYTES_SERVED = new ConcurrentHashMap<>();
+	private static final BytesServed OTHER_BYTES_SERVED = new BytesServed(OTHER_RENDERERS);
+	private static final AtomicLong SCANNED_FOLDERS = new AtomicLong();
+	private static final AtomicLong SCANNED_FILES = new AtomicLong();
+
+	/**
+	 * This class is not meant to be instantiated.
+	 */
+	private ServerMetrics() {
+	}
+
+	/**
+	 * Records the time spent by an HTTP handler to start answering a request,
+	 * up to the start of the response body.
+	 *
+	 * @param handler the handler name.
+	 * @param nanos the elapsed time in nanoseconds.
+	 */
+	public static void recordHttpRequest(String handler, long nanos) {
+		HTTP_REQUESTS.computeIfAbsent(handler, key -> new Timer()).record(nanos);
+	}
+
+	/**
+	 * Records the time spent executing a database statement.
+	 *
+	 * @param table the name of the table class which issued the statement.
+	 * @param nanos the elapsed time in nanoseconds.
+	 */
+	public static void recordQuery(String table, long nanos) {
+		DATABASE_QUERIES.computeIfAbsent(table, key -> new Timer()).record(nanos);
+	}
+
+	/**
+	 * Records the time spent parsing a media file.
+	 *
+	 * @param parser the parser name.
+	 * @param nanos the elapsed time in nanoseconds.
+	 */
+	public static void recordParse(String parser, long nanos) {
+		PARSERS.computeIfAbsent(parser, key -> new Timer()).record(nanos);
+	}
+
+	/**
+	 * Adds the bytes of a response body sent to a renderer.
+	 *
+	 * The bytes are counted per renderer id, for at most
+	 * {@link #MAX_BYTES_SERVED_RENDERERS} renderers; the bytes sent to the
+	 * next ones are counted together.
+	 *
+	 * @param renderer the renderer, or {@code null} if unknown.
+	 * @param bytes the number of bytes sent.
+	 */
+	public static void addBytesServed(Renderer renderer, long bytes) {
+		if (bytes <= 0) {
+			return;
+		}
+		String id = getRendererId(renderer);
+		BytesServed served = BYTES_SERVED.get(id);
+		if (served == null) {
+			served = BYTES_SERVED.size() < MAX_BYTES_SERVED_RENDERERS ?
+				BYTES_SERVED.computeIfAbsent(id, key -> new BytesServed(getRendererLabel(renderer))) :
+				OTHER_BYTES_SERVED;
+		} else {
+			// The renderer name may have been resolved since
+			served.label = getRendererLabel(renderer);
+		}
+		served.bytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Adds a folder scanned by the media scanner.
+	 *
+	 * @param filesCount the number of entries found in the folder.
+	 */
+	public static void addScannedFolder(int filesCount) {
+		SCANNED_FOLDERS.incrementAndGet();
+		SCANNED_FILES.addAndGet(filesCount);
+	}
+
+	/**
+	 * @return the current metrics as a JSON object.
+	 */
+	public static JsonObject toJson() {
+		JsonObject result = new JsonObject();
+		result.addProperty("transcodes", ProcessWrapperImpl.getCurrentProcessesCount());
+		JsonObject buffers = new JsonObject();
+		getRenderersBuffer().forEach(buffers::addProperty);
+		result.add("buffersMB", buffers);
+		JsonObject bytesServed = new JsonObject();
+		getBytesServed().forEach(bytesServed::addProperty);
+		result.add("bytesServed", bytesServed);
+		result.add("http", toJson(HTTP_REQUESTS));
+		result.add("database", toJson(DATABASE_QUERIES));
+		DatabasePoolMetrics pool = getDatabasePoolMetrics();
+		if (pool != null) {
+			JsonObject databasePool = new JsonObject();
+			databasePool.addProperty("active", pool.getActiveConnections());
+			databasePool.addProperty("idle", pool.getIdleConnections());
+			databasePool.addProperty("pending", pool.getPendingThreads());
+			databasePool.addProperty("acquired", pool.getAcquiredConnections());
+			databasePool.addProperty("averageWaitMicros", pool.getAverageWaitMicros());
+			databasePool.addProperty("maxWaitMicros", pool.getMaxWaitMicros());
+			databasePool.addProperty("timeouts", pool.getTimeouts());
+			databasePool.addProperty("leaks", pool.getLeaks());
+			result.add("databasePool", databasePool);
+		}
+		result.add("parsers", toJson(PARSERS));
+		result.addProperty("mediaInfoAverageLeaseWaitMillis", MediaInfoParser.getAverageLeaseWaitMillis());
+		result.addProperty("thumbnailQueue", ThumbnailGenerator.getQueueSize());
+		JsonObject scanner = new JsonObject();
+		scanner.addProperty("running", MediaScanner.isMediaScanRunning());
+		scanner.addProperty("folders", SCANNED_FOLDERS.get());
+		scanner.addProperty("files", SCANNED_FILES.get());
+		result.add("mediaScanner", scanner);
+		return result;
+	}
+
+	/**
+	 * @return the current metrics in the Prometheus text exposition format.
+	 */
+	public static String toPrometheus() {
+		StringBuilder sb = new StringBuilder();
+		appendType(sb, "transcodes", "gauge");
+		appendSample(sb, "transcodes", null, null, ProcessWrapperImpl.getCurrentProcessesCount());
+		appendType(sb, "transcode_buffer_megabytes", "gauge");
+		getRenderersBuffer().forEach((renderer, buffer) -> appendSample(sb, "transcode_buffer_megabytes", "renderer", renderer, buffer));
+		appendType(sb, "bytes_served_total", "counter");
+		getBytesServed().forEach((renderer, bytes) -> appendSample(sb, "bytes_served_total", "renderer", renderer, bytes));
+		appendTimers(sb, "http_request", "handler", HTTP_REQUESTS);
+		appendTimers(sb, "database_query", "table", DATABASE_QUERIES);
+		DatabasePoolMetrics pool = getDatabasePoolMetrics();
+		if (pool != null) {
+			appendType(sb, "database_pool_connections", "gauge");
+			appendSample(sb, "database_pool_connections", "state", "active", pool.getActiveConnections());
+			appendSample(sb, "database_pool_connections", "state", "idle", pool.getIdleConnections());
+			appendType(sb, "database_pool_pending_threads", "gauge");
+			appendSample(sb, "database_pool_pending_threads", null, null, pool.getPendingThreads());
+			appendType(sb, "database_pool_timeouts_total", "counter");
+			appendSample(sb, "database_pool_timeouts_total", null, null, pool.getTimeouts());
+			appendType(sb, "database_pool_leaks_total", "counter");
+			appendSample(sb, "database_pool_leaks_total", null, null, pool.getLeaks());
+		}
+		appendTimers(sb, "parse", "parser", PARSERS);
+		appendType(sb, "thumbnail_queue", "gauge");
+		appendSample(sb, "thumbnail_queue", null, null, ThumbnailGenerator.getQueueSize());
+		appendType(sb, "media_scan_running", "gauge");
+		appendSample(sb, "media_scan_running", null, null, MediaScanner.isMediaScanRunning() ? 1 : 0);
+		appendType(sb, "media_scan_folders_total", "counter");
+		appendSample(sb, "media_scan_folders_total", null, null, SCANNED_FOLDERS.get());
+		appendType(sb, "media_scan_files_total", "counter");
+		appendSample(sb, "media_scan_files_total", null, null, SCANNED_FILES.get());
+		return sb.toString();
+	}
+
+	private static Map<String, Long> getRenderersBuffer() {
+		Map<String, Long> result = new TreeMap<>();
+		List<Renderer> foundRenderers = PMS.get().getFoundRenderers();
+		synchronized (foundRenderers) {
+			for (Renderer renderer : foundRenderers) {
+				result.merge(getRendererLabel(renderer), renderer.getBuffer(), Long::sum);
+			}
+		}
+		return result;
+	}
+
+	private static Map<String, Long> getBytesServed() {
+		Map<String, Long> result = new TreeMap<>();
+		for (BytesServed served : BYTES_SERVED.values()) {
+			result.merge(served.label, served.bytes.get(), Long::sum);
+		}
+		long other = OTHER_BYTES_SERVED.bytes.get();
+		if (other > 0) {
+			result.merge(OTHER_RENDERERS, other, Long::sum);
+		}
+		return result;
+	}
+
+	private static DatabasePoolMetrics getDatabasePoolMetrics() {
+		return MediaDatabase.isInstantiated() ? MediaDatabase.get().getPoolMetrics() : null;
+	}
+
+	private static String getRendererId(Renderer renderer) {
+		if (renderer == null) {
+			return "unknown";
+		}
+		String id = renderer.getUUID();
+		if (id == null) {
+			InetAddress address = renderer.getAddress();
+			id = address != null ? address.getHostAddress() : renderer.getRendererName();
+		}
+		return id;
+	}
+
+	private static String getRendererLabel(Renderer renderer) {
+		if (renderer == null) {
+			return "unknown";
+		}
+		InetAddress address = renderer.getAddress();
+		return address != null ? renderer.getRendererName() + " (" + address.getHostAddress() + ")" : renderer.getRendererName();
+	}
+
+	private static JsonArray toJson(Map<String, Timer> timers) {
+		JsonArray result = new JsonArray();
+		new TreeMap<>(timers).forEach((name, timer) -> {
+			JsonObject item = new JsonObject();
+			item.addProperty("name", name);
+			item.addProperty("count", timer.count.get());
+			item.addProperty("totalMillis", TimeUnit.NANOSECONDS.toMillis(timer.totalNanos.get()));
+			item.addProperty("maxMillis", TimeUnit.NANOSECONDS.toMillis(timer.maxNanos.get()));
+			result.add(item);
+		});
+		return result;
+	}
+
+	private static void appendTimers(StringBuilder sb, String name, String label, Map<String, Timer> timers) {
+		Map<String, Timer> sorted = new TreeMap<>(timers);
+		appendType(sb, name + "_seconds", "summary");
+		sorted.forEach((value, timer) -> {
+			appendSample(sb, name + "_seconds_count", label, value, timer.count.get());
+			appendSample(sb, name + "_seconds_sum", label, value, timer.totalNanos.get() / 1e9);
+		});
+		appendType(sb, name + "_seconds_max", "gauge");
+		sorted.forEach((value, timer) -> appendSample(sb, name + "_seconds_max", label, value, timer.maxNanos.get() / 1e9));
+	}
+
+	private static void appendType(StringBuilder sb, String name, String type) {
+		sb.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void appendSample(StringBuilder sb, String name, String label, String value, Number sample) {
+		sb.append(PREFIX).append(name);
+		if (label != null) {
+			sb.append('{').append(label).append("=\"");
+			for (char c : value.toCharArray()) {
+				switch (c) {
+					case '\\' -> sb.append("\\\\");
+					case '"' -> sb.append("\\\"");
+					case '\n' -> sb.append("\\n");
+					default -> sb.append(c);
+				}
+			}
+			sb.append("\"}");
+		}
+		sb.append(' ').append(sample).append('\n');
+	}
+
+	/**
+	 * The bytes sent to a renderer.
+	 */
+	private static class BytesServed {
+		private final AtomicLong bytes = new AtomicLong();
+		private volatile String label;
+
+		private BytesServed(String label) {
+			this.label = label;
+		}
+	}
+
+	/**
+	 * The count, total and maximum elapsed time of an operation.
+	 */
+	private static class Timer {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		private void record(long nanos) {
+			count.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+		}
+	}
+
+}
@@ -218,7 +218,8 @@ public class SubtitleUtils {
 	 * Extracts embedded subtitles from video to file in SSA/ASS format,
 	 * converts external SRT subtitles file to SSA/ASS format and applies
 	 * fontconfig setting to that converted file and applies timeseeking when
-	 * required.
+	 * required. The converted files are kept in the
+	 * {@link ConvertedSubtitlesCache}.
 	 *
 	 * @param resource StoreResource
 	 * @param media MediaInfo
@@ -244,15 +245,6 @@ public class SubtitleUtils {
 			return null;
 		}
 
-		String dir = configuration.getDataFile(SUB_DIR);
-		File subsPath = new File(dir);
-		if (!subsPath.exists()) {
-			if (!subsPath.mkdirs()) {
-				LOGGER.error("Could not create subtitles conversion folder \"{}\" - subtitles operation aborted!", dir);
-				return null;
-			}
-		}
-
 		if (params.getSid().isExternal() && params.getSid().getExternalFile() == null) {
 			// This happens when for example OpenSubtitles fail to download
 			return null;
@@ -271,59 +263,105 @@ public class SubtitleUtils {
 		}
 
 		String filename = isEmbeddedSource ? resource.getFileName() : params.getSid().getExternalFile().getAbsolutePath();
-
-		String basename;
-
-		long modId = new File(filename).lastModified();
-		if (modId != 0) {
-			// We have a real file
-			basename = FilenameUtils.getBaseName(filename).replaceAll("[<>:\"\\\\/|?*+\\[\\]\n\r ']", "").trim();
-		} else {
-			// It's something else, e.g. a url or psuedo-url without meaningful
-			// lastmodified and (maybe) basename characteristics.
-			basename = resource.getName().replaceAll("[<>:\"\\\\/|?*+\\[\\]\n\r ']", "").trim();
-			modId = filename.hashCode();
-		}
-
-		File convertedSubs;
-		StringBuilder nameBuilder = new StringBuilder(subsPath.getAbsolutePath());
-		nameBuilder.append(File.separator).append(basename);
-		if (isEmbeddedSource) {
-			nameBuilder.append("_ID").append(params.getSid().getId());
-		}
-		if (applyFontConfig) {
-			nameBuilder.append("_FB");
-		}
-		if (is3D) {
-			nameBuilder.append("_3D");
-		}
-		nameBuilder.append("_").append(modId);
 		String extension;
-		if (subtitleType != null && StringUtils.isNotBlank(subtitleType.getExtension())) {
+		if (is3D) {
+			extension = SubtitleType.ASS.getExtension();
+		} else if (subtitleType != null && StringUtils.isNotBlank(subtitleType.getExtension())) {
 			extension = subtitleType.getExtension();
 		} else {
-			extension = FileUtil.getExtension(basename);
+			extension = FileUtil.getExtension(filename);
 		}
-		if (StringUtils.isNotBlank(extension)) {
-			nameBuilder.append(".").append(extension);
-		}
-		convertedSubs = new File(nameBuilder.toString());
 
-		File converted3DSubs = new File(FileUtil.getFileNameWithoutExtension(convertedSubs.getAbsolutePath()) + "_3D.ass");
-		if (convertedSubs.canRead() || converted3DSubs.canRead()) {
-			// subs are already converted
-			if (applyFontConfig || isEmbeddedSource || is3D) {
-				params.getSid().setType(SubtitleType.ASS);
-				params.getSid().setSubCharacterSet(CHARSET_UTF_8);
-				if (converted3DSubs.canRead()) {
-					convertedSubs = converted3DSubs;
+		String key = getConvertedSubtitlesKey(filename, media, params, configuration, subtitleType, applyFontConfig, is3D);
+		try (ConvertedSubtitlesCache.KeyLock keyLock = ConvertedSubtitlesCache.lock(key)) {
+			File convertedSubs = ConvertedSubtitlesCache.get(key, extension);
+			if (convertedSubs != null) {
+				// subs are already converted
+				if (applyFontConfig || isEmbeddedSource || is3D) {
+					params.getSid().setType(SubtitleType.ASS);
+					params.getSid().setSubCharacterSet(CHARSET_UTF_8);
 				}
+
+				params.getSid().setConvertedFile(convertedSubs);
+				return convertedSubs;
 			}
 
+			File tempSubs = convertSubtitles(filename, key, extension, media, params, configuration, subtitleType, applyFontConfig, is3D);
+			if (tempSubs == null) {
+				return null;
+			}
+
+			convertedSubs = ConvertedSubtitlesCache.put(key, extension, tempSubs);
 			params.getSid().setConvertedFile(convertedSubs);
 			return convertedSubs;
 		}
+	}
+
+	/**
+	 * Computes the key of converted subtitles in the
+	 * {@link ConvertedSubtitlesCache}, from the source subtitles and all the
+	 * settings the conversion depends on.
+	 */
+	private static String getConvertedSubtitlesKey(
+		String filename,
+		MediaInfo media,
+		OutputParams params,
+		UmsConfiguration configuration,
+		SubtitleType subtitleType,
+		boolean applyFontConfig,
+		boolean is3D
+	) {
+		MediaSubtitle sid = params.getSid();
+		File source = new File(filename);
+		List<Object> parts = new ArrayList<>();
+		parts.add(filename);
+		parts.add(source.lastModified());
+		parts.add(source.length());
+		if (sid.isEmbedded()) {
+			parts.add(sid.getId());
+			parts.add(media.getSubtitlesTracks().indexOf(sid));
+		}
+		parts.add(subtitleType);
+		parts.add(configuration.getSubtitlesCodepage());
+		parts.add(applyFontConfig);
+		if (applyFontConfig || is3D) {
+			parts.add(configuration.isUseEmbeddedSubtitlesStyle());
+			parts.add(configuration.getFont());
+			parts.add(configuration.getAssScale());
+			parts.add(configuration.getSubsColor().getASSv4StylesHexValue());
+			parts.add(configuration.getAssOutline());
+			parts.add(configuration.getAssShadow());
+			parts.add(configuration.getAssMargin());
+			parts.add(media.getWidth());
+			parts.add(media.getHeight());
+		}
+		parts.add(is3D);
+		if (is3D) {
+			parts.add(media.getDefaultVideoTrack().get3DLayout());
+			parts.add(CONFIGURATION.getDepth3D());
+		}
+		return ConvertedSubtitlesCache.getKey(parts.toArray());
+	}
 
+	/**
+	 * Extracts or converts subtitles to a new temporary file, applying the
+	 * charset conversion, fontconfig settings and 3D conversion as needed.
+	 *
+	 * @return the converted subtitles file, or {@code null} if the conversion
+	 *         failed.
+	 */
+	private static File convertSubtitles(
+		String filename,
+		String key,
+		String extension,
+		MediaInfo media,
+		OutputParams params,
+		UmsConfiguration configuration,
+		SubtitleType subtitleType,
+		boolean applyFontConfig,
+		boolean is3D
+	) throws IOException {
+		boolean isEmbeddedSource = params.getSid().isEmbedded();
 		boolean isExternalAss = false;
 		if (params.getSid().getType() == SubtitleType.ASS && params.getSid().isExternal() && !isEmbeddedSource) {
 			isExternalAss = true;
@@ -349,6 +387,8 @@ public class SubtitleUtils {
 			return null;
 		}
 
+		File sourceSubs = tempSubs;
+		File convertedSubs = new File(CONFIGURATION.getTempFolder(), key + (StringUtils.isBlank(extension) ? "" : "." + extension));
 		if (!FileUtil.isFileUTF8(tempSubs)) {
 			try {
 				tempSubs = applyCodepageConversion(tempSubs, convertedSubs);
@@ -361,6 +401,15 @@ public class SubtitleUtils {
 			FileUtils.copyFile(tempSubs, convertedSubs);
 			tempSubs = convertedSubs;
 		}
+		if (tempSubs != convertedSubs) {
+			// The codepage conversion failed, keep our own copy anyway
+			FileUtils.copyFile(tempSubs, convertedSubs);
+			tempSubs = convertedSubs;
+		}
+		if (sourceSubs != params.getSid().getExternalFile()) {
+			// The extracted subtitles were copied
+			sourceSubs.delete();
+		}
 
 		// Now we're sure we actually have our own modifiable file
 		if (applyFontConfig && !(configuration.isUseEmbeddedSubtitlesStyle() && params.getSid().getType() == SubtitleType.ASS)) {
@@ -369,6 +418,7 @@ public class SubtitleUtils {
 				params.getSid().setSubCharacterSet(CHARSET_UTF_8);
 			} catch (IOException e) {
 				LOGGER.debug("Applying subs setting ends with error: " + e);
+				convertedSubs.delete();
 				return null;
 			}
 		}
@@ -379,6 +429,8 @@ public class SubtitleUtils {
 			} catch (IOException | NullPointerException e) {
 				LOGGER.debug("Converting to ASS3D format ends with error: " + e);
 				return null;
+			} finally {
+				convertedSubs.delete();
 			}
 		}
 
@@ -386,8 +438,6 @@ public class SubtitleUtils {
 			params.getSid().setType(SubtitleType.ASS);
 		}
 
-		PMS.get().addTempFile(tempSubs, 30 * 24 * 3600 * 1000);
-		params.getSid().setConvertedFile(tempSubs);
 		return tempSubs;
 	}
 
@@ -457,9 +507,10 @@ public class SubtitleUtils {
 		}
 
 		try {
-			tempSubsFile = new File(
-				CONFIGURATION.getTempFolder(),
-				FilenameUtils.getBaseName(fileName) + "." + outputSubtitleType.getExtension()
+			tempSubsFile = File.createTempFile(
+				FilenameUtils.getBaseName(fileName) + "_subs_",
+				"." + outputSubtitleType.getExtension(),
+				CONFIGURATION.getTempFolder()
 			);
 		} catch (IOException e1) {
 			LOGGER.debug("Subtitles conversion finished wih error: " + e1);
@@ -585,7 +636,7 @@ public class SubtitleUtils {
 				output.flush();
 			}
 		} finally {
-			temp.deleteOnExit();
+			temp.delete();
 		}
 
 		return outputSubs;
@@ -16,6 +16,7 @@
  */
 package net.pms.configuration;
 
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
@@ -568,4 +569,66 @@ public class FormatConfigurationRegressionTest {
 	public void testQCELP() throws Throwable {
 		testFormatConfiguration(FormatConfiguration.QCELP, "qcelp");
 	}
+
+	/**
+	 * Ensures that the Supported lines matched through the codecs index give
+	 * the MIME types of the first matching line, whatever the limits of the
+	 * lookups made before.
+	 */
+	@Test
+	public void testCodecsIndex() throws Throwable {
+		FormatConfiguration formatConfiguration = new FormatConfiguration(List.of(
+			"f:mpegps     v:mpeg1|mpeg2|mp4|h264   a:ac3|lpcm           m:video/mpeg",
+			"f:mpegts     v:mpeg1|mpeg2|mp4|h264   a:ac3|lpcm|mpa       m:video/mpeg",
+			"f:avi|divx   v:mp4|divx|mjpeg         a:mp3|lpcm|mpa|ac3   m:video/x-divx     gmc:0",
+			"f:mp4        v:mp4|h264               a:ac3                m:video/mp4",
+			"f:mp4        v:mp4|h264               a:aac-lc             m:video/mp4                n:2",
+			"f:atrac                  n:2             m:audio/x-sony-oma",
+			"f:lpcm    a:lpcm         n:6   s:48000   m:audio/L16",
+			"f:m4a     a:(?!alac).+   n:2             m:audio/x-m4a-lossy",
+			"f:m4a                    n:2   s:48000   m:audio/x-m4a"
+		));
+
+		for (int i = 0; i < 2; i++) {
+			assertEquals("video/mpeg", formatConfiguration.getMatchedMIMEtype(FormatConfiguration.MPEGPS, FormatConfiguration.MPEG2, FormatConfiguration.AC3));
+			assertEquals("video/mpeg", formatConfiguration.getMatchedMIMEtype(FormatConfiguration.MPEGTS, FormatConfiguration.H264, FormatConfiguration.MPA));
+			assertNull(formatConfiguration.getMatchedMIMEtype(FormatConfiguration.MPEGPS, FormatConfiguration.H264, FormatConfiguration.MPA));
+			assertEquals("video/x-divx", formatConfiguration.getMatchedMIMEtype(FormatConfiguration.DIVX, null, null));
+			assertNull(formatConfiguration.getMatchedMIMEtype(FormatConfiguration.MKV, FormatConfiguration.H264, FormatConfiguration.AC3));
+			assertTrue(formatConfiguration.isFormatSupported(FormatConfiguration.ATRAC));
+			assertFalse(formatConfiguration.isFormatSupported(FormatConfiguration.MKV));
+
+			// the limits are checked on every lookup, not indexed
+			assertNull(getMatchedMIMEtype(formatConfiguration, FormatConfiguration.MP4, FormatConfiguration.AAC_LC, 6, 0));
+			assertEquals("video/mp4", getMatchedMIMEtype(formatConfiguration, FormatConfiguration.MP4, FormatConfiguration.AAC_LC, 2, 0));
+			assertEquals("video/mp4", getMatchedMIMEtype(formatConfiguration, FormatConfiguration.MP4, FormatConfiguration.AC3, 6, 0));
+
+			// lines are tried in configuration order
+			assertEquals("audio/x-m4a-lossy", getMatchedMIMEtype(formatConfiguration, FormatConfiguration.M4A, FormatConfiguration.AAC_LC, 2, 96000));
+			assertEquals("audio/x-m4a", getMatchedMIMEtype(formatConfiguration, FormatConfiguration.M4A, FormatConfiguration.ALAC, 2, 48000));
+			assertNull(getMatchedMIMEtype(formatConfiguration, FormatConfiguration.M4A, FormatConfiguration.ALAC, 2, 96000));
+			assertNull(getMatchedMIMEtype(formatConfiguration, FormatConfiguration.M4A, FormatConfiguration.AAC_LC, 6, 48000));
+		}
+	}
+
+	private static String getMatchedMIMEtype(FormatConfiguration formatConfiguration, String container, String audioCodec, int nbAudioChannels, int frequency) {
+		return formatConfiguration.getMatchedMIMEtype(
+			container,
+			container.equals(FormatConfiguration.M4A) ? null : FormatConfiguration.H264,
+			audioCodec,
+			nbAudioChannels,
+			frequency,
+			0,
+			0,
+			0,
+			0,
+			0,
+			null,
+			null,
+			null,
+			null,
+			false,
+			null
+		);
+	}
 }
@@ -17,6 +17,8 @@
 package net.pms.configuration;
 
 import ch.qos.logback.classic.LoggerContext;
+import java.io.File;
+import java.nio.file.Files;
 import java.util.*;
 import net.pms.PMS;
 import net.pms.util.SortedHeaderMap;
@@ -26,6 +28,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.LoggerFactory;
 
 /**
@@ -34,6 +37,9 @@ import org.slf4j.LoggerFactory;
 public class RendererConfigurationTest {
 	UmsConfiguration prevConf;
 
+	@TempDir
+	File folder;
+
 	@BeforeAll
 	public static void SetUPClass() {
 		PMS.configureJNA();
@@ -448,6 +454,55 @@ public class RendererConfigurationTest {
 		);
 	}
 
+	/**
+	 * Test that cached header matches are returned until a renderer header
+	 * pattern changes.
+	 * @throws Exception
+	 */
+	@Test
+	public void testHeadersMatchCache() throws Exception {
+		UmsConfiguration pmsConf = new UmsConfiguration(false);
+
+		// Initialize the RendererConfiguration
+		PMS.setConfiguration(pmsConf);
+		RendererConfigurations.loadRendererConfigurations();
+
+		// Repeated lookups, hits and misses, return the same results
+		String ps3 = "User-Agent: PLAYSTATION 3";
+		RendererConfiguration rc = getByHeaders(ps3);
+		assertNotNull(rc);
+		assertEquals("PlayStation 3", rc.getRendererName());
+		assertSame(rc, getByHeaders(ps3));
+		assertNull(getByHeaders("User-Agent: Unknown Renderer"));
+		assertNull(getByHeaders("User-Agent: Unknown Renderer"));
+
+		// The header order doesn't matter
+		assertSame(
+			getByHeaders("User-Agent: Unknown Renderer", "X-Unknown-Header: Unknown Content"),
+			getByHeaders("X-Unknown-Header: Unknown Content", "User-Agent: Unknown Renderer")
+		);
+
+		// Reloading a configuration with another pattern drops the cached match
+		File copy = new File(folder, rc.getFile().getName());
+		List<String> lines = new ArrayList<>();
+		for (String line : Files.readAllLines(rc.getFile().toPath())) {
+			lines.add(line.startsWith("UserAgentSearch") ? "UserAgentSearch = NO SUCH RENDERER" : line);
+		}
+		Files.write(copy.toPath(), lines);
+		rc.load(copy);
+		rc.load(copy);
+		assertNotSame(rc, getByHeaders(ps3));
+		assertSame(rc, getByHeaders("User-Agent: NO SUCH RENDERER"));
+	}
+
+	private static RendererConfiguration getByHeaders(String... headerLines) {
+		SortedHeaderMap headers = new SortedHeaderMap();
+		for (String header : headerLines) {
+			headers.put(header);
+		}
+		return RendererConfigurations.getRendererConfigurationByHeaders(headers);
+	}
+
 	/**
 	 * Test a particular set of headers to see if it returns the correct
 	 * renderer. Set the correct renderer name to <code>null</code> to require
@@ -0,0 +1,99 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.database;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MediaTableFilesTest {
+	private static final String FILES_SQL = MediaTableFiles.TABLE_COL_MODIFIED + " IS NOT NULL ORDER BY " + MediaTableFiles.TABLE_COL_FILENAME;
+
+	@TempDir
+	File folder;
+
+	@BeforeEach
+	public final void setUp() throws Exception {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		MediaDatabase.init();
+	}
+
+	/**
+	 * Ensures that a page of files matches the rows counted, and that a page
+	 * with a missing file is not returned shorter than its rows.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFilesPageAndCount() throws Exception {
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			MediaDatabase.dropAllTables(connection);
+			MediaDatabase.get().checkTables(true);
+			File[] files = new File[5];
+			for (int i = 0; i < files.length; i++) {
+				files[i] = new File(folder, "file" + i + ".mkv");
+				assertTrue(files[i].createNewFile());
+				insertFile(connection, files[i]);
+			}
+
+			assertEquals(5, MediaTableFiles.getFilesCount(connection, FILES_SQL));
+			assertEquals(List.of(files[0], files[1]), MediaTableFiles.getFiles(connection, FILES_SQL, 0, 2));
+			assertEquals(List.of(files[2], files[3]), MediaTableFiles.getFiles(connection, FILES_SQL, 2, 2));
+			assertEquals(List.of(files[4]), MediaTableFiles.getFiles(connection, FILES_SQL, 4, 2));
+			assertEquals(List.of(files[3], files[4]), MediaTableFiles.getFiles(connection, FILES_SQL, 3, 0));
+			assertTrue(MediaTableFiles.getFiles(connection, FILES_SQL, 5, 2).isEmpty());
+
+			// the row of a deleted file is still counted until the next scan
+			assertTrue(files[2].delete());
+			assertEquals(5, MediaTableFiles.getFilesCount(connection, FILES_SQL));
+			assertEquals(List.of(files[0], files[1]), MediaTableFiles.getFiles(connection, FILES_SQL, 0, 2));
+			assertNull(MediaTableFiles.getFiles(connection, FILES_SQL, 2, 2));
+			assertEquals(List.of(files[0], files[1], files[3], files[4]), MediaTableFiles.getFiles(connection, FILES_SQL));
+
+			// a changed file doesn't match its row either
+			assertTrue(files[4].setLastModified(files[4].lastModified() - 10000));
+			assertNull(MediaTableFiles.getFiles(connection, FILES_SQL, 4, 2));
+		} finally {
+			MediaDatabase.close(connection);
+		}
+	}
+
+	private static void insertFile(Connection connection, File file) throws Exception {
+		try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + MediaTableFiles.TABLE_NAME + " (FILENAME, MODIFIED) VALUES (?, ?)")) {
+			ps.setString(1, file.getAbsolutePath());
+			ps.setTimestamp(2, new Timestamp(file.lastModified()));
+			ps.executeUpdate();
+		}
+	}
+}
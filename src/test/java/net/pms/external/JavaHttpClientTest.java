@@ -0,0 +1,172 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.external;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks the response cache, the lookup deduplication and the rate limiter
+ * of the external requests against a local HTTP server.
+ */
+public class JavaHttpClientTest {
+
+	private static final AtomicInteger OK_HITS = new AtomicInteger();
+	private static final AtomicInteger SLOW_HITS = new AtomicInteger();
+	private static HttpServer server;
+	private static String baseUrl;
+
+	@BeforeAll
+	public static void createServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/ok", exchange -> {
+			OK_HITS.incrementAndGet();
+			respond(exchange, 200, "ok");
+		});
+		server.createContext("/slow", exchange -> {
+			SLOW_HITS.incrementAndGet();
+			try {
+				Thread.sleep(300);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange, 200, "slow");
+		});
+		server.createContext("/throttled", exchange -> {
+			exchange.getResponseHeaders().add("Retry-After", "1");
+			respond(exchange, 429, "busy");
+		});
+		server.setExecutor(Executors.newFixedThreadPool(4));
+		server.start();
+		baseUrl = "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+	}
+
+	@AfterAll
+	public static void stopServer() {
+		server.stop(0);
+	}
+
+	@BeforeEach
+	public void setUp() {
+		// Silence all log messages from the UMS code that are being tested
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.reset();
+	}
+
+	private static void respond(HttpExchange exchange, int statusCode, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "text/plain");
+		exchange.sendResponseHeaders(statusCode, bytes.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(bytes);
+		}
+	}
+
+	@Test
+	public void testResponseCacheHitAndExpiry(@TempDir File directory) throws Exception {
+		HttpResponseCache cache = new HttpResponseCache(directory);
+		String url = baseUrl + "/ok";
+		assertNull(cache.get(url, 60000), "nothing is cached yet");
+
+		int hits = OK_HITS.get();
+		byte[] body = JavaHttpClient.getBytes(url);
+		cache.put(url, body);
+		assertEquals(hits + 1, OK_HITS.get());
+
+		assertArrayEquals(body, cache.get(url, 60000), "a fresh response is a hit");
+		assertEquals(hits + 1, OK_HITS.get(), "a hit doesn't reach the server");
+
+		Thread.sleep(50);
+		assertNull(cache.get(url, 1), "an expired response is a miss");
+		assertEquals(1, cache.purge(1), "the expired response is purged");
+		assertNull(cache.get(url, 60000));
+	}
+
+	@Test
+	public void testInFlightLookupsDedupe() throws Exception {
+		InFlightLookups<String, byte[]> lookups = new InFlightLookups<>(60000, 10);
+		String url = baseUrl + "/slow";
+		int hits = SLOW_HITS.get();
+		int threads = 4;
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<byte[]>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return lookups.get(url, () -> JavaHttpClient.getBytes(url));
+				}));
+			}
+			start.countDown();
+			for (Future<byte[]> result : results) {
+				assertEquals("slow", new String(result.get(), StandardCharsets.UTF_8));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(hits + 1, SLOW_HITS.get(), "concurrent lookups are sent once");
+
+		lookups.get(url, () -> JavaHttpClient.getBytes(url));
+		assertEquals(hits + 1, SLOW_HITS.get(), "a kept result is reused");
+
+		lookups.clear();
+		lookups.get(url, () -> JavaHttpClient.getBytes(url));
+		assertEquals(hits + 2, SLOW_HITS.get(), "a cleared result is looked up again");
+	}
+
+	@Test
+	public void testRateLimiterBackoff() throws Exception {
+		AdaptiveRateLimiter rateLimiter = JavaHttpClient.getRateLimiter(server.getAddress().getAddress().getHostAddress());
+		long interval = rateLimiter.getIntervalMillis();
+
+		assertThrows(IOException.class, () -> JavaHttpClient.getBytes(baseUrl + "/throttled"));
+		long throttledInterval = rateLimiter.getIntervalMillis();
+		assertTrue(throttledInterval > interval, "a throttled request increases the interval");
+
+		long start = System.currentTimeMillis();
+		JavaHttpClient.getBytes(baseUrl + "/ok");
+		assertTrue(System.currentTimeMillis() - start >= 900, "the Retry-After delay is honored");
+		assertTrue(rateLimiter.getIntervalMillis() < throttledInterval, "a successful request decreases the interval");
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.util.UMSUtils;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ArchiveExtractionCacheTest {
+	private static final int LENGTH = 100000;
+
+	@TempDir
+	File folder;
+
+	private File archive;
+	private byte[] data;
+
+	@BeforeEach
+	public final void setUp() throws Exception {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		archive = new File(folder, "archive.rar");
+		assertTrue(archive.createNewFile());
+		data = new byte[LENGTH];
+		for (int i = 0; i < LENGTH; i++) {
+			data[i] = (byte) (i * 13);
+		}
+	}
+
+	/**
+	 * Ensures that an entry is read while it is extracted, that skipping
+	 * waits for the data skipped to, and that the extracted entry is reused.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testReadWhileExtracting() throws Exception {
+		AtomicInteger extractions = new AtomicInteger();
+		CountDownLatch firstHalfRead = new CountDownLatch(1);
+		ArchiveExtractionCache.Extractor extractor = out -> {
+			extractions.incrementAndGet();
+			out.write(data, 0, LENGTH / 2);
+			out.flush();
+			try {
+				if (!firstHalfRead.await(10, TimeUnit.SECONDS)) {
+					throw new IOException("the first half was not read");
+				}
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			out.write(data, LENGTH / 2, LENGTH / 2);
+		};
+
+		try (InputStream input = ArchiveExtractionCache.getInputStream(archive, "entry", LENGTH, extractor)) {
+			assertFalse(input instanceof FileRangeInputStream);
+			assertArrayEquals(Arrays.copyOfRange(data, 0, 1000), input.readNBytes(1000));
+
+			// skipping doesn't wait for the extraction
+			assertEquals(LENGTH / 2 - 1000 - 10, input.skip(LENGTH / 2 - 1000 - 10));
+			assertArrayEquals(Arrays.copyOfRange(data, LENGTH / 2 - 10, LENGTH / 2), input.readNBytes(10));
+
+			// reading past the extracted data waits for it
+			assertEquals(LENGTH / 4, input.skip(LENGTH / 4));
+			assertEquals(0, input.available());
+			new Thread(() -> {
+				UMSUtils.sleep(500);
+				firstHalfRead.countDown();
+			}).start();
+			assertArrayEquals(Arrays.copyOfRange(data, LENGTH * 3 / 4, LENGTH), input.readAllBytes());
+			assertEquals(-1, input.read());
+		}
+
+		// the extracted entry is read like a regular file
+		try (InputStream input = ArchiveExtractionCache.getInputStream(archive, "entry", LENGTH, extractor)) {
+			assertTrue(input instanceof FileRangeInputStream);
+			assertEquals(LENGTH - 1, input.skip(LENGTH - 1));
+			assertEquals(data[LENGTH - 1] & 0xFF, input.read());
+		}
+		assertEquals(1, extractions.get());
+	}
+
+	/**
+	 * Ensures that a failed extraction is reported to the readers and
+	 * retried by the next one.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFailedExtraction() throws Exception {
+		AtomicInteger extractions = new AtomicInteger();
+		ArchiveExtractionCache.Extractor extractor = out -> {
+			if (extractions.incrementAndGet() == 1) {
+				out.write(data, 0, 10);
+				throw new IOException("corrupted archive");
+			}
+			out.write(data);
+		};
+
+		try (InputStream input = ArchiveExtractionCache.getInputStream(archive, "failing", LENGTH, extractor)) {
+			assertThrows(IOException.class, () -> input.readNBytes(LENGTH));
+		}
+
+		try (InputStream input = ArchiveExtractionCache.getInputStream(archive, "failing", LENGTH, extractor)) {
+			assertArrayEquals(data, input.readAllBytes());
+		}
+		assertEquals(2, extractions.get());
+	}
+
+	/**
+	 * Ensures that an entry larger than the cache is opened directly.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testEntryTooLarge() throws Exception {
+		PMS.getConfiguration().setArchiveExtractionCacheSize(0);
+		ArchiveExtractionCache.Extractor extractor = out -> out.write(data);
+
+		try (InputStream input = ArchiveExtractionCache.getInputStream(archive, "large", LENGTH, extractor, () -> new ByteArrayInputStream(data))) {
+			assertTrue(input instanceof ByteArrayInputStream);
+		}
+
+		// without an opener it is extracted while it is read
+		try (InputStream input = ArchiveExtractionCache.getInputStream(archive, "large", LENGTH, extractor)) {
+			assertArrayEquals(data, input.readAllBytes());
+		}
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import net.pms.PMS;
+import net.pms.configuration.UmsConfiguration;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class BufferedOutputFileImplTest {
+	/**
+	 * The write margin of a 1 MB buffer.
+	 */
+	private static final int OVERFLOW_WARNING = 1048576 - 600000;
+	private static final int CHUNK = 100000;
+
+	@BeforeEach
+	public final void setUp() throws Exception {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+	}
+
+	/**
+	 * Ensures that two readers of one buffer read the same data, and that the
+	 * process is only stopped once both of them are gone.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSharedReaders() throws Exception {
+		BufferedOutputFileImpl output = new BufferedOutputFileImpl(getParams());
+		TestProcess process = new TestProcess();
+		output.attachThread(process);
+		InputStream first = output.getInputStream(0);
+		InputStream second = output.getInputStream(0);
+		assertNotNull(first);
+		assertNotNull(second);
+		assertNotSame(first, second);
+
+		byte[] data = getData(CHUNK);
+		output.write(data, 0, data.length);
+		assertArrayEquals(data, read(first, CHUNK));
+		assertArrayEquals(data, read(second, CHUNK));
+
+		// the remaining reader keeps the process running
+		first.close();
+		assertFalse(process.isReadyToStop());
+		assertSame(second, output.getCurrentInputStream());
+
+		second.close();
+		assertTrue(process.isReadyToStop());
+		assertNull(output.getCurrentInputStream());
+		assertTrue(process.stopped.await(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Ensures that a reader attaching while the process is about to stop
+	 * keeps it running.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testReaderAttachingBeforeStop() throws Exception {
+		BufferedOutputFileImpl output = new BufferedOutputFileImpl(getParams());
+		TestProcess process = new TestProcess();
+		output.attachThread(process);
+		output.getInputStream(0).close();
+		assertTrue(process.isReadyToStop());
+
+		InputStream reader = output.getInputStream(0);
+		assertFalse(process.isReadyToStop());
+		assertFalse(process.stopped.await(4, TimeUnit.SECONDS));
+		reader.close();
+	}
+
+	/**
+	 * Ensures that writing is throttled on the reader that is the furthest
+	 * behind, not on the latest one.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testSlowestReaderThrottles() throws Exception {
+		BufferedOutputFileImpl output = new BufferedOutputFileImpl(getParams());
+		InputStream fast = output.getInputStream(0);
+		InputStream slow = output.getInputStream(0);
+		byte[] data = getData(CHUNK);
+		int written = 0;
+		while (written <= OVERFLOW_WARNING) {
+			output.write(data, 0, data.length);
+			written += CHUNK;
+			read(fast, CHUNK);
+		}
+
+		CountDownLatch done = new CountDownLatch(1);
+		Thread writer = new Thread(() -> {
+			try {
+				output.write(data, 0, data.length);
+				done.countDown();
+			} catch (Exception e) {
+				// the latch stays up
+			}
+		});
+		writer.start();
+		assertFalse(done.await(2, TimeUnit.SECONDS));
+
+		read(slow, CHUNK);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(written + CHUNK, output.getWriteCount());
+		fast.close();
+		slow.close();
+	}
+
+	private static OutputParams getParams() {
+		OutputParams params = new OutputParams(PMS.getConfiguration());
+		params.setMinBufferSize(0);
+		params.setMaxBufferSize(1);
+		params.setSecondReadMinSize(0);
+		params.setHideBuffer(true);
+		return params;
+	}
+
+	private static byte[] getData(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) i;
+		}
+		return data;
+	}
+
+	private static byte[] read(InputStream input, int length) throws Exception {
+		byte[] data = new byte[length];
+		int read = 0;
+		while (read < length) {
+			int n = input.read(data, read, length - read);
+			assertTrue(n > 0);
+			read += n;
+		}
+		return data;
+	}
+
+	private static class TestProcess implements ProcessWrapper {
+		private final CountDownLatch stopped = new CountDownLatch(1);
+		private volatile boolean readyToStop;
+
+		@Override
+		public InputStream getInputStream(long seek) {
+			return null;
+		}
+
+		@Override
+		public List<String> getResults() {
+			return null;
+		}
+
+		@Override
+		public boolean isDestroyed() {
+			return stopped.getCount() == 0;
+		}
+
+		@Override
+		public void runInNewThread() {
+		}
+
+		@Override
+		public void runInSameThread() {
+		}
+
+		@Override
+		public void stopProcess() {
+			stopped.countDown();
+		}
+
+		@Override
+		public boolean isReadyToStop() {
+			return readyToStop;
+		}
+
+		@Override
+		public void setReadyToStop(boolean readyToStop) {
+			this.readyToStop = readyToStop;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileRangeInputStreamTest {
+	private static final int SIZE = 1000;
+
+	@TempDir
+	File folder;
+
+	private File file;
+	private byte[] data;
+
+	@BeforeEach
+	public final void setUp() throws Exception {
+		data = new byte[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			data[i] = (byte) (i * 7);
+		}
+		file = new File(folder, "range.bin");
+		Files.write(file.toPath(), data);
+	}
+
+	@Test
+	public void testWholeFile() throws Exception {
+		try (FileRangeInputStream input = new FileRangeInputStream(file)) {
+			assertEquals(SIZE, input.available());
+			assertEquals(data[0] & 0xFF, input.read());
+			assertEquals(1, input.getPosition());
+			assertEquals(SIZE - 1, input.getRemaining());
+			assertArrayEquals(Arrays.copyOfRange(data, 1, SIZE), input.readAllBytes());
+			assertEquals(-1, input.read());
+			assertEquals(-1, input.read(new byte[10], 0, 10));
+			assertEquals(0, input.read(new byte[10], 0, 0));
+		}
+	}
+
+	@Test
+	public void testSkip() throws Exception {
+		try (FileRangeInputStream input = new FileRangeInputStream(file)) {
+			assertEquals(100, input.skip(100));
+			assertEquals(data[100] & 0xFF, input.read());
+			assertEquals(0, input.skip(-5));
+			assertEquals(101, input.getPosition());
+
+			// skipping never goes past the end
+			assertEquals(SIZE - 101, input.skip(SIZE));
+			assertEquals(0, input.getRemaining());
+			assertEquals(-1, input.read());
+		}
+	}
+
+	@Test
+	public void testSetRange() throws Exception {
+		try (FileRangeInputStream input = new FileRangeInputStream(file)) {
+			input.setRange(200, 299);
+			assertEquals(100, input.available());
+			assertArrayEquals(Arrays.copyOfRange(data, 200, 300), input.readAllBytes());
+		}
+
+		// a high bound lower than the low one reads up to the end
+		try (FileRangeInputStream input = new FileRangeInputStream(file)) {
+			input.setRange(900, -1);
+			assertArrayEquals(Arrays.copyOfRange(data, 900, SIZE), input.readAllBytes());
+		}
+
+		// the range is clamped to the file
+		try (FileRangeInputStream input = new FileRangeInputStream(file)) {
+			input.setRange(990, 5000);
+			assertArrayEquals(Arrays.copyOfRange(data, 990, SIZE), input.readAllBytes());
+		}
+	}
+
+	@Test
+	public void testFilePart() throws Exception {
+		try (FileRangeInputStream input = new FileRangeInputStream(file, 300, 400)) {
+			assertEquals(400, input.available());
+			assertEquals(300, input.getPosition());
+			assertEquals(50, input.skip(50));
+			byte[] b = new byte[10];
+			assertEquals(10, input.read(b, 0, 10));
+			assertArrayEquals(Arrays.copyOfRange(data, 350, 360), b);
+
+			// ranges are relative to the part, not to the file
+			input.setRange(100, 149);
+			assertEquals(400, input.getPosition());
+			assertArrayEquals(Arrays.copyOfRange(data, 400, 450), input.readAllBytes());
+
+			input.setRange(350, 1000);
+			assertArrayEquals(Arrays.copyOfRange(data, 650, 700), input.readAllBytes());
+		}
+	}
+
+	@Test
+	public void testTransferTo() throws Exception {
+		try (FileRangeInputStream input = new FileRangeInputStream(file, 100, 500)) {
+			input.setRange(10, 109);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(100, input.transferTo(out));
+			assertArrayEquals(Arrays.copyOfRange(data, 110, 210), out.toByteArray());
+			assertEquals(0, input.getRemaining());
+		}
+
+		try (FileRangeInputStream input = new FileRangeInputStream(file)) {
+			input.skip(SIZE - 200);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			assertEquals(200, input.transferTo(Channels.newChannel(out)));
+			assertArrayEquals(Arrays.copyOfRange(data, SIZE - 200, SIZE), out.toByteArray());
+		}
+	}
+}
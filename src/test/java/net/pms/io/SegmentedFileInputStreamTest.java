@@ -0,0 +1,119 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SegmentedFileInputStreamTest {
+	@TempDir
+	File folder;
+
+	private byte[] data;
+	private List<SegmentedFileInputStream.Segment> segments;
+
+	/**
+	 * Splits 300 bytes over three volumes, each part preceded by a header of
+	 * a different length like in a multi-volume archive.
+	 *
+	 * @throws Exception
+	 */
+	@BeforeEach
+	public final void setUp() throws Exception {
+		data = new byte[300];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 3);
+		}
+		segments = List.of(
+			getSegment("volume1", 10, 0, 100),
+			getSegment("volume2", 20, 100, 150),
+			getSegment("volume3", 0, 250, 50)
+		);
+	}
+
+	@Test
+	public void testRead() throws Exception {
+		try (SegmentedFileInputStream input = new SegmentedFileInputStream(segments)) {
+			assertEquals(300, input.length());
+			assertEquals(300, input.available());
+			assertEquals(data[0] & 0xFF, input.read());
+
+			// a read stops at the end of a part
+			byte[] b = new byte[200];
+			assertEquals(99, input.read(b, 0, 200));
+			assertArrayEquals(Arrays.copyOfRange(data, 1, 100), Arrays.copyOf(b, 99));
+
+			assertArrayEquals(Arrays.copyOfRange(data, 100, 300), input.readAllBytes());
+			assertEquals(0, input.available());
+			assertEquals(-1, input.read());
+			assertEquals(0, input.read(b, 0, 0));
+		}
+	}
+
+	@Test
+	public void testSkip() throws Exception {
+		try (SegmentedFileInputStream input = new SegmentedFileInputStream(segments)) {
+			// skip into the second part
+			assertEquals(120, input.skip(120));
+			assertEquals(data[120] & 0xFF, input.read());
+			assertEquals(0, input.skip(-10));
+
+			// skip across the end of the second part
+			assertEquals(150, input.skip(150));
+			assertEquals(29, input.available());
+			assertArrayEquals(Arrays.copyOfRange(data, 271, 300), input.readAllBytes());
+
+			// never past the end
+			assertEquals(0, input.skip(10));
+		}
+
+		try (SegmentedFileInputStream input = new SegmentedFileInputStream(segments)) {
+			assertEquals(300, input.skip(1000));
+			assertEquals(-1, input.read());
+		}
+	}
+
+	@Test
+	public void testReopenAfterClose() throws Exception {
+		SegmentedFileInputStream input = new SegmentedFileInputStream(segments);
+		input.skip(240);
+		assertEquals(data[240] & 0xFF, input.read());
+		input.close();
+
+		// the files are opened again as needed
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		input.transferTo(out);
+		input.close();
+		assertArrayEquals(Arrays.copyOfRange(data, 241, 300), out.toByteArray());
+	}
+
+	private SegmentedFileInputStream.Segment getSegment(String name, int header, int from, int length) throws Exception {
+		File file = new File(folder, name);
+		byte[] content = new byte[header + length + 5];
+		Arrays.fill(content, (byte) -1);
+		System.arraycopy(data, from, content, header, length);
+		Files.write(file.toPath(), content);
+		return new SegmentedFileInputStream.Segment(file, header, length);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.io;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import java.io.File;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TranscodeBufferTest {
+	private static final int SIZE = 4096;
+
+	@TempDir
+	File folder;
+
+	@BeforeEach
+	public final void setUp() {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+	}
+
+	@Test
+	public void testTypeOf() {
+		assertEquals(TranscodeBuffer.Type.HEAP, TranscodeBuffer.Type.typeOf("heap"));
+		assertEquals(TranscodeBuffer.Type.DIRECT, TranscodeBuffer.Type.typeOf(" Direct "));
+		assertEquals(TranscodeBuffer.Type.MAPPED, TranscodeBuffer.Type.typeOf("MAPPED"));
+		assertEquals(TranscodeBuffer.Type.HEAP, TranscodeBuffer.Type.typeOf("unknown"));
+		assertEquals(TranscodeBuffer.Type.HEAP, TranscodeBuffer.Type.typeOf(null));
+	}
+
+	@Test
+	public void testHeapBuffer() {
+		TranscodeBuffer buffer = TranscodeBuffer.allocate(TranscodeBuffer.Type.HEAP, SIZE, folder);
+		assertTrue(buffer instanceof HeapTranscodeBuffer);
+		testReadWrite(buffer);
+
+		// growing keeps the contents, shrinking keeps the buffer
+		TranscodeBuffer grown = buffer.grow(SIZE * 2);
+		assertEquals(SIZE * 2, grown.capacity());
+		assertContents(grown, SIZE);
+		assertSame(grown, grown.grow(SIZE));
+		grown.release();
+	}
+
+	@Test
+	public void testDirectBuffer() {
+		TranscodeBuffer buffer = TranscodeBuffer.allocate(TranscodeBuffer.Type.DIRECT, SIZE, folder);
+		assertTrue(buffer instanceof DirectTranscodeBuffer);
+		testReadWrite(buffer);
+
+		// direct buffers have their final size
+		assertSame(buffer, buffer.grow(SIZE * 2));
+		assertEquals(SIZE, buffer.capacity());
+		buffer.release();
+	}
+
+	@Test
+	public void testMappedBuffer() {
+		TranscodeBuffer buffer = TranscodeBuffer.allocate(TranscodeBuffer.Type.MAPPED, SIZE, folder);
+		assertTrue(buffer instanceof MappedTranscodeBuffer);
+		testReadWrite(buffer);
+		assertSame(buffer, buffer.grow(SIZE * 2));
+
+		// the temporary file is gone once the buffer is released
+		buffer.release();
+		assertEquals(0, folder.list().length);
+	}
+
+	@Test
+	public void testMappedBufferFallback() {
+		TranscodeBuffer buffer = TranscodeBuffer.allocate(TranscodeBuffer.Type.MAPPED, SIZE, new File(folder, "missing"));
+		assertTrue(buffer instanceof HeapTranscodeBuffer);
+		assertEquals(SIZE, buffer.capacity());
+	}
+
+	/**
+	 * Writes the buffer the way {@link BufferedOutputFileImpl} does, wrapping
+	 * around its end, and reads it back.
+	 */
+	private static void testReadWrite(TranscodeBuffer buffer) {
+		assertEquals(SIZE, buffer.capacity());
+		for (int i = 0; i < SIZE; i++) {
+			buffer.put(i, value(i));
+		}
+		assertContents(buffer, SIZE);
+
+		// an array write that wraps around the end of the buffer
+		byte[] src = new byte[100];
+		for (int i = 0; i < src.length; i++) {
+			src[i] = (byte) (i + 1);
+		}
+		int start = SIZE - 60;
+		buffer.put(start, src, 0, 60);
+		buffer.put(0, src, 60, 40);
+
+		byte[] dst = new byte[100];
+		buffer.get(start, dst, 0, 60);
+		buffer.get(0, dst, 60, 40);
+		assertArrayEquals(src, dst);
+		assertEquals((byte) 41, buffer.get(SIZE - 20));
+		assertEquals((byte) 100, buffer.get(39));
+
+		// restore what the wraparound overwrote
+		for (int i = 0; i < 40; i++) {
+			buffer.put(i, value(i));
+		}
+		for (int i = start; i < SIZE; i++) {
+			buffer.put(i, value(i));
+		}
+	}
+
+	private static void assertContents(TranscodeBuffer buffer, int length) {
+		byte[] dst = new byte[length];
+		buffer.get(0, dst, 0, length);
+		for (int i = 0; i < length; i++) {
+			assertEquals(value(i), dst[i]);
+			assertEquals(value(i), buffer.get(i));
+		}
+	}
+
+	private static byte value(int index) {
+		return (byte) (index * 31);
+	}
+}
@@ -16,10 +16,22 @@
  */
 package net.pms.network.mediaserver.handlers;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import net.pms.PMS;
 import net.pms.configuration.RendererConfigurations;
+import net.pms.configuration.UmsConfiguration;
+import net.pms.database.MediaDatabase;
+import net.pms.database.MediaTableFiles;
+import net.pms.database.MediaTableSearchIndex;
 import net.pms.network.mediaserver.handlers.message.SearchRequest;
 import net.pms.renderers.Renderer;
-import org.apache.commons.configuration.ConfigurationException;
+import net.pms.util.UMSUtils;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -31,8 +43,24 @@ public class SearchRequestHandlerTest {
 	private static final Logger LOG = LoggerFactory.getLogger(SearchRequestHandlerTest.class.getName());
 
 	@BeforeAll
-	public static final void setUp() throws ConfigurationException, InterruptedException {
-		// No need to setup anything
+	public static final void setUp() throws Exception {
+		PMS.get();
+		PMS.setConfiguration(new UmsConfiguration(false));
+		MediaDatabase.init();
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			MediaDatabase.dropAllTables(connection);
+			MediaDatabase.get().checkTables(true);
+		} finally {
+			MediaDatabase.close(connection);
+		}
+
+		// Contains searches use the search index once it is built
+		for (int i = 0; i < 100 && getIndexedCondition("ready") == null; i++) {
+			UMSUtils.sleep(100);
+		}
+		assertNotNull(getIndexedCondition("ready"), "The search index was not built");
 	}
 
 	@Test
@@ -57,7 +85,7 @@ public class SearchRequestHandlerTest {
 		String countSQL = SearchRequestHandler.convertToCountSql(searchCriteria, SearchRequestHandler.getRequestType(searchCriteria));
 		LOG.info(countSQL);
 		assertTrue(countSQL.matches(
-				"select\\s+count\\s+\\(\\s*DISTINCT\\s+A.COMPOSER\\s*\\)\\s+from\\s+AUDIO_METADATA\\s+as\\s+A\\s+where\\s+1\\s*=\\s*1\\s+and\\s+LOWER\\s*\\(\\s*A.COMPOSER\\s*\\)\\s+LIKE\\s+'%tchaikovsky%'"));
+				"select\\s+count\\s+\\(\\s*DISTINCT\\s+A.COMPOSER\\s*\\)\\s+from\\s+AUDIO_METADATA\\s+as\\s+A\\s+where\\s+1\\s*=\\s*1\\s+and\\s+\\(\\s*A.FILEID\\s+IN\\s+\\(\\s*SELECT\\s+SEARCH_INDEX.FILEID\\s+FROM\\s+SEARCH_INDEX\\s+WHERE\\s+SEARCH_INDEX.FIELD\\s*=\\s*5\\s+AND\\s+SEARCH_INDEX.TERM\\s+LIKE\\s+'tchaikovsky%'\\s*\\)\\s+AND\\s+LOWER\\s*\\(\\s*A.COMPOSER\\s*\\)\\s+LIKE\\s+'%tchaikovsky%'\\s*\\)"));
 	}
 
 	/**
@@ -69,7 +97,7 @@ public class SearchRequestHandlerTest {
 		String countSQL = SearchRequestHandler.convertToCountSql(searchCriteria, SearchRequestHandler.getRequestType(searchCriteria));
 		LOG.info(countSQL);
 		assertTrue(countSQL.matches(
-				"select\\s+count\\s+\\(\\s*DISTINCT\\s+A.CONDUCTOR\\s*\\)\\s+from\\s+AUDIO_METADATA\\s+as\\s+A\\s+where\\s+1\\s*=\\s*1\\s+and\\s+LOWER\\s*\\(\\s*A.CONDUCTOR\\s*\\)\\s+LIKE\\s+'%bernstein%'"));
+				"select\\s+count\\s+\\(\\s*DISTINCT\\s+A.CONDUCTOR\\s*\\)\\s+from\\s+AUDIO_METADATA\\s+as\\s+A\\s+where\\s+1\\s*=\\s*1\\s+and\\s+\\(\\s*A.FILEID\\s+IN\\s+\\(\\s*SELECT\\s+SEARCH_INDEX.FILEID\\s+FROM\\s+SEARCH_INDEX\\s+WHERE\\s+SEARCH_INDEX.FIELD\\s*=\\s*6\\s+AND\\s+SEARCH_INDEX.TERM\\s+LIKE\\s+'bernstein%'\\s*\\)\\s+AND\\s+LOWER\\s*\\(\\s*A.CONDUCTOR\\s*\\)\\s+LIKE\\s+'%bernstein%'\\s*\\)"));
 	}
 
 	@Test
@@ -78,7 +106,7 @@ public class SearchRequestHandlerTest {
 		String countSQL = SearchRequestHandler.convertToCountSql(searchCriteria, SearchRequestHandler.getRequestType(searchCriteria));
 		LOG.info(countSQL);
 		assertTrue(countSQL.matches(
-				"select\\s+count\\s+\\(\\s*DISTINCT\\s+A.ALBUMARTIST\\s*\\)\\s+from\\s+AUDIO_METADATA\\s+as\\s+A\\s+where\\s+1\\s*=\\s*1\\s+and\\s+LOWER\\s*\\(\\s*A.ALBUMARTIST\\s*\\)\\s+LIKE\\s+'%tchaikovsky%'"));
+				"select\\s+count\\s+\\(\\s*DISTINCT\\s+A.ALBUMARTIST\\s*\\)\\s+from\\s+AUDIO_METADATA\\s+as\\s+A\\s+where\\s+1\\s*=\\s*1\\s+and\\s+\\(\\s*A.FILEID\\s+IN\\s+\\(\\s*SELECT\\s+SEARCH_INDEX.FILEID\\s+FROM\\s+SEARCH_INDEX\\s+WHERE\\s+SEARCH_INDEX.FIELD\\s*=\\s*3\\s+AND\\s+SEARCH_INDEX.TERM\\s+LIKE\\s+'tchaikovsky%'\\s*\\)\\s+AND\\s+LOWER\\s*\\(\\s*A.ALBUMARTIST\\s*\\)\\s+LIKE\\s+'%tchaikovsky%'\\s*\\)"));
 	}
 
 	@Test
@@ -87,7 +115,7 @@ public class SearchRequestHandlerTest {
 		String countSQL = SearchRequestHandler.convertToCountSql(searchCriteria, SearchRequestHandler.getRequestType(searchCriteria));
 		LOG.info(countSQL);
 		assertTrue(countSQL.matches(
-				"select\\s+count\\s+\\(\\s*DISTINCT\\s+A.ARTIST\\s*\\)\\s+from\\s+AUDIO_METADATA\\s+as\\s+A\\s+where\\s+1\\s*=\\s*1\\s+and\\s+LOWER\\s*\\(\\s*A.ARTIST\\s*\\)\\s+LIKE\\s+'%tchaikovsky%'"));
+				"select\\s+count\\s+\\(\\s*DISTINCT\\s+A.ARTIST\\s*\\)\\s+from\\s+AUDIO_METADATA\\s+as\\s+A\\s+where\\s+1\\s*=\\s*1\\s+and\\s+\\(\\s*A.FILEID\\s+IN\\s+\\(\\s*SELECT\\s+SEARCH_INDEX.FILEID\\s+FROM\\s+SEARCH_INDEX\\s+WHERE\\s+SEARCH_INDEX.FIELD\\s*=\\s*2\\s+AND\\s+SEARCH_INDEX.TERM\\s+LIKE\\s+'tchaikovsky%'\\s*\\)\\s+AND\\s+LOWER\\s*\\(\\s*A.ARTIST\\s*\\)\\s+LIKE\\s+'%tchaikovsky%'\\s*\\)"));
 	}
 
 	/**
@@ -102,6 +130,65 @@ public class SearchRequestHandlerTest {
 				"select\\s+count\\s*\\(\\s*DISTINCT\\s+F.id\\s*\\)\\s+from\\s+FILES\\s+as\\s+F\\s+left\\s+outer\\s+join\\s+AUDIO_METADATA\\s+as\\s+A\\s+on\\s+F.ID\\s*=\\s*A.FILEID\\s+where\\s+F.FORMAT_TYPE\\s*=\\s*1\\s+and\\s+LOWER\\s*\\(\\s*A.SONGNAME\\s*\\)\\s+LIKE\\s+'%love don''t%'"));
 	}
 
+	/**
+	 * Tests that the search index only narrows contains searches, the files
+	 * matched are the ones the LIKE alone would match.
+	 */
+	@Test
+	public void testIndexedContainsSearch() throws Exception {
+		Connection connection = null;
+		try {
+			connection = MediaDatabase.getConnectionIfAvailable();
+			insertVideo(connection, "/media/Summer Holiday.mkv");
+			insertVideo(connection, "/media/holidays/beach.mkv");
+			insertVideo(connection, "/media/other.mkv");
+
+			assertEquals(2, getVideosCount(connection, "holiday"));
+			assertEquals(1, getVideosCount(connection, "summer holiday"));
+			assertEquals(1, getVideosCount(connection, "beach"));
+			assertEquals(0, getVideosCount(connection, "day sum"));
+			assertEquals(0, getVideosCount(connection, "unknown"));
+
+			// words of one character can't use the index
+			assertNull(getIndexedCondition("a holiday"));
+			assertEquals(3, getVideosCount(connection, "a/"));
+		} finally {
+			MediaDatabase.close(connection);
+		}
+	}
+
+	private static String getIndexedCondition(String term) {
+		return MediaTableSearchIndex.getContainsCondition("F.ID", MediaTableSearchIndex.Field.FILENAME, term);
+	}
+
+	private static void insertVideo(Connection connection, String filename) throws Exception {
+		try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + MediaTableFiles.TABLE_NAME + " (FILENAME, MODIFIED, FORMAT_TYPE) VALUES (?, ?, 4)")) {
+			ps.setString(1, filename);
+			ps.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+			ps.executeUpdate();
+		}
+		try (PreparedStatement ps = connection.prepareStatement("SELECT ID FROM " + MediaTableFiles.TABLE_NAME + " WHERE FILENAME = ?")) {
+			ps.setString(1, filename);
+			try (ResultSet rs = ps.executeQuery()) {
+				assertTrue(rs.next());
+				MediaTableSearchIndex.setFileName(connection, rs.getLong(1), filename);
+			}
+		}
+	}
+
+	private static int getVideosCount(Connection connection, String term) throws Exception {
+		String searchCriteria = "upnp:class derivedfrom \"object.item.videoItem\" and dc:title contains \"" + term + "\"";
+		String countSQL = SearchRequestHandler.convertToCountSql(searchCriteria, SearchRequestHandler.getRequestType(searchCriteria));
+		LOG.info(countSQL);
+		try (
+			PreparedStatement ps = connection.prepareStatement(countSQL);
+			ResultSet rs = ps.executeQuery()
+		) {
+			assertTrue(rs.next());
+			return rs.getInt(1);
+		}
+	}
+
 	@Test
 	public void testVideoFileUpnpSearch() {
 		SearchRequestHandler srh = new SearchRequestHandler();
@@ -0,0 +1,182 @@
+/*
+ * This file is part of Universal Media Server, based on PS3 Media Server.
+ *
+ * This program is a free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+package net.pms.network.webguiserver;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ServerSentEventsTest {
+	private static final int MAX_PENDING_MESSAGES = 1000;
+
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+	private final CountDownLatch completed = new CountDownLatch(1);
+	private final CountDownLatch closed = new CountDownLatch(1);
+	private ServerSentEvents sse;
+
+	@BeforeEach
+	public final void setUp() {
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+		sse = new ServerSentEvents(getAsyncContext(), closed::countDown);
+		// Flush the messages from the test, not from the hub
+		ServerSentEventsHub.unregister(sse);
+	}
+
+	/**
+	 * Ensures that the pending messages are sent as one frame, a message
+	 * with a key replacing the pending one with the same key.
+	 */
+	@Test
+	public void testCoalescing() {
+		assertTrue(sse.sendMessage("status", "status 1", false));
+		assertTrue(sse.sendMessage("first"));
+		assertTrue(sse.sendMessage("status", "status 2", false));
+		assertTrue(sse.sendMessage("second"));
+		assertTrue(sse.needFlush(0));
+		assertTrue(sse.startFlush());
+		assertFalse(sse.startFlush());
+		sse.flush();
+
+		assertEquals(
+			"event: message\ndata: first\n\n" +
+			"event: message\ndata: status 2\n\n" +
+			"event: message\ndata: second\n\n",
+			getOutput()
+		);
+		assertFalse(sse.needFlush(0));
+		assertTrue(sse.startFlush());
+
+		// nothing pending, a ping is sent
+		sse.flush();
+		assertTrue(getOutput().startsWith("event: ping\ndata: "));
+	}
+
+	/**
+	 * Ensures that a slow client loses the oldest droppable messages first,
+	 * and keeps the others.
+	 */
+	@Test
+	public void testDropping() {
+		for (int i = 0; i < 10; i++) {
+			assertTrue(sse.sendMessage(null, "state " + i, false, false));
+		}
+		for (int i = 0; i < MAX_PENDING_MESSAGES; i++) {
+			assertTrue(sse.sendMessage(null, "log " + i, false, true));
+		}
+		sse.flush();
+
+		String frame = getOutput();
+		assertEquals(MAX_PENDING_MESSAGES, frame.split("event: message\n", -1).length - 1);
+		assertTrue(frame.startsWith("event: message\ndata: state 0\n\n"));
+		assertTrue(frame.contains("data: state 9\n\n"));
+		assertFalse(frame.contains("data: log 9\n\n"));
+		assertTrue(frame.contains("data: log 10\n\n"));
+		assertTrue(frame.endsWith("data: log " + (MAX_PENDING_MESSAGES - 1) + "\n\n"));
+		assertTrue(sse.isOpened());
+	}
+
+	/**
+	 * Ensures that the stream of a client stalled with messages that can't
+	 * be dropped is closed instead of growing without bound.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testOverflow() throws Exception {
+		for (int i = 0; i < MAX_PENDING_MESSAGES; i++) {
+			assertTrue(sse.sendMessage(null, "state " + i, false, false));
+		}
+		assertFalse(sse.sendMessage(null, "state " + MAX_PENDING_MESSAGES, false, false));
+		assertFalse(sse.sendMessage("status", "status", false));
+
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+		assertFalse(sse.isOpened());
+		assertFalse(sse.sendMessage("after close"));
+		assertEquals("", getOutput());
+	}
+
+	private String getOutput() {
+		synchronized (output) {
+			String result = output.toString(StandardCharsets.UTF_8);
+			output.reset();
+			return result;
+		}
+	}
+
+	private AsyncContext getAsyncContext() {
+		ServletOutputStream outputStream = new ServletOutputStream() {
+			@Override
+			public void write(int b) {
+				synchronized (output) {
+					output.write(b);
+				}
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				synchronized (output) {
+					output.write(b, off, len);
+				}
+			}
+
+			@Override
+			public boolean isReady() {
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener) {
+			}
+		};
+		ServletResponse response = (ServletResponse) Proxy.newProxyInstance(
+			ServletResponse.class.getClassLoader(),
+			new Class<?>[] {ServletResponse.class},
+			(proxy, method, args) -> "getOutputStream".equals(method.getName()) ? outputStream : null
+		);
+		return (AsyncContext) Proxy.newProxyInstance(
+			AsyncContext.class.getClassLoader(),
+			new Class<?>[] {AsyncContext.class},
+			(proxy, method, args) -> {
+				switch (method.getName()) {
+					case "getResponse" -> {
+						return response;
+					}
+					case "complete" -> completed.countDown();
+					default -> {
+						// nothing to do
+					}
+				}
+				return null;
+			}
+		);
+	}
+}